@@ -0,0 +1,778 @@
+/*
+ * BTreeMap.java - example of B+ Tree Map implementation
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * B+ tree implementation of the <tt>Map</tt> interface, sorted by the
+ * natural ordering of the keys.
+ *
+ * <p>Each node holds up to <tt>nodeSize</tt> keys (64 by default) in an
+ * array, searched by bisection: a lookup visits a handful of nodes instead
+ * of one entry per level, and the keys of a node are read from a single
+ * array rather than from scattered entries. The mappings are kept in the
+ * leaves only, keys and values in two parallel arrays; the branches hold
+ * separator keys and their children. The leaves are linked in order, so
+ * that iterating the map walks the arrays of the leaves one after the
+ * other.
+ *
+ * <p>A full node is split in two halves, except the last leaf when the key
+ * goes past its end: it is left full and the key starts a new leaf, so
+ * that keys added in ascending order fill the leaves completely. A node
+ * left less than half full by a removal takes keys from a sibling, or is
+ * merged with it if both fit in one node.
+ *
+ * <p>Null keys are not allowed, null values are. Note that this
+ * implementation is not synchronized.
+ */
+
+public class BTreeMap<K,V> extends AbstractMap<K,V>
+{
+	static final int DEFAULT_NODE_SIZE = 64;
+
+	// returned by putVal and removeVal when the key was not in the map
+	static final Object ABSENT = new Object();
+
+	private final int nodeSize;
+	// a key-only map has no values in its leaves
+	private final boolean keysOnly;
+	private Node root;
+	private Leaf head;
+	private Leaf tail;
+	private int size;
+
+	// the node split off by the last insertion, and its first key
+	private Node splitNode;
+	private Object splitKey;
+
+	/**
+	 * Constructs an empty <tt>BTreeMap</tt> whose nodes hold up to the
+	 * specified number of keys.
+	 */
+	public BTreeMap(int nodeSize) {
+		this(nodeSize, false);
+	}
+
+	/**
+	 * Constructs an empty <tt>BTreeMap</tt> whose nodes hold up to 64 keys.
+	 */
+	public BTreeMap() {
+		this(DEFAULT_NODE_SIZE, false);
+	}
+
+	BTreeMap(int nodeSize, boolean keysOnly) {
+		if (nodeSize < 4)
+			throw new IllegalArgumentException(
+				"Illegal node size: " + nodeSize);
+		this.nodeSize = nodeSize;
+		this.keysOnly = keysOnly;
+		clear();
+	}
+
+	// Query Operations
+
+	/**
+	 * Returns the number of mappings in this map.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map contains no mappings.
+	 */
+	public boolean isEmpty() {
+		return size == 0 ? true : false;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map contains a mapping for the
+	 * specified key.
+	 */
+	public boolean containsKey(Object key) {
+		Leaf l = findLeaf(key);
+		return search(l.keys, l.n, key) >= 0;
+	}
+
+	/**
+	 * Returns the value to which the specified key is mapped, or null if
+	 * this map contains no mapping for the key.
+	 */
+	public V get(Object key) {
+		Leaf l = findLeaf(key);
+		int i = search(l.keys, l.n, key);
+		return i < 0 || keysOnly ? null : (V)l.values[i];
+	}
+
+	// Modification Operations
+
+	/**
+	 * Associates the specified value with the specified key in this map.
+	 * Returns the previous value, or null if there was none.
+	 */
+	public V put(K key, V value) {
+		Object old = putVal(key, value);
+		return old == ABSENT ? null : (V)old;
+	}
+
+	/**
+	 * Removes the mapping for the specified key from this map if present,
+	 * and returns its value, or null if there was none.
+	 */
+	public V remove(Object key) {
+		Object old = removeVal(key);
+		return old == ABSENT ? null : (V)old;
+	}
+
+	/**
+	 * Removes all of the mappings from this map.
+	 */
+	public void clear() {
+		head = tail = new Leaf(nodeSize, keysOnly);
+		root = head;
+		size = 0;
+	}
+
+	// Navigation Operations
+
+	/**
+	 * Returns the lowest key in this map.
+	 */
+	public K firstKey() {
+		if (size == 0)
+			throw new NoSuchElementException();
+		return (K)head.keys[0];
+	}
+
+	/**
+	 * Returns the highest key in this map.
+	 */
+	public K lastKey() {
+		if (size == 0)
+			throw new NoSuchElementException();
+		return (K)tail.keys[tail.n - 1];
+	}
+
+	/**
+	 * Returns the greatest key strictly less than the given key, or
+	 * <tt>null</tt> if there is none.
+	 */
+	public K lowerKey(K key) {
+		return (K)nearestKey(key, false, false);
+	}
+
+	/**
+	 * Returns the greatest key less than or equal to the given key, or
+	 * <tt>null</tt> if there is none.
+	 */
+	public K floorKey(K key) {
+		return (K)nearestKey(key, false, true);
+	}
+
+	/**
+	 * Returns the least key greater than or equal to the given key, or
+	 * <tt>null</tt> if there is none.
+	 */
+	public K ceilingKey(K key) {
+		return (K)nearestKey(key, true, true);
+	}
+
+	/**
+	 * Returns the least key strictly greater than the given key, or
+	 * <tt>null</tt> if there is none.
+	 */
+	public K higherKey(K key) {
+		return (K)nearestKey(key, true, false);
+	}
+
+	// Views
+
+	/**
+	 * Returns a <tt>Set</tt> view of the keys contained in this map, in
+	 * ascending order.
+	 */
+	public Set<K> keySet() {
+		return new AbstractSet<K>() {
+			public Iterator<K> iterator() {
+				return new KeyIterator<K>(null, null);
+			}
+			public int size() {
+				return size;
+			}
+			public boolean contains(Object o) {
+				return containsKey(o);
+			}
+			public boolean remove(Object o) {
+				return removeVal(o) != ABSENT;
+			}
+			public void clear() {
+				BTreeMap.this.clear();
+			}
+		};
+	}
+
+	/**
+	 * Returns a <tt>Set</tt> view of the mappings contained in this map, in
+	 * ascending order of the keys.
+	 */
+	public Set<Map.Entry<K,V>> entrySet() {
+		return new AbstractSet<Map.Entry<K,V>>() {
+			public Iterator<Map.Entry<K,V>> iterator() {
+				return new EntryIterator();
+			}
+			public int size() {
+				return size;
+			}
+			public void clear() {
+				BTreeMap.this.clear();
+			}
+		};
+	}
+
+	/**
+	 * Returns the height of the tree: the number of nodes on a path from
+	 * the root to a leaf.
+	 */
+	int height() {
+		int h = 1;
+		for (Node x = root; x instanceof Branch; x = ((Branch)x).children[0])
+			h++;
+		return h;
+	}
+
+	// Nodes
+
+	/**
+	 * A node of the tree: the first <tt>n</tt> slots of its array of keys
+	 * are in use.
+	 */
+	static abstract class Node {
+		final Object[] keys;
+		int n;
+
+		Node(int nodeSize) {
+			keys = new Object[nodeSize];
+		}
+	}
+
+	/**
+	 * A leaf holds the mappings, and is linked to the leaves before and
+	 * after it.
+	 */
+	static final class Leaf extends Node {
+		final Object[] values;
+		Leaf prev;
+		Leaf next;
+
+		Leaf(int nodeSize, boolean keysOnly) {
+			super(nodeSize);
+			values = keysOnly ? null : new Object[nodeSize];
+		}
+	}
+
+	/**
+	 * A branch has one child more than keys: the keys of child i are
+	 * greater than or equal to key i - 1, and less than key i.
+	 */
+	static final class Branch extends Node {
+		final Node[] children;
+
+		Branch(int nodeSize) {
+			super(nodeSize);
+			children = new Node[nodeSize + 1];
+		}
+	}
+
+	private static int compare(Object a, Object b) {
+		return ((Comparable<Object>)a).compareTo(b);
+	}
+
+	/**
+	 * Returns the index of the key among the first n keys, or
+	 * -(insertion point) - 1 if it is not there.
+	 */
+	private static int search(Object[] keys, int n, Object key) {
+		int lo = 0;
+		int hi = n - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int cmp = compare(key, keys[mid]);
+			if (cmp > 0)
+				lo = mid + 1;
+			else if (cmp < 0)
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return -(lo + 1);
+	}
+
+	private static int childIndex(Branch b, Object key) {
+		int i = search(b.keys, b.n, key);
+		return i >= 0 ? i + 1 : -i - 1;
+	}
+
+	private Leaf findLeaf(Object key) {
+		// a null key is not comparable
+		if (key == null)
+			throw new NullPointerException();
+		Node x = root;
+		while (x instanceof Branch) {
+			Branch b = (Branch)x;
+			x = b.children[childIndex(b, key)];
+		}
+		return (Leaf)x;
+	}
+
+	/**
+	 * Returns the key next to the given one, above or below it, or the
+	 * given key itself if inclusive and present.
+	 */
+	private Object nearestKey(Object key, boolean above, boolean inclusive) {
+		Leaf l = findLeaf(key);
+		int i = search(l.keys, l.n, key);
+		if (i >= 0) {
+			if (inclusive)
+				return l.keys[i];
+			i = above ? i + 1 : i - 1;
+		} else {
+			i = above ? -i - 1 : -i - 2;
+		}
+		if (i >= l.n) {
+			l = l.next;
+			i = 0;
+		} else if (i < 0) {
+			l = l.prev;
+			i = l == null ? 0 : l.n - 1;
+		}
+		return l == null ? null : l.keys[i];
+	}
+
+	// Insertion
+
+	/**
+	 * Maps the key to the value, and returns the previous value, or
+	 * <tt>ABSENT</tt> if the key was not in the map.
+	 */
+	Object putVal(Object key, Object value) {
+		if (key == null)
+			throw new NullPointerException();
+		Object old = insert(root, key, value);
+		if (splitNode != null) {
+			// the root was split: the tree grows by one level
+			Branch b = new Branch(nodeSize);
+			b.keys[0] = splitKey;
+			b.children[0] = root;
+			b.children[1] = splitNode;
+			b.n = 1;
+			root = b;
+			splitNode = null;
+			splitKey = null;
+		}
+		return old;
+	}
+
+	private Object insert(Node x, Object key, Object value) {
+		if (x instanceof Leaf)
+			return insertLeaf((Leaf)x, key, value);
+		Branch b = (Branch)x;
+		int c = childIndex(b, key);
+		Object old = insert(b.children[c], key, value);
+		if (splitNode != null) {
+			Node r = splitNode;
+			Object k = splitKey;
+			splitNode = null;
+			splitKey = null;
+			insertChild(b, c, k, r);
+		}
+		return old;
+	}
+
+	private Object insertLeaf(Leaf l, Object key, Object value) {
+		int i = search(l.keys, l.n, key);
+		if (i >= 0) {
+			if (keysOnly)
+				return null;
+			Object old = l.values[i];
+			l.values[i] = value;
+			return old;
+		}
+		i = -i - 1;
+		size++;
+		if (l.n < nodeSize) {
+			insertAt(l, i, key, value);
+			return ABSENT;
+		}
+
+		// split the leaf, keeping the last one full for ascending keys
+		int m = (i == nodeSize && l.next == null) ? nodeSize : nodeSize / 2;
+		Leaf r = new Leaf(nodeSize, keysOnly);
+		moveTo(l, m, r, 0, l.n - m);
+		r.n = l.n - m;
+		clear(l, m, l.n);
+		l.n = m;
+		if (i <= m && m < nodeSize)
+			insertAt(l, i, key, value);
+		else
+			insertAt(r, i - m, key, value);
+
+		r.prev = l;
+		r.next = l.next;
+		if (r.next != null)
+			r.next.prev = r;
+		else
+			tail = r;
+		l.next = r;
+		splitNode = r;
+		splitKey = r.keys[0];
+		return ABSENT;
+	}
+
+	private void insertAt(Leaf l, int i, Object key, Object value) {
+		System.arraycopy(l.keys, i, l.keys, i + 1, l.n - i);
+		l.keys[i] = key;
+		if (!keysOnly) {
+			System.arraycopy(l.values, i, l.values, i + 1, l.n - i);
+			l.values[i] = value;
+		}
+		l.n++;
+	}
+
+	/**
+	 * Inserts the key k at index c of the branch, and the child r just
+	 * after it, splitting the branch if full.
+	 */
+	private void insertChild(Branch b, int c, Object k, Node r) {
+		if (b.n < nodeSize) {
+			insertAt(b, c, k, r);
+			return;
+		}
+
+		// split the branch: the middle key moves up to the parent
+		int m = nodeSize / 2;
+		Branch s = new Branch(nodeSize);
+		s.n = b.n - m - 1;
+		System.arraycopy(b.keys, m + 1, s.keys, 0, s.n);
+		System.arraycopy(b.children, m + 1, s.children, 0, s.n + 1);
+		Object up = b.keys[m];
+		for (int i = m; i < b.n; i++) {
+			b.keys[i] = null;
+			b.children[i + 1] = null;
+		}
+		b.n = m;
+		if (c <= m)
+			insertAt(b, c, k, r);
+		else
+			insertAt(s, c - m - 1, k, r);
+		splitNode = s;
+		splitKey = up;
+	}
+
+	private static void insertAt(Branch b, int c, Object k, Node r) {
+		System.arraycopy(b.keys, c, b.keys, c + 1, b.n - c);
+		System.arraycopy(b.children, c + 1, b.children, c + 2, b.n - c);
+		b.keys[c] = k;
+		b.children[c + 1] = r;
+		b.n++;
+	}
+
+	// Removal
+
+	/**
+	 * Removes the key, and returns its value, or <tt>ABSENT</tt> if the
+	 * key was not in the map.
+	 */
+	Object removeVal(Object key) {
+		if (key == null)
+			throw new NullPointerException();
+		Object old = delete(root, key);
+		if (root instanceof Branch && root.n == 0) {
+			// the root has a single child: the tree shrinks by one level
+			root = ((Branch)root).children[0];
+		}
+		return old;
+	}
+
+	private Object delete(Node x, Object key) {
+		if (x instanceof Leaf) {
+			Leaf l = (Leaf)x;
+			int i = search(l.keys, l.n, key);
+			if (i < 0)
+				return ABSENT;
+			Object old = keysOnly ? null : l.values[i];
+			moveTo(l, i + 1, l, i, l.n - i - 1);
+			clear(l, l.n - 1, l.n);
+			l.n--;
+			size--;
+			return old;
+		}
+		Branch b = (Branch)x;
+		int c = childIndex(b, key);
+		Object old = delete(b.children[c], key);
+		if (b.children[c].n < nodeSize / 2)
+			rebalance(b, c);
+		return old;
+	}
+
+	/**
+	 * Refills the child c of the branch, less than half full, from its
+	 * sibling: merges the two if they fit in one node, otherwise shares
+	 * their keys evenly.
+	 */
+	private void rebalance(Branch p, int c) {
+		int i = c > 0 ? c - 1 : c;
+		Node a = p.children[i];
+		Node b = p.children[i + 1];
+		if (a instanceof Leaf) {
+			Leaf l = (Leaf)a, r = (Leaf)b;
+			if (l.n + r.n <= nodeSize) {
+				moveTo(r, 0, l, l.n, r.n);
+				l.n += r.n;
+				l.next = r.next;
+				if (l.next != null)
+					l.next.prev = l;
+				else
+					tail = l;
+				removeChild(p, i);
+				return;
+			}
+			int m = (l.n + r.n) / 2;
+			if (l.n < m) {
+				int k = m - l.n;
+				moveTo(r, 0, l, l.n, k);
+				moveTo(r, k, r, 0, r.n - k);
+				clear(r, r.n - k, r.n);
+				l.n += k;
+				r.n -= k;
+			} else {
+				int k = l.n - m;
+				moveTo(r, 0, r, k, r.n);
+				moveTo(l, m, r, 0, k);
+				clear(l, m, l.n);
+				l.n -= k;
+				r.n += k;
+			}
+			p.keys[i] = r.keys[0];
+			return;
+		}
+
+		// branches: the key of the parent goes down between them
+		Branch l = (Branch)a, r = (Branch)b;
+		if (l.n + r.n + 1 <= nodeSize) {
+			l.keys[l.n] = p.keys[i];
+			System.arraycopy(r.keys, 0, l.keys, l.n + 1, r.n);
+			System.arraycopy(r.children, 0, l.children, l.n + 1, r.n + 1);
+			l.n += r.n + 1;
+			removeChild(p, i);
+			return;
+		}
+		int m = (l.n + r.n) / 2;
+		if (l.n < m) {
+			int k = m - l.n;
+			l.keys[l.n] = p.keys[i];
+			System.arraycopy(r.keys, 0, l.keys, l.n + 1, k - 1);
+			System.arraycopy(r.children, 0, l.children, l.n + 1, k);
+			p.keys[i] = r.keys[k - 1];
+			System.arraycopy(r.keys, k, r.keys, 0, r.n - k);
+			System.arraycopy(r.children, k, r.children, 0, r.n - k + 1);
+			for (int j = r.n - k; j < r.n; j++) {
+				r.keys[j] = null;
+				r.children[j + 1] = null;
+			}
+			l.n += k;
+			r.n -= k;
+		} else {
+			int k = l.n - m;
+			System.arraycopy(r.keys, 0, r.keys, k, r.n);
+			System.arraycopy(r.children, 0, r.children, k, r.n + 1);
+			r.keys[k - 1] = p.keys[i];
+			System.arraycopy(l.keys, l.n - k + 1, r.keys, 0, k - 1);
+			System.arraycopy(l.children, l.n - k + 1, r.children, 0, k);
+			p.keys[i] = l.keys[l.n - k];
+			for (int j = l.n - k; j < l.n; j++) {
+				l.keys[j] = null;
+				l.children[j + 1] = null;
+			}
+			l.n -= k;
+			r.n += k;
+		}
+	}
+
+	/**
+	 * Removes the key i of the branch and the child after it.
+	 */
+	private static void removeChild(Branch p, int i) {
+		System.arraycopy(p.keys, i + 1, p.keys, i, p.n - i - 1);
+		System.arraycopy(p.children, i + 2, p.children, i + 1, p.n - i - 1);
+		p.n--;
+		p.keys[p.n] = null;
+		p.children[p.n + 1] = null;
+	}
+
+	private void moveTo(Leaf src, int from, Leaf dst, int to, int len) {
+		System.arraycopy(src.keys, from, dst.keys, to, len);
+		if (!keysOnly)
+			System.arraycopy(src.values, from, dst.values, to, len);
+	}
+
+	private void clear(Leaf l, int from, int to) {
+		for (int i = from; i < to; i++) {
+			l.keys[i] = null;
+			if (!keysOnly)
+				l.values[i] = null;
+		}
+	}
+
+	// Iterators
+
+	/**
+	 * Iterates the leaves in ascending order, from the first key not less
+	 * than <tt>from</tt> to the last one less than <tt>to</tt>, a null
+	 * bound leaving that end open. A removal finds the position of the
+	 * next key again, since it may move keys between the leaves.
+	 */
+	abstract class BTreeIterator<T> implements Iterator<T> {
+		private Leaf leaf;
+		private int index;
+		private final Object fence;
+		// the key returned by the last call to next(), and its leaf
+		private Object lastKey;
+		Leaf lastLeaf;
+
+		BTreeIterator(Object from, Object to) {
+			fence = to;
+			if (from == null) {
+				leaf = head.n == 0 ? null : head;
+				index = 0;
+			} else {
+				seek(from, true);
+			}
+		}
+
+		private void seek(Object key, boolean inclusive) {
+			Leaf l = findLeaf(key);
+			int i = search(l.keys, l.n, key);
+			if (i < 0)
+				i = -i - 1;
+			else if (!inclusive)
+				i++;
+			if (i == l.n) {
+				l = l.next;
+				i = 0;
+			}
+			leaf = l;
+			index = i;
+		}
+
+		public boolean hasNext() {
+			return leaf != null &&
+				(fence == null || compare(leaf.keys[index], fence) < 0);
+		}
+
+		final int nextIndex() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			int i = index;
+			lastLeaf = leaf;
+			lastKey = leaf.keys[i];
+			if (++index == leaf.n) {
+				leaf = leaf.next;
+				index = 0;
+			}
+			return i;
+		}
+
+		public void remove() {
+			if (lastKey == null)
+				throw new IllegalStateException();
+			removeVal(lastKey);
+			seek(lastKey, false);
+			lastKey = null;
+		}
+	}
+
+	final class KeyIterator<T> extends BTreeIterator<T> {
+		KeyIterator(Object from, Object to) {
+			super(from, to);
+		}
+
+		public T next() {
+			int i = nextIndex();
+			return (T)lastLeaf.keys[i];
+		}
+	}
+
+	final class EntryIterator extends BTreeIterator<Map.Entry<K,V>> {
+		EntryIterator() {
+			super(null, null);
+		}
+
+		public Map.Entry<K,V> next() {
+			int i = nextIndex();
+			return new Entry((K)lastLeaf.keys[i], (V)lastLeaf.values[i]);
+		}
+	}
+
+	/**
+	 * A mapping returned by the iterator: setting its value updates the
+	 * map.
+	 */
+	final class Entry implements Map.Entry<K,V> {
+		private final K key;
+		private V value;
+
+		Entry(K key, V value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		public K getKey() {
+			return key;
+		}
+
+		public V getValue() {
+			return value;
+		}
+
+		public V setValue(V v) {
+			put(key, v);
+			V val = value;
+			value = v;
+			return val;
+		}
+
+		public boolean equals(Object o) {
+			// check instance type (Map.Entry)
+			if (!(o instanceof Map.Entry))
+				return false;
+
+			// check k,v pair
+			Object k = ((Map.Entry<?,?>)o).getKey();
+			Object v = ((Map.Entry<?,?>)o).getValue();
+			return (key == k || (key != null && key.equals(k))) &&
+				(value == v || (value != null && value.equals(v)));
+		}
+
+		public int hashCode() {
+			return (key == null ? 0 : key.hashCode()) ^
+				(value == null ? 0 : value.hashCode());
+		}
+
+		public String toString() {
+			return key + "=" + value;
+		}
+	}
+
+}
@@ -0,0 +1,305 @@
+/*
+ * BTreeSet.java - example of B+ Tree Set implementation
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * B+ tree implementation of the <tt>SortedSet</tt> interface, built on a
+ * <tt>BTreeMap</tt> whose leaves hold no values.
+ *
+ * <p>The elements are stored in the arrays of the nodes, up to
+ * <tt>nodeSize</tt> (64 by default) per node, instead of one entry per
+ * element with three links like <tt>TreeSet</tt>: a lookup reads a few
+ * arrays, and the set takes a few bytes per element beside the elements
+ * themselves. The iterator walks the leaves, linked in order.
+ *
+ * <p>The elements are sorted by their natural ordering. The views returned
+ * by <tt>subSet</tt>, <tt>headSet</tt> and <tt>tailSet</tt> are backed by
+ * the set, and find their first element by a descent of the tree.
+ *
+ * <p>Null elements are not allowed. Note that this implementation is not
+ * synchronized.
+ */
+
+public class BTreeSet<E> extends AbstractSet<E> implements SortedSet<E>
+{
+	private final BTreeMap<E,Object> map;
+
+	/**
+	 * Constructs an empty <tt>BTreeSet</tt> whose nodes hold up to the
+	 * specified number of elements.
+	 */
+	public BTreeSet(int nodeSize) {
+		map = new BTreeMap<E,Object>(nodeSize, true);
+	}
+
+	/**
+	 * Constructs an empty <tt>BTreeSet</tt> whose nodes hold up to 64
+	 * elements.
+	 */
+	public BTreeSet() {
+		this(BTreeMap.DEFAULT_NODE_SIZE);
+	}
+
+	// Query Operations
+
+	/**
+	 * Returns the number of elements in this set.
+	 */
+	public int size() {
+		return map.size();
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this set contains no elements.
+	 */
+	public boolean isEmpty() {
+		return map.isEmpty();
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this set contains the specified element.
+	 */
+	public boolean contains(Object o) {
+		return map.containsKey(o);
+	}
+
+	/**
+	 * Returns an iterator over the elements in this set, in ascending
+	 * order.
+	 */
+	public Iterator<E> iterator() {
+		return map.new KeyIterator<E>(null, null);
+	}
+
+	// Modification Operations
+
+	/**
+	 * Adds the specified element to this set if it is not already present.
+	 * If this set already contains the element, the call leaves the set
+	 * unchanged and returns <tt>false</tt>.
+	 */
+	public boolean add(E elem) {
+		return map.putVal(elem, null) == BTreeMap.ABSENT;
+	}
+
+	/**
+	 * Removes the specified element from this set if it is present.
+	 */
+	public boolean remove(Object o) {
+		return map.removeVal(o) != BTreeMap.ABSENT;
+	}
+
+	/**
+	 * Removes all of the elements from this set.
+	 */
+	public void clear() {
+		map.clear();
+	}
+
+	// Navigation Operations
+
+	/**
+	 * Returns <tt>null</tt>, since the elements are sorted by their
+	 * natural ordering.
+	 */
+	public Comparator<? super E> comparator() {
+		return null;
+	}
+
+	/**
+	 * Returns the lowest element in this set.
+	 */
+	public E first() {
+		return map.firstKey();
+	}
+
+	/**
+	 * Returns the highest element in this set.
+	 */
+	public E last() {
+		return map.lastKey();
+	}
+
+	/**
+	 * Returns the greatest element in this set strictly less than the
+	 * given element, or <tt>null</tt> if there is none.
+	 */
+	public E lower(E e) {
+		return map.lowerKey(e);
+	}
+
+	/**
+	 * Returns the greatest element in this set less than or equal to the
+	 * given element, or <tt>null</tt> if there is none.
+	 */
+	public E floor(E e) {
+		return map.floorKey(e);
+	}
+
+	/**
+	 * Returns the least element in this set greater than or equal to the
+	 * given element, or <tt>null</tt> if there is none.
+	 */
+	public E ceiling(E e) {
+		return map.ceilingKey(e);
+	}
+
+	/**
+	 * Returns the least element in this set strictly greater than the
+	 * given element, or <tt>null</tt> if there is none.
+	 */
+	public E higher(E e) {
+		return map.higherKey(e);
+	}
+
+	/**
+	 * Returns a view of the portion of this set whose elements range from
+	 * <tt>fromElement</tt>, inclusive, to <tt>toElement</tt>, exclusive.
+	 */
+	public SortedSet<E> subSet(E fromElement, E toElement) {
+		return new SubSet(checked(fromElement), checked(toElement));
+	}
+
+	/**
+	 * Returns a view of the portion of this set whose elements are
+	 * strictly less than <tt>toElement</tt>.
+	 */
+	public SortedSet<E> headSet(E toElement) {
+		return new SubSet(null, checked(toElement));
+	}
+
+	/**
+	 * Returns a view of the portion of this set whose elements are
+	 * greater than or equal to <tt>fromElement</tt>.
+	 */
+	public SortedSet<E> tailSet(E fromElement) {
+		return new SubSet(checked(fromElement), null);
+	}
+
+	/**
+	 * Returns the height of the tree.
+	 */
+	int height() {
+		return map.height();
+	}
+
+	private static <E> E checked(E e) {
+		// a null bound is not comparable
+		if (e == null)
+			throw new NullPointerException();
+		return e;
+	}
+
+	private static int compare(Object a, Object b) {
+		return ((Comparable<Object>)a).compareTo(b);
+	}
+
+	/**
+	 * The elements of the set from <tt>lo</tt>, inclusive, to <tt>hi</tt>,
+	 * exclusive, a null bound leaving that end open.
+	 */
+	private final class SubSet extends AbstractSet<E>
+			implements SortedSet<E> {
+		final E lo, hi;
+
+		SubSet(E lo, E hi) {
+			if (lo != null && hi != null && compare(lo, hi) > 0)
+				throw new IllegalArgumentException(
+					"fromElement > toElement");
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		private boolean inRange(Object o) {
+			return (lo == null || compare(o, lo) >= 0) &&
+				(hi == null || compare(o, hi) < 0);
+		}
+
+		// the bound of a nested view may be the excluded bound of this one
+		private boolean inClosedRange(Object o) {
+			return (lo == null || compare(o, lo) >= 0) &&
+				(hi == null || compare(o, hi) <= 0);
+		}
+
+		public Iterator<E> iterator() {
+			return map.new KeyIterator<E>(lo, hi);
+		}
+
+		public int size() {
+			int n = 0;
+			for (Iterator<E> i = iterator(); i.hasNext(); i.next())
+				n++;
+			return n;
+		}
+
+		public boolean isEmpty() {
+			return !iterator().hasNext();
+		}
+
+		public boolean contains(Object o) {
+			return inRange(checked(o)) && map.containsKey(o);
+		}
+
+		public boolean add(E e) {
+			if (!inRange(checked(e)))
+				throw new IllegalArgumentException("element out of range");
+			return BTreeSet.this.add(e);
+		}
+
+		public boolean remove(Object o) {
+			return inRange(checked(o)) && BTreeSet.this.remove(o);
+		}
+
+		public Comparator<? super E> comparator() {
+			return null;
+		}
+
+		public E first() {
+			E e = lo == null ? (map.isEmpty() ? null : map.firstKey()) :
+				map.ceilingKey(lo);
+			if (e == null || !inRange(e))
+				throw new NoSuchElementException();
+			return e;
+		}
+
+		public E last() {
+			E e = hi == null ? (map.isEmpty() ? null : map.lastKey()) :
+				map.lowerKey(hi);
+			if (e == null || !inRange(e))
+				throw new NoSuchElementException();
+			return e;
+		}
+
+		public SortedSet<E> subSet(E fromElement, E toElement) {
+			if (!inClosedRange(checked(fromElement)) ||
+			    !inClosedRange(checked(toElement)))
+				throw new IllegalArgumentException("bound out of range");
+			return new SubSet(fromElement, toElement);
+		}
+
+		public SortedSet<E> headSet(E toElement) {
+			if (!inClosedRange(checked(toElement)))
+				throw new IllegalArgumentException("bound out of range");
+			return new SubSet(lo, toElement);
+		}
+
+		public SortedSet<E> tailSet(E fromElement) {
+			if (!inClosedRange(checked(fromElement)))
+				throw new IllegalArgumentException("bound out of range");
+			return new SubSet(fromElement, hi);
+		}
+	}
+
+}
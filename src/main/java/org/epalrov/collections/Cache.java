@@ -0,0 +1,312 @@
+/*
+ * Cache.java - example of bounded Cache implementation
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+/**
+ * Bounded cache, built on a <tt>HashMap</tt>, which evicts mappings when
+ * their total weight exceeds a maximum.
+ *
+ * <p>Each mapping is held by a node, whose weight is given by a
+ * <tt>Weigher</tt>; without a weigher every mapping weighs 1, so that the
+ * maximum weight is the maximum number of mappings. The node to evict is
+ * chosen by a pluggable <tt>EvictionPolicy</tt>: <tt>LruPolicy</tt> evicts
+ * the least recently used mapping, <tt>TinyLfuPolicy</tt> also takes into
+ * account how often the keys have been used. Both of them keep the nodes in
+ * doubly linked lists, so that every operation costs O(1).
+ *
+ * <p>The cache counts its hits, misses and evictions. Null keys and values
+ * are not allowed.
+ *
+ * <p>Note that this implementation is not synchronized.
+ */
+
+public class Cache<K,V>
+{
+	private final HashMap<K,Node<K,V>> map;
+	private final long maximumWeight;
+	private final Weigher<? super K, ? super V> weigher;
+	private final EvictionPolicy<K,V> policy;
+	private long weightedSize;
+
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	/**
+	 * Constructs an empty <tt>Cache</tt> with the specified maximum weight,
+	 * weigher and eviction policy. A null weigher gives every mapping a
+	 * weight of 1.
+	 */
+	public Cache(long maximumWeight, Weigher<? super K, ? super V> weigher,
+			EvictionPolicy<K,V> policy) {
+		if (maximumWeight < 0)
+			throw new IllegalArgumentException(
+				"Illegal maximum weight: " + maximumWeight);
+		if (policy == null)
+			throw new NullPointerException();
+		this.maximumWeight = maximumWeight;
+		this.weigher = weigher;
+		this.policy = policy;
+		map = new HashMap<K,Node<K,V>>();
+		weightedSize = 0;
+	}
+
+	/**
+	 * Constructs an empty <tt>Cache</tt> holding at most the specified
+	 * number of mappings, evicted by the specified policy.
+	 */
+	public Cache(int maximumSize, EvictionPolicy<K,V> policy) {
+		this(maximumSize, null, policy);
+	}
+
+	/**
+	 * Constructs an empty <tt>Cache</tt> holding at most the specified
+	 * number of mappings, evicting the least recently used one.
+	 */
+	public Cache(int maximumSize) {
+		this(maximumSize, new LruPolicy<K,V>());
+	}
+
+	/**
+	 * Returns the number of mappings in this cache.
+	 */
+	public int size() {
+		return map.size();
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this cache contains no mappings.
+	 */
+	public boolean isEmpty() {
+		return map.size() == 0 ? true : false;
+	}
+
+	/**
+	 * Returns the total weight of the mappings in this cache.
+	 */
+	public long weightedSize() {
+		return weightedSize;
+	}
+
+	/**
+	 * Returns the maximum total weight of the mappings in this cache.
+	 */
+	public long maximumWeight() {
+		return maximumWeight;
+	}
+
+	/**
+	 * Returns the value to which the specified key is mapped, or null if
+	 * this cache contains no mapping for the key. A hit is recorded by the
+	 * eviction policy.
+	 */
+	public V get(Object key) {
+		Node<K,V> node = map.get(key);
+		if (node == null) {
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		policy.onAccess(node);
+		return node.value;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this cache contains a mapping for the
+	 * specified key. Neither the statistics nor the policy are affected.
+	 */
+	public boolean containsKey(Object key) {
+		return map.containsKey(key);
+	}
+
+	/**
+	 * Associates the specified value with the specified key in this cache,
+	 * then evicts mappings until the total weight does not exceed the
+	 * maximum. Returns the previous value, or null if there was none.
+	 */
+	public V put(K key, V value) {
+		if (key == null || value == null)
+			throw new NullPointerException();
+		int weight = weigher == null ? 1 : weigher.weigh(key, value);
+		if (weight < 0)
+			throw new IllegalArgumentException("Illegal weight: " + weight);
+
+		V oldValue = null;
+		Node<K,V> node = map.get(key);
+		if (node == null) {
+			node = new Node<K,V>(key, value, weight);
+			map.put(key, node);
+			weightedSize += weight;
+			policy.onInsert(node);
+		} else {
+			oldValue = node.value;
+			node.value = value;
+			if (node.weight == weight) {
+				policy.onAccess(node);
+			} else {
+				// the policy may account the weight of its lists
+				policy.onRemove(node);
+				weightedSize += weight - node.weight;
+				node.weight = weight;
+				policy.onInsert(node);
+			}
+		}
+
+		while (weightedSize > maximumWeight)
+			evict(policy.victim());
+		return oldValue;
+	}
+
+	/**
+	 * Removes the mapping for the specified key from this cache if present,
+	 * and returns its value, or null if there was none.
+	 */
+	public V remove(Object key) {
+		Node<K,V> node = map.remove(key);
+		if (node == null)
+			return null;
+		weightedSize -= node.weight;
+		policy.onRemove(node);
+		return node.value;
+	}
+
+	/**
+	 * Removes all of the mappings from this cache. The statistics are
+	 * kept.
+	 */
+	public void clear() {
+		for (Node<K,V> node : map.values())
+			policy.onRemove(node);
+		map.clear();
+		weightedSize = 0;
+	}
+
+	private void evict(Node<K,V> node) {
+		map.remove(node.key);
+		weightedSize -= node.weight;
+		policy.onRemove(node);
+		evictionCount++;
+	}
+
+	// Statistics
+
+	/**
+	 * Returns the number of times <tt>get</tt> found a mapping.
+	 */
+	public long hitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Returns the number of times <tt>get</tt> found no mapping.
+	 */
+	public long missCount() {
+		return missCount;
+	}
+
+	/**
+	 * Returns the number of mappings evicted to respect the maximum weight.
+	 */
+	public long evictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * Returns the ratio of hits to lookups, or 1 if there was no lookup.
+	 */
+	public double hitRate() {
+		long requests = hitCount + missCount;
+		return requests == 0 ? 1.0 : (double)hitCount / requests;
+	}
+
+	/**
+	 * Holds a mapping of the cache. Besides the key, value and weight, it
+	 * carries the links an eviction policy needs to keep it in a list.
+	 */
+	public static final class Node<K,V> {
+		final K key;
+		V value;
+		int weight;
+
+		// owned by the eviction policy
+		Node<K,V> prev;
+		Node<K,V> next;
+		int queue;
+
+		Node(K k, V v, int w) {
+			key = k;
+			value = v;
+			weight = w;
+		}
+
+		public K getKey() {
+			return key;
+		}
+
+		public V getValue() {
+			return value;
+		}
+
+		public int getWeight() {
+			return weight;
+		}
+	}
+
+	/**
+	 * Doubly linked list of nodes, from the eldest to the youngest, used
+	 * by the eviction policies of this package.
+	 */
+	static final class NodeList<K,V> {
+		private Node<K,V> first;
+		private Node<K,V> last;
+
+		Node<K,V> first() {
+			return first;
+		}
+
+		boolean isEmpty() {
+			return first == null ? true : false;
+		}
+
+		void addLast(Node<K,V> node) {
+			node.prev = last;
+			node.next = null;
+			if (last == null)
+				first = node;
+			else
+				last.next = node;
+			last = node;
+		}
+
+		void remove(Node<K,V> node) {
+			Node<K,V> p = node.prev, n = node.next;
+			if (p == null)
+				first = n;
+			else
+				p.next = n;
+			if (n == null)
+				last = p;
+			else
+				n.prev = p;
+			node.prev = node.next = null;
+		}
+
+		void moveToLast(Node<K,V> node) {
+			if (node != last) {
+				remove(node);
+				addLast(node);
+			}
+		}
+
+		void clear() {
+			first = last = null;
+		}
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Codec.java - example of fixed width binary codec
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Translates objects to and from a fixed number of bytes, so that the maps
+ * storing them outside of the Java heap can lay out their slots. Two keys
+ * are equal for such a map if and only if their encodings are equal.
+ *
+ * <p>The codecs of the primitive wrappers are provided as constants.
+ */
+
+public interface Codec<T>
+{
+	/**
+	 * Returns the number of bytes of every encoded object.
+	 */
+	int size();
+
+	/**
+	 * Writes the specified object, which is not null, in the buffer at
+	 * the given absolute offset.
+	 */
+	void encode(T value, ByteBuffer buffer, int offset);
+
+	/**
+	 * Reads an object from the buffer at the given absolute offset.
+	 */
+	T decode(ByteBuffer buffer, int offset);
+
+	Codec<Long> LONG = new Codec<Long>() {
+		public int size() {
+			return 8;
+		}
+
+		public void encode(Long value, ByteBuffer buffer, int offset) {
+			buffer.putLong(offset, value);
+		}
+
+		public Long decode(ByteBuffer buffer, int offset) {
+			return buffer.getLong(offset);
+		}
+	};
+
+	Codec<Integer> INTEGER = new Codec<Integer>() {
+		public int size() {
+			return 4;
+		}
+
+		public void encode(Integer value, ByteBuffer buffer, int offset) {
+			buffer.putInt(offset, value);
+		}
+
+		public Integer decode(ByteBuffer buffer, int offset) {
+			return buffer.getInt(offset);
+		}
+	};
+
+	Codec<Double> DOUBLE = new Codec<Double>() {
+		public int size() {
+			return 8;
+		}
+
+		public void encode(Double value, ByteBuffer buffer, int offset) {
+			buffer.putDouble(offset, value);
+		}
+
+		public Double decode(ByteBuffer buffer, int offset) {
+			return buffer.getDouble(offset);
+		}
+	};
+}
@@ -0,0 +1,313 @@
+/*
+ * ConcurrentCounterMap.java - example of concurrent frequency counting map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Concurrent map from keys to <tt>long</tt> counters, for counting events
+ * by key from many threads.
+ *
+ * <p>The counters are kept in a <tt>ConcurrentHashMap</tt>, so that finding
+ * the counter of a key takes no lock. Each counter is striped like
+ * <tt>java.util.concurrent.atomic.LongAdder</tt>: an update first tries to
+ * compare-and-set a base value; once two threads have collided on it, the
+ * updates go to an array of cells, each on its own cache line, selected by a
+ * per-thread probe. A thread which collides again on a cell moves to another
+ * one and the array is doubled, up to the number of processors. Nothing is
+ * boxed by an update, and a key updated by a single thread costs a single
+ * compare-and-set.
+ *
+ * <p>The sum of a counter is the base plus the cells, read without lock:
+ * while updates are in progress it is only an estimate, like the sums of
+ * <tt>snapshot()</tt> and <tt>topK()</tt>. An update racing with the
+ * removal of its key may be lost. Null keys are not allowed.
+ */
+
+public class ConcurrentCounterMap<K>
+{
+	static final int MAXIMUM_CELLS = HashMap.tableSizeFor(
+		Runtime.getRuntime().availableProcessors());
+
+	private final ConcurrentHashMap<K,Counter> counters;
+
+	/**
+	 * Constructs an empty <tt>ConcurrentCounterMap</tt> with the specified
+	 * capacity and the default load factor (0.75) and concurrency level
+	 * (16) of the underlying <tt>ConcurrentHashMap</tt>.
+	 */
+	public ConcurrentCounterMap(int capacity) {
+		counters = new ConcurrentHashMap<K,Counter>(capacity);
+	}
+
+	/**
+	 * Constructs an empty <tt>ConcurrentCounterMap</tt> with the default
+	 * capacity (16).
+	 */
+	public ConcurrentCounterMap() {
+		this(HashMap.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Returns the number of keys with a counter.
+	 */
+	public int size() {
+		return counters.size();
+	}
+
+	/**
+	 * Returns <tt>true</tt> if no key has a counter.
+	 */
+	public boolean isEmpty() {
+		return counters.isEmpty();
+	}
+
+	/**
+	 * Adds one to the counter of the specified key.
+	 */
+	public void increment(K key) {
+		add(key, 1L);
+	}
+
+	/**
+	 * Adds the specified delta to the counter of the specified key, which
+	 * is created, starting from zero, if it does not exist.
+	 */
+	public void add(K key, long delta) {
+		Counter c = counters.get(key);
+		if (c == null) {
+			Counter n = new Counter();
+			c = counters.putIfAbsent(key, n);
+			if (c == null)
+				c = n;
+		}
+		c.add(delta);
+	}
+
+	/**
+	 * Returns the sum of the counter of the specified key, or zero if it
+	 * has none.
+	 */
+	public long sum(Object key) {
+		Counter c = counters.get(key);
+		return c == null ? 0L : c.sum();
+	}
+
+	/**
+	 * Removes the counter of the specified key, returning its sum, or zero
+	 * if it had none.
+	 */
+	public long remove(Object key) {
+		Counter c = counters.remove(key);
+		return c == null ? 0L : c.sum();
+	}
+
+	/**
+	 * Removes all of the counters.
+	 */
+	public void clear() {
+		counters.clear();
+	}
+
+	/**
+	 * Returns a map from each key to the sum of its counter. The map is a
+	 * copy: later updates are not reflected in it.
+	 */
+	public Map<K,Long> snapshot() {
+		HashMap<K,Long> m = new HashMap<K,Long>(
+			HashMap.capacityFor(counters.size(),
+				HashMap.DEFAULT_LOAD_FACTOR));
+		for (Iterator<Map.Entry<K,Counter>> i =
+				counters.entrySet().iterator(); i.hasNext(); ) {
+			Map.Entry<K,Counter> e = i.next();
+			m.put(e.getKey(), e.getValue().sum());
+		}
+		return m;
+	}
+
+	/**
+	 * Returns the <tt>k</tt> keys with the largest sums and their sums,
+	 * from the largest. The counters are scanned once, keeping the best
+	 * mappings found so far in a heap of <tt>k</tt> elements.
+	 */
+	public List<Map.Entry<K,Long>> topK(int k) {
+		if (k < 0)
+			throw new IllegalArgumentException("Illegal k: " + k);
+		if (k == 0)
+			return new ArrayList<Map.Entry<K,Long>>();
+		Comparator<Map.Entry<K,Long>> bySum =
+				new Comparator<Map.Entry<K,Long>>() {
+			public int compare(Map.Entry<K,Long> a, Map.Entry<K,Long> b) {
+				return Long.compare(a.getValue(), b.getValue());
+			}
+		};
+		PriorityQueue<Map.Entry<K,Long>> heap =
+			new PriorityQueue<Map.Entry<K,Long>>(k, bySum);
+		for (Iterator<Map.Entry<K,Counter>> i =
+				counters.entrySet().iterator(); i.hasNext(); ) {
+			Map.Entry<K,Counter> e = i.next();
+			long sum = e.getValue().sum();
+			if (heap.size() == k) {
+				if (sum <= heap.peek().getValue())
+					continue;
+				heap.poll();
+			}
+			heap.add(new AbstractMap.SimpleImmutableEntry<K,Long>(
+				e.getKey(), sum));
+		}
+		List<Map.Entry<K,Long>> top = new ArrayList<Map.Entry<K,Long>>(heap);
+		Collections.sort(top, Collections.reverseOrder(bySum));
+		return top;
+	}
+
+	// Striped counters
+
+	/**
+	 * Returns the probe of the current thread, which selects its cell.
+	 * The probe is never zero.
+	 */
+	private static int probe() {
+		return PROBE.get()[0];
+	}
+
+	/**
+	 * Moves the current thread to another cell, by a xorshift step of its
+	 * probe, and returns the new probe.
+	 */
+	private static int advanceProbe() {
+		int[] p = PROBE.get();
+		int h = p[0];
+		h ^= h << 13;
+		h ^= h >>> 17;
+		h ^= h << 5;
+		return p[0] = h;
+	}
+
+	private static final ThreadLocal<int[]> PROBE = new ThreadLocal<int[]>() {
+		protected int[] initialValue() {
+			return new int[] { ThreadLocalRandom.current().nextInt() | 1 };
+		}
+	};
+
+	/**
+	 * A counter cell, padded so that two cells never share a cache line.
+	 */
+	static final class Cell {
+		long p0, p1, p2, p3, p4, p5, p6;
+		volatile long value;
+		long q0, q1, q2, q3, q4, q5, q6;
+
+		Cell(long x) {
+			value = x;
+		}
+
+		boolean cas(long cmp, long val) {
+			return VALUE.compareAndSet(this, cmp, val);
+		}
+
+		private static final AtomicLongFieldUpdater<Cell> VALUE =
+			AtomicLongFieldUpdater.newUpdater(Cell.class, "value");
+	}
+
+	/**
+	 * A striped counter: a base value, plus an array of cells created on
+	 * the first contention. The array is only replaced, under the lock of
+	 * the counter, by a larger one holding the same cells, so that no
+	 * update is ever lost.
+	 */
+	static final class Counter {
+		volatile long base;
+		volatile Cell[] cells;
+
+		void add(long x) {
+			Cell[] cs = cells;
+			if (cs == null) {
+				long b = base;
+				if (BASE.compareAndSet(this, b, b + x))
+					return;
+				cs = expand(null);
+			}
+
+			int h = probe();
+			for (;;) {
+				Cell c = cs[h & (cs.length - 1)];
+				if (c == null) {
+					c = addCell(h, x);
+					if (c == null)
+						return;
+				} else {
+					long v = c.value;
+					if (c.cas(v, v + x))
+						return;
+				}
+
+				// collision: move to another cell and spread
+				h = advanceProbe();
+				if (cs.length < MAXIMUM_CELLS)
+					cs = expand(cs);
+				else
+					cs = cells;
+			}
+		}
+
+		long sum() {
+			long sum = base;
+			Cell[] cs = cells;
+			if (cs != null)
+				for (int i = 0; i < cs.length; i++)
+					if (cs[i] != null)
+						sum += cs[i].value;
+			return sum;
+		}
+
+		/**
+		 * Creates the cell of the specified probe holding x, unless
+		 * another thread has just created it: in that case returns the
+		 * existing cell, whose value has not been updated.
+		 */
+		private synchronized Cell addCell(int h, long x) {
+			Cell[] cur = cells;
+			Cell c = cur[h & (cur.length - 1)];
+			if (c != null)
+				return c;
+			cur[h & (cur.length - 1)] = new Cell(x);
+			return null;
+		}
+
+		/**
+		 * Replaces the specified array of cells, if still current, by one
+		 * twice as long (or creates the first one), and returns the
+		 * current array.
+		 */
+		private synchronized Cell[] expand(Cell[] cs) {
+			Cell[] cur = cells;
+			if (cur != cs)
+				return cur;
+			Cell[] n = new Cell[Math.min(cs == null ? 2 : cs.length << 1,
+				MAXIMUM_CELLS)];
+			if (cs != null)
+				System.arraycopy(cs, 0, n, 0, cs.length);
+			cells = n;
+			return n;
+		}
+
+		private static final AtomicLongFieldUpdater<Counter> BASE =
+			AtomicLongFieldUpdater.newUpdater(Counter.class, "base");
+	}
+
+}
@@ -0,0 +1,648 @@
+/*
+ * ConcurrentHashMap.java - example of Concurrent Hash Map implementation
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hash table based implementation of the <tt>ConcurrentMap</tt> interface,
+ * supporting full concurrency of retrievals and multiple concurrent updates.
+ *
+ * <p>The table is split in segments, selected by the upper bits of the hash.
+ * Each segment is a small chained hash table, like <tt>HashMap</tt>, guarded
+ * by its own lock: writers of different segments never contend. Readers take
+ * no lock at all. The bins are read through an <tt>AtomicReferenceArray</tt>,
+ * values are volatile and the <tt>next</tt> links are final, so a reader
+ * always walks a consistent chain. A removal clones the entries preceding
+ * the removed one instead of unlinking it in place.
+ *
+ * <p>The size is kept as one counter per segment, updated under the segment
+ * lock, and summed by <tt>size()</tt>: while updates are in progress the
+ * result is only an estimate. Iterators are weakly consistent: they never
+ * throw <tt>ConcurrentModificationException</tt> and reflect the state of
+ * each bin at some point at or since their creation.
+ *
+ * <p>Like <tt>java.util.concurrent.ConcurrentHashMap</tt>, this map does not
+ * allow <tt>null</tt> keys or values.
+ */
+
+public class ConcurrentHashMap<K,V> implements ConcurrentMap<K,V>
+{
+	static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+	static final int MAXIMUM_SEGMENTS = 1 << 16;
+	static final int MINIMUM_SEGMENT_CAPACITY = 2;
+
+	private final Segment<K,V>[] segments;
+	private final int segmentShift;
+	private final int segmentMask;
+
+	/**
+	 * Constructs an empty <tt>ConcurrentHashMap</tt> with the specified
+	 * capacity, load factor and concurrency level, that is the estimated
+	 * number of concurrently updating threads.
+	 */
+	public ConcurrentHashMap(int capacity, float loadFactor,
+			int concurrencyLevel) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException(
+				"Illegal capacity: " + capacity);
+		if (loadFactor <= 0 || Float.isNaN(loadFactor))
+			throw new IllegalArgumentException(
+				"Illegal load factor: " + loadFactor);
+		if (concurrencyLevel <= 0)
+			throw new IllegalArgumentException(
+				"Illegal concurrency level: " + concurrencyLevel);
+
+		int count = HashMap.tableSizeFor(
+			Math.min(concurrencyLevel, MAXIMUM_SEGMENTS));
+		int shift = 0;
+		while ((1 << shift) < count)
+			shift++;
+		segmentShift = 32 - shift;
+		segmentMask = count - 1;
+
+		int segmentCapacity = HashMap.tableSizeFor(
+			Math.max((capacity + count - 1) / count,
+				MINIMUM_SEGMENT_CAPACITY));
+		segments = new Segment[count];
+		for (int i = 0; i < count; i++)
+			segments[i] = new Segment<K,V>(segmentCapacity, loadFactor);
+	}
+
+	/**
+	 * Constructs an empty <tt>ConcurrentHashMap</tt> with the specified
+	 * capacity, the default load factor (0.75) and concurrency level (16).
+	 */
+	public ConcurrentHashMap(int capacity) {
+		this(capacity, HashMap.DEFAULT_LOAD_FACTOR,
+			DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * Constructs an empty <tt>ConcurrentHashMap</tt> with the default
+	 * capacity (16), load factor (0.75) and concurrency level (16).
+	 */
+	public ConcurrentHashMap() {
+		this(HashMap.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Returns the number of key-value mappings in this map, as the sum of
+	 * the segment counters.
+	 */
+	public int size() {
+		long n = mappingCount();
+		return n > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)n;
+	}
+
+	/**
+	 * Returns the number of mappings as a long, since a concurrent map
+	 * may contain more than <tt>Integer.MAX_VALUE</tt> mappings.
+	 */
+	public long mappingCount() {
+		long n = 0;
+		for (int i = 0; i < segments.length; i++)
+			n += segments[i].count;
+		return n;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map contains no key-value mappings.
+	 */
+	public boolean isEmpty() {
+		for (int i = 0; i < segments.length; i++)
+			if (segments[i].count != 0)
+				return false;
+		return true;
+	}
+
+	/**
+	 * Returns the value to which the specified key is mapped,
+	 * or {@code null} if this map contains no mapping for the key.
+	 * Retrievals take no lock.
+	 */
+	public V get(Object key) {
+		int hash = hash(key);
+		Entry<K,V> e = segmentFor(hash).getEntry(hash, key);
+		return e == null ? null : e.value;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map contains a mapping for the
+	 * specified key.
+	 */
+	public boolean containsKey(Object key) {
+		int hash = hash(key);
+		return segmentFor(hash).getEntry(hash, key) != null;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map maps one or more keys to the
+	 * specified value. This requires a traversal of the whole map.
+	 */
+	public boolean containsValue(Object value) {
+		if (value == null)
+			throw new NullPointerException();
+		for (int i = 0; i < segments.length; i++) {
+			AtomicReferenceArray<Entry<K,V>> tab = segments[i].table;
+			for (int index = 0; index < tab.length(); index++)
+				for (Entry<K,V> e = tab.get(index); e != null;
+				     e = e.next)
+					if (value.equals(e.value))
+						return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Associates the specified value with the specified key in this map.
+	 * If the map previously contained a mapping for the key, the old
+	 * value is replaced.
+	 */
+	public V put(K key, V value) {
+		if (value == null)
+			throw new NullPointerException();
+		int hash = hash(key);
+		return segmentFor(hash).put(hash, key, value, false);
+	}
+
+	/**
+	 * If the specified key is not already associated with a value,
+	 * associates it with the given value. Returns the current value, or
+	 * null if there was no mapping.
+	 */
+	public V putIfAbsent(K key, V value) {
+		if (value == null)
+			throw new NullPointerException();
+		int hash = hash(key);
+		return segmentFor(hash).put(hash, key, value, true);
+	}
+
+	/**
+	 * Copies all of the mappings from the specified map to this map.
+	 */
+	public void putAll(Map<? extends K, ? extends V> m) {
+		for (Iterator<? extends Map.Entry<? extends K, ? extends V>> i =
+				m.entrySet().iterator(); i.hasNext(); ) {
+			Map.Entry<? extends K, ? extends V> e = i.next();
+			put(e.getKey(), e.getValue());
+		}
+	}
+
+	/**
+	 * Removes the mapping for the specified key from this map if present.
+	 */
+	public V remove(Object key) {
+		int hash = hash(key);
+		return segmentFor(hash).remove(hash, key, null);
+	}
+
+	/**
+	 * Removes the entry for a key only if currently mapped to the given
+	 * value.
+	 */
+	public boolean remove(Object key, Object value) {
+		int hash = hash(key);
+		return value != null &&
+			segmentFor(hash).remove(hash, key, value) != null;
+	}
+
+	/**
+	 * Replaces the entry for a key only if currently mapped to the given
+	 * value.
+	 */
+	public boolean replace(K key, V oldValue, V newValue) {
+		if (oldValue == null || newValue == null)
+			throw new NullPointerException();
+		int hash = hash(key);
+		return segmentFor(hash).replace(hash, key, oldValue, newValue)
+			!= null;
+	}
+
+	/**
+	 * Replaces the entry for a key only if currently mapped to some value.
+	 */
+	public V replace(K key, V value) {
+		if (value == null)
+			throw new NullPointerException();
+		int hash = hash(key);
+		return segmentFor(hash).replace(hash, key, null, value);
+	}
+
+	/**
+	 * Removes all of the mappings from this map, one segment at a time.
+	 */
+	public void clear() {
+		for (int i = 0; i < segments.length; i++)
+			segments[i].clear();
+	}
+
+	// Hashing
+
+	/**
+	 * Applies a full avalanche mix to the key hash code (the finalizer of
+	 * MurmurHash3): both the upper bits, which select the segment, and
+	 * the lower bits, which select the bin, depend on all the input bits.
+	 */
+	static int hash(Object key) {
+		int h = key.hashCode();
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		return h ^ (h >>> 16);
+	}
+
+	private Segment<K,V> segmentFor(int hash) {
+		return segments[(hash >>> segmentShift) & segmentMask];
+	}
+
+	/**
+	 * Entry of a bin. The key, hash and next link are final, so that a
+	 * chain read without lock is never seen half built; the value is
+	 * volatile, so that an update is immediately visible to readers.
+	 */
+	static final class Entry<K,V> {
+		final int hash;
+		final K key;
+		volatile V value;
+		final Entry<K,V> next;
+
+		Entry(int h, K k, V v, Entry<K,V> n) {
+			hash = h;
+			key = k;
+			value = v;
+			next = n;
+		}
+	}
+
+	/**
+	 * A segment is a chained hash table guarded by its own lock. Only the
+	 * writers lock it; the count is written last by each update, so that
+	 * readers of the count also see the updated bins.
+	 */
+	static final class Segment<K,V> extends ReentrantLock {
+		volatile AtomicReferenceArray<Entry<K,V>> table;
+		volatile int count;
+		private int threshold;
+		private final float loadFactor;
+
+		Segment(int capacity, float loadFactor) {
+			this.loadFactor = loadFactor;
+			setTable(new AtomicReferenceArray<Entry<K,V>>(capacity));
+		}
+
+		private void setTable(AtomicReferenceArray<Entry<K,V>> tab) {
+			threshold = (int)(tab.length() * loadFactor);
+			table = tab;
+		}
+
+		Entry<K,V> getEntry(int hash, Object key) {
+			if (count == 0)
+				return null;
+			AtomicReferenceArray<Entry<K,V>> tab = table;
+			for (Entry<K,V> e = tab.get(hash & (tab.length() - 1));
+			     e != null; e = e.next)
+				if (e.hash == hash && key.equals(e.key))
+					return e;
+			return null;
+		}
+
+		V put(int hash, K key, V value, boolean onlyIfAbsent) {
+			lock();
+			try {
+				int c = count;
+				if (c + 1 > threshold)
+					rehash();
+				AtomicReferenceArray<Entry<K,V>> tab = table;
+				int index = hash & (tab.length() - 1);
+				Entry<K,V> first = tab.get(index);
+
+				// check if the key is already contained
+				for (Entry<K,V> e = first; e != null; e = e.next) {
+					if (e.hash == hash && key.equals(e.key)) {
+						V oldValue = e.value;
+						if (!onlyIfAbsent)
+							e.value = value;
+						return oldValue;
+					}
+				}
+
+				// publish the new entry at the beginning of the list
+				tab.set(index, new Entry<K,V>(hash, key, value, first));
+				count = c + 1;
+				return null;
+			} finally {
+				unlock();
+			}
+		}
+
+		/**
+		 * Removes the entry for the key, only if mapped to the expected
+		 * value when that is not null. Since the links are final, the
+		 * entries preceding the removed one are cloned.
+		 */
+		V remove(int hash, Object key, Object expected) {
+			lock();
+			try {
+				AtomicReferenceArray<Entry<K,V>> tab = table;
+				int index = hash & (tab.length() - 1);
+				Entry<K,V> first = tab.get(index);
+				Entry<K,V> e = first;
+				while (e != null && (e.hash != hash || !key.equals(e.key)))
+					e = e.next;
+				if (e == null)
+					return null;
+
+				V oldValue = e.value;
+				if (expected != null && !expected.equals(oldValue))
+					return null;
+				Entry<K,V> head = e.next;
+				for (Entry<K,V> p = first; p != e; p = p.next)
+					head = new Entry<K,V>(p.hash, p.key, p.value, head);
+				tab.set(index, head);
+				count = count - 1;
+				return oldValue;
+			} finally {
+				unlock();
+			}
+		}
+
+		V replace(int hash, K key, V expected, V value) {
+			lock();
+			try {
+				Entry<K,V> e = getEntry(hash, key);
+				if (e == null)
+					return null;
+				V oldValue = e.value;
+				if (expected != null && !expected.equals(oldValue))
+					return null;
+				e.value = value;
+				return oldValue;
+			} finally {
+				unlock();
+			}
+		}
+
+		void clear() {
+			if (count == 0)
+				return;
+			lock();
+			try {
+				AtomicReferenceArray<Entry<K,V>> tab = table;
+				for (int index = 0; index < tab.length(); index++)
+					tab.set(index, null);
+				count = 0;
+			} finally {
+				unlock();
+			}
+		}
+
+		/**
+		 * Doubles the table of the segment. Readers may still be walking
+		 * the old table, so its chains are left untouched: the longest
+		 * tail of each chain whose entries all go to the same new bin is
+		 * reused as is, and the entries in front of it are cloned.
+		 */
+		private void rehash() {
+			AtomicReferenceArray<Entry<K,V>> oldTab = table;
+			int oldLength = oldTab.length();
+			if (oldLength >= HashMap.MAXIMUM_CAPACITY)
+				return;
+
+			int newLength = oldLength << 1;
+			int mask = newLength - 1;
+			AtomicReferenceArray<Entry<K,V>> newTab =
+				new AtomicReferenceArray<Entry<K,V>>(newLength);
+			for (int i = 0; i < oldLength; i++) {
+				Entry<K,V> first = oldTab.get(i);
+				if (first == null)
+					continue;
+
+				// find the trailing run going to the same bin
+				Entry<K,V> lastRun = first;
+				int lastIndex = first.hash & mask;
+				for (Entry<K,V> e = first.next; e != null; e = e.next) {
+					int k = e.hash & mask;
+					if (k != lastIndex) {
+						lastIndex = k;
+						lastRun = e;
+					}
+				}
+				newTab.set(lastIndex, lastRun);
+
+				// clone the entries in front of it
+				for (Entry<K,V> e = first; e != lastRun; e = e.next) {
+					int k = e.hash & mask;
+					newTab.set(k, new Entry<K,V>(e.hash, e.key,
+						e.value, newTab.get(k)));
+				}
+			}
+			setTable(newTab);
+		}
+	}
+
+	// Views
+
+	/**
+	 * Returns a <tt>Set</tt> view of the keys contained in this map.
+	 * The set is backed by the map, so changes to the map are
+	 * reflected in the set, and vice-versa.
+	 */
+	public Set<K> keySet() {
+		return new KeySet();
+	}
+
+	private class KeySet extends java.util.AbstractSet<K> {
+		public int size() {
+			return ConcurrentHashMap.this.size();
+		}
+
+		public boolean contains(Object o) {
+			return containsKey(o);
+		}
+
+		public boolean remove(Object o) {
+			return ConcurrentHashMap.this.remove(o) != null;
+		}
+
+		public Iterator<K> iterator() {
+			return new HashIterator<K>() {
+				public K next() {
+					return nextEntry().key;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Returns a <tt>Collection</tt> view of the values contained in this
+	 * map. The collection is backed by the map, so changes to the map are
+	 * reflected in the collection, and vice-versa.
+	 */
+	public Collection<V> values() {
+		return new Values();
+	}
+
+	private class Values extends java.util.AbstractCollection<V> {
+		public int size() {
+			return ConcurrentHashMap.this.size();
+		}
+
+		public Iterator<V> iterator() {
+			return new HashIterator<V>() {
+				public V next() {
+					return nextEntry().value;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Returns a <tt>Set</tt> view of the mappings contained in this map.
+	 * The set is backed by the map, so changes to the map are
+	 * reflected in the set, and vice-versa. The entries write through
+	 * to the map.
+	 */
+	public Set<Map.Entry<K,V>> entrySet() {
+		return new EntrySet();
+	}
+
+	private class EntrySet extends java.util.AbstractSet<Map.Entry<K,V>> {
+		public int size() {
+			return ConcurrentHashMap.this.size();
+		}
+
+		public Iterator<Map.Entry<K,V>> iterator() {
+			return new HashIterator<Map.Entry<K,V>>() {
+				public Map.Entry<K,V> next() {
+					Entry<K,V> e = nextEntry();
+					return new WriteThroughEntry(e.key, e.value);
+				}
+			};
+		}
+	}
+
+	private class WriteThroughEntry
+			extends java.util.AbstractMap.SimpleEntry<K,V> {
+		WriteThroughEntry(K k, V v) {
+			super(k, v);
+		}
+
+		public V setValue(V v) {
+			if (v == null)
+				throw new NullPointerException();
+			put(getKey(), v);
+			return super.setValue(v);
+		}
+	}
+
+	/**
+	 * Weakly consistent iterator over the segments, from the last one,
+	 * walking a snapshot of the table of each segment.
+	 */
+	private abstract class HashIterator<T> implements Iterator<T> {
+		private int segmentIndex;
+		private AtomicReferenceArray<Entry<K,V>> tab;
+		private int index;
+		private Entry<K,V> currEntry;
+		private Entry<K,V> nextEntry;
+
+		HashIterator() {
+			segmentIndex = segments.length;
+			index = 0;
+			advance();
+		}
+
+		private void advance() {
+			while (nextEntry == null) {
+				if (tab != null && index < tab.length()) {
+					nextEntry = tab.get(index++);
+				} else if (segmentIndex > 0) {
+					tab = segments[--segmentIndex].table;
+					index = 0;
+				} else {
+					break;
+				}
+			}
+		}
+
+		public boolean hasNext() {
+			return nextEntry != null ? true : false;
+		}
+
+		public abstract T next();
+
+		Entry<K,V> nextEntry() {
+			if (nextEntry == null)
+				throw new NoSuchElementException();
+			currEntry = nextEntry;
+			nextEntry = nextEntry.next;
+			advance();
+			return currEntry;
+		}
+
+		public void remove() {
+			if (currEntry == null)
+				throw new IllegalStateException();
+			ConcurrentHashMap.this.remove(currEntry.key);
+			currEntry = null;
+		}
+	}
+
+	// Comparison and hashing
+
+	/**
+	 * Compares the specified object with this map for equality.  Returns
+	 * <tt>true</tt> if the given object is also a map and the two maps
+	 * represent the same mappings.
+	 */
+	public boolean equals(Object o) {
+		// trivial check
+		if (o == this)
+			return true;
+
+		// check that it's an instance of Map
+		if (!(o instanceof Map))
+			return false;
+		Map<?,?> m = (Map<?,?>)o;
+
+		// check that the size is the same and that each mapping is
+		// contained in the other map
+		if (m.size() != size())
+			return false;
+		for (Iterator<Map.Entry<K,V>> i = entrySet().iterator();
+		     i.hasNext(); ) {
+			Map.Entry<K,V> e = i.next();
+			if (!e.getValue().equals(m.get(e.getKey())))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the hash code value for this map, the sum of the hash codes
+	 * of each entry in the map's <tt>entrySet()</tt> view.
+	 */
+	public int hashCode() {
+		int hash = 0;
+		for (Iterator<Map.Entry<K,V>> i = entrySet().iterator();
+		     i.hasNext(); )
+			hash += i.next().hashCode();
+		return hash;
+	}
+
+}
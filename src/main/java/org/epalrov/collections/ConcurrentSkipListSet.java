@@ -0,0 +1,820 @@
+/*
+ * ConcurrentSkipListSet.java - example of Concurrent Skip List Set
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free implementation of the <tt>NavigableSet</tt> interface, based on
+ * a skip list, for sorted sets shared by many threads.
+ *
+ * <p>Each element is held by a node linked in the list of level 0 and, with
+ * probability 1/4 for each level above, in the lists of the upper levels,
+ * which skip over more and more nodes: a search goes right along the top
+ * list, and down a level each time the next node would pass its element,
+ * in O(log n) expected time. No lock is taken. The links of a node are
+ * kept in an <tt>AtomicReferenceArray</tt>: a node is added by
+ * compare-and-set of the link of its predecessor, level 0 first, which
+ * makes it part of the set; a node is removed by marking its own links,
+ * from the top level down to level 0, which takes it out of the set, then
+ * it is unlinked by the searches passing by. A link is marked by replacing
+ * it with a <tt>Marked</tt> wrapper of the same successor, which no
+ * compare-and-set expects, so that no node is ever linked after a removed
+ * one (see Herlihy and Shavit, "The Art of Multiprocessor Programming",
+ * the lock-free skip list, where the links are
+ * <tt>AtomicMarkableReference</tt>s: the wrapper saves a read on every
+ * unmarked link, and an allocation on every compare-and-set).
+ *
+ * <p>The elements are sorted by their natural ordering. The iterators and
+ * the views are weakly consistent: they never throw
+ * <tt>ConcurrentModificationException</tt>, and reflect the set at some
+ * point at or since their creation. The descending iterator finds each
+ * element by a search, since the nodes have no backward links. The size
+ * is counted by walking the list of level 0, in O(n) time: while updates
+ * are in progress it is only an estimate.
+ *
+ * <p>Null elements are not allowed.
+ */
+
+public class ConcurrentSkipListSet<E> extends AbstractSet<E>
+		implements NavigableSet<E>
+{
+	static final int MAXIMUM_LEVEL = 16;
+
+	// the elements of the head and of the tail are never compared
+	private final Node<E> head;
+	private final Node<E> tail;
+
+	/**
+	 * Constructs an empty <tt>ConcurrentSkipListSet</tt>.
+	 */
+	public ConcurrentSkipListSet() {
+		tail = new Node<E>(null, MAXIMUM_LEVEL - 1);
+		head = new Node<E>(null, MAXIMUM_LEVEL - 1);
+		for (int l = 0; l < MAXIMUM_LEVEL; l++)
+			head.next.set(l, tail);
+	}
+
+	// Query Operations
+
+	/**
+	 * Returns the number of elements in this set.
+	 */
+	public int size() {
+		int n = 0;
+		for (Node<E> x = firstNode(); x != null; x = nextNode(x))
+			n++;
+		return n;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this set contains no elements.
+	 */
+	public boolean isEmpty() {
+		return firstNode() == null;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this set contains the specified element.
+	 */
+	public boolean contains(Object o) {
+		Node<E> x = ceilingNode(o, true);
+		return x != null && compare(o, x.elem) == 0;
+	}
+
+	/**
+	 * Returns an iterator over the elements in this set, in ascending
+	 * order.
+	 */
+	public Iterator<E> iterator() {
+		return new SkipListIterator(firstNode(), null, false, false);
+	}
+
+	/**
+	 * Returns an iterator over the elements in this set, in descending
+	 * order.
+	 */
+	public Iterator<E> descendingIterator() {
+		return new SkipListIterator(lastNode(), null, false, true);
+	}
+
+	// Modification Operations
+
+	/**
+	 * Adds the specified element to this set if it is not already present.
+	 * If this set already contains the element, the call leaves the set
+	 * unchanged and returns <tt>false</tt>.
+	 */
+	public boolean add(E elem) {
+		if (elem == null)
+			throw new NullPointerException();
+		int top = randomLevel();
+		Node<E>[] preds = new Node[top + 1];
+		Node<E>[] succs = new Node[top + 1];
+		Node<E> n = new Node<E>(elem, top);
+
+		for (;;) {
+			if (find(elem, preds, succs))
+				return false;
+			for (int l = 0; l <= top; l++)
+				n.next.set(l, succs[l]);
+			// the element is in the set once linked at level 0
+			if (preds[0].next.compareAndSet(0, succs[0], n))
+				break;
+		}
+
+		// then it is linked at the upper levels, unless removed meanwhile
+		for (int l = 1; l <= top; l++) {
+			for (;;) {
+				Object link = n.next.get(l);
+				if (link instanceof Marked || n.next.get(0) instanceof Marked)
+					return true;
+				if (link != succs[l] &&
+				    !n.next.compareAndSet(l, link, succs[l]))
+					continue;
+				if (preds[l].next.compareAndSet(l, succs[l], n))
+					break;
+				find(elem, preds, succs);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the specified element from this set if it is present.
+	 */
+	public boolean remove(Object o) {
+		if (o == null)
+			throw new NullPointerException();
+		Node<E>[] succs = new Node[1];
+		if (!find(o, null, succs))
+			return false;
+		return removeNode(succs[0]);
+	}
+
+	/**
+	 * Removes all of the elements from this set.
+	 */
+	public void clear() {
+		while (pollFirst() != null)
+			;
+	}
+
+	// Navigation Operations
+
+	/**
+	 * Returns <tt>null</tt>, since the elements are sorted by their
+	 * natural ordering.
+	 */
+	public Comparator<? super E> comparator() {
+		return null;
+	}
+
+	/**
+	 * Returns the lowest element in this set.
+	 */
+	public E first() {
+		return elemOf(firstNode());
+	}
+
+	/**
+	 * Returns the highest element in this set.
+	 */
+	public E last() {
+		return elemOf(lastNode());
+	}
+
+	/**
+	 * Returns the greatest element in this set strictly less than the
+	 * given element, or <tt>null</tt> if there is none.
+	 */
+	public E lower(E e) {
+		return elemOrNull(floorNode(e, false));
+	}
+
+	/**
+	 * Returns the greatest element in this set less than or equal to the
+	 * given element, or <tt>null</tt> if there is none.
+	 */
+	public E floor(E e) {
+		return elemOrNull(floorNode(e, true));
+	}
+
+	/**
+	 * Returns the least element in this set greater than or equal to the
+	 * given element, or <tt>null</tt> if there is none.
+	 */
+	public E ceiling(E e) {
+		return elemOrNull(ceilingNode(e, true));
+	}
+
+	/**
+	 * Returns the least element in this set strictly greater than the
+	 * given element, or <tt>null</tt> if there is none.
+	 */
+	public E higher(E e) {
+		return elemOrNull(ceilingNode(e, false));
+	}
+
+	/**
+	 * Retrieves and removes the lowest element, or returns <tt>null</tt>
+	 * if this set is empty.
+	 */
+	public E pollFirst() {
+		for (;;) {
+			Node<E> x = firstNode();
+			if (x == null)
+				return null;
+			if (removeNode(x))
+				return x.elem;
+		}
+	}
+
+	/**
+	 * Retrieves and removes the highest element, or returns <tt>null</tt>
+	 * if this set is empty.
+	 */
+	public E pollLast() {
+		for (;;) {
+			Node<E> x = lastNode();
+			if (x == null)
+				return null;
+			if (removeNode(x))
+				return x.elem;
+		}
+	}
+
+	/**
+	 * Returns a reverse order view of the elements in this set.
+	 */
+	public NavigableSet<E> descendingSet() {
+		return new SubSet(true, null, true, true, null, true, true);
+	}
+
+	/**
+	 * Returns a view of the portion of this set whose elements range from
+	 * <tt>fromElement</tt> to <tt>toElement</tt>.
+	 */
+	public NavigableSet<E> subSet(E fromElement, boolean fromInclusive,
+			E toElement, boolean toInclusive) {
+		return new SubSet(false, fromElement, fromInclusive,
+			false, toElement, toInclusive, false);
+	}
+
+	/**
+	 * Returns a view of the portion of this set whose elements are less
+	 * than (or equal to, if <tt>inclusive</tt> is true) <tt>toElement</tt>.
+	 */
+	public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+		return new SubSet(true, null, true,
+			false, toElement, inclusive, false);
+	}
+
+	/**
+	 * Returns a view of the portion of this set whose elements are
+	 * greater than (or equal to, if <tt>inclusive</tt> is true)
+	 * <tt>fromElement</tt>.
+	 */
+	public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+		return new SubSet(false, fromElement, inclusive,
+			true, null, true, false);
+	}
+
+	/**
+	 * Returns a view of the portion of this set whose elements range from
+	 * <tt>fromElement</tt>, inclusive, to <tt>toElement</tt>, exclusive.
+	 */
+	public SortedSet<E> subSet(E fromElement, E toElement) {
+		return subSet(fromElement, true, toElement, false);
+	}
+
+	/**
+	 * Returns a view of the portion of this set whose elements are
+	 * strictly less than <tt>toElement</tt>.
+	 */
+	public SortedSet<E> headSet(E toElement) {
+		return headSet(toElement, false);
+	}
+
+	/**
+	 * Returns a view of the portion of this set whose elements are
+	 * greater than or equal to <tt>fromElement</tt>.
+	 */
+	public SortedSet<E> tailSet(E fromElement) {
+		return tailSet(fromElement, true);
+	}
+
+	// Skip list
+
+	/**
+	 * A node of the skip list, linked at the levels 0 to <tt>top</tt>.
+	 * A link is the next node, or a <tt>Marked</tt> one if the node is
+	 * removed at that level.
+	 */
+	static final class Node<E> {
+		final E elem;
+		final AtomicReferenceArray<Object> next;
+
+		Node(E elem, int top) {
+			this.elem = elem;
+			next = new AtomicReferenceArray<Object>(top + 1);
+		}
+	}
+
+	/**
+	 * The link of a removed node to its next node.
+	 */
+	static final class Marked<E> {
+		final Node<E> node;
+
+		Marked(Node<E> node) {
+			this.node = node;
+		}
+	}
+
+	private static <E> Node<E> nodeOf(Object link) {
+		return link instanceof Marked ? ((Marked<E>)link).node :
+			(Node<E>)link;
+	}
+
+	/**
+	 * Returns the top level of a new node: level l with probability
+	 * 1/4<sup>l</sup>.
+	 */
+	private static int randomLevel() {
+		int r = ThreadLocalRandom.current().nextInt();
+		return Math.min(Integer.numberOfTrailingZeros(r) >>> 1,
+			MAXIMUM_LEVEL - 1);
+	}
+
+	private static int compare(Object a, Object b) {
+		// a null element is not comparable
+		if (a == null || b == null)
+			throw new NullPointerException();
+		return ((Comparable<Object>)a).compareTo(b);
+	}
+
+	/**
+	 * Finds, at each level, the last node before the element and the
+	 * node after it, unlinking the removed nodes on the way. Returns
+	 * <tt>true</tt> if the node found after it at level 0 holds the
+	 * element. The arrays, sized to the levels of interest, are filled
+	 * only below their length; <tt>preds</tt> may be null.
+	 */
+	private boolean find(Object elem, Node<E>[] preds, Node<E>[] succs) {
+	retry:
+		for (;;) {
+			Node<E> pred = head;
+			Node<E> curr = null;
+			for (int l = MAXIMUM_LEVEL - 1; l >= 0; l--) {
+				curr = nodeOf(pred.next.get(l));
+				while (curr != tail) {
+					Object link = curr.next.get(l);
+					if (link instanceof Marked) {
+						// unlink the removed node, or start again if the
+						// predecessor has changed
+						Node<E> succ = ((Marked<E>)link).node;
+						if (!pred.next.compareAndSet(l, curr, succ))
+							continue retry;
+						curr = succ;
+						continue;
+					}
+					if (compare(curr.elem, elem) >= 0)
+						break;
+					pred = curr;
+					curr = (Node<E>)link;
+				}
+				if (l < succs.length) {
+					if (preds != null)
+						preds[l] = pred;
+					succs[l] = curr;
+				}
+			}
+			return curr != tail && compare(curr.elem, elem) == 0;
+		}
+	}
+
+	/**
+	 * Removes the specified node by marking its links, from its top level
+	 * down to level 0. Returns <tt>true</tt> if this call marked level 0,
+	 * <tt>false</tt> if another one did.
+	 */
+	private boolean removeNode(Node<E> x) {
+		for (int l = x.next.length() - 1; l >= 1; l--) {
+			Object link;
+			while (!((link = x.next.get(l)) instanceof Marked))
+				x.next.compareAndSet(l, link, new Marked<E>((Node<E>)link));
+		}
+		for (;;) {
+			Object link = x.next.get(0);
+			if (link instanceof Marked)
+				return false;
+			if (x.next.compareAndSet(0, link,
+					new Marked<E>((Node<E>)link))) {
+				// unlink it
+				find(x.elem, null, new Node[1]);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Returns the last node at level 0 whose element is less than (or
+	 * equal to, if inclusive) the specified one, or the head if there is
+	 * none. A null element stands above all of them. The removed nodes
+	 * are skipped, not unlinked.
+	 */
+	private Node<E> findPredecessor(Object elem, boolean inclusive) {
+		if (elem != null)
+			compare(elem, elem);
+		Node<E> pred = head;
+		for (int l = MAXIMUM_LEVEL - 1; l >= 0; l--) {
+			Node<E> curr = nodeOf(pred.next.get(l));
+			while (curr != tail) {
+				if (elem != null) {
+					int cmp = compare(curr.elem, elem);
+					if (cmp > 0 || (cmp == 0 && !inclusive))
+						break;
+				}
+				// the links are read only to go past the node
+				Object link = curr.next.get(l);
+				if (!(link instanceof Marked))
+					pred = curr;
+				curr = nodeOf(link);
+			}
+		}
+		return pred;
+	}
+
+	/**
+	 * Returns the first node at level 0 after the specified one which is
+	 * not removed, or null if there is none.
+	 */
+	private Node<E> nextNode(Node<E> x) {
+		Node<E> n = nodeOf(x.next.get(0));
+		while (n != tail) {
+			Object link = n.next.get(0);
+			if (!(link instanceof Marked))
+				return n;
+			n = ((Marked<E>)link).node;
+		}
+		return null;
+	}
+
+	private Node<E> firstNode() {
+		return nextNode(head);
+	}
+
+	private Node<E> lastNode() {
+		return floorNode(null, true);
+	}
+
+	/**
+	 * Returns the node of the least element greater than (or equal to, if
+	 * inclusive) the specified one, or null if there is none.
+	 */
+	private Node<E> ceilingNode(Object elem, boolean inclusive) {
+		return nextNode(findPredecessor(elem, !inclusive));
+	}
+
+	/**
+	 * Returns the node of the greatest element less than (or equal to, if
+	 * inclusive) the specified one, or null if there is none. The node is
+	 * found again if removed meanwhile.
+	 */
+	private Node<E> floorNode(Object elem, boolean inclusive) {
+		for (;;) {
+			Node<E> x = findPredecessor(elem, inclusive);
+			if (x == head)
+				return null;
+			if (!(x.next.get(0) instanceof Marked))
+				return x;
+		}
+	}
+
+	private static <E> E elemOf(Node<E> x) {
+		if (x == null)
+			throw new NoSuchElementException();
+		return x.elem;
+	}
+
+	private static <E> E elemOrNull(Node<E> x) {
+		return x == null ? null : x.elem;
+	}
+
+	/**
+	 * Iterates from the specified node up to, or down to, the fence
+	 * element. Going up follows the links of level 0, going down searches
+	 * the element before the current one.
+	 */
+	private class SkipListIterator implements Iterator<E> {
+		private Node<E> nextNode;
+		private E lastElem;
+		// the element at which to stop, and if it is included
+		private final E fence;
+		private final boolean fenceInclusive;
+		private final boolean descending;
+
+		SkipListIterator(Node<E> first, E fence, boolean fenceInclusive,
+				boolean descending) {
+			this.fence = fence;
+			this.fenceInclusive = fenceInclusive;
+			this.descending = descending;
+			nextNode = beyondFence(first) ? null : first;
+		}
+
+		private boolean beyondFence(Node<E> x) {
+			if (x == null || fence == null)
+				return false;
+			int cmp = compare(x.elem, fence);
+			if (descending)
+				cmp = -cmp;
+			return cmp > 0 || (cmp == 0 && !fenceInclusive);
+		}
+
+		public boolean hasNext() {
+			return nextNode != null;
+		}
+
+		public E next() {
+			if (nextNode == null)
+				throw new NoSuchElementException();
+			lastElem = nextNode.elem;
+			Node<E> n = descending ? floorNode(lastElem, false) :
+				ConcurrentSkipListSet.this.nextNode(nextNode);
+			nextNode = n == null || beyondFence(n) ? null : n;
+			return lastElem;
+		}
+
+		public void remove() {
+			if (lastElem == null)
+				throw new IllegalStateException();
+			ConcurrentSkipListSet.this.remove(lastElem);
+			lastElem = null;
+		}
+	}
+
+	/**
+	 * A range of the set, in ascending or descending order, bounded by
+	 * <tt>lo</tt> unless <tt>fromStart</tt> and by <tt>hi</tt> unless
+	 * <tt>toEnd</tt>: the bounds are in ascending order whatever the order
+	 * of the view. The methods find the nodes of the set in the range
+	 * (the <tt>abs</tt> ones), then pick those of the direction.
+	 */
+	private final class SubSet extends AbstractSet<E>
+			implements NavigableSet<E> {
+		final E lo, hi;
+		final boolean fromStart, toEnd;
+		final boolean loInclusive, hiInclusive;
+		final boolean descending;
+
+		SubSet(boolean fromStart, E lo, boolean loInclusive,
+				boolean toEnd, E hi, boolean hiInclusive,
+				boolean descending) {
+			if (!fromStart && !toEnd) {
+				if (compare(lo, hi) > 0)
+					throw new IllegalArgumentException(
+						"fromElement > toElement");
+			} else {
+				// the bounds must be comparable
+				if (!fromStart)
+					compare(lo, lo);
+				if (!toEnd)
+					compare(hi, hi);
+			}
+			this.fromStart = fromStart;
+			this.lo = lo;
+			this.loInclusive = loInclusive;
+			this.toEnd = toEnd;
+			this.hi = hi;
+			this.hiInclusive = hiInclusive;
+			this.descending = descending;
+		}
+
+		private boolean tooLow(Object o) {
+			if (!fromStart) {
+				int c = compare(o, lo);
+				if (c < 0 || (c == 0 && !loInclusive))
+					return true;
+			}
+			return false;
+		}
+
+		private boolean tooHigh(Object o) {
+			if (!toEnd) {
+				int c = compare(o, hi);
+				if (c > 0 || (c == 0 && !hiInclusive))
+					return true;
+			}
+			return false;
+		}
+
+		private boolean inRange(Object o) {
+			return !tooLow(o) && !tooHigh(o);
+		}
+
+		// the bound of a nested view may be an excluded bound of this one
+		private boolean inRange(Object o, boolean inclusive) {
+			if (inclusive)
+				return inRange(o);
+			return (fromStart || compare(o, lo) >= 0) &&
+				(toEnd || compare(hi, o) >= 0);
+		}
+
+		private Node<E> absLowest() {
+			Node<E> x = fromStart ? firstNode() : ceilingNode(lo, loInclusive);
+			return x == null || tooHigh(x.elem) ? null : x;
+		}
+
+		private Node<E> absHighest() {
+			Node<E> x = toEnd ? lastNode() : floorNode(hi, hiInclusive);
+			return x == null || tooLow(x.elem) ? null : x;
+		}
+
+		private Node<E> absCeiling(Object o, boolean inclusive) {
+			if (tooLow(o))
+				return absLowest();
+			Node<E> x = ceilingNode(o, inclusive);
+			return x == null || tooHigh(x.elem) ? null : x;
+		}
+
+		private Node<E> absFloor(Object o, boolean inclusive) {
+			if (tooHigh(o))
+				return absHighest();
+			Node<E> x = floorNode(o, inclusive);
+			return x == null || tooLow(x.elem) ? null : x;
+		}
+
+		private Iterator<E> absIterator(boolean down) {
+			return down ?
+				new SkipListIterator(absHighest(), lo, loInclusive, true) :
+				new SkipListIterator(absLowest(), hi, hiInclusive, false);
+		}
+
+		public int size() {
+			int n = 0;
+			for (Iterator<E> i = iterator(); i.hasNext(); i.next())
+				n++;
+			return n;
+		}
+
+		public boolean isEmpty() {
+			return absLowest() == null;
+		}
+
+		public boolean contains(Object o) {
+			return inRange(o) && ConcurrentSkipListSet.this.contains(o);
+		}
+
+		public boolean add(E e) {
+			if (!inRange(e))
+				throw new IllegalArgumentException("element out of range");
+			return ConcurrentSkipListSet.this.add(e);
+		}
+
+		public boolean remove(Object o) {
+			return inRange(o) && ConcurrentSkipListSet.this.remove(o);
+		}
+
+		public void clear() {
+			for (Iterator<E> i = iterator(); i.hasNext(); ) {
+				i.next();
+				i.remove();
+			}
+		}
+
+		public Iterator<E> iterator() {
+			return absIterator(descending);
+		}
+
+		public Iterator<E> descendingIterator() {
+			return absIterator(!descending);
+		}
+
+		public Comparator<? super E> comparator() {
+			return descending ? java.util.Collections.reverseOrder() : null;
+		}
+
+		public E first() {
+			return elemOf(descending ? absHighest() : absLowest());
+		}
+
+		public E last() {
+			return elemOf(descending ? absLowest() : absHighest());
+		}
+
+		public E lower(E e) {
+			return elemOrNull(descending ? absCeiling(e, false) :
+				absFloor(e, false));
+		}
+
+		public E floor(E e) {
+			return elemOrNull(descending ? absCeiling(e, true) :
+				absFloor(e, true));
+		}
+
+		public E ceiling(E e) {
+			return elemOrNull(descending ? absFloor(e, true) :
+				absCeiling(e, true));
+		}
+
+		public E higher(E e) {
+			return elemOrNull(descending ? absFloor(e, false) :
+				absCeiling(e, false));
+		}
+
+		public E pollFirst() {
+			for (;;) {
+				Node<E> x = descending ? absHighest() : absLowest();
+				if (x == null)
+					return null;
+				if (removeNode(x))
+					return x.elem;
+			}
+		}
+
+		public E pollLast() {
+			for (;;) {
+				Node<E> x = descending ? absLowest() : absHighest();
+				if (x == null)
+					return null;
+				if (removeNode(x))
+					return x.elem;
+			}
+		}
+
+		public NavigableSet<E> descendingSet() {
+			return new SubSet(fromStart, lo, loInclusive,
+				toEnd, hi, hiInclusive, !descending);
+		}
+
+		public NavigableSet<E> subSet(E fromElement, boolean fromInclusive,
+				E toElement, boolean toInclusive) {
+			if (descending)
+				return newSubSet(toElement, toInclusive,
+					fromElement, fromInclusive);
+			return newSubSet(fromElement, fromInclusive,
+				toElement, toInclusive);
+		}
+
+		public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+			if (descending)
+				return newTail(toElement, inclusive);
+			return newHead(toElement, inclusive);
+		}
+
+		public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+			if (descending)
+				return newHead(fromElement, inclusive);
+			return newTail(fromElement, inclusive);
+		}
+
+		private SubSet newSubSet(E from, boolean fromInclusive,
+				E to, boolean toInclusive) {
+			if (!inRange(from, fromInclusive) || !inRange(to, toInclusive))
+				throw new IllegalArgumentException("bound out of range");
+			return new SubSet(false, from, fromInclusive,
+				false, to, toInclusive, descending);
+		}
+
+		private SubSet newHead(E to, boolean inclusive) {
+			if (!inRange(to, inclusive))
+				throw new IllegalArgumentException("bound out of range");
+			return new SubSet(fromStart, lo, loInclusive,
+				false, to, inclusive, descending);
+		}
+
+		private SubSet newTail(E from, boolean inclusive) {
+			if (!inRange(from, inclusive))
+				throw new IllegalArgumentException("bound out of range");
+			return new SubSet(false, from, inclusive,
+				toEnd, hi, hiInclusive, descending);
+		}
+
+		public SortedSet<E> subSet(E fromElement, E toElement) {
+			return subSet(fromElement, true, toElement, false);
+		}
+
+		public SortedSet<E> headSet(E toElement) {
+			return headSet(toElement, false);
+		}
+
+		public SortedSet<E> tailSet(E fromElement) {
+			return tailSet(fromElement, true);
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+/*
+ * CountMinSketch.java - example of Count-Min Sketch implementation
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+/**
+ * Probabilistic estimator of how often the elements of a stream occur,
+ * used by <tt>TinyLfuPolicy</tt> as the frequency history of the keys.
+ *
+ * <p>The sketch is made of four rows of 4-bit counters: an element is
+ * counted by incrementing one counter per row, chosen by a different hash
+ * function, and its frequency is estimated by the smallest of them, which
+ * may overestimate it because of collisions but never underestimates it.
+ * The sixteen counters of a <tt>long</tt> word hold four counters of each
+ * row, so that an element touches four words of the table.
+ *
+ * <p>Counters saturate at 15. After a number of increments proportional to
+ * the size of the table all counters are halved, so that the sketch
+ * follows changes in popularity rather than counting forever. The table
+ * can be grown, losing the counts, when more elements are to be tracked.
+ */
+
+public class CountMinSketch
+{
+	private static final long RESET_MASK = 0x7777777777777777L;
+	private static final long ONE_MASK = 0x1111111111111111L;
+	private static final long[] SEEDS = {
+		0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+		0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+	};
+
+	private long[] table;
+	private int sampleSize;
+	private int additions;
+
+	/**
+	 * Constructs an empty sketch sized for a cache holding the specified
+	 * maximum number of elements.
+	 */
+	public CountMinSketch(long maximumSize) {
+		if (maximumSize < 0)
+			throw new IllegalArgumentException(
+				"Illegal maximum size: " + maximumSize);
+		allocate(maximumSize);
+	}
+
+	/**
+	 * Grows the sketch, if needed, to track the specified number of
+	 * elements. A new table starts with no counts.
+	 */
+	public void ensureCapacity(long maximumSize) {
+		if (maximumSize > table.length &&
+		    table.length < HashMap.MAXIMUM_CAPACITY)
+			allocate(maximumSize);
+	}
+
+	private void allocate(long maximumSize) {
+		int capacity = (int)Math.min(Math.max(maximumSize, 1),
+			HashMap.MAXIMUM_CAPACITY);
+		table = new long[HashMap.tableSizeFor(capacity)];
+		sampleSize = (int)Math.min(10L * capacity, Integer.MAX_VALUE);
+		additions = 0;
+	}
+
+	/**
+	 * Returns the estimated number of occurrences of the specified
+	 * element, up to 15.
+	 */
+	public int frequency(Object e) {
+		int hash = spread(e.hashCode());
+		int frequency = 15;
+		for (int i = 0; i < 4; i++) {
+			int shift = offsetOf(hash, i) << 2;
+			int count = (int)((table[indexOf(hash, i)] >>> shift) & 0xfL);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	/**
+	 * Counts an occurrence of the specified element, halving all the
+	 * counters once the sample size is reached.
+	 */
+	public void increment(Object e) {
+		int hash = spread(e.hashCode());
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int shift = offsetOf(hash, i) << 2;
+			long mask = 0xfL << shift;
+			if ((table[index] & mask) != mask) {
+				table[index] += 1L << shift;
+				added = true;
+			}
+		}
+		if (added && ++additions == sampleSize)
+			reset();
+	}
+
+	/**
+	 * Halves all the counters. The odd counters lose a half, so the
+	 * number of additions is corrected by the number of them.
+	 */
+	private void reset() {
+		int odd = 0;
+		for (int i = 0; i < table.length; i++) {
+			odd += Long.bitCount(table[i] & ONE_MASK);
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		additions = (additions - (odd >>> 2)) >>> 1;
+	}
+
+	private static int spread(int h) {
+		h *= 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+
+	// the word of the table holding the counter of row i
+	private int indexOf(int hash, int i) {
+		long h = (hash + SEEDS[i]) * SEEDS[i];
+		h += h >>> 32;
+		return (int)h & (table.length - 1);
+	}
+
+	// the counter of row i within its word, one of the four of the row
+	private static int offsetOf(int hash, int i) {
+		return (i << 2) + ((hash >>> (i << 3)) & 3);
+	}
+
+}
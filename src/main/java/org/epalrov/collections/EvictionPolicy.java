@@ -0,0 +1,46 @@
+/*
+ * EvictionPolicy.java - example of cache eviction policy
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+/**
+ * Decides which mapping a <tt>Cache</tt> evicts when it exceeds its maximum
+ * weight. The cache notifies the policy of every insertion, hit and removal
+ * of a mapping, passing the node which holds it: the policy is expected to
+ * keep the nodes ordered, so that each callback costs O(1).
+ *
+ * <p>A policy instance holds the state of a single cache and must not be
+ * shared.
+ *
+ * @see LruPolicy
+ * @see TinyLfuPolicy
+ */
+
+public interface EvictionPolicy<K,V>
+{
+	/**
+	 * Records a new mapping, or one whose weight has changed.
+	 */
+	void onInsert(Cache.Node<K,V> node);
+
+	/**
+	 * Records a read or an update of a mapping.
+	 */
+	void onAccess(Cache.Node<K,V> node);
+
+	/**
+	 * Forgets a mapping which has been removed or evicted.
+	 */
+	void onRemove(Cache.Node<K,V> node);
+
+	/**
+	 * Returns the node of the mapping to evict. It is called only when the
+	 * cache is not empty, and the cache then calls <tt>onRemove</tt>.
+	 */
+	Cache.Node<K,V> victim();
+}
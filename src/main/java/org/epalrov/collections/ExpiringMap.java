@@ -0,0 +1,362 @@
+/*
+ * ExpiringMap.java - example of expiring Map implementation
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Map, built on a <tt>HashMap</tt>, whose mappings expire once their
+ * time-to-live has elapsed.
+ *
+ * <p>The mappings are scheduled in a hierarchical timing wheel, instead of
+ * being found by scanning the table. Time is divided in ticks; the wheel
+ * has 6 levels of 64 buckets, the buckets of level <i>l</i> spanning
+ * 64<sup><i>l</i></sup> ticks, so that a mapping goes to the lowest level
+ * whose 64 buckets cover its time-to-live. As the ticks go by, the buckets
+ * they pass over are swept: the mappings of level 0 expire, those of the
+ * upper levels cascade to a lower one. Each mapping is moved at most once
+ * per level, so that scheduling, cancelling and expiring it costs O(1).
+ * Longer time-to-live than the 64<sup>6</sup> ticks of the wheel wait in
+ * its last level and are rescheduled when their bucket is swept.
+ *
+ * <p>The wheel is advanced by <tt>put</tt>, <tt>remove</tt> and
+ * <tt>expire</tt>; a mapping may therefore live until the next of these
+ * calls, and up to one tick more. If <i>expiry on read</i> is enabled,
+ * <tt>get</tt> and <tt>containsKey</tt> also check the expiration time of
+ * the mapping they find, and remove it if elapsed. A
+ * <tt>RemovalListener</tt> may be notified of every removed mapping.
+ *
+ * <p>Null keys and values are not allowed.
+ *
+ * <p>Note that this implementation is not synchronized.
+ */
+
+public class ExpiringMap<K,V>
+{
+	static final int WHEEL_BITS = 6;
+	static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+	static final int WHEEL_MASK = WHEEL_SIZE - 1;
+	static final int LEVELS = 6;
+	static final long DEFAULT_TICK = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final HashMap<K,Node<K,V>> map;
+	private final Node<K,V>[][] wheel;
+	private final long defaultTtl;
+	private final long tick;
+	private final boolean expireOnRead;
+	private final LongSupplier clock;
+	private final long origin;
+	private RemovalListener<? super K, ? super V> listener;
+
+	// the last tick the wheel was advanced to
+	private long currentTick;
+
+	/**
+	 * Constructs an empty <tt>ExpiringMap</tt> with the specified default
+	 * time-to-live, tick duration and expiry on read.
+	 */
+	public ExpiringMap(long ttl, long tickDuration, TimeUnit unit,
+			boolean expireOnRead) {
+		this(unit.toNanos(ttl), unit.toNanos(tickDuration), expireOnRead,
+			new LongSupplier() {
+				public long getAsLong() {
+					return System.nanoTime();
+				}
+			});
+	}
+
+	/**
+	 * Constructs an empty <tt>ExpiringMap</tt> with the specified default
+	 * time-to-live, a tick of 1 millisecond and expiry on read.
+	 */
+	public ExpiringMap(long ttl, TimeUnit unit) {
+		this(unit.toNanos(ttl), DEFAULT_TICK, TimeUnit.NANOSECONDS, true);
+	}
+
+	/**
+	 * Constructs an empty <tt>ExpiringMap</tt> whose time is given by the
+	 * specified clock, in nanoseconds.
+	 */
+	@SuppressWarnings("unchecked")
+	ExpiringMap(long ttl, long tick, boolean expireOnRead,
+			LongSupplier clock) {
+		if (ttl < 0)
+			throw new IllegalArgumentException("Illegal ttl: " + ttl);
+		if (tick <= 0)
+			throw new IllegalArgumentException("Illegal tick: " + tick);
+		this.defaultTtl = ttl;
+		this.tick = tick;
+		this.expireOnRead = expireOnRead;
+		this.clock = clock;
+		origin = clock.getAsLong();
+		map = new HashMap<K,Node<K,V>>();
+		wheel = new Node[LEVELS][WHEEL_SIZE];
+		for (int l = 0; l < LEVELS; l++)
+			for (int i = 0; i < WHEEL_SIZE; i++)
+				wheel[l][i] = new Node<K,V>(null, null);
+	}
+
+	/**
+	 * Sets the listener notified of the removed mappings, or none if null.
+	 */
+	public void setRemovalListener(
+			RemovalListener<? super K, ? super V> listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Returns the number of mappings in this map, including those which
+	 * have expired but have not been removed yet.
+	 */
+	public int size() {
+		return map.size();
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map contains no mappings.
+	 */
+	public boolean isEmpty() {
+		return map.size() == 0 ? true : false;
+	}
+
+	/**
+	 * Returns the value to which the specified key is mapped, or null if
+	 * this map contains no mapping for the key.
+	 */
+	public V get(Object key) {
+		Node<K,V> e = live(key);
+		return e == null ? null : e.value;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map contains a mapping for the
+	 * specified key.
+	 */
+	public boolean containsKey(Object key) {
+		return live(key) != null;
+	}
+
+	/**
+	 * Associates the specified value with the specified key in this map,
+	 * for the default time-to-live. Returns the previous value, or null if
+	 * there was none.
+	 */
+	public V put(K key, V value) {
+		return put(key, value, defaultTtl, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Associates the specified value with the specified key in this map,
+	 * for the specified time-to-live. Returns the previous value, or null
+	 * if there was none.
+	 */
+	public V put(K key, V value, long ttl, TimeUnit unit) {
+		if (key == null || value == null)
+			throw new NullPointerException();
+		if (ttl < 0)
+			throw new IllegalArgumentException("Illegal ttl: " + ttl);
+		long now = elapsed();
+		advance(now);
+
+		// saturate rather than overflow on huge time-to-live
+		long nanos = unit.toNanos(ttl);
+		long expiration = nanos > Long.MAX_VALUE - now ?
+			Long.MAX_VALUE : now + nanos;
+
+		Node<K,V> e = map.get(key);
+		V oldValue = null;
+		if (e == null) {
+			e = new Node<K,V>(key, value);
+			map.put(key, e);
+		} else {
+			oldValue = e.value;
+			e.value = value;
+			unlink(e);
+		}
+		e.expiration = expiration;
+		e.deadline = expiration / tick + (expiration % tick == 0 ? 0 : 1);
+		schedule(e);
+		if (oldValue != null && listener != null)
+			listener.onRemoval(key, oldValue,
+				RemovalListener.Cause.REPLACED);
+		return oldValue;
+	}
+
+	/**
+	 * Removes the mapping for the specified key from this map if present,
+	 * and returns its value, or null if there was none.
+	 */
+	public V remove(Object key) {
+		advance(elapsed());
+		Node<K,V> e = map.remove(key);
+		if (e == null)
+			return null;
+		unlink(e);
+		if (listener != null)
+			listener.onRemoval(e.key, e.value,
+				RemovalListener.Cause.EXPLICIT);
+		return e.value;
+	}
+
+	/**
+	 * Removes all of the mappings from this map.
+	 */
+	public void clear() {
+		for (int l = 0; l < LEVELS; l++) {
+			for (int i = 0; i < WHEEL_SIZE; i++) {
+				Node<K,V> s = wheel[l][i];
+				Node<K,V> e = s.next;
+				s.prev = s.next = s;
+				while (e != s) {
+					Node<K,V> next = e.next;
+					e.prev = e.next = null;
+					if (listener != null)
+						listener.onRemoval(e.key, e.value,
+							RemovalListener.Cause.EXPLICIT);
+					e = next;
+				}
+			}
+		}
+		map.clear();
+	}
+
+	/**
+	 * Advances the timing wheel to the current time, removing the expired
+	 * mappings.
+	 */
+	public void expire() {
+		advance(elapsed());
+	}
+
+	// Timing wheel
+
+	private long elapsed() {
+		return clock.getAsLong() - origin;
+	}
+
+	/**
+	 * Returns the mapping of the specified key, or null if there is none
+	 * or if it has expired and expiry on read is enabled.
+	 */
+	private Node<K,V> live(Object key) {
+		Node<K,V> e = map.get(key);
+		if (e != null && expireOnRead && e.expiration <= elapsed()) {
+			map.remove(e.key);
+			unlink(e);
+			if (listener != null)
+				listener.onRemoval(e.key, e.value,
+					RemovalListener.Cause.EXPIRED);
+			return null;
+		}
+		return e;
+	}
+
+	/**
+	 * Advances the wheel to the tick of the specified time. At each level,
+	 * the buckets the ticks have passed over are swept, all of them if the
+	 * wheel has turned around; a level is not reached unless the one below
+	 * has wrapped.
+	 */
+	void advance(long now) {
+		long previous = currentTick;
+		long current = now / tick;
+		if (current <= previous)
+			return;
+		currentTick = current;
+		for (int l = 0; l < LEVELS; l++) {
+			int shift = l * WHEEL_BITS;
+			long p = previous >>> shift;
+			long c = current >>> shift;
+			if (p == c)
+				break;
+			long n = Math.min(c - p, WHEEL_SIZE);
+			for (long i = 1; i <= n; i++)
+				sweep(wheel[l][(int)((p + i) & WHEEL_MASK)]);
+		}
+	}
+
+	/**
+	 * Empties the specified bucket, removing the expired mappings and
+	 * rescheduling the others, which go to a lower level.
+	 */
+	private void sweep(Node<K,V> s) {
+		Node<K,V> e = s.next;
+		s.prev = s.next = s;
+		while (e != s) {
+			Node<K,V> next = e.next;
+			if (e.deadline <= currentTick) {
+				e.prev = e.next = null;
+				map.remove(e.key);
+				if (listener != null)
+					listener.onRemoval(e.key, e.value,
+						RemovalListener.Cause.EXPIRED);
+			} else {
+				schedule(e);
+			}
+			e = next;
+		}
+	}
+
+	/**
+	 * Links the specified mapping to the bucket of its deadline, at the
+	 * lowest level covering it. A deadline already reached is scheduled
+	 * for the next tick, one beyond the wheel for its last tick.
+	 */
+	private void schedule(Node<K,V> e) {
+		long delta = e.deadline - currentTick;
+		int level;
+		long deadline;
+		if (delta <= 0) {
+			level = 0;
+			deadline = currentTick + 1;
+		} else {
+			level = (63 - Long.numberOfLeadingZeros(delta)) / WHEEL_BITS;
+			deadline = e.deadline;
+			if (level >= LEVELS) {
+				level = LEVELS - 1;
+				deadline = currentTick + (1L << (LEVELS * WHEEL_BITS)) - 1;
+			}
+		}
+		Node<K,V> s = wheel[level]
+			[(int)((deadline >>> (level * WHEEL_BITS)) & WHEEL_MASK)];
+		Node<K,V> last = s.prev;
+		e.prev = last;
+		e.next = s;
+		last.next = e;
+		s.prev = e;
+	}
+
+	private void unlink(Node<K,V> e) {
+		e.prev.next = e.next;
+		e.next.prev = e.prev;
+		e.prev = e.next = null;
+	}
+
+	/**
+	 * Holds a mapping, linked in a bucket of the wheel. The expiration is
+	 * the time when the mapping expires, the deadline the first tick not
+	 * before it. The head of each bucket is a node without mapping.
+	 */
+	static final class Node<K,V> {
+		final K key;
+		V value;
+		long expiration;
+		long deadline;
+		Node<K,V> prev;
+		Node<K,V> next;
+
+		Node(K k, V v) {
+			key = k;
+			value = v;
+			prev = next = this;
+		}
+	}
+
+}
@@ -0,0 +1,472 @@
+/*
+ * FrozenMap.java - example of immutable Perfect Hash Map implementation
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Immutable implementation of the <tt>Map</tt> interface based on a minimal
+ * perfect hash function of its keys.
+ *
+ * <p>The keys and the values are stored side by side in a dense array, with
+ * no empty slot and no chain: the perfect hash function sends each key to
+ * its own slot, so that a lookup computes one hash, reads one displacement
+ * and one slot, and checks the key found there with a single
+ * <tt>equals()</tt>; the value lies next to it.
+ *
+ * <p>The function is built by <i>hash and displace</i>, as in the CHD
+ * algorithm: the keys are first split among buckets of two keys on average.
+ * From the largest to the smallest, each bucket looks for the first
+ * displacement which sends all of its keys to free slots, and records it;
+ * the buckets of a single key then simply take the slots left free,
+ * recording the slot itself. This costs one <tt>int</tt> per bucket, that
+ * is about 2 bytes per mapping.
+ *
+ * <p>The function only depends on <tt>hashCode()</tt>: should two keys have
+ * the same hash code, no displacement could separate them, so the second
+ * one is stored after the perfectly hashed slots and found through a small
+ * <tt>HashMap</tt> of such keys. Null keys and values are allowed. All the
+ * methods which would modify the map throw
+ * <tt>UnsupportedOperationException</tt>.
+ */
+
+public final class FrozenMap<K,V> implements Map<K,V>
+{
+	// average number of keys of a bucket
+	private static final int BUCKET_SIZE = 2;
+
+	private final Object[] table; // keys at even, values at odd indexes
+	private final int size;
+	private final int slots; // perfectly hashed slots, the first ones
+	private final int[] displacements;
+	private final HashMap<Object,Integer> collisions; // of the other keys
+	private final int hashCode;
+
+	/**
+	 * Returns a <tt>FrozenMap</tt> holding the same mappings as the
+	 * specified map.
+	 */
+	public static <K,V> FrozenMap<K,V> copyOf(
+			Map<? extends K, ? extends V> m) {
+		if (m instanceof FrozenMap)
+			return (FrozenMap<K,V>)m; // unchecked cast
+		if (m instanceof HashMap && ((HashMap<?,?>)m).strategy == null)
+			return ((HashMap<K,V>)m).freeze(); // unchecked cast
+
+		int n = m.size();
+		Object[] ks = new Object[n];
+		Object[] vs = new Object[n];
+		int[] hs = new int[n];
+		int i = 0;
+		for (Iterator<? extends Map.Entry<? extends K, ? extends V>> it =
+				m.entrySet().iterator(); it.hasNext(); i++) {
+			Map.Entry<? extends K, ? extends V> e = it.next();
+			ks[i] = e.getKey();
+			vs[i] = e.getValue();
+			hs[i] = HashMap.hash(ks[i]);
+		}
+		return new FrozenMap<K,V>(ks, vs, hs);
+	}
+
+	/**
+	 * Builds the perfect hash function of the specified keys, which are
+	 * distinct, given their hashes as computed by <tt>HashMap.hash()</tt>,
+	 * and moves the mappings into their slots.
+	 */
+	FrozenMap(Object[] ks, Object[] vs, int[] hs) {
+		int n = ks.length;
+
+		// sort the mappings by hash, so that the keys sharing their
+		// hash with a previous one can be set aside
+		long[] order = new long[n];
+		for (int i = 0; i < n; i++)
+			order[i] = ((long)hs[i] << 32) | i;
+		Arrays.sort(order);
+		int distinct = 0, colliding = 0;
+		int[] collidingIndex = new int[n];
+		for (int i = 0; i < n; i++)
+			if (distinct == 0 ||
+			    (int)(order[i] >> 32) != (int)(order[distinct - 1] >> 32))
+				order[distinct++] = order[i];
+			else
+				collidingIndex[colliding++] = (int)order[i];
+
+		// split the distinct hashes among the buckets
+		int buckets = Math.max(1, (distinct + BUCKET_SIZE - 1) / BUCKET_SIZE);
+		int[] start = new int[buckets + 1];
+		for (int i = 0; i < distinct; i++)
+			start[bucket((int)(order[i] >> 32), buckets) + 1]++;
+		int maxSize = 0;
+		for (int b = 0; b < buckets; b++) {
+			maxSize = Math.max(maxSize, start[b + 1]);
+			start[b + 1] += start[b];
+		}
+		long[] byBucket = new long[distinct];
+		int[] fill = Arrays.copyOf(start, buckets);
+		for (int i = 0; i < distinct; i++)
+			byBucket[fill[bucket((int)(order[i] >> 32), buckets)]++] = order[i];
+
+		// the buckets from the largest to the smallest
+		int[] bySize = new int[buckets];
+		int[] sizeStart = new int[maxSize + 2];
+		for (int b = 0; b < buckets; b++)
+			sizeStart[maxSize - (start[b + 1] - start[b]) + 1]++;
+		for (int s = 0; s <= maxSize; s++)
+			sizeStart[s + 1] += sizeStart[s];
+		for (int b = 0; b < buckets; b++)
+			bySize[sizeStart[maxSize - (start[b + 1] - start[b])]++] = b;
+
+		// look for the displacement of each bucket
+		int[] disp = new int[buckets];
+		int[] target = new int[n]; // slot of each mapping, by index
+		boolean[] used = new boolean[distinct];
+		int[] tried = new int[maxSize];
+		int free = 0;
+		for (int i = 0; i < buckets; i++) {
+			int b = bySize[i];
+			int first = start[b], size = start[b + 1] - first;
+			if (size == 0)
+				break;
+			if (size == 1) {
+				while (used[free])
+					free++;
+				used[free] = true;
+				disp[b] = -free - 1;
+				target[(int)byBucket[first]] = free;
+				continue;
+			}
+			for (int d = 1; ; d++) {
+				int k = 0;
+				for ( ; k < size; k++) {
+					int slot = slot((int)(byBucket[first + k] >> 32), d,
+						distinct);
+					if (used[slot])
+						break;
+					int j = 0;
+					while (j < k && tried[j] != slot)
+						j++;
+					if (j < k)
+						break;
+					tried[k] = slot;
+				}
+				if (k == size) {
+					disp[b] = d;
+					for (k = 0; k < size; k++) {
+						used[tried[k]] = true;
+						target[(int)byBucket[first + k]] = tried[k];
+					}
+					break;
+				}
+			}
+		}
+
+		// move the mappings into their slots, the colliding ones last
+		table = new Object[2 * n];
+		size = n;
+		HashMap<Object,Integer> c = null;
+		for (int i = 0; i < colliding; i++) {
+			int index = collidingIndex[i];
+			if (c == null)
+				c = new HashMap<Object,Integer>();
+			c.put(ks[index], distinct + i);
+			target[index] = distinct + i;
+		}
+		int h = 0;
+		for (int i = 0; i < n; i++) {
+			table[2 * target[i]] = ks[i];
+			table[2 * target[i] + 1] = vs[i];
+			h += (ks[i] == null ? 0 : ks[i].hashCode()) ^
+				(vs[i] == null ? 0 : vs[i].hashCode());
+		}
+		slots = distinct;
+		displacements = disp;
+		collisions = c;
+		hashCode = h;
+	}
+
+	// Hashing: the bucket and the slots of a hash are given by the
+	// murmur3 finalizer, mixed with the displacement, mapped to the range
+	// by a multiplication rather than a division.
+
+	private static int mix(int h, int d) {
+		h ^= d * 0x9e3779b9;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	private static int range(int h, int n) {
+		return (int)(((h & 0xffffffffL) * n) >>> 32);
+	}
+
+	private static int bucket(int hash, int buckets) {
+		return range(hash * 0x9e3779b9, buckets);
+	}
+
+	private static int slot(int hash, int d, int slots) {
+		return range(mix(hash, d), slots);
+	}
+
+	private int indexOf(Object key) {
+		if (slots == 0)
+			return -1;
+		int hash = HashMap.hash(key);
+		int d = displacements[bucket(hash, displacements.length)];
+		int index = d < 0 ? -d - 1 : slot(hash, d, slots);
+		Object k = table[2 * index];
+		if (key == k || (key != null && key.equals(k)))
+			return index;
+		if (collisions != null) {
+			Integer i = collisions.get(key);
+			if (i != null)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the number of key-value mappings in this map.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map contains no key-value mappings.
+	 */
+	public boolean isEmpty() {
+		return size == 0 ? true : false;
+	}
+
+	/**
+	 * Returns the value to which the specified key is mapped,
+	 * or {@code null} if this map contains no mapping for the key.
+	 */
+	public V get(Object key) {
+		int index = indexOf(key);
+		return index < 0 ? null : (V)table[2 * index + 1]; // unchecked cast
+	}
+
+	/**
+	 * Returns the value to which the specified key is mapped, or the
+	 * specified default value if this map contains no mapping for the key.
+	 */
+	public V getOrDefault(Object key, V defaultValue) {
+		int index = indexOf(key);
+		return index < 0 ? defaultValue :
+			(V)table[2 * index + 1]; // unchecked cast
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map contains a mapping for the
+	 * specified key.
+	 */
+	public boolean containsKey(Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map maps one or more keys to the
+	 * specified value.
+	 */
+	public boolean containsValue(Object value) {
+		for (int index = 0; index < size; index++)
+			if (value == table[2 * index + 1] ||
+			   (value != null && value.equals(table[2 * index + 1])))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Throws <tt>UnsupportedOperationException</tt>.
+	 */
+	public V put(K key, V value) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Throws <tt>UnsupportedOperationException</tt>.
+	 */
+	public void putAll(Map<? extends K, ? extends V> m) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Throws <tt>UnsupportedOperationException</tt>.
+	 */
+	public V remove(Object key) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Throws <tt>UnsupportedOperationException</tt>.
+	 */
+	public void clear() {
+		throw new UnsupportedOperationException();
+	}
+
+	// Views: each of them is created once and then cached
+
+	private Set<K> keySet;
+	private Collection<V> valuesView;
+	private Set<Map.Entry<K,V>> entrySet;
+
+	/**
+	 * Returns an unmodifiable <tt>Set</tt> view of the keys contained in
+	 * this map.
+	 */
+	public Set<K> keySet() {
+		Set<K> ks = keySet;
+		return ks != null ? ks : (keySet = new KeySet());
+	}
+
+	private class KeySet extends java.util.AbstractSet<K> {
+		public int size() {
+			return size;
+		}
+
+		public boolean contains(Object o) {
+			return containsKey(o);
+		}
+
+		public Iterator<K> iterator() {
+			return new IndexIterator<K>() {
+				public K next() {
+					return (K)table[2 * nextIndex()]; // unchecked cast
+				}
+			};
+		}
+	}
+
+	/**
+	 * Returns an unmodifiable <tt>Collection</tt> view of the values
+	 * contained in this map.
+	 */
+	public Collection<V> values() {
+		Collection<V> vs = valuesView;
+		return vs != null ? vs : (valuesView = new Values());
+	}
+
+	private class Values extends java.util.AbstractCollection<V> {
+		public int size() {
+			return size;
+		}
+
+		public Iterator<V> iterator() {
+			return new IndexIterator<V>() {
+				public V next() {
+					return (V)table[2 * nextIndex() + 1]; // unchecked cast
+				}
+			};
+		}
+	}
+
+	/**
+	 * Returns an unmodifiable <tt>Set</tt> view of the mappings contained
+	 * in this map.
+	 */
+	public Set<Map.Entry<K,V>> entrySet() {
+		Set<Map.Entry<K,V>> es = entrySet;
+		return es != null ? es : (entrySet = new EntrySet());
+	}
+
+	private class EntrySet extends java.util.AbstractSet<Map.Entry<K,V>> {
+		public int size() {
+			return size;
+		}
+
+		public Iterator<Map.Entry<K,V>> iterator() {
+			return new IndexIterator<Map.Entry<K,V>>() {
+				public Map.Entry<K,V> next() {
+					int index = 2 * nextIndex();
+					K key = (K)table[index]; // unchecked cast
+					V value = (V)table[index + 1]; // unchecked cast
+					return new java.util.AbstractMap.SimpleImmutableEntry<K,V>(
+						key, value);
+				}
+			};
+		}
+	}
+
+	/**
+	 * Provides a skeletal implementation of an iterator over the slots of
+	 * this map, which are all used.
+	 */
+	private abstract class IndexIterator<T> implements Iterator<T> {
+		private int index;
+
+		public boolean hasNext() {
+			return index < size ? true : false;
+		}
+
+		// the next() method has to be implemented for the specific
+		// type T, making use of the nextIndex() method here below.
+		public abstract T next();
+
+		int nextIndex() {
+			if (index >= size)
+				throw new java.util.NoSuchElementException();
+			return index++;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	// Comparison and hashing
+
+	/**
+	 * Compares the specified object with this map for equality.  Returns
+	 * <tt>true</tt> if the given object is also a map and the two maps
+	 * represent the same mappings.
+	 */
+	public boolean equals(Object o) {
+		// trivial check
+		if (o == this)
+			return true;
+
+		// check that it's an instance of Map
+		if (!(o instanceof Map))
+			return false;
+		Map<?,?> m = (Map<?,?>)o;
+
+		// check that the size is the same and that each mapping is
+		// contained in the other map
+		if (m.size() != size)
+			return false;
+		for (int index = 0; index < size; index++) {
+			Object key = table[2 * index];
+			Object value = table[2 * index + 1];
+			if (value == null) {
+				if (m.get(key) != null || !m.containsKey(key))
+					return false;
+			} else if (!value.equals(m.get(key))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the hash code value for this map, the sum of the hash codes
+	 * of each entry in the map's <tt>entrySet()</tt> view. It is computed
+	 * once, when the map is built.
+	 */
+	public int hashCode() {
+		return hashCode;
+	}
+
+}
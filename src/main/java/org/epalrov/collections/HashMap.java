@@ -12,6 +12,10 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Hash table based implementation of the <tt>Map</tt> interface.
@@ -24,39 +28,139 @@ import java.util.Iterator;
  * of key-value mappings). Thus, it's very important not to set the initial
  * capacity too high (or the load factor too low) if iteration performance is
  * important.
+ *
+ * <p>When the number of mappings exceeds the product of the load factor and
+ * the current capacity, the table is doubled. By default all mappings are
+ * rehashed at once; a map created in <i>incremental resize</i> mode instead
+ * allocates the new table and moves a few buckets on every <tt>put</tt> and
+ * <tt>remove</tt>, so that no single operation pays for the whole rehash.
+ * While such a migration is in progress lookups consult both tables.
+ *
+ * <p>A bucket whose chain grows beyond <tt>TREEIFY_THRESHOLD</tt> entries
+ * is converted into a red-black tree ordered by hash and then, for keys of
+ * the same <tt>Comparable</tt> class, by their natural ordering. This bounds
+ * the cost of a lookup to O(log n) even when many keys collide, because of
+ * a poor <tt>hashCode()</tt> or on purpose. A tree bin turns back into a
+ * plain list once it shrinks enough.
+ *
+ * <p>A map may be given a <tt>HashingStrategy</tt>, which then hashes and
+ * compares the keys in place of their <tt>hashCode()</tt> and
+ * <tt>equals()</tt>: byte arrays, for instance, can be looked up by content
+ * without being wrapped. Tree bins of such a map do not order the keys by
+ * their natural ordering, which may disagree with the strategy.
+ *
+ * <p>The hash code of the map is kept up to date by every update, so that
+ * <tt>hashCode()</tt> costs O(1): the hash code of a value is taken when
+ * it is stored, and a key or value mutated in place is not accounted for.
+ * The entries handed out by the <tt>entrySet()</tt> view write their
+ * <tt>setValue()</tt> through to the map, so that the hash code follows.
  */
 
 public class HashMap<K,V>  implements Map<K,V>
 {
+	static final int DEFAULT_CAPACITY = 16;
+	static final int MAXIMUM_CAPACITY = 1 << 30;
+	static final float DEFAULT_LOAD_FACTOR = 0.75f;
+	static final int MIGRATE_STEP = 8;
+	static final int TREEIFY_THRESHOLD = 8;
+	static final int UNTREEIFY_THRESHOLD = 6;
+	static final int MIN_TREEIFY_CAPACITY = 64;
+	static final int BATCH_SIZE = 64;
+
 	private Entry[] table;
 	private int size;
+	private int threshold;
+	private final float loadFactor;
+
+	// incremental resize: buckets of oldTable below migrateIndex (and
+	// the null ones) have already been moved to table
+	private final boolean incremental;
+	private Entry[] oldTable;
+	private int migrateIndex;
+
+	// hashes and compares the keys, or null for their own methods
+	final HashingStrategy<? super K> strategy;
+
+	// sum of the hash codes of the mappings
+	private int hashSum;
 
 	/**
-	 * Constructs an empty <tt>HashMap</tt> with the specified capacity.
+	 * Constructs an empty <tt>HashMap</tt> with the specified capacity, load
+	 * factor and hashing strategy. If <tt>incremental</tt> is true the table
+	 * is grown by migrating a bounded number of buckets on each update
+	 * operation, rather than all at once. A null strategy stands for the
+	 * <tt>hashCode()</tt> and <tt>equals()</tt> methods of the keys.
 	 */
-	public HashMap(int capacity) {
+	public HashMap(int capacity, float loadFactor, boolean incremental,
+			HashingStrategy<? super K> strategy) {
 		if (capacity <= 0)
 			throw new IllegalArgumentException(
 				"Illegal capacity: " + capacity);
-		table = new Entry[capacity];
+		if (loadFactor <= 0 || Float.isNaN(loadFactor))
+			throw new IllegalArgumentException(
+				"Illegal load factor: " + loadFactor);
+		this.loadFactor = loadFactor;
+		this.incremental = incremental;
+		this.strategy = strategy;
+		table = new Entry[tableSizeFor(capacity)];
+		threshold = thresholdFor(table.length);
 		size = 0;
 	}
 
 	/**
-	 * Constructs an empty <tt>HashMap</tt> with the default capacity (16).
+	 * Constructs an empty <tt>HashMap</tt> with the specified capacity and
+	 * load factor. If <tt>incremental</tt> is true the table is grown by
+	 * migrating a bounded number of buckets on each update operation,
+	 * rather than all at once.
+	 */
+	public HashMap(int capacity, float loadFactor, boolean incremental) {
+		this(capacity, loadFactor, incremental, null);
+	}
+
+	/**
+	 * Constructs an empty <tt>HashMap</tt> with the specified capacity and
+	 * load factor. The capacity is rounded up to the next power of two.
+	 */
+	public HashMap(int capacity, float loadFactor) {
+		this(capacity, loadFactor, false);
+	}
+
+	/**
+	 * Constructs an empty <tt>HashMap</tt> with the specified capacity and
+	 * the default load factor (0.75).
+	 */
+	public HashMap(int capacity) {
+		this(capacity, DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+	 * Constructs an empty <tt>HashMap</tt> with the default capacity (16)
+	 * and the default load factor (0.75).
 	 */
 	public HashMap() {
-		this(16);
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs an empty <tt>HashMap</tt> which hashes and compares its
+	 * keys by the specified strategy, with the default capacity (16) and
+	 * the default load factor (0.75).
+	 */
+	public HashMap(HashingStrategy<? super K> strategy) {
+		this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR, false, strategy);
+		if (strategy == null)
+			throw new NullPointerException();
 	}
 
 	/**
 	 * Constructs a new <tt>HashMap</tt> with the same mappings as the
 	 * specified <tt>Map</tt>. The <tt>HashMap</tt> is created with a
 	 * capacity sufficient to hold the mappings in the specified
-	 * <tt>Map</tt>.
+	 * <tt>Map</tt>, and the default load factor (0.75).
 	 */
 	public HashMap(Map<? extends K, ? extends V> m) {
-		throw new UnsupportedOperationException();	
+		this(capacityFor(m.size(), DEFAULT_LOAD_FACTOR));
+		putAll(m);
 	}
 
 	/**
@@ -78,17 +182,11 @@ public class HashMap<K,V>  implements Map<K,V>
 	 * or {@code null} if this map contains no mapping for the key.
 	 */
 	public V get(Object key) {
-		int hash = key == null ? 0 : key.hashCode();
-		int index = key == null ? 0 : hash % table.length;
-
-		// search for the specified key
-		for (Entry<K,V> e = table[index]; e != null; e = e.next) {
-			if (hash == e.hash && (key == e.key ||
-			   (key != null && key.equals(e.key)))) {
-				return e.value;
-			}
-		}
-		return null;
+		Entry<K,V> e = getEntry(key);
+		if (e == null)
+			return null;
+		afterEntryAccess(e);
+		return e.value;
 	}
 
 	/**
@@ -96,15 +194,7 @@ public class HashMap<K,V>  implements Map<K,V>
 	 * specified key.
 	 */
 	public boolean containsKey(Object key) {
-		int hash = key == null ? 0 : key.hashCode();
-		int index = key == null ? 0 : hash % table.length;
-
-		// search for the specified key at the hashed index
-		for (Entry<K,V> e = table[index]; e != null; e = e.next)
-			if (hash == e.hash && (key == e.key ||
-			   (key != null && key.equals(e.key))))
-				return true;
-		return false;
+		return getEntry(key) != null;
 	}
 
 	/**
@@ -113,11 +203,13 @@ public class HashMap<K,V>  implements Map<K,V>
 	 */
 	public boolean containsValue(Object value) {
 		// search for the specified value in the whole map
-		for (int index = 0; index < table.length; index++)
-			for (Entry<K,V> e = table[index]; e != null; e = e.next)
-				if (value == e.value ||
-				   (value != null && value.equals(e.value)))
-					return true;
+		for (Entry[] tab = table; tab != null;
+		     tab = (tab == oldTable ? null : oldTable))
+			for (int index = 0; index < tab.length; index++)
+				for (Entry<K,V> e = tab[index]; e != null; e = e.next)
+					if (value == e.value ||
+					   (value != null && value.equals(e.value)))
+						return true;
 		return false;
 	}
 
@@ -127,32 +219,72 @@ public class HashMap<K,V>  implements Map<K,V>
 	 * value is replaced.
 	 */
 	public V put(K key, V value) {
-		int hash = key == null ? 0 : key.hashCode();
-		int index = key == null ? 0 : hash % table.length;
+		return putValue(hashOf(key), key, value);
+	}
+
+	private V putValue(int hash, K key, V value) {
+		if (oldTable != null)
+			migrate(hash);
+		int index = hash & (table.length - 1);
+		Entry<K,V> first = table[index];
 
-		// check if the key is already contained: update the value
-		for (Entry<K,V> e = table[index]; e != null; e = e.next) {
-			if (hash == e.hash && (key == e.key ||
-			   (key != null && key.equals(e.key)))) {
+		if (first instanceof TreeEntry) {
+			// look up the tree bin, adding a new node if not found
+			Entry<K,V> e = putTreeEntry(table, index, hash, key, value);
+			if (e != null) {
 				V oldValue = e.value;
-				e.value = value;
+				setEntryValue(e, value);
+				afterEntryAccess(e);
 				return oldValue;
 			}
-		}
+		} else {
+			// check if the key is already contained: update the value
+			int binCount = 0;
+			for (Entry<K,V> e = first; e != null; e = e.next) {
+				if (hash == e.hash && keyEquals(key, e.key)) {
+					V oldValue = e.value;
+					setEntryValue(e, value);
+					afterEntryAccess(e);
+					return oldValue;
+				}
+				binCount++;
+			}
 
-		// insert the new mapping at the beginning of the list
-		Entry<K,V> e = new Entry(hash, key, value, table[index]);
-		table[index] = e;
-		size++;
+			// insert the new mapping at the beginning of the list
+			table[index] = newEntry(hash, key, value, first);
+			if (binCount >= TREEIFY_THRESHOLD - 1)
+				treeifyBin(table, index);
+		}
+		addHash(key, value);
+		if (++size > threshold)
+			resize();
+		afterEntryInsertion();
 		return null;
 	}
 
 	/**
 	 * Copies all of the mappings from the specified map to this map.
+	 * The table is grown beforehand to hold them all. When the specified
+	 * map is a <tt>HashMap</tt> too, with the same hashing strategy, its
+	 * cached hashes are reused, and nothing needs to be looked up if this
+	 * map is empty.
 	 */
 	public void putAll(Map<? extends K, ? extends V> m) {
-		if (m.size() == 0)
+		int n = m.size();
+		if (n == 0)
 			return;
+		presize(size + n);
+
+		if (m instanceof HashMap && canCopyEntries() &&
+		    ((HashMap<?,?>)m).strategy == strategy) {
+			HashMap<? extends K, ? extends V> h =
+				(HashMap<? extends K, ? extends V>)m;
+			if (size == 0 && oldTable == null)
+				copyEntries(h);
+			else
+				putEntries(h);
+			return;
+		}
 
 		for (Iterator<? extends Map.Entry<? extends K, ? extends V>> i =
 				m.entrySet().iterator(); i.hasNext(); ) {
@@ -162,29 +294,78 @@ public class HashMap<K,V>  implements Map<K,V>
 	}
 
 	/**
-	 * Removes the mapping for the specified key from this map if present.
-	 * Returns null if the HashMap contains no mapping for this key.
+	 * Grows the table, if needed, so that the specified number of mappings
+	 * fits without further resizing. An empty table is just replaced.
 	 */
-	public V remove(Object key) {
-		int hash = key == null ? 0 : key.hashCode();
-		int index = key == null ? 0 : hash % table.length;
-
-		// search for the specified key
-		Entry<K,V> p = table[index];
-		for (Entry<K,V> e = table[index]; e != null; e = e.next) {
-			if (hash == e.hash && (key == e.key ||
-			   (key != null && key.equals(e.key)))) {
-				if (p == e)
-					table[index] = e.next;
-				else
-					p.next = e.next;
-                		size--;
-				return e.value;
+	private void presize(int expected) {
+		if (expected <= threshold || table.length >= MAXIMUM_CAPACITY)
+			return;
+		if (size == 0 && oldTable == null) {
+			table = new Entry[capacityFor(expected, loadFactor)];
+			threshold = thresholdFor(table.length);
+			return;
+		}
+		while (expected > threshold && table.length < MAXIMUM_CAPACITY)
+			resize();
+	}
+
+	/**
+	 * Copies the entries of another map into this empty one, which is
+	 * large enough: the keys are known to be distinct, so each entry is
+	 * just linked at the head of its bin. The bins that end up too long,
+	 * if any came from a tree bin, are treeified afterwards.
+	 */
+	private void copyEntries(HashMap<? extends K, ? extends V> m) {
+		Entry[] tab = table;
+		int mask = tab.length - 1;
+		boolean trees = false;
+		for (Entry[] src = m.table; src != null;
+		     src = (src == m.oldTable ? null : m.oldTable)) {
+			for (int index = 0; index < src.length; index++) {
+				Entry<K,V> e = src[index]; // unchecked cast
+				if (e instanceof TreeEntry)
+					trees = true;
+				for ( ; e != null; e = e.next) {
+					int i = e.hash & mask;
+					tab[i] = newEntry(e.hash, e.key, e.value, tab[i]);
+				}
+			}
+		}
+		size = m.size;
+		hashSum = m.hashCode();
+		if (trees) {
+			for (int index = 0; index < tab.length; index++) {
+				int binCount = 0;
+				for (Entry<K,V> e = tab[index]; e != null; e = e.next)
+					binCount++;
+				if (binCount >= TREEIFY_THRESHOLD)
+					treeifyBin(tab, index);
 			}
-			p = e;
 		}
+	}
 
-		return null;
+	/**
+	 * Puts the entries of another map into this one, skipping only the
+	 * hashing of their keys.
+	 */
+	private void putEntries(HashMap<? extends K, ? extends V> m) {
+		for (Entry[] src = m.table; src != null;
+		     src = (src == m.oldTable ? null : m.oldTable))
+			for (int index = 0; index < src.length; index++)
+				for (Entry<K,V> e = src[index]; e != null; e = e.next) // unchecked cast
+					putValue(e.hash, e.key, e.value);
+	}
+
+	/**
+	 * Removes the mapping for the specified key from this map if present.
+	 * Returns null if the HashMap contains no mapping for this key.
+	 */
+	public V remove(Object key) {
+		int hash = hashOf(key);
+		if (oldTable != null)
+			migrate(hash);
+		Entry<K,V> e = removeEntry(table, hash, key, true);
+		return e == null ? null : e.value;
 	}
 
 	/**
@@ -193,7 +374,1192 @@ public class HashMap<K,V>  implements Map<K,V>
 	public void clear() {
 		for (int index = 0; index < table.length; index++)
 			table[index] = null;
+		oldTable = null;
+		migrateIndex = 0;
 		size = 0;
+		hashSum = 0;
+	}
+
+	// Single probe operations: each of them hashes the key once and
+	// walks its bin once, remembering where to link or unlink the entry.
+
+	/**
+	 * Returns the value to which the specified key is mapped, or the
+	 * specified default value if this map contains no mapping for the key.
+	 */
+	public V getOrDefault(Object key, V defaultValue) {
+		Entry<K,V> e = getEntry(key);
+		if (e == null)
+			return defaultValue;
+		afterEntryAccess(e);
+		return e.value;
+	}
+
+	/**
+	 * If the specified key is not already associated with a value (or is
+	 * mapped to null) associates it with the given value and returns null,
+	 * else returns the current value.
+	 */
+	public V putIfAbsent(K key, V value) {
+		int hash = hashOf(key);
+		if (oldTable != null)
+			migrate(hash);
+		int index = hash & (table.length - 1);
+		Entry<K,V> first = table[index], e;
+		int binCount = 0;
+		if (first instanceof TreeEntry) {
+			e = ((TreeEntry<K,V>)first).root().find(hash, key, strategy);
+		} else {
+			for (e = first; e != null; e = e.next, binCount++)
+				if (hash == e.hash && keyEquals(key, e.key))
+					break;
+		}
+
+		if (e != null) {
+			V oldValue = e.value;
+			if (oldValue == null)
+				setEntryValue(e, value);
+			afterEntryAccess(e);
+			return oldValue;
+		}
+		addEntry(index, hash, key, value, binCount);
+		return null;
+	}
+
+	/**
+	 * If the specified key is not already associated with a value (or is
+	 * mapped to null), attempts to compute its value using the given
+	 * mapping function and enters it into this map unless null.
+	 */
+	public V computeIfAbsent(K key,
+			Function<? super K, ? extends V> mappingFunction) {
+		if (mappingFunction == null)
+			throw new NullPointerException();
+		int hash = hashOf(key);
+		if (oldTable != null)
+			migrate(hash);
+		int index = hash & (table.length - 1);
+		Entry<K,V> first = table[index], e;
+		int binCount = 0;
+		if (first instanceof TreeEntry) {
+			e = ((TreeEntry<K,V>)first).root().find(hash, key, strategy);
+		} else {
+			for (e = first; e != null; e = e.next, binCount++)
+				if (hash == e.hash && keyEquals(key, e.key))
+					break;
+		}
+		if (e != null && e.value != null) {
+			afterEntryAccess(e);
+			return e.value;
+		}
+
+		V value = mappingFunction.apply(key);
+		if (value == null)
+			return null;
+		if (e != null) {
+			setEntryValue(e, value);
+			afterEntryAccess(e);
+		} else {
+			addEntry(index, hash, key, value, binCount);
+		}
+		return value;
+	}
+
+	/**
+	 * If the value for the specified key is present and non-null, attempts
+	 * to compute a new mapping given the key and its current value. The
+	 * mapping is removed if the new value is null.
+	 */
+	public V computeIfPresent(K key,
+			BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		if (remappingFunction == null)
+			throw new NullPointerException();
+		int hash = hashOf(key);
+		if (oldTable != null)
+			migrate(hash);
+		int index = hash & (table.length - 1);
+		Entry<K,V> first = table[index], e, prev = null;
+		if (first instanceof TreeEntry) {
+			e = ((TreeEntry<K,V>)first).root().find(hash, key, strategy);
+		} else {
+			for (e = first; e != null; prev = e, e = e.next)
+				if (hash == e.hash && keyEquals(key, e.key))
+					break;
+		}
+		if (e == null || e.value == null)
+			return null;
+
+		V value = remappingFunction.apply(key, e.value);
+		if (value == null) {
+			unlinkEntry(table, index, e, prev, true);
+		} else {
+			setEntryValue(e, value);
+			afterEntryAccess(e);
+		}
+		return value;
+	}
+
+	/**
+	 * Attempts to compute a mapping for the specified key and its current
+	 * mapped value (or null if there is no current mapping). The mapping
+	 * is removed, or not added, if the new value is null.
+	 */
+	public V compute(K key,
+			BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		if (remappingFunction == null)
+			throw new NullPointerException();
+		int hash = hashOf(key);
+		if (oldTable != null)
+			migrate(hash);
+		int index = hash & (table.length - 1);
+		Entry<K,V> first = table[index], e, prev = null;
+		int binCount = 0;
+		if (first instanceof TreeEntry) {
+			e = ((TreeEntry<K,V>)first).root().find(hash, key, strategy);
+		} else {
+			for (e = first; e != null; prev = e, e = e.next, binCount++)
+				if (hash == e.hash && keyEquals(key, e.key))
+					break;
+		}
+
+		V value = remappingFunction.apply(key, e == null ? null : e.value);
+		if (e != null) {
+			if (value == null) {
+				unlinkEntry(table, index, e, prev, true);
+			} else {
+				setEntryValue(e, value);
+				afterEntryAccess(e);
+			}
+		} else if (value != null) {
+			addEntry(index, hash, key, value, binCount);
+		}
+		return value;
+	}
+
+	/**
+	 * If the specified key is not already associated with a value (or is
+	 * mapped to null), associates it with the given non-null value.
+	 * Otherwise, replaces the value with the results of the given
+	 * remapping function, or removes the mapping if the result is null.
+	 */
+	public V merge(K key, V value,
+			BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		if (value == null || remappingFunction == null)
+			throw new NullPointerException();
+		int hash = hashOf(key);
+		if (oldTable != null)
+			migrate(hash);
+		int index = hash & (table.length - 1);
+		Entry<K,V> first = table[index], e, prev = null;
+		int binCount = 0;
+		if (first instanceof TreeEntry) {
+			e = ((TreeEntry<K,V>)first).root().find(hash, key, strategy);
+		} else {
+			for (e = first; e != null; prev = e, e = e.next, binCount++)
+				if (hash == e.hash && keyEquals(key, e.key))
+					break;
+		}
+
+		if (e == null) {
+			addEntry(index, hash, key, value, binCount);
+			return value;
+		}
+		if (e.value != null)
+			value = remappingFunction.apply(e.value, value);
+		if (value == null) {
+			unlinkEntry(table, index, e, prev, true);
+		} else {
+			setEntryValue(e, value);
+			afterEntryAccess(e);
+		}
+		return value;
+	}
+
+	/**
+	 * Adds the specified delta to the <tt>Long</tt> counter mapped to the
+	 * key, starting from zero if there is no mapping, and returns the new
+	 * count. The values of this map must be <tt>Long</tt>: the counter is
+	 * updated in place without going through a remapping function.
+	 */
+	public long mergeLong(K key, long delta) {
+		int hash = hashOf(key);
+		if (oldTable != null)
+			migrate(hash);
+		int index = hash & (table.length - 1);
+		Entry<K,V> first = table[index], e;
+		int binCount = 0;
+		if (first instanceof TreeEntry) {
+			e = ((TreeEntry<K,V>)first).root().find(hash, key, strategy);
+		} else {
+			for (e = first; e != null; e = e.next, binCount++)
+				if (hash == e.hash && keyEquals(key, e.key))
+					break;
+		}
+
+		long count = delta;
+		if (e == null) {
+			addEntry(index, hash, key, (V)Long.valueOf(count), // unchecked cast
+				binCount);
+		} else {
+			if (e.value != null)
+				count += ((Long)e.value).longValue();
+			setEntryValue(e, (V)Long.valueOf(count)); // unchecked cast
+			afterEntryAccess(e);
+		}
+		return count;
+	}
+
+	/**
+	 * Links a new entry in the bin at the specified index of the current
+	 * table, which has just been searched for the key: binCount is the
+	 * length of a list bin, so that it is treeified if too long.
+	 */
+	private void addEntry(int index, int hash, K key, V value, int binCount) {
+		Entry<K,V> first = table[index];
+		if (first instanceof TreeEntry) {
+			putTreeEntry(table, index, hash, key, value);
+		} else {
+			table[index] = newEntry(hash, key, value, first);
+			if (binCount >= TREEIFY_THRESHOLD - 1)
+				treeifyBin(table, index);
+		}
+		addHash(key, value);
+		if (++size > threshold)
+			resize();
+		afterEntryInsertion();
+	}
+
+	/**
+	 * Unlinks an entry found in the bin at the specified index of the
+	 * given table, given its predecessor in a list bin: no hashing nor
+	 * search is needed. If <tt>movable</tt> is false a tree bin is never
+	 * turned back into a list, so that the entries of the bin stay the
+	 * same while being iterated.
+	 */
+	private void unlinkEntry(Entry[] tab, int index, Entry<K,V> e,
+			Entry<K,V> prev, boolean movable) {
+		if (e instanceof TreeEntry) {
+			removeTreeEntry(tab, index, (TreeEntry<K,V>)e, movable);
+		} else if (prev == null) {
+			tab[index] = e.next;
+		} else {
+			prev.next = e.next;
+		}
+		size--;
+		hashSum -= entryHash(keyHash(e.key), e.value);
+		afterEntryRemoval(e);
+	}
+
+	// Running hash code: the sum of the hash codes of the mappings is
+	// updated along with them, including the values set through the
+	// entries of the entry set.
+
+	private static int keyHash(Object key) {
+		return key == null ? 0 : key.hashCode();
+	}
+
+	// the hash code of a mapping, as defined by Map.Entry
+	private static int entryHash(int keyHash, Object value) {
+		return keyHash ^ (value == null ? 0 : value.hashCode());
+	}
+
+	private void addHash(K key, V value) {
+		hashSum += entryHash(keyHash(key), value);
+	}
+
+	/**
+	 * Replaces the value of an entry of this map, updating the hash code
+	 * of the map.
+	 */
+	final void setEntryValue(Entry<K,V> e, V value) {
+		int h = keyHash(e.key);
+		hashSum += entryHash(h, value) - entryHash(h, e.value);
+		e.value = value;
+	}
+
+	// Batched operations: the keys are processed in groups of BATCH_SIZE.
+	// Each step of the lookup is done for all the keys of a group before
+	// the next one: the loads of a step do not depend on each other, so
+	// that their cache misses overlap instead of being paid one after
+	// the other.
+
+	/**
+	 * Looks up each of the specified keys, storing the value it is mapped
+	 * to, or null, at the same index of <tt>out</tt>. Returns the number
+	 * of keys found.
+	 */
+	public int getAll(K[] keys, V[] out) {
+		int n = keys.length;
+		if (out.length < n)
+			throw new IllegalArgumentException(
+				"Illegal output length: " + out.length);
+		int[] hashes = new int[BATCH_SIZE];
+		Entry[] heads = new Entry[BATCH_SIZE];
+		int found = 0;
+		for (int from = 0; from < n; from += BATCH_SIZE) {
+			int count = Math.min(BATCH_SIZE, n - from);
+
+			// hash the keys and load the first entry of their bins
+			Entry[] tab = table;
+			int mask = tab.length - 1;
+			for (int i = 0; i < count; i++) {
+				int hash = hashOf(keys[from + i]);
+				hashes[i] = hash;
+				heads[i] = tab[hash & mask];
+			}
+
+			// skip the entries of other hashes, loading the entries
+			// of the bins; a tree bin is left to the next pass
+			for (int i = 0; i < count; i++) {
+				Entry<K,V> e = heads[i];
+				if (e instanceof TreeEntry)
+					continue;
+				int hash = hashes[i];
+				while (e != null && e.hash != hash)
+					e = e.next;
+				heads[i] = e;
+			}
+
+			// compare the keys, then search the old table if still
+			// in use
+			for (int i = 0; i < count; i++) {
+				K key = keys[from + i];
+				int hash = hashes[i];
+				Entry<K,V> e = heads[i];
+				if (e instanceof TreeEntry)
+					e = ((TreeEntry<K,V>)e).root().find(hash, key,
+						strategy);
+				else
+					while (e != null &&
+					       (hash != e.hash || !keyEquals(key, e.key)))
+						e = e.next;
+				if (e == null && oldTable != null)
+					e = findEntry(oldTable, hash, key);
+				if (e == null) {
+					out[from + i] = null;
+				} else {
+					afterEntryAccess(e);
+					out[from + i] = e.value;
+					found++;
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Associates each of the specified keys with the value at the same
+	 * index of <tt>values</tt>, as by <tt>put</tt>. An empty map is grown
+	 * beforehand to hold all the keys; otherwise the table grows as the
+	 * new keys are inserted.
+	 */
+	public void putAll(K[] keys, V[] values) {
+		int n = keys.length;
+		if (values.length < n)
+			throw new IllegalArgumentException(
+				"Illegal values length: " + values.length);
+		if (n == 0)
+			return;
+		if (size == 0)
+			presize(n);
+		int[] hashes = new int[BATCH_SIZE];
+		Entry[] heads = new Entry[BATCH_SIZE];
+		for (int from = 0; from < n; from += BATCH_SIZE) {
+			int count = Math.min(BATCH_SIZE, n - from);
+			if (oldTable != null) {
+				// the bins are being moved: one key at a time
+				for (int i = 0; i < count; i++)
+					put(keys[from + i], values[from + i]);
+				continue;
+			}
+
+			// hash the keys and load the first entry of their bins
+			Entry[] tab = table;
+			int mask = tab.length - 1;
+			for (int i = 0; i < count; i++) {
+				int hash = hashOf(keys[from + i]);
+				hashes[i] = hash;
+				heads[i] = tab[hash & mask];
+			}
+
+			// find the entries of the keys already contained
+			for (int i = 0; i < count; i++) {
+				K key = keys[from + i];
+				int hash = hashes[i];
+				Entry<K,V> e = heads[i];
+				if (e instanceof TreeEntry)
+					e = ((TreeEntry<K,V>)e).root().find(hash, key,
+						strategy);
+				else
+					while (e != null &&
+					       (hash != e.hash || !keyEquals(key, e.key)))
+						e = e.next;
+				heads[i] = e;
+			}
+
+			// replace the values found, up to the first new key: its
+			// insertion may resize the table, treeify a bin or evict an
+			// entry, so that the rest of the batch is put again
+			int i = 0;
+			for (; i < count && heads[i] != null; i++) {
+				Entry<K,V> e = heads[i];
+				setEntryValue(e, values[from + i]);
+				afterEntryAccess(e);
+			}
+			for (; i < count; i++)
+				putValue(hashes[i], keys[from + i], values[from + i]);
+		}
+	}
+
+	/**
+	 * Returns the entry associated with the specified key, or null if
+	 * this map contains no mapping for the key. During an incremental
+	 * resize the bucket of the key may still be in the old table.
+	 */
+	final Entry<K,V> getEntry(Object key) {
+		return getEntry(hashOf(key), key);
+	}
+
+	private Entry<K,V> getEntry(int hash, Object key) {
+		Entry<K,V> e = findEntry(table, hash, key);
+		if (e == null && oldTable != null)
+			e = findEntry(oldTable, hash, key);
+		return e;
+	}
+
+	private Entry<K,V> findEntry(Entry[] tab, int hash, Object key) {
+		int index = hash & (tab.length - 1);
+		Entry<K,V> first = tab[index];
+
+		// descend the tree bin
+		if (first instanceof TreeEntry)
+			return ((TreeEntry<K,V>)first).root().find(hash, key, strategy);
+
+		// search for the specified key at the hashed index
+		for (Entry<K,V> e = first; e != null; e = e.next)
+			if (hash == e.hash && keyEquals(key, e.key))
+				return e;
+		return null;
+	}
+
+	/**
+	 * Unlinks the entry for the specified key from the given table,
+	 * without advancing any incremental resize.
+	 */
+	private Entry<K,V> removeEntry(Entry[] tab, int hash, Object key,
+			boolean movable) {
+		int index = hash & (tab.length - 1);
+		Entry<K,V> first = tab[index], e, prev = null;
+
+		// search for the specified key, in the tree or in the list
+		if (first instanceof TreeEntry) {
+			e = ((TreeEntry<K,V>)first).root().find(hash, key, strategy);
+		} else {
+			for (e = first; e != null; prev = e, e = e.next)
+				if (hash == e.hash && keyEquals(key, e.key))
+					break;
+		}
+		if (e != null)
+			unlinkEntry(tab, index, e, prev, movable);
+		return e;
+	}
+
+	/**
+	 * Unlinks the entry for the specified key from whichever table holds
+	 * it, without advancing an incremental resize nor turning a tree bin
+	 * back into a list: no other entry is moved or replaced.
+	 */
+	final Entry<K,V> removeEntryInPlace(Object key) {
+		int hash = hashOf(key);
+		Entry<K,V> e = removeEntry(table, hash, key, false);
+		if (e == null && oldTable != null)
+			e = removeEntry(oldTable, hash, key, false);
+		return e;
+	}
+
+	// Callbacks for LinkedHashMap: it creates its own entries, in order to
+	// thread them in a list, and it is notified of every access, insertion
+	// and removal of a mapping.
+
+	Entry<K,V> newEntry(int hash, K key, V value, Entry<K,V> next) {
+		return new Entry<K,V>(hash, key, value, next);
+	}
+
+	TreeEntry<K,V> newTreeEntry(int hash, K key, V value, Entry<K,V> next) {
+		return new TreeEntry<K,V>(hash, key, value, next);
+	}
+
+	// the plain entry replacing a tree node when a bin is untreeified
+	Entry<K,V> replacementEntry(Entry<K,V> p) {
+		return new Entry<K,V>(p.hash, p.key, p.value, null);
+	}
+
+	// the tree node replacing a plain entry when a bin is treeified
+	TreeEntry<K,V> replacementTreeEntry(Entry<K,V> p) {
+		return new TreeEntry<K,V>(p.hash, p.key, p.value, null);
+	}
+
+	// whether putAll() may copy the entries of another HashMap bin by bin,
+	// out of the order of its iteration
+	boolean canCopyEntries() {
+		return true;
+	}
+
+	void afterEntryAccess(Entry<K,V> e) { }
+
+	void afterEntryInsertion() { }
+
+	void afterEntryRemoval(Entry<K,V> e) { }
+
+	// Hashing and resizing
+
+	/**
+	 * Returns the hash of the specified key, given by the hashing strategy
+	 * if any, spread as by hash().
+	 */
+	final int hashOf(Object key) {
+		if (strategy == null)
+			return hash(key);
+		if (key == null)
+			return 0;
+		int h = strategy.hash((K)key); // unchecked cast
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the specified keys are equal, according to
+	 * the hashing strategy if any.
+	 */
+	final boolean keyEquals(Object a, Object b) {
+		if (strategy == null)
+			return a == b || (a != null && a.equals(b));
+		return a == b || (a != null && b != null &&
+			strategy.equals((K)a, (K)b)); // unchecked cast
+	}
+
+	/**
+	 * Spreads the higher bits of the key hash code downward, so that
+	 * masking with a power of two table length still depends on them.
+	 * A null key always hashes to zero.
+	 */
+	static int hash(Object key) {
+		int h = key == null ? 0 : key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the smallest power of two greater or equal to the
+	 * specified capacity.
+	 */
+	static int tableSizeFor(int capacity) {
+		int n = 1;
+		while (n < capacity && n < MAXIMUM_CAPACITY)
+			n <<= 1;
+		return n;
+	}
+
+	/**
+	 * Returns the table length needed to hold the specified number of
+	 * mappings without resizing.
+	 */
+	static int capacityFor(int expected, float loadFactor) {
+		float needed = expected / loadFactor + 1.0f;
+		return needed >= MAXIMUM_CAPACITY ? MAXIMUM_CAPACITY :
+			tableSizeFor(Math.max((int)needed, DEFAULT_CAPACITY));
+	}
+
+	private int thresholdFor(int length) {
+		if (length >= MAXIMUM_CAPACITY)
+			return Integer.MAX_VALUE;
+		return (int)Math.min(length * loadFactor, MAXIMUM_CAPACITY);
+	}
+
+	/**
+	 * Doubles the table size. In incremental mode the new table is only
+	 * allocated here and the buckets are moved later by migrate(),
+	 * otherwise all of them are transferred right away.
+	 */
+	private void resize() {
+		if (oldTable != null)
+			finishMigration();
+
+		Entry[] src = table;
+		if (src.length >= MAXIMUM_CAPACITY) {
+			threshold = Integer.MAX_VALUE;
+			return;
+		}
+
+		table = new Entry[src.length << 1];
+		threshold = thresholdFor(table.length);
+		if (incremental) {
+			oldTable = src;
+			migrateIndex = 0;
+		} else {
+			for (int index = 0; index < src.length; index++)
+				transfer(src, index, table);
+		}
+	}
+
+	/**
+	 * Moves the old bucket of the specified hash, so that the key can be
+	 * updated in the new table only, plus up to MIGRATE_STEP buckets in
+	 * index order.
+	 */
+	private void migrate(int hash) {
+		Entry[] src = oldTable;
+		int index = hash & (src.length - 1);
+		if (src[index] != null)
+			transfer(src, index, table);
+
+		for (int n = 0; n < MIGRATE_STEP && migrateIndex < src.length; n++)
+			transfer(src, migrateIndex++, table);
+		if (migrateIndex == src.length)
+			oldTable = null;
+	}
+
+	private void finishMigration() {
+		Entry[] src = oldTable;
+		while (migrateIndex < src.length)
+			transfer(src, migrateIndex++, table);
+		oldTable = null;
+	}
+
+	/**
+	 * Moves a bucket of the source table to the destination table, twice
+	 * as long. Since the table length is a power of two, each entry either
+	 * stays at the same index or moves by the source length, depending on
+	 * one bit of its cached hash: the chain is split into a "low" and a
+	 * "high" list preserving the relative order.
+	 */
+	private void transfer(Entry[] src, int index, Entry[] dst) {
+		if (src[index] instanceof TreeEntry) {
+			splitTreeBin(src, index, dst);
+			return;
+		}
+
+		int length = src.length;
+		Entry<K,V> loHead = null, loTail = null;
+		Entry<K,V> hiHead = null, hiTail = null;
+		Entry<K,V> next;
+		for (Entry<K,V> e = src[index]; e != null; e = next) {
+			next = e.next;
+			if ((e.hash & length) == 0) {
+				if (loTail == null)
+					loHead = e;
+				else
+					loTail.next = e;
+				loTail = e;
+			} else {
+				if (hiTail == null)
+					hiHead = e;
+				else
+					hiTail.next = e;
+				hiTail = e;
+			}
+		}
+		if (loTail != null) {
+			loTail.next = null;
+			dst[index] = loHead;
+		}
+		if (hiTail != null) {
+			hiTail.next = null;
+			dst[index + length] = hiHead;
+		}
+		src[index] = null;
+	}
+
+	// Tree bins
+
+	/**
+	 * Converts the list at the specified index into a tree bin, unless the
+	 * table is still small: in that case it is likely that the chain is
+	 * long just because of too few buckets, and the table is grown instead.
+	 */
+	private void treeifyBin(Entry[] tab, int index) {
+		if (tab.length < MIN_TREEIFY_CAPACITY) {
+			resize();
+			return;
+		}
+
+		TreeEntry<K,V> head = null, tail = null;
+		for (Entry<K,V> e = tab[index]; e != null; e = e.next) {
+			TreeEntry<K,V> t = replacementTreeEntry(e);
+			if ((t.prev = tail) == null)
+				head = t;
+			else
+				tail.next = t;
+			tail = t;
+		}
+		tab[index] = treeify(head, strategy);
+	}
+
+	/**
+	 * Looks up the tree bin at the specified index for the given key: if
+	 * found returns the entry, otherwise links a new node at the beginning
+	 * of the bin, rebalances the tree and returns null.
+	 */
+	private Entry<K,V> putTreeEntry(Entry[] tab, int index, int hash,
+			K key, V value) {
+		TreeEntry<K,V> first = (TreeEntry<K,V>)tab[index];
+		TreeEntry<K,V> root = first.root();
+		boolean searched = false;
+		Class<?> kc = null;
+
+		for (TreeEntry<K,V> p = root; ; ) {
+			int dir;
+			K pk = p.key;
+			if (p.hash > hash) {
+				dir = -1;
+			} else if (p.hash < hash) {
+				dir = 1;
+			} else if (keyEquals(key, pk)) {
+				return p;
+			} else if (strategy != null || (kc == null &&
+				   (kc = comparableClassFor(key)) == null) ||
+				   (dir = compareComparables(kc, key, pk)) == 0) {
+				// keys with the same hash and no ordering: look in
+				// both subtrees once, then pick a stable direction
+				if (!searched) {
+					TreeEntry<K,V> q;
+					searched = true;
+					if ((p.left != null &&
+					    (q = p.left.find(hash, key, strategy)) != null) ||
+					    (p.right != null &&
+					    (q = p.right.find(hash, key, strategy)) != null))
+						return q;
+				}
+				dir = tieBreakOrder(key, pk);
+			}
+
+			TreeEntry<K,V> c = dir <= 0 ? p.left : p.right;
+			if (c == null) {
+				TreeEntry<K,V> x = newTreeEntry(hash, key, value, first);
+				first.prev = x;
+				x.parent = p;
+				if (dir <= 0)
+					p.left = x;
+				else
+					p.right = x;
+				balanceInsertion(root, x);
+				tab[index] = x;
+				return null;
+			}
+			p = c;
+		}
+	}
+
+	/**
+	 * Unlinks the specified node from its tree bin. The bin is turned back
+	 * into a plain list when the tree becomes too small, unless the caller
+	 * needs the nodes not to move.
+	 */
+	private void removeTreeEntry(Entry[] tab, int index, TreeEntry<K,V> p,
+			boolean movable) {
+		// unlink from the list of the bin
+		TreeEntry<K,V> pred = p.prev;
+		TreeEntry<K,V> succ = (TreeEntry<K,V>)p.next;
+		if (pred == null)
+			tab[index] = succ;
+		else
+			pred.next = succ;
+		if (succ != null)
+			succ.prev = pred;
+		if (succ == null && pred == null)
+			return;
+
+		// unlink from the tree
+		deleteTreeEntry(p);
+		TreeEntry<K,V> root = ((TreeEntry<K,V>)tab[index]).root();
+		if (movable && (root.left == null || root.right == null ||
+		    root.left.left == null || root.right.right == null))
+			tab[index] = untreeify((TreeEntry<K,V>)tab[index]);
+	}
+
+	/**
+	 * Splits a tree bin of the source table in two bins of the destination
+	 * table, twice as long, like transfer() does for plain lists. A part
+	 * that becomes small enough is turned back into a list.
+	 */
+	private void splitTreeBin(Entry[] src, int index, Entry[] dst) {
+		int length = src.length;
+		TreeEntry<K,V> loHead = null, loTail = null;
+		TreeEntry<K,V> hiHead = null, hiTail = null;
+		int loCount = 0, hiCount = 0;
+		TreeEntry<K,V> next;
+		for (TreeEntry<K,V> e = (TreeEntry<K,V>)src[index]; e != null;
+		     e = next) {
+			next = (TreeEntry<K,V>)e.next;
+			e.next = null;
+			if ((e.hash & length) == 0) {
+				if ((e.prev = loTail) == null)
+					loHead = e;
+				else
+					loTail.next = e;
+				loTail = e;
+				loCount++;
+			} else {
+				if ((e.prev = hiTail) == null)
+					hiHead = e;
+				else
+					hiTail.next = e;
+				hiTail = e;
+				hiCount++;
+			}
+		}
+		// a part that takes all the entries keeps the tree as it is
+		if (loHead != null)
+			dst[index] = loCount <= UNTREEIFY_THRESHOLD ?
+				untreeify(loHead) :
+				(hiHead == null ? loHead : treeify(loHead, strategy));
+		if (hiHead != null)
+			dst[index + length] = hiCount <= UNTREEIFY_THRESHOLD ?
+				untreeify(hiHead) :
+				(loHead == null ? hiHead : treeify(hiHead, strategy));
+		src[index] = null;
+	}
+
+	/**
+	 * Builds a red-black tree out of a list of tree nodes, linked by next,
+	 * and returns the head of the list. Keys with the same hash are only
+	 * ordered by their natural ordering if there is no hashing strategy.
+	 */
+	private static <K,V> TreeEntry<K,V> treeify(TreeEntry<K,V> head,
+			HashingStrategy<?> strategy) {
+		TreeEntry<K,V> root = null;
+		for (TreeEntry<K,V> x = head; x != null;
+		     x = (TreeEntry<K,V>)x.next) {
+			x.left = x.right = null;
+			if (root == null) {
+				x.parent = null;
+				x.red = false;
+				root = x;
+				continue;
+			}
+
+			K k = x.key;
+			Class<?> kc = null;
+			for (TreeEntry<K,V> p = root; ; ) {
+				int dir;
+				K pk = p.key;
+				if (p.hash > x.hash)
+					dir = -1;
+				else if (p.hash < x.hash)
+					dir = 1;
+				else if (strategy != null || (kc == null &&
+					 (kc = comparableClassFor(k)) == null) ||
+					 (dir = compareComparables(kc, k, pk)) == 0)
+					dir = tieBreakOrder(k, pk);
+
+				TreeEntry<K,V> c = dir <= 0 ? p.left : p.right;
+				if (c == null) {
+					x.parent = p;
+					if (dir <= 0)
+						p.left = x;
+					else
+						p.right = x;
+					root = balanceInsertion(root, x);
+					break;
+				}
+				p = c;
+			}
+		}
+		return head;
+	}
+
+	/**
+	 * Returns a list of plain entries with the same mappings as the
+	 * specified list of tree nodes.
+	 */
+	private Entry<K,V> untreeify(TreeEntry<K,V> head) {
+		Entry<K,V> hd = null, tl = null;
+		for (Entry<K,V> e = head; e != null; e = e.next) {
+			Entry<K,V> p = replacementEntry(e);
+			if (tl == null)
+				hd = p;
+			else
+				tl.next = p;
+			tl = p;
+		}
+		return hd;
+	}
+
+	/**
+	 * Returns the class of the specified object if it is of the form
+	 * "class C implements Comparable&lt;C&gt;", otherwise null.
+	 */
+	static Class<?> comparableClassFor(Object x) {
+		if (x instanceof Comparable) {
+			Class<?> c = x.getClass();
+			if (c == String.class)
+				return c;
+			java.lang.reflect.Type[] ts = c.getGenericInterfaces();
+			for (int i = 0; i < ts.length; i++) {
+				if (!(ts[i] instanceof java.lang.reflect.ParameterizedType))
+					continue;
+				java.lang.reflect.ParameterizedType p =
+					(java.lang.reflect.ParameterizedType)ts[i];
+				java.lang.reflect.Type[] as = p.getActualTypeArguments();
+				if (p.getRawType() == Comparable.class &&
+				    as.length == 1 && as[0] == c)
+					return c;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns k.compareTo(x) if x is of the comparable class kc, else 0.
+	 */
+	static int compareComparables(Class<?> kc, Object k, Object x) {
+		return (x == null || x.getClass() != kc ? 0 :
+			((Comparable)k).compareTo(x));
+	}
+
+	/**
+	 * Orders two keys with the same hash and no natural ordering. The
+	 * order only needs to be consistent while inserting: lookups of such
+	 * keys always search both subtrees.
+	 */
+	static int tieBreakOrder(Object a, Object b) {
+		int d;
+		if (a == null || b == null || (d = a.getClass().getName().
+		    compareTo(b.getClass().getName())) == 0)
+			d = (System.identityHashCode(a) <=
+			     System.identityHashCode(b) ? -1 : 1);
+		return d;
+	}
+
+	// Red-black tree algorithms, see java.util.TreeMap: the root of a
+	// tree bin is the only node without parent.
+
+	private static <K,V> TreeEntry<K,V> rotateLeft(TreeEntry<K,V> root,
+			TreeEntry<K,V> p) {
+		TreeEntry<K,V> r = p.right;
+		p.right = r.left;
+		if (r.left != null)
+			r.left.parent = p;
+		r.parent = p.parent;
+		if (p.parent == null)
+			root = r;
+		else if (p.parent.left == p)
+			p.parent.left = r;
+		else
+			p.parent.right = r;
+		r.left = p;
+		p.parent = r;
+		return root;
+	}
+
+	private static <K,V> TreeEntry<K,V> rotateRight(TreeEntry<K,V> root,
+			TreeEntry<K,V> p) {
+		TreeEntry<K,V> l = p.left;
+		p.left = l.right;
+		if (l.right != null)
+			l.right.parent = p;
+		l.parent = p.parent;
+		if (p.parent == null)
+			root = l;
+		else if (p.parent.right == p)
+			p.parent.right = l;
+		else
+			p.parent.left = l;
+		l.right = p;
+		p.parent = l;
+		return root;
+	}
+
+	private static boolean isRed(TreeEntry<?,?> p) {
+		return p != null && p.red;
+	}
+
+	private static <K,V> TreeEntry<K,V> parentOf(TreeEntry<K,V> p) {
+		return p == null ? null : p.parent;
+	}
+
+	private static <K,V> TreeEntry<K,V> leftOf(TreeEntry<K,V> p) {
+		return p == null ? null : p.left;
+	}
+
+	private static <K,V> TreeEntry<K,V> rightOf(TreeEntry<K,V> p) {
+		return p == null ? null : p.right;
+	}
+
+	private static void setRed(TreeEntry<?,?> p, boolean red) {
+		if (p != null)
+			p.red = red;
+	}
+
+	private static <K,V> TreeEntry<K,V> balanceInsertion(
+			TreeEntry<K,V> root, TreeEntry<K,V> x) {
+		x.red = true;
+		while (x != null && x != root && x.parent.red) {
+			if (parentOf(x) == leftOf(parentOf(parentOf(x)))) {
+				TreeEntry<K,V> y = rightOf(parentOf(parentOf(x)));
+				if (isRed(y)) {
+					setRed(parentOf(x), false);
+					setRed(y, false);
+					setRed(parentOf(parentOf(x)), true);
+					x = parentOf(parentOf(x));
+				} else {
+					if (x == rightOf(parentOf(x))) {
+						x = parentOf(x);
+						root = rotateLeft(root, x);
+					}
+					setRed(parentOf(x), false);
+					setRed(parentOf(parentOf(x)), true);
+					root = rotateRight(root, parentOf(parentOf(x)));
+				}
+			} else {
+				TreeEntry<K,V> y = leftOf(parentOf(parentOf(x)));
+				if (isRed(y)) {
+					setRed(parentOf(x), false);
+					setRed(y, false);
+					setRed(parentOf(parentOf(x)), true);
+					x = parentOf(parentOf(x));
+				} else {
+					if (x == leftOf(parentOf(x))) {
+						x = parentOf(x);
+						root = rotateRight(root, x);
+					}
+					setRed(parentOf(x), false);
+					setRed(parentOf(parentOf(x)), true);
+					root = rotateLeft(root, parentOf(parentOf(x)));
+				}
+			}
+		}
+		root.red = false;
+		return root;
+	}
+
+	/**
+	 * Deletes the specified node from its tree. Since the entries of the
+	 * bin are referenced by the list and by iterators, a node with two
+	 * children is swapped with its successor rather than copied.
+	 */
+	private static <K,V> void deleteTreeEntry(TreeEntry<K,V> p) {
+		TreeEntry<K,V> root = p.root();
+
+		if (p.left != null && p.right != null) {
+			TreeEntry<K,V> s = p.right;
+			while (s.left != null)
+				s = s.left;
+			boolean c = s.red;
+			s.red = p.red;
+			p.red = c;
+
+			TreeEntry<K,V> sr = s.right;
+			TreeEntry<K,V> pp = p.parent;
+			TreeEntry<K,V> pl = p.left;
+			if (s == p.right) {
+				p.parent = s;
+				s.right = p;
+			} else {
+				TreeEntry<K,V> sp = s.parent;
+				if ((p.parent = sp) != null) {
+					if (s == sp.left)
+						sp.left = p;
+					else
+						sp.right = p;
+				}
+				if ((s.right = p.right) != null)
+					p.right.parent = s;
+			}
+			p.left = null;
+			if ((p.right = sr) != null)
+				sr.parent = p;
+			if ((s.left = pl) != null)
+				pl.parent = s;
+			if ((s.parent = pp) == null)
+				root = s;
+			else if (p == pp.left)
+				pp.left = s;
+			else
+				pp.right = s;
+		}
+
+		// now p has at most one child
+		TreeEntry<K,V> replacement = p.left != null ? p.left : p.right;
+		if (replacement != null) {
+			replacement.parent = p.parent;
+			if (p.parent == null)
+				root = replacement;
+			else if (p == p.parent.left)
+				p.parent.left = replacement;
+			else
+				p.parent.right = replacement;
+			p.left = p.right = p.parent = null;
+			if (!p.red)
+				balanceDeletion(root, replacement);
+		} else if (p.parent == null) {
+			// the only node of the tree
+		} else {
+			if (!p.red)
+				root = balanceDeletion(root, p);
+			if (p.parent != null) {
+				if (p == p.parent.left)
+					p.parent.left = null;
+				else if (p == p.parent.right)
+					p.parent.right = null;
+				p.parent = null;
+			}
+		}
+	}
+
+	private static <K,V> TreeEntry<K,V> balanceDeletion(
+			TreeEntry<K,V> root, TreeEntry<K,V> x) {
+		while (x != root && !isRed(x)) {
+			if (x == leftOf(parentOf(x))) {
+				TreeEntry<K,V> sib = rightOf(parentOf(x));
+				if (isRed(sib)) {
+					setRed(sib, false);
+					setRed(parentOf(x), true);
+					root = rotateLeft(root, parentOf(x));
+					sib = rightOf(parentOf(x));
+				}
+				if (!isRed(leftOf(sib)) && !isRed(rightOf(sib))) {
+					setRed(sib, true);
+					x = parentOf(x);
+				} else {
+					if (!isRed(rightOf(sib))) {
+						setRed(leftOf(sib), false);
+						setRed(sib, true);
+						root = rotateRight(root, sib);
+						sib = rightOf(parentOf(x));
+					}
+					setRed(sib, isRed(parentOf(x)));
+					setRed(parentOf(x), false);
+					setRed(rightOf(sib), false);
+					root = rotateLeft(root, parentOf(x));
+					x = root;
+				}
+			} else {
+				TreeEntry<K,V> sib = leftOf(parentOf(x));
+				if (isRed(sib)) {
+					setRed(sib, false);
+					setRed(parentOf(x), true);
+					root = rotateRight(root, parentOf(x));
+					sib = leftOf(parentOf(x));
+				}
+				if (!isRed(rightOf(sib)) && !isRed(leftOf(sib))) {
+					setRed(sib, true);
+					x = parentOf(x);
+				} else {
+					if (!isRed(leftOf(sib))) {
+						setRed(rightOf(sib), false);
+						setRed(sib, true);
+						root = rotateLeft(root, sib);
+						sib = leftOf(parentOf(x));
+					}
+					setRed(sib, isRed(parentOf(x)));
+					setRed(parentOf(x), false);
+					setRed(leftOf(sib), false);
+					root = rotateRight(root, parentOf(x));
+					x = root;
+				}
+			}
+		}
+		setRed(x, false);
+		return root;
 	}
 
 	static class Entry<K,V> implements Map.Entry<K,V> {
@@ -249,7 +1615,273 @@ public class HashMap<K,V>  implements Map<K,V>
 		}
 	}
 
-	// Views
+	/**
+	 * Entry threaded in the doubly linked list of a <tt>LinkedHashMap</tt>,
+	 * from the eldest entry to the youngest one.
+	 */
+	static class LinkedEntry<K,V> extends Entry<K,V> {
+		LinkedEntry<K,V> before;
+		LinkedEntry<K,V> after;
+
+		LinkedEntry(int h, K k, V v, Entry<K,V> n) {
+			super(h, k, v, n);
+		}
+	}
+
+	/**
+	 * Entry of a tree bin: besides being linked in the list of the bin by
+	 * next and prev, it is a node of a red-black tree. It extends
+	 * <tt>LinkedEntry</tt> so that the bins of a linked map can be
+	 * treeified as well.
+	 */
+	static final class TreeEntry<K,V> extends LinkedEntry<K,V> {
+		TreeEntry<K,V> parent;
+		TreeEntry<K,V> left;
+		TreeEntry<K,V> right;
+		TreeEntry<K,V> prev;
+		boolean red;
+
+		TreeEntry(int h, K k, V v, Entry<K,V> n) {
+			super(h, k, v, n);
+		}
+
+		TreeEntry<K,V> root() {
+			TreeEntry<K,V> r = this;
+			while (r.parent != null)
+				r = r.parent;
+			return r;
+		}
+
+		/**
+		 * Finds the node for the specified key in the subtree rooted
+		 * at this node, or returns null. The keys are compared by the
+		 * specified hashing strategy, unless it is null.
+		 */
+		TreeEntry<K,V> find(int h, Object k, HashingStrategy<? super K> s) {
+			TreeEntry<K,V> p = this;
+			Class<?> kc = null;
+			do {
+				int dir;
+				K pk;
+				TreeEntry<K,V> pl = p.left, pr = p.right, q;
+				if (p.hash > h)
+					p = pl;
+				else if (p.hash < h)
+					p = pr;
+				else if ((pk = p.key) == k || (k != null && (s == null ?
+					 k.equals(pk) : pk != null &&
+					 s.equals((K)k, pk)))) // unchecked cast
+					return p;
+				else if (pl == null)
+					p = pr;
+				else if (pr == null)
+					p = pl;
+				else if (s == null && (kc != null ||
+					 (kc = comparableClassFor(k)) != null) &&
+					 (dir = compareComparables(kc, k, pk)) != 0)
+					p = dir < 0 ? pl : pr;
+				else if ((q = pr.find(h, k, s)) != null)
+					return q;
+				else
+					p = pl;
+			} while (p != null);
+			return null;
+		}
+	}
+
+	// Bulk operations: they walk the tables directly, the current one
+	// first and then the buckets still waiting to be migrated.
+
+	/**
+	 * Performs the given action for each mapping in this map.
+	 */
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		if (action == null)
+			throw new NullPointerException();
+		for (Entry[] tab = table; tab != null;
+		     tab = (tab == oldTable ? null : oldTable))
+			for (int index = 0; index < tab.length; index++)
+				for (Entry<K,V> e = tab[index]; e != null; e = e.next)
+					action.accept(e.key, e.value);
+	}
+
+	/**
+	 * Replaces each value with the result of the given function applied
+	 * to its mapping.
+	 */
+	public void replaceAll(
+			BiFunction<? super K, ? super V, ? extends V> function) {
+		if (function == null)
+			throw new NullPointerException();
+		for (Entry[] tab = table; tab != null;
+		     tab = (tab == oldTable ? null : oldTable))
+			for (int index = 0; index < tab.length; index++)
+				for (Entry<K,V> e = tab[index]; e != null; e = e.next)
+					setEntryValue(e, function.apply(e.key, e.value));
+	}
+
+	/**
+	 * Returns an immutable copy of this map, whose keys are looked up
+	 * through a perfect hash function (see <tt>FrozenMap</tt>). The cached
+	 * hashes of the entries are reused. A <tt>FrozenMap</tt> compares its
+	 * keys by <tt>equals()</tt>, so a map with a hashing strategy cannot
+	 * be frozen.
+	 */
+	public FrozenMap<K,V> freeze() {
+		if (strategy != null)
+			throw new UnsupportedOperationException();
+		Object[] keys = new Object[size];
+		Object[] values = new Object[size];
+		int[] hashes = new int[size];
+		int i = 0;
+		for (Entry[] tab = table; tab != null;
+		     tab = (tab == oldTable ? null : oldTable))
+			for (int index = 0; index < tab.length; index++)
+				for (Entry<K,V> e = tab[index]; e != null; e = e.next) {
+					keys[i] = e.key;
+					values[i] = e.value;
+					hashes[i++] = e.hash;
+				}
+		return new FrozenMap<K,V>(keys, values, hashes);
+	}
+
+	private static final int KEYS = 0;
+	private static final int VALUES = 1;
+	private static final int ENTRIES = 2;
+
+	/**
+	 * Removes the mappings whose key, value or entry, depending on the
+	 * view, satisfies the given predicate. Each entry is unlinked through
+	 * its predecessor, without searching for it again.
+	 */
+	private boolean removeEntries(Predicate<Object> filter, int view) {
+		if (filter == null)
+			throw new NullPointerException();
+		boolean removed = false;
+		for (Entry[] tab = table; tab != null;
+		     tab = (tab == oldTable ? null : oldTable)) {
+			for (int index = 0; index < tab.length; index++) {
+				Entry<K,V> prev = null, next;
+				for (Entry<K,V> e = tab[index]; e != null; e = next) {
+					next = e.next;
+					Object o = view == KEYS ? e.key : (view == VALUES ?
+						e.value : new WriteThroughEntry(e));
+					if (filter.test(o)) {
+						unlinkEntry(tab, index, e, prev, false);
+						removed = true;
+					} else {
+						prev = e;
+					}
+				}
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Returns a cursor over the mappings of this map, in the order of the
+	 * buckets. A cursor does not allocate anything while moving, it
+	 * removes the current mapping in constant time, and it can be reused
+	 * by calling <tt>reset()</tt>. The map must not be structurally
+	 * modified, other than through the cursor, while it is in use.
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	public class Cursor {
+		private Entry[] tab;
+		private int index;
+		private Entry<K,V> curr;
+		private Entry<K,V> prev;
+		private Entry<K,V> succ;
+
+		Cursor() {
+			reset();
+		}
+
+		/**
+		 * Rewinds the cursor before the first mapping.
+		 */
+		public void reset() {
+			tab = null;
+			curr = prev = succ = null;
+		}
+
+		/**
+		 * Moves to the next mapping, returning false if there is none.
+		 */
+		public boolean advance() {
+			Entry<K,V> e;
+			if (tab == null) {
+				tab = table;
+				index = -1;
+				e = null;
+			} else {
+				// a removed entry is no longer the predecessor
+				if (curr != null)
+					prev = curr;
+				e = succ;
+			}
+			while (e == null) {
+				prev = null;
+				if (++index < tab.length) {
+					e = tab[index];
+				} else if (tab == table && oldTable != null) {
+					tab = oldTable;
+					index = -1;
+				} else {
+					index = tab.length;
+					curr = succ = null;
+					return false;
+				}
+			}
+			curr = e;
+			succ = e.next;
+			return true;
+		}
+
+		/**
+		 * Returns the key of the current mapping.
+		 */
+		public K key() {
+			return current().key;
+		}
+
+		/**
+		 * Returns the value of the current mapping.
+		 */
+		public V value() {
+			return current().value;
+		}
+
+		/**
+		 * Replaces the value of the current mapping.
+		 */
+		public void setValue(V v) {
+			setEntryValue(current(), v);
+		}
+
+		/**
+		 * Removes the current mapping from the map.
+		 */
+		public void remove() {
+			unlinkEntry(tab, index, current(), prev, false);
+			curr = null;
+		}
+
+		private Entry<K,V> current() {
+			if (curr == null)
+				throw new IllegalStateException();
+			return curr;
+		}
+	}
+
+	// Views: each of them is created once and then cached
+
+	private Set<K> keySet;
+	private Collection<V> values;
+	private Set<Map.Entry<K,V>> entrySet;
 
 	/**
 	 * Returns a <tt>Set</tt> view of the keys contained in this map.
@@ -259,7 +1891,8 @@ public class HashMap<K,V>  implements Map<K,V>
 	 * it only needs to define the methods size() and iterator().
 	 */
 	public Set<K> keySet() {
-		return new KeySet();
+		Set<K> ks = keySet;
+		return ks != null ? ks : (keySet = new KeySet());
 	}
 	
 	private class KeySet extends java.util.AbstractSet<K> {
@@ -270,6 +1903,10 @@ public class HashMap<K,V>  implements Map<K,V>
 		public Iterator<K> iterator() {
 			return new KeySetIterator();
 		}
+
+		public boolean removeIf(Predicate<? super K> filter) {
+			return removeEntries((Predicate<Object>)filter, KEYS); // unchecked cast
+		}
 	}
 
 	private class KeySetIterator extends HashIterator<K> {
@@ -286,7 +1923,8 @@ public class HashMap<K,V>  implements Map<K,V>
 	 * it only needs to define the methods size() and iterator().
 	 */
 	public Collection<V> values() {
-		return new Values();
+		Collection<V> vs = values;
+		return vs != null ? vs : (values = new Values());
 	}
 
 	private class Values extends java.util.AbstractCollection<V> {
@@ -297,6 +1935,10 @@ public class HashMap<K,V>  implements Map<K,V>
 		public Iterator<V> iterator() {
 			return new ValuesIterator();
 		}
+
+		public boolean removeIf(Predicate<? super V> filter) {
+			return removeEntries((Predicate<Object>)filter, VALUES); // unchecked cast
+		}
 	}
 
 	private class ValuesIterator extends HashIterator<V> {
@@ -313,7 +1955,8 @@ public class HashMap<K,V>  implements Map<K,V>
 	 * it only needs to define the methods size() and iterator().
 	 */
 	public Set<Map.Entry<K,V>> entrySet() {
-		return new EntrySet();
+		Set<Map.Entry<K,V>> es = entrySet;
+		return es != null ? es : (entrySet = new EntrySet());
 	}
 
 	private class EntrySet extends java.util.AbstractSet<Map.Entry<K,V>> {
@@ -324,34 +1967,120 @@ public class HashMap<K,V>  implements Map<K,V>
 		public Iterator<Map.Entry<K,V>> iterator() {
 			return new EntrySetIterator();
 		}
+
+		public boolean removeIf(Predicate<? super Map.Entry<K,V>> filter) {
+			return removeEntries((Predicate<Object>)filter, ENTRIES); // unchecked cast
+		}
 	}
 
 	private class EntrySetIterator extends HashIterator<Map.Entry<K,V>> {
 		public Map.Entry<K,V> next() {
-			return nextEntry();
+			return new WriteThroughEntry(nextEntry());
+		}
+	}
+
+	/**
+	 * A mapping handed out by the entry set: setting its value updates
+	 * the hash code of the map, as long as the entry is still in it.
+	 */
+	final class WriteThroughEntry implements Map.Entry<K,V> {
+		private final Entry<K,V> entry;
+
+		WriteThroughEntry(Entry<K,V> e) {
+			entry = e;
+		}
+
+		public K getKey() {
+			return entry.key;
+		}
+
+		public V getValue() {
+			return entry.value;
+		}
+
+		public V setValue(V v) {
+			V val = entry.value;
+			// a removed entry, or one replaced by a tree bin, no longer
+			// counts in the hash code
+			if (getEntry(entry.hash, entry.key) == entry)
+				setEntryValue(entry, v);
+			else
+				entry.value = v;
+			return val;
+		}
+
+		public boolean equals(Object o) {
+			// check instance type (Map.Entry)
+			if (!(o instanceof Map.Entry))
+				return false;
+
+			// check k,v pair
+			Object k = ((Map.Entry<?,?>)o).getKey();
+			Object v = ((Map.Entry<?,?>)o).getValue();
+			return (entry.key == k || (entry.key != null &&
+				entry.key.equals(k))) && (entry.value == v ||
+				(entry.value != null && entry.value.equals(v)));
+		}
+
+		public int hashCode() {
+			return entryHash(keyHash(entry.key), entry.value);
+		}
+
+		public String toString() {
+			return entry.key + "=" + entry.value;
 		}
 	}
 
 	/**
 	 * Provides a skeletal implementation of a hash iterator over the
-	 * elements in this hash map.
+	 * elements in this hash map. The buckets of the current table come
+	 * first, then the ones still waiting to be migrated from the old
+	 * table.
 	 */
 	private abstract class HashIterator<T> implements Iterator<T> {
-		private int index;	
-		private Entry<K,V> currEntry;
+		// the next entry, its bucket and its predecessor in the bucket
+		private Entry[] nextTab;
+		private int nextIndex;
 		private Entry<K,V> nextEntry;
+		private Entry<K,V> nextPrev;
 
-		// initialize the iterator to the first entry.
+		// the entry returned last, which remove() unlinks
+		private Entry[] currTab;
+		private int currIndex;
+		private Entry<K,V> currEntry;
+		private Entry<K,V> currPrev;
+
+		// the first entry is only searched by the first call to
+		// hasNext() or next()
 		public HashIterator() {
-			index = 0;
+			nextTab = null;
 			currEntry = null;
-			nextEntry = null;
-			for ( ; index < table.length; index++)
-				if (table[index] != null)
-					nextEntry = table[index];
+		}
+
+		// find the first entry from e, the successor of prev in the
+		// bucket at nextIndex
+		private void advance(Entry<K,V> prev, Entry<K,V> e) {
+			while (e == null) {
+				prev = null;
+				if (++nextIndex < nextTab.length) {
+					e = nextTab[nextIndex];
+				} else if (nextTab == table && oldTable != null) {
+					nextTab = oldTable;
+					nextIndex = -1;
+				} else {
+					break;
+				}
+			}
+			nextEntry = e;
+			nextPrev = prev;
 		}
 
 		public boolean hasNext() {
+			if (nextTab == null) {
+				nextTab = table;
+				nextIndex = -1;
+				advance(null, null);
+			}
 			return nextEntry != null ? true : false;
 		}
 
@@ -361,25 +2090,27 @@ public class HashMap<K,V>  implements Map<K,V>
 		public abstract T next();
 
 		public Entry<K,V> nextEntry() {
+			if (!hasNext())
+				throw new java.util.NoSuchElementException();
+			currTab = nextTab;
+			currIndex = nextIndex;
 			currEntry = nextEntry;
-			if (nextEntry.next != null) {
-				nextEntry = nextEntry.next;
-			} else {
-				nextEntry = null;
-				for ( ; index < table.length; index++)
-					if (table[index] != null)
-						nextEntry = table[index];
-			}
+			currPrev = nextPrev;
+			advance(currEntry, currEntry.next);
 
 			return currEntry;
 		}
 
-		// since this hash map uses a sigle linked list to record its
-		// mappings, it's not easy to remove the Entry without breaking
-		// the list. the simpler solution is to call the remove()
-		// method for the specified key
+		// the entry is unlinked through its predecessor, without moving
+		// any bucket: if the next entry is in the same list, it takes
+		// the predecessor of the removed one.
 		public void remove() {
-			HashMap.this.remove(nextEntry.getKey());
+			if (currEntry == null)
+				throw new IllegalStateException();
+			unlinkEntry(currTab, currIndex, currEntry, currPrev, false);
+			if (nextPrev == currEntry)
+				nextPrev = currPrev;
+			currEntry = null;
 		}
 	}
 
@@ -388,7 +2119,10 @@ public class HashMap<K,V>  implements Map<K,V>
 	/**
 	 * Compares the specified object with this map for equality.  Returns
 	 * <tt>true</tt> if the given object is also a map and the two maps
-	 * represent the same mappings.
+	 * represent the same mappings. Maps of different size, or
+	 * <tt>HashMap</tt>s of different hash code, are told apart at once;
+	 * the keys of another <tt>HashMap</tt> are looked up only once, by
+	 * their cached hash if both maps use the natural hashing.
 	 */
 	public boolean equals(Object o) {
 		// trivial check
@@ -397,39 +2131,57 @@ public class HashMap<K,V>  implements Map<K,V>
 
 		// check that it's an instance of Map
 		if (!(o instanceof Map))
-			return false;		
-		Map<K,V> m = (Map<K,V>)o;
+			return false;
+		Map<?,?> m = (Map<?,?>)o;
 
-		// check that the size is the same */
+		// check that the size is the same
 		if (m.size() != size)
 			return false;
-		// and that each element is contained in the map */
-		Set<Map.Entry<K,V>> s = entrySet();
-		for (Iterator<Map.Entry<K,V>> i = s.iterator(); i.hasNext(); ) {
-			Map.Entry<K,V> e = i.next();
-			K key = e.getKey();
-			V value = e.getValue();
-			
-			if (!m.containsKey(key))
-				return false;
-			if (!value.equals(m.get(key)))
+
+		if (o instanceof HashMap) {
+			HashMap<?,?> h = (HashMap<?,?>)o;
+
+			// a strategy may equate keys of different hash codes
+			boolean natural = strategy == null && h.strategy == null;
+			if (natural && h.hashCode() != hashCode())
 				return false;
+
+			// and that each mapping is found by a single probe
+			for (Entry[] tab = table; tab != null;
+			     tab = (tab == oldTable ? null : oldTable))
+				for (int index = 0; index < tab.length; index++)
+					for (Entry<K,V> e = tab[index]; e != null; e = e.next) {
+						Entry<?,?> f = natural ?
+							h.getEntry(e.hash, e.key) : h.getEntry(e.key);
+						if (f == null || !(e.value == f.value ||
+						   (e.value != null && e.value.equals(f.value))))
+							return false;
+					}
+			return true;
 		}
+
+		// and that each mapping is contained in the map
+		for (Entry[] tab = table; tab != null;
+		     tab = (tab == oldTable ? null : oldTable))
+			for (int index = 0; index < tab.length; index++)
+				for (Entry<K,V> e = tab[index]; e != null; e = e.next) {
+					if (e.value == null) {
+						if (m.get(e.key) != null || !m.containsKey(e.key))
+							return false;
+					} else if (!e.value.equals(m.get(e.key))) {
+						return false;
+					}
+				}
 		return true;
 	}
 
 	/**
 	 * Returns the hash code value for this map.  The hash code of a map is
 	 * defined to be the sum of the hash codes of each entry in the map's
-	 * <tt>entrySet()</tt> view.
+	 * <tt>entrySet()</tt> view. It is kept up to date by the updates.
 	 */
 	public int hashCode() {
-		int hash = 0;
-		Set<Map.Entry<K,V>> s = entrySet();
-		for (Iterator<Map.Entry<K,V>> i = s.iterator(); i.hasNext(); )
-			hash += i.next().hashCode();
-
-		return hash;
-	} 
+		return hashSum;
+	}
 
 }
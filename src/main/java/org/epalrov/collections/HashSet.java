@@ -0,0 +1,496 @@
+/*
+ * HashSet.java - example of Hash Set implementation
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Hash table implementation of the <tt>Set</tt> interface.
+ *
+ * <p>The elements and their cached hashes are stored side by side in two
+ * dense arrays, with no <tt>Entry</tt> object and no value slot. The hash
+ * table itself is an array of <tt>int</tt> holding the position of each
+ * element in the dense arrays, probed linearly: a lookup reads one small
+ * slot, then the hash and the element it refers to. Removal shifts the
+ * following slots of the cluster backward, so that no tombstones are
+ * needed in the table, and moves the last element into the position left
+ * free, so that the dense arrays stay dense. Iteration scans the dense
+ * arrays only.
+ *
+ * <p>The bulk operations iterate the smaller of the two collections when
+ * they can, and remove many elements in a single compacting pass.
+ *
+ * <p>Null elements are allowed. Note that this implementation is not
+ * synchronized.
+ */
+
+public class HashSet<E> implements Set<E>
+{
+	// marks a removed position of a LinkedHashSet
+	static final Object REMOVED = new Object();
+
+	private int[] index; // position + 1 of each slot, 0 marks an empty one
+	int[] hashes;
+	Object[] elements;
+	int count; // positions used, including the removed ones
+	int size;
+	private final float loadFactor;
+
+	/**
+	 * Constructs an empty <tt>HashSet</tt> with the specified capacity and
+	 * load factor. The capacity is rounded up to the next power of two.
+	 */
+	public HashSet(int capacity, float loadFactor) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException(
+				"Illegal capacity: " + capacity);
+		if (loadFactor <= 0 || loadFactor >= 1 || Float.isNaN(loadFactor))
+			throw new IllegalArgumentException(
+				"Illegal load factor: " + loadFactor);
+		this.loadFactor = loadFactor;
+		hashes = new int[0];
+		elements = new Object[0];
+		allocate(HashMap.tableSizeFor(capacity));
+	}
+
+	/**
+	 * Constructs an empty <tt>HashSet</tt> with the specified capacity and
+	 * the default load factor (0.75).
+	 */
+	public HashSet(int capacity) {
+		this(capacity, HashMap.DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+	 * Constructs an empty <tt>HashSet</tt> with the default capacity (16)
+	 * and the default load factor (0.75).
+	 */
+	public HashSet() {
+		this(HashMap.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs a new <tt>HashSet</tt> containing the elements of the
+	 * specified collection, with a capacity sufficient to hold them and
+	 * the default load factor (0.75).
+	 */
+	public HashSet(Collection<? extends E> c) {
+		this(HashMap.capacityFor(c.size(), HashMap.DEFAULT_LOAD_FACTOR));
+		addAll(c);
+	}
+
+	// Query Operations
+
+	/**
+	 * Returns the number of elements in this set.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this set contains no elements.
+	 */
+	public boolean isEmpty() {
+		return size == 0 ? true : false;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this set contains the specified element.
+	 */
+	public boolean contains(Object o) {
+		return slotOf(o, HashMap.hash(o)) >= 0;
+	}
+
+	/**
+	 * Returns an iterator over the elements in this set.
+	 */
+	public Iterator<E> iterator() {
+		return new HashSetIterator();
+	}
+
+	private class HashSetIterator implements Iterator<E> {
+		private int next;
+		private int last = -1;
+
+		public boolean hasNext() {
+			while (next < count && elements[next] == REMOVED)
+				next++;
+			return next < count ? true : false;
+		}
+
+		public E next() {
+			if (!hasNext())
+				throw new java.util.NoSuchElementException();
+			last = next++;
+			return (E)elements[last]; // unchecked cast
+		}
+
+		// the position of the removed element is examined again: it
+		// now holds an element moved from the end, or nothing
+		public void remove() {
+			if (last < 0)
+				throw new IllegalStateException();
+			removeSlot(slotOfPosition(last));
+			next = last;
+			last = -1;
+		}
+	}
+
+	/**
+	 * Returns an array containing all of the elements in this set.
+	 */
+	public Object[] toArray() {
+		return toArray(new Object[size]);
+	}
+
+	/**
+	 * Returns an array containing all of the elements in this set; the
+	 * runtime type of the returned array is that of the specified array.
+	 */
+	public <T> T[] toArray(T[] a) {
+		if (a.length < size)
+			a = (T[])java.lang.reflect.Array.newInstance(
+				a.getClass().getComponentType(), size);
+		int i = 0;
+		for (int p = 0; p < count; p++)
+			if (elements[p] != REMOVED)
+				a[i++] = (T)elements[p]; // unchecked cast
+		if (a.length > size)
+			a[size] = null;
+		return a;
+	}
+
+	// Modification Operations
+
+	/**
+	 * Adds the specified element to this set if it is not already present.
+	 * If this set already contains the element, the call leaves the set
+	 * unchanged and returns <tt>false</tt>.
+	 */
+	public boolean add(E elem) {
+		return add(elem, HashMap.hash(elem));
+	}
+
+	private boolean add(Object elem, int hash) {
+		int slot = slotOf(elem, hash);
+		if (slot >= 0)
+			return false;
+		if (count == elements.length) {
+			grow(size + 1);
+			slot = slotOf(elem, hash);
+		}
+		elements[count] = elem;
+		hashes[count] = hash;
+		index[-slot - 1] = ++count;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Removes the specified element from this set if it is present.
+	 */
+	public boolean remove(Object o) {
+		int slot = slotOf(o, HashMap.hash(o));
+		if (slot < 0)
+			return false;
+		removeSlot(slot);
+		return true;
+	}
+
+	// Bulk Operations
+
+	/**
+	 * Returns <tt>true</tt> if this set contains all of the elements of
+	 * the specified collection.
+	 */
+	public boolean containsAll(Collection<?> c) {
+		for (Iterator<?> i = c.iterator(); i.hasNext(); )
+			if (!contains(i.next()))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Adds all of the elements in the specified collection to this set if
+	 * they're not already present. The table is grown beforehand to hold
+	 * them all, and the cached hashes of another <tt>HashSet</tt> are
+	 * reused.
+	 */
+	public boolean addAll(Collection<? extends E> c) {
+		int n = c.size();
+		if (n == 0)
+			return false;
+		if (size + n > elements.length)
+			grow(size + n);
+
+		boolean modified = false;
+		if (c instanceof HashSet) {
+			HashSet<?> s = (HashSet<?>)c;
+			for (int p = 0; p < s.count; p++)
+				if (s.elements[p] != REMOVED &&
+				    add(s.elements[p], s.hashes[p]))
+					modified = true;
+		} else {
+			for (Iterator<? extends E> i = c.iterator(); i.hasNext(); )
+				if (add(i.next()))
+					modified = true;
+		}
+		return modified;
+	}
+
+	/**
+	 * Retains only the elements in this set that are contained in the
+	 * specified collection. If the collection is the smaller one, its
+	 * elements are looked up in this set, otherwise the elements of this
+	 * set are looked up in the collection.
+	 */
+	public boolean retainAll(Collection<?> c) {
+		long[] keep = new long[(count + 63) >>> 6];
+		if (c.size() < size) {
+			for (Iterator<?> i = c.iterator(); i.hasNext(); ) {
+				Object o = i.next();
+				int slot = slotOf(o, HashMap.hash(o));
+				if (slot >= 0) {
+					int p = index[slot] - 1;
+					keep[p >>> 6] |= 1L << p;
+				}
+			}
+		} else {
+			for (int p = 0; p < count; p++)
+				if (elements[p] != REMOVED && c.contains(elements[p]))
+					keep[p >>> 6] |= 1L << p;
+		}
+		return compact(keep);
+	}
+
+	/**
+	 * Removes from this set all of its elements that are contained in the
+	 * specified collection. If the collection is the smaller one, each of
+	 * its elements is removed from this set, otherwise the elements of
+	 * this set are looked up in the collection.
+	 */
+	public boolean removeAll(Collection<?> c) {
+		boolean modified = false;
+		if (c.size() < size) {
+			for (Iterator<?> i = c.iterator(); i.hasNext(); )
+				if (remove(i.next()))
+					modified = true;
+			return modified;
+		}
+
+		long[] keep = new long[(count + 63) >>> 6];
+		for (int p = 0; p < count; p++)
+			if (elements[p] != REMOVED && !c.contains(elements[p]))
+				keep[p >>> 6] |= 1L << p;
+		return compact(keep);
+	}
+
+	/**
+	 * Removes all of the elements from this set.
+	 */
+	public void clear() {
+		Arrays.fill(index, 0);
+		Arrays.fill(elements, 0, count, null);
+		count = 0;
+		size = 0;
+	}
+
+	// Probing
+
+	/**
+	 * Returns the slot referring to the specified element, or -(slot + 1)
+	 * where the empty slot ending its probe sequence is.
+	 */
+	private int slotOf(Object o, int hash) {
+		int mask = index.length - 1;
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+			int p = index[slot] - 1;
+			if (p < 0)
+				return -slot - 1;
+			if (hashes[p] == hash && (o == elements[p] ||
+			   (o != null && o.equals(elements[p]))))
+				return slot;
+		}
+	}
+
+	/**
+	 * Returns the slot referring to the specified position.
+	 */
+	private int slotOfPosition(int p) {
+		int mask = index.length - 1;
+		int slot = hashes[p] & mask;
+		while (index[slot] != p + 1)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	/**
+	 * Removes the element the specified slot refers to. The following
+	 * slots of the cluster are shifted back into the free one, unless
+	 * their probe sequence starts after it.
+	 */
+	void removeSlot(int slot) {
+		int p = index[slot] - 1;
+		int mask = index.length - 1;
+		for (int next = (slot + 1) & mask; index[next] != 0;
+		     next = (next + 1) & mask) {
+			int home = hashes[index[next] - 1] & mask;
+			if (((next - home) & mask) >= ((next - slot) & mask)) {
+				index[slot] = index[next];
+				slot = next;
+			}
+		}
+		index[slot] = 0;
+		size--;
+		removePosition(p);
+	}
+
+	/**
+	 * Frees the specified position of the dense arrays, whose slot has
+	 * already been emptied, by moving the last element into it.
+	 */
+	void removePosition(int p) {
+		int last = --count;
+		if (p != last) {
+			index[slotOfPosition(last)] = p + 1;
+			elements[p] = elements[last];
+			hashes[p] = hashes[last];
+		}
+		elements[last] = null;
+	}
+
+	/**
+	 * Keeps the elements at the positions set in the specified bit set,
+	 * in the same order, and rebuilds the table. Returns <tt>true</tt> if
+	 * any element was removed.
+	 */
+	private boolean compact(long[] keep) {
+		int n = 0;
+		for (int p = 0; p < count; p++) {
+			if ((keep[p >>> 6] & (1L << p)) == 0)
+				continue;
+			elements[n] = elements[p];
+			hashes[n++] = hashes[p];
+		}
+		if (n == size && n == count)
+			return false;
+		boolean modified = n != size;
+		Arrays.fill(elements, n, count, null);
+		count = size = n;
+		rehash();
+		return modified;
+	}
+
+	/**
+	 * Makes room for the specified number of elements, growing the table
+	 * or, if enough positions have been freed, only compacting it. A
+	 * quarter of the positions is left free, so that a set with removed
+	 * positions is not compacted again right away.
+	 */
+	private void grow(int expected) {
+		int length = index.length;
+		while (expected > capacityFor(length) - (capacityFor(length) >>> 2)) {
+			if (length >= HashMap.MAXIMUM_CAPACITY)
+				throw new IllegalStateException("Capacity exceeded");
+			length <<= 1;
+		}
+		allocate(length);
+	}
+
+	// keep at least one empty slot, probing relies on it
+	private int capacityFor(int length) {
+		return Math.min((int)(length * loadFactor), length - 1);
+	}
+
+	/**
+	 * Allocates a table of the specified length and the dense arrays to
+	 * match, dropping the removed positions, and rebuilds the table.
+	 */
+	private void allocate(int length) {
+		int n = 0;
+		for (int p = 0; p < count; p++) {
+			if (elements[p] == REMOVED)
+				continue;
+			elements[n] = elements[p];
+			hashes[n++] = hashes[p];
+		}
+		Arrays.fill(elements, n, count, null);
+		count = n;
+
+		int capacity = capacityFor(length);
+		index = new int[length];
+		if (capacity != elements.length) {
+			elements = Arrays.copyOf(elements, capacity);
+			hashes = Arrays.copyOf(hashes, capacity);
+		}
+		rehash();
+	}
+
+	/**
+	 * Refills the table with the positions of the dense arrays, which
+	 * hold no removed element.
+	 */
+	private void rehash() {
+		int mask = index.length - 1;
+		Arrays.fill(index, 0);
+		for (int p = 0; p < count; p++) {
+			int slot = hashes[p] & mask;
+			while (index[slot] != 0)
+				slot = (slot + 1) & mask;
+			index[slot] = p + 1;
+		}
+	}
+
+	// Comparison and hashing
+
+	/**
+	 * Compares the specified object with this set for equality. Returns
+	 * <tt>true</tt> if the given object is also a set, the two sets have
+	 * the same size, and every element of this set is contained in the
+	 * given one.
+	 */
+	public boolean equals(Object o) {
+		// same object reference
+		if (o == this)
+			return true;
+
+		// check instance type (Set) and size
+		if (!(o instanceof Set))
+			return false;
+		Set<?> s = (Set<?>)o;
+		if (s.size() != size)
+			return false;
+
+		// check all elements
+		for (int p = 0; p < count; p++)
+			if (elements[p] != REMOVED && !s.contains(elements[p]))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Returns the hash code value for this set. The hash code of a set is
+	 * defined to be the sum of the hash codes of the elements in the set,
+	 * where the hash code of a <tt>null</tt> element is defined to be zero.
+	 */
+	public int hashCode() {
+		int hash = 0;
+		for (int p = 0; p < count; p++) {
+			Object elem = elements[p];
+			if (elem != REMOVED)
+				hash += (elem == null ? 0 : elem.hashCode());
+		}
+		return hash;
+	}
+
+}
@@ -0,0 +1,162 @@
+/*
+ * HashingStrategy.java - example of pluggable key hashing
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Arrays;
+
+/**
+ * Defines how a <tt>HashMap</tt> hashes and compares its keys, in place of
+ * their own <tt>hashCode()</tt> and <tt>equals()</tt>. Keys such as arrays
+ * or mutable character sequences can then be stored as they are, without
+ * wrapping each of them in an object defining content equality.
+ *
+ * <p>The methods are never invoked with a null key: a null key is only
+ * equal to itself. Two keys which are equal must have the same hash.
+ *
+ * <p>The common strategies are provided as constants.
+ */
+
+public interface HashingStrategy<K>
+{
+	/**
+	 * Returns the hash code of the specified key, which is not null.
+	 */
+	int hash(K key);
+
+	/**
+	 * Returns <tt>true</tt> if the two specified keys, which are not null,
+	 * are equal.
+	 */
+	boolean equals(K a, K b);
+
+	/**
+	 * Compares the keys by reference, hashing them by their identity hash
+	 * code.
+	 */
+	HashingStrategy<Object> IDENTITY = new HashingStrategy<Object>() {
+		public int hash(Object key) {
+			return System.identityHashCode(key);
+		}
+
+		public boolean equals(Object a, Object b) {
+			return a == b;
+		}
+	};
+
+	/**
+	 * Compares byte arrays by their content.
+	 */
+	HashingStrategy<byte[]> BYTE_ARRAY = new HashingStrategy<byte[]>() {
+		public int hash(byte[] key) {
+			return Arrays.hashCode(key);
+		}
+
+		public boolean equals(byte[] a, byte[] b) {
+			return Arrays.equals(a, b);
+		}
+	};
+
+	/**
+	 * Compares character sequences by their content, whatever their class.
+	 * The hash of a sequence is the hash code of the equal <tt>String</tt>.
+	 */
+	HashingStrategy<CharSequence> CHAR_SEQUENCE =
+			new HashingStrategy<CharSequence>() {
+		public int hash(CharSequence key) {
+			int h = 0;
+			for (int i = 0, n = key.length(); i < n; i++)
+				h = 31 * h + key.charAt(i);
+			return h;
+		}
+
+		public boolean equals(CharSequence a, CharSequence b) {
+			int n = a.length();
+			if (n != b.length())
+				return false;
+			for (int i = 0; i < n; i++)
+				if (a.charAt(i) != b.charAt(i))
+					return false;
+			return true;
+		}
+	};
+
+	/**
+	 * Compares character sequences by their content ignoring case, as
+	 * <tt>String.equalsIgnoreCase()</tt> does character by character.
+	 */
+	HashingStrategy<CharSequence> CASE_INSENSITIVE =
+			new HashingStrategy<CharSequence>() {
+		private char fold(char c) {
+			return Character.toLowerCase(Character.toUpperCase(c));
+		}
+
+		public int hash(CharSequence key) {
+			int h = 0;
+			for (int i = 0, n = key.length(); i < n; i++)
+				h = 31 * h + fold(key.charAt(i));
+			return h;
+		}
+
+		public boolean equals(CharSequence a, CharSequence b) {
+			int n = a.length();
+			if (n != b.length())
+				return false;
+			for (int i = 0; i < n; i++) {
+				char x = a.charAt(i), y = b.charAt(i);
+				if (x != y && fold(x) != fold(y))
+					return false;
+			}
+			return true;
+		}
+	};
+
+	/**
+	 * Compares the keys by <tt>equals()</tt>, like a map without strategy,
+	 * but scrambles their <tt>hashCode()</tt> with the murmur3 finalizer:
+	 * every bit of the hash code affects every bit of the hash, so that
+	 * hash codes differing only in a few bits still spread over the table.
+	 */
+	HashingStrategy<Object> MIXING = new HashingStrategy<Object>() {
+		public int hash(Object key) {
+			return mix(key.hashCode());
+		}
+
+		public boolean equals(Object a, Object b) {
+			return a.equals(b);
+		}
+	};
+
+	/**
+	 * Returns a strategy comparing the keys like the specified one, with
+	 * its hashes scrambled as by <tt>MIXING</tt>.
+	 */
+	static <K> HashingStrategy<K> mixing(final HashingStrategy<K> strategy) {
+		return new HashingStrategy<K>() {
+			public int hash(K key) {
+				return mix(strategy.hash(key));
+			}
+
+			public boolean equals(K a, K b) {
+				return strategy.equals(a, b);
+			}
+		};
+	}
+
+	/**
+	 * Returns the murmur3 32-bit finalizer of the specified hash.
+	 */
+	static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+}
@@ -0,0 +1,354 @@
+/*
+ * IntIntMap.java - example of primitive int to int Hash Map implementation
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+/**
+ * Hash table mapping primitive <tt>int</tt> keys to <tt>int</tt> values.
+ *
+ * <p>The methods mirror the ones of <tt>HashMap</tt>, but keys and values
+ * are never boxed and no object is allocated per mapping: they are stored in
+ * two parallel arrays probed linearly, and removal shifts back the following
+ * entries of the cluster instead of leaving tombstones. The key 0 marks the
+ * empty slots, so its mapping is kept aside in a dedicated field.
+ *
+ * <p>Since a primitive cannot be null, <tt>get</tt> returns 0 for a missing
+ * key: use <tt>containsKey</tt> or <tt>getOrDefault</tt> to tell it apart
+ * from a mapping to 0.
+ *
+ * <p>Note that this implementation is not synchronized.
+ */
+
+public class IntIntMap
+{
+	private int[] keys;
+	private int[] values;
+	private int size;
+	private int threshold;
+	private final float loadFactor;
+
+	// the mapping for the key 0, which marks the empty slots
+	private boolean hasZeroKey;
+	private int zeroValue;
+
+	/**
+	 * Constructs an empty <tt>IntIntMap</tt> with the specified capacity
+	 * and load factor. The capacity is rounded up to the next power of two.
+	 */
+	public IntIntMap(int capacity, float loadFactor) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException(
+				"Illegal capacity: " + capacity);
+		if (loadFactor <= 0 || loadFactor >= 1 || Float.isNaN(loadFactor))
+			throw new IllegalArgumentException(
+				"Illegal load factor: " + loadFactor);
+		this.loadFactor = loadFactor;
+		allocate(HashMap.tableSizeFor(capacity));
+		size = 0;
+	}
+
+	/**
+	 * Constructs an empty <tt>IntIntMap</tt> with the specified capacity
+	 * and the default load factor (0.75).
+	 */
+	public IntIntMap(int capacity) {
+		this(capacity, HashMap.DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+	 * Constructs an empty <tt>IntIntMap</tt> with the default capacity
+	 * (16) and the default load factor (0.75).
+	 */
+	public IntIntMap() {
+		this(HashMap.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Returns the number of key-value mappings in this map.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map contains no key-value mappings.
+	 */
+	public boolean isEmpty() {
+		return size == 0 ? true : false;
+	}
+
+	/**
+	 * Returns the value to which the specified key is mapped, or 0 if this
+	 * map contains no mapping for the key.
+	 */
+	public int get(int key) {
+		return getOrDefault(key, 0);
+	}
+
+	/**
+	 * Returns the value to which the specified key is mapped, or the
+	 * specified default value if this map contains no mapping for the key.
+	 */
+	public int getOrDefault(int key, int defaultValue) {
+		if (key == 0)
+			return hasZeroKey ? zeroValue : defaultValue;
+		int index = indexOf(key);
+		return index < 0 ? defaultValue : values[index];
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map contains a mapping for the
+	 * specified key.
+	 */
+	public boolean containsKey(int key) {
+		if (key == 0)
+			return hasZeroKey;
+		return indexOf(key) >= 0;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map maps one or more keys to the
+	 * specified value.
+	 */
+	public boolean containsValue(int value) {
+		if (hasZeroKey && zeroValue == value)
+			return true;
+		for (int index = 0; index < keys.length; index++)
+			if (keys[index] != 0 && values[index] == value)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Associates the specified value with the specified key in this map,
+	 * and returns the previous value, or 0 if there was no mapping.
+	 */
+	public int put(int key, int value) {
+		if (key == 0) {
+			int oldValue = zeroValue;
+			if (!hasZeroKey) {
+				hasZeroKey = true;
+				size++;
+			}
+			zeroValue = value;
+			return oldValue;
+		}
+
+		int mask = keys.length - 1;
+		int index = hash(key) & mask;
+		for ( ; keys[index] != 0; index = (index + 1) & mask) {
+			if (keys[index] == key) {
+				int oldValue = values[index];
+				values[index] = value;
+				return oldValue;
+			}
+		}
+
+		// insert the new mapping in the free slot, then grow if needed
+		keys[index] = key;
+		values[index] = value;
+		if (++size > threshold)
+			allocate(keys.length << 1);
+		return 0;
+	}
+
+	/**
+	 * Removes the mapping for the specified key from this map if present,
+	 * and returns its value, or 0 if there was no mapping.
+	 */
+	public int remove(int key) {
+		if (key == 0) {
+			int oldValue = zeroValue;
+			if (hasZeroKey) {
+				hasZeroKey = false;
+				zeroValue = 0;
+				size--;
+			}
+			return oldValue;
+		}
+
+		int index = indexOf(key);
+		if (index < 0)
+			return 0;
+		int oldValue = values[index];
+		removeSlot(index);
+		return oldValue;
+	}
+
+	/**
+	 * Removes all of the mappings from this map.
+	 */
+	public void clear() {
+		for (int index = 0; index < keys.length; index++)
+			keys[index] = 0;
+		hasZeroKey = false;
+		zeroValue = 0;
+		size = 0;
+	}
+
+	// Bulk operations
+
+	/**
+	 * Represents an operation on a key-value mapping of the map.
+	 */
+	public interface Consumer {
+		void accept(int key, int value);
+	}
+
+	/**
+	 * Performs the given action for each mapping in this map.
+	 */
+	public void forEach(Consumer action) {
+		if (hasZeroKey)
+			action.accept(0, zeroValue);
+		int[] k = keys;
+		int[] v = values;
+		for (int index = 0; index < k.length; index++)
+			if (k[index] != 0)
+				action.accept(k[index], v[index]);
+	}
+
+	/**
+	 * Returns a cursor over the mappings of this map. A cursor does not
+	 * allocate anything while moving, and it can be reused by calling
+	 * <tt>reset()</tt>. The map must not be structurally modified while
+	 * the cursor is in use.
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	public class Cursor {
+		private int index;
+		private int key;
+		private int value;
+
+		Cursor() {
+			reset();
+		}
+
+		/**
+		 * Rewinds the cursor before the first mapping.
+		 */
+		public void reset() {
+			index = -2;
+		}
+
+		/**
+		 * Moves to the next mapping, returning false if there is none.
+		 */
+		public boolean advance() {
+			if (index == -2) {
+				index = -1;
+				if (hasZeroKey) {
+					key = 0;
+					value = zeroValue;
+					return true;
+				}
+			}
+			while (++index < keys.length) {
+				if (keys[index] != 0) {
+					key = keys[index];
+					value = values[index];
+					return true;
+				}
+			}
+			index = keys.length;
+			return false;
+		}
+
+		/**
+		 * Returns the key of the current mapping.
+		 */
+		public int key() {
+			return key;
+		}
+
+		/**
+		 * Returns the value of the current mapping.
+		 */
+		public int value() {
+			return value;
+		}
+
+		/**
+		 * Replaces the value of the current mapping.
+		 */
+		public void setValue(int v) {
+			if (index < 0 || index >= keys.length) {
+				if (index != -1)
+					throw new IllegalStateException();
+				zeroValue = v;
+			} else {
+				values[index] = v;
+			}
+			value = v;
+		}
+	}
+
+	// Probing
+
+	private static int hash(int key) {
+		int h = key * 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+
+	private int indexOf(int key) {
+		int mask = keys.length - 1;
+		for (int index = hash(key) & mask; keys[index] != 0;
+		     index = (index + 1) & mask)
+			if (keys[index] == key)
+				return index;
+		return -1;
+	}
+
+	/**
+	 * Empties the specified slot, moving back the following entries of
+	 * the cluster whose home slot does not lie between the hole and them.
+	 */
+	private void removeSlot(int index) {
+		int mask = keys.length - 1;
+		int next = (index + 1) & mask;
+
+		for ( ; keys[next] != 0; next = (next + 1) & mask) {
+			int home = hash(keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - index) & mask)) {
+				keys[index] = keys[next];
+				values[index] = values[next];
+				index = next;
+			}
+		}
+		keys[index] = 0;
+		size--;
+	}
+
+	private void allocate(int length) {
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+
+		if (length > HashMap.MAXIMUM_CAPACITY)
+			throw new IllegalStateException("Capacity exceeded");
+		keys = new int[length];
+		values = new int[length];
+		threshold = Math.min((int)(length * loadFactor), length - 1);
+
+		if (oldKeys != null) {
+			int mask = length - 1;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] == 0)
+					continue;
+				int index = hash(oldKeys[i]) & mask;
+				while (keys[index] != 0)
+					index = (index + 1) & mask;
+				keys[index] = oldKeys[i];
+				values[index] = oldValues[i];
+			}
+		}
+	}
+
+}
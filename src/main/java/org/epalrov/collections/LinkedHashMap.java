@@ -0,0 +1,342 @@
+/*
+ * LinkedHashMap.java - example of Linked Hash Map implementation
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * Hash table and linked list implementation of the <tt>Map</tt> interface,
+ * with predictable iteration order.
+ *
+ * <p>Every entry of the hash table is also threaded in a doubly linked list,
+ * which defines the iteration order: the order in which the keys were first
+ * inserted (<i>insertion order</i>, the default) or the order in which the
+ * mappings were last accessed, from least to most recently
+ * (<i>access order</i>). In access order, <tt>get</tt>, <tt>put</tt> of an
+ * existing key and the compute and merge operations move the mapping to the
+ * end of the list.
+ *
+ * <p>The <tt>removeEldestEntry</tt> method may be overridden to remove the
+ * eldest mapping each time a new one is added: an access-ordered map then
+ * makes a simple LRU cache, since unlinking the eldest entry costs O(1).
+ * See <tt>Cache</tt> for a bounded cache with weights and other policies.
+ *
+ * <p>Note that this implementation is not synchronized.
+ */
+
+public class LinkedHashMap<K,V> extends HashMap<K,V>
+{
+	// the eldest and the youngest entry of the list
+	private LinkedEntry<K,V> head;
+	private LinkedEntry<K,V> tail;
+	private final boolean accessOrder;
+
+	/**
+	 * Constructs an empty <tt>LinkedHashMap</tt> with the specified
+	 * capacity, load factor and ordering mode: <tt>true</tt> for access
+	 * order, <tt>false</tt> for insertion order.
+	 */
+	public LinkedHashMap(int capacity, float loadFactor,
+			boolean accessOrder) {
+		super(capacity, loadFactor);
+		this.accessOrder = accessOrder;
+	}
+
+	/**
+	 * Constructs an empty insertion-ordered <tt>LinkedHashMap</tt> with the
+	 * specified capacity and load factor.
+	 */
+	public LinkedHashMap(int capacity, float loadFactor) {
+		this(capacity, loadFactor, false);
+	}
+
+	/**
+	 * Constructs an empty insertion-ordered <tt>LinkedHashMap</tt> with the
+	 * specified capacity and the default load factor (0.75).
+	 */
+	public LinkedHashMap(int capacity) {
+		this(capacity, DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+	 * Constructs an empty insertion-ordered <tt>LinkedHashMap</tt> with the
+	 * default capacity (16) and the default load factor (0.75).
+	 */
+	public LinkedHashMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Removes all of the mappings from this map.
+	 */
+	public void clear() {
+		super.clear();
+		head = tail = null;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map should remove its eldest entry,
+	 * which is invoked after a new mapping is inserted. The default
+	 * implementation returns <tt>false</tt>, so that the map grows like
+	 * a plain <tt>HashMap</tt>.
+	 */
+	protected boolean removeEldestEntry(Map.Entry<K,V> eldest) {
+		return false;
+	}
+
+	// Linked list maintenance
+
+	private void linkLast(LinkedEntry<K,V> p) {
+		LinkedEntry<K,V> last = tail;
+		tail = p;
+		if (last == null)
+			head = p;
+		else
+			last.after = p;
+		p.before = last;
+	}
+
+	private void unlink(LinkedEntry<K,V> p) {
+		LinkedEntry<K,V> b = p.before, a = p.after;
+		if (b == null)
+			head = a;
+		else
+			b.after = a;
+		if (a == null)
+			tail = b;
+		else
+			a.before = b;
+		p.before = p.after = null;
+	}
+
+	// the replacement takes the place of p in the list
+	private void transferLinks(LinkedEntry<K,V> p, LinkedEntry<K,V> q) {
+		LinkedEntry<K,V> b = q.before = p.before;
+		LinkedEntry<K,V> a = q.after = p.after;
+		if (b == null)
+			head = q;
+		else
+			b.after = q;
+		if (a == null)
+			tail = q;
+		else
+			a.before = q;
+	}
+
+	Entry<K,V> newEntry(int hash, K key, V value, Entry<K,V> next) {
+		LinkedEntry<K,V> p = new LinkedEntry<K,V>(hash, key, value, next);
+		linkLast(p);
+		return p;
+	}
+
+	TreeEntry<K,V> newTreeEntry(int hash, K key, V value, Entry<K,V> next) {
+		TreeEntry<K,V> p = new TreeEntry<K,V>(hash, key, value, next);
+		linkLast(p);
+		return p;
+	}
+
+	Entry<K,V> replacementEntry(Entry<K,V> p) {
+		LinkedEntry<K,V> q = new LinkedEntry<K,V>(
+			p.hash, p.key, p.value, null);
+		transferLinks((LinkedEntry<K,V>)p, q);
+		return q;
+	}
+
+	TreeEntry<K,V> replacementTreeEntry(Entry<K,V> p) {
+		TreeEntry<K,V> q = new TreeEntry<K,V>(p.hash, p.key, p.value, null);
+		transferLinks((LinkedEntry<K,V>)p, q);
+		return q;
+	}
+
+	// the entries must be created in the order of the list
+	boolean canCopyEntries() {
+		return false;
+	}
+
+	void afterEntryAccess(Entry<K,V> e) {
+		LinkedEntry<K,V> p = (LinkedEntry<K,V>)e;
+		if (accessOrder && p != tail) {
+			unlink(p);
+			linkLast(p);
+		}
+	}
+
+	void afterEntryInsertion() {
+		LinkedEntry<K,V> first = head;
+		if (first != null &&
+		    removeEldestEntry(new WriteThroughEntry(first)))
+			removeEntryInPlace(first.key);
+	}
+
+	void afterEntryRemoval(Entry<K,V> e) {
+		unlink((LinkedEntry<K,V>)e);
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map maps one or more keys to the
+	 * specified value.
+	 */
+	public boolean containsValue(Object value) {
+		// walk the list rather than the buckets
+		for (LinkedEntry<K,V> e = head; e != null; e = e.after)
+			if (value == e.value ||
+			   (value != null && value.equals(e.value)))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Performs the given action for each mapping in this map, in the
+	 * order of the list.
+	 */
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		if (action == null)
+			throw new NullPointerException();
+		for (LinkedEntry<K,V> e = head; e != null; e = e.after)
+			action.accept(e.key, e.value);
+	}
+
+	/**
+	 * Replaces each value with the result of the given function applied
+	 * to its mapping, in the order of the list.
+	 */
+	public void replaceAll(
+			BiFunction<? super K, ? super V, ? extends V> function) {
+		if (function == null)
+			throw new NullPointerException();
+		for (LinkedEntry<K,V> e = head; e != null; e = e.after)
+			setEntryValue(e, function.apply(e.key, e.value));
+	}
+
+	// Views: each of them is created once and then cached
+
+	private Set<K> keySet;
+	private Collection<V> values;
+	private Set<Map.Entry<K,V>> entrySet;
+
+	/**
+	 * Returns a <tt>Set</tt> view of the keys contained in this map, in
+	 * the order of the list.
+	 */
+	public Set<K> keySet() {
+		Set<K> ks = keySet;
+		return ks != null ? ks : (keySet = new LinkedKeySet());
+	}
+
+	private class LinkedKeySet extends java.util.AbstractSet<K> {
+		public int size() {
+			return LinkedHashMap.this.size();
+		}
+
+		public Iterator<K> iterator() {
+			return new LinkedKeyIterator();
+		}
+	}
+
+	private class LinkedKeyIterator extends LinkedHashIterator<K> {
+		public K next() {
+			return nextEntry().getKey();
+		}
+	}
+
+	/**
+	 * Returns a <tt>Collection</tt> view of the values contained in this
+	 * map, in the order of the list.
+	 */
+	public Collection<V> values() {
+		Collection<V> vs = values;
+		return vs != null ? vs : (values = new LinkedValues());
+	}
+
+	private class LinkedValues extends java.util.AbstractCollection<V> {
+		public int size() {
+			return LinkedHashMap.this.size();
+		}
+
+		public Iterator<V> iterator() {
+			return new LinkedValuesIterator();
+		}
+	}
+
+	private class LinkedValuesIterator extends LinkedHashIterator<V> {
+		public V next() {
+			return nextEntry().getValue();
+		}
+	}
+
+	/**
+	 * Returns a <tt>Set</tt> view of the mappings contained in this map,
+	 * in the order of the list.
+	 */
+	public Set<Map.Entry<K,V>> entrySet() {
+		Set<Map.Entry<K,V>> es = entrySet;
+		return es != null ? es : (entrySet = new LinkedEntrySet());
+	}
+
+	private class LinkedEntrySet
+			extends java.util.AbstractSet<Map.Entry<K,V>> {
+		public int size() {
+			return LinkedHashMap.this.size();
+		}
+
+		public Iterator<Map.Entry<K,V>> iterator() {
+			return new LinkedEntryIterator();
+		}
+	}
+
+	private class LinkedEntryIterator
+			extends LinkedHashIterator<Map.Entry<K,V>> {
+		public Map.Entry<K,V> next() {
+			return new WriteThroughEntry(nextEntry());
+		}
+	}
+
+	/**
+	 * Provides a skeletal implementation of an iterator walking the list
+	 * of the entries, from the eldest to the youngest.
+	 */
+	private abstract class LinkedHashIterator<T> implements Iterator<T> {
+		private LinkedEntry<K,V> currEntry;
+		private LinkedEntry<K,V> nextEntry;
+
+		public LinkedHashIterator() {
+			currEntry = null;
+			nextEntry = head;
+		}
+
+		public boolean hasNext() {
+			return nextEntry != null ? true : false;
+		}
+
+		public abstract T next();
+
+		public LinkedEntry<K,V> nextEntry() {
+			if (nextEntry == null)
+				throw new java.util.NoSuchElementException();
+			currEntry = nextEntry;
+			nextEntry = nextEntry.after;
+			return currEntry;
+		}
+
+		// the entry is unlinked in place, so that the next one is
+		// neither moved to another table nor replaced
+		public void remove() {
+			if (currEntry == null)
+				throw new IllegalStateException();
+			removeEntryInPlace(currEntry.key);
+			currEntry = null;
+		}
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+ * LinkedHashSet.java - example of Linked Hash Set implementation
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Collection;
+
+/**
+ * Hash table implementation of the <tt>Set</tt> interface, with predictable
+ * iteration order: the order in which the elements were first inserted.
+ *
+ * <p>The elements are kept in the dense arrays of <tt>HashSet</tt>, which
+ * already hold them in insertion order, so that no list needs to be linked
+ * through them. A removed element leaves a marker in its position instead
+ * of being replaced by the last one; the markers are dropped whenever the
+ * arrays are full, compacting them in place if enough positions are free.
+ *
+ * <p>Note that this implementation is not synchronized.
+ */
+
+public class LinkedHashSet<E> extends HashSet<E>
+{
+	/**
+	 * Constructs an empty <tt>LinkedHashSet</tt> with the specified
+	 * capacity and load factor.
+	 */
+	public LinkedHashSet(int capacity, float loadFactor) {
+		super(capacity, loadFactor);
+	}
+
+	/**
+	 * Constructs an empty <tt>LinkedHashSet</tt> with the specified
+	 * capacity and the default load factor (0.75).
+	 */
+	public LinkedHashSet(int capacity) {
+		super(capacity);
+	}
+
+	/**
+	 * Constructs an empty <tt>LinkedHashSet</tt> with the default capacity
+	 * (16) and the default load factor (0.75).
+	 */
+	public LinkedHashSet() {
+		super();
+	}
+
+	/**
+	 * Constructs a new <tt>LinkedHashSet</tt> containing the elements of
+	 * the specified collection, in the order of its iterator.
+	 */
+	public LinkedHashSet(Collection<? extends E> c) {
+		super(c);
+	}
+
+	/**
+	 * Marks the specified position as removed, so that the elements after
+	 * it keep their order. The positions at the end are reused at once.
+	 */
+	void removePosition(int p) {
+		elements[p] = REMOVED;
+		while (count > 0 && elements[count - 1] == REMOVED)
+			elements[--count] = null;
+	}
+
+}
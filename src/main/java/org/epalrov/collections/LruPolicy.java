@@ -0,0 +1,37 @@
+/*
+ * LruPolicy.java - example of least recently used eviction policy
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+/**
+ * Eviction policy which evicts the least recently used mapping. The nodes
+ * are kept in a single list in access order: a hit moves its node to the
+ * end of the list and the victim is the node at the beginning.
+ */
+
+public class LruPolicy<K,V> implements EvictionPolicy<K,V>
+{
+	private final Cache.NodeList<K,V> list = new Cache.NodeList<K,V>();
+
+	public void onInsert(Cache.Node<K,V> node) {
+		list.addLast(node);
+	}
+
+	public void onAccess(Cache.Node<K,V> node) {
+		list.moveToLast(node);
+	}
+
+	public void onRemove(Cache.Node<K,V> node) {
+		list.remove(node);
+	}
+
+	public Cache.Node<K,V> victim() {
+		return list.first();
+	}
+
+}
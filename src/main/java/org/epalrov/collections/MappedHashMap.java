@@ -0,0 +1,255 @@
+/*
+ * MappedHashMap.java - example of memory-mapped Hash Map implementation
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Hash table implementation of the <tt>Map</tt> interface persisted in a
+ * memory-mapped file.
+ *
+ * <p>The open addressing table of <tt>OffHeapHashMap</tt> is mapped from a
+ * file through <tt>FileChannel.map</tt>, after a small header. Opening an
+ * existing file only reads the header and maps the table, whose pages are
+ * then loaded by the operating system as they are looked up: no mapping is
+ * read, decoded or inserted, so that a process restarts with its table
+ * ready whatever its size.
+ *
+ * <p>The header holds the layout of the slots, the number of mappings, a
+ * generation counter and a state: <i>clean</i> or <i>dirty</i>. The first
+ * change after opening the map, or after <tt>force()</tt>, marks the file
+ * dirty; <tt>force()</tt> writes the slots to the storage device, then
+ * increments the generation and marks the file clean again. Slots are
+ * always written so that a used slot holds its key before its hash: a file
+ * found dirty, because the process or the system stopped before the next
+ * <tt>force()</tt>, is repaired when opened by a scan of the table which
+ * drops the slots left half written. Changes made since the last
+ * <tt>force()</tt> survive the crash of the process, since the mapped
+ * pages belong to the operating system, but may be lost, partly or
+ * entirely, with a crash of the system.
+ *
+ * <p>The table is sized when the file is created and never grows; the
+ * memory is unmapped by <tt>close()</tt>, which also forces the changes.
+ * Note that this implementation is not synchronized, and that a file must
+ * not be opened by two maps at the same time.
+ */
+
+public class MappedHashMap<K,V> extends OffHeapHashMap<K,V>
+{
+	static final long MAGIC = 0x6570616c48617368L; // "epalHash"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 4096; // keeps the slots page aligned
+
+	// header layout
+	private static final int MAGIC_OFFSET = 0;
+	private static final int VERSION_OFFSET = 8;
+	private static final int KEY_SIZE_OFFSET = 12;
+	private static final int VALUE_SIZE_OFFSET = 16;
+	private static final int CAPACITY_OFFSET = 20;
+	private static final int LOAD_FACTOR_OFFSET = 24;
+	private static final int SIZE_OFFSET = 28;
+	private static final int STATE_OFFSET = 32;
+	private static final int GENERATION_OFFSET = 40;
+
+	private static final int CLEAN = 1;
+	private static final int DIRTY = 2;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer header;
+	private boolean dirty;
+
+	/**
+	 * Opens the map persisted in the specified file, or creates it with a
+	 * table taking at most the specified number of bytes and the given
+	 * load factor if the file is empty or does not exist. The budget and
+	 * the load factor of an existing file are those it was created with.
+	 *
+	 * @throws IllegalArgumentException if the file holds another layout
+	 *         of keys and values, or is not a map at all
+	 */
+	public MappedHashMap(Path path, Codec<K> keyCodec, Codec<V> valueCodec,
+			long byteBudget, float loadFactor) throws IOException {
+		this(new Mapping(path, keyCodec.size(), valueCodec.size(),
+			byteBudget, loadFactor), keyCodec, valueCodec);
+	}
+
+	/**
+	 * Opens the map persisted in the specified file, or creates it with a
+	 * table taking at most the specified number of bytes and the default
+	 * load factor (0.75).
+	 */
+	public MappedHashMap(Path path, Codec<K> keyCodec, Codec<V> valueCodec,
+			long byteBudget) throws IOException {
+		this(path, keyCodec, valueCodec, byteBudget,
+			HashMap.DEFAULT_LOAD_FACTOR);
+	}
+
+	private MappedHashMap(Mapping m, Codec<K> keyCodec, Codec<V> valueCodec) {
+		super(keyCodec, valueCodec, m.slots, m.size, m.loadFactor);
+		channel = m.channel;
+		header = m.header;
+		dirty = false;
+	}
+
+	/**
+	 * Returns the number of times the changes to this map were forced
+	 * to the storage device since the file was created.
+	 */
+	public long generation() {
+		table();
+		return header.getLong(GENERATION_OFFSET);
+	}
+
+	/**
+	 * Writes the changes to this map to the storage device, then records
+	 * them in the header as a new generation. Nothing is written if the
+	 * map was not changed since the last call.
+	 */
+	public void force() {
+		SlotTable slots = table();
+		if (!dirty)
+			return;
+		slots.force();
+		header.putInt(SIZE_OFFSET, size());
+		header.putLong(GENERATION_OFFSET,
+			header.getLong(GENERATION_OFFSET) + 1);
+		header.putInt(STATE_OFFSET, CLEAN);
+		header.force();
+		dirty = false;
+	}
+
+	/**
+	 * Forces the changes to this map, unmaps the file and closes it.
+	 * Closing a closed map has no effect.
+	 */
+	public void close() {
+		if (!channel.isOpen())
+			return;
+		try {
+			force();
+			SlotTable.free(header);
+			super.close();
+		} finally {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// the mappings do not depend on the channel
+			}
+		}
+	}
+
+	// the header is marked dirty, and forced, once per generation
+	void beforeModification() {
+		if (!dirty) {
+			header.putInt(STATE_OFFSET, DIRTY);
+			header.force();
+			dirty = true;
+		}
+	}
+
+	/**
+	 * Opens or creates the file of a map, mapping its header and its
+	 * table, and repairs the table if needed.
+	 */
+	private static final class Mapping {
+		final FileChannel channel;
+		final MappedByteBuffer header;
+		final SlotTable slots;
+		final int size;
+		final float loadFactor;
+
+		Mapping(Path path, int keySize, int valueSize, long byteBudget,
+				float loadFactor) throws IOException {
+			channel = FileChannel.open(path, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+			MappedByteBuffer h = null;
+			SlotTable t = null;
+			try {
+				boolean created = channel.size() == 0;
+				int capacity = 0;
+				if (created) {
+					OffHeapHashMap.checkLoadFactor(loadFactor);
+					capacity = SlotTable.capacityFor(
+						SlotTable.HEADER + keySize + valueSize, byteBudget);
+				} else if (channel.size() < HEADER_SIZE) {
+					throw new IllegalArgumentException("Not a map: " + path);
+				}
+				h = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+					HEADER_SIZE);
+				if (created) {
+					t = map(channel, capacity, keySize, valueSize);
+					h.putLong(MAGIC_OFFSET, MAGIC);
+					h.putInt(VERSION_OFFSET, VERSION);
+					h.putInt(KEY_SIZE_OFFSET, keySize);
+					h.putInt(VALUE_SIZE_OFFSET, valueSize);
+					h.putInt(CAPACITY_OFFSET, capacity);
+					h.putFloat(LOAD_FACTOR_OFFSET, loadFactor);
+					h.putInt(SIZE_OFFSET, 0);
+					h.putLong(GENERATION_OFFSET, 0);
+					h.putInt(STATE_OFFSET, CLEAN);
+					h.force();
+				} else {
+					if (h.getLong(MAGIC_OFFSET) != MAGIC ||
+					    h.getInt(VERSION_OFFSET) != VERSION)
+						throw new IllegalArgumentException(
+							"Not a map: " + path);
+					if (h.getInt(KEY_SIZE_OFFSET) != keySize ||
+					    h.getInt(VALUE_SIZE_OFFSET) != valueSize)
+						throw new IllegalArgumentException(
+							"Illegal layout: " + path);
+					t = map(channel, h.getInt(CAPACITY_OFFSET),
+						keySize, valueSize);
+					loadFactor = h.getFloat(LOAD_FACTOR_OFFSET);
+					if (h.getInt(STATE_OFFSET) != CLEAN) {
+						// interrupted: count the mappings again
+						h.putInt(SIZE_OFFSET, t.repair());
+						t.force();
+						h.putInt(STATE_OFFSET, CLEAN);
+						h.force();
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				if (t != null)
+					t.free();
+				SlotTable.free(h);
+				channel.close();
+				throw e;
+			}
+			header = h;
+			slots = t;
+			size = h.getInt(SIZE_OFFSET);
+			this.loadFactor = loadFactor;
+		}
+
+		// maps the table after the header, one page at a time
+		private static SlotTable map(FileChannel channel, int capacity,
+				int keySize, int valueSize) throws IOException {
+			int slotSize = SlotTable.HEADER + keySize + valueSize;
+			int slots = SlotTable.pageSlots(slotSize, capacity);
+			long pageSize = (long)slots * slotSize;
+			ByteBuffer[] pages = new ByteBuffer[capacity / slots];
+			try {
+				for (int i = 0; i < pages.length; i++)
+					pages[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+						HEADER_SIZE + i * pageSize, pageSize);
+			} catch (IOException | RuntimeException e) {
+				for (int i = 0; i < pages.length; i++)
+					SlotTable.free(pages[i]);
+				throw e;
+			}
+			return new SlotTable(pages, capacity, keySize, valueSize);
+		}
+	}
+
+}
@@ -0,0 +1,552 @@
+/*
+ * OffHeapHashMap.java - example of off-heap Hash Map implementation
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Hash table implementation of the <tt>Map</tt> interface which keeps its
+ * mappings outside of the Java heap.
+ *
+ * <p>Keys and values are encoded by a <tt>Codec</tt> of fixed width into the
+ * slots of an open addressing table allocated in direct memory (see
+ * <tt>SlotTable</tt>). No object is allocated per mapping, so that even
+ * hundreds of millions of mappings add nothing for the garbage collector
+ * to trace or copy. The table is sized once, from a byte budget, and never
+ * grows: inserting more mappings than the load factor allows throws
+ * <tt>IllegalStateException</tt>.
+ *
+ * <p>Keys are compared by their encoding, not by <tt>equals()</tt>. Lookups
+ * encode the key into a buffer owned by the map, so <tt>get</tt>,
+ * <tt>put</tt> and <tt>remove</tt> allocate nothing but the objects decoded
+ * for their result; the <tt>getLong</tt>, <tt>putLong</tt> and
+ * <tt>removeLong</tt> variants of a map of <tt>Codec.LONG</tt> keys and
+ * values allocate nothing at all. Null keys and values are not allowed.
+ *
+ * <p>The memory is released by <tt>close()</tt>, after which the map can no
+ * longer be used. Note that this implementation is not synchronized.
+ */
+
+public class OffHeapHashMap<K,V> implements Map<K,V>, AutoCloseable
+{
+	private final Codec<K> keyCodec;
+	private final Codec<V> valueCodec;
+	private SlotTable slots; // null once closed
+	private final ByteBuffer keyBuffer; // the key being looked up
+	private final int maximumSize;
+	private int size;
+
+	/**
+	 * Constructs an empty <tt>OffHeapHashMap</tt> whose table takes at
+	 * most the specified number of bytes of direct memory, holding up to
+	 * the load factor times its number of slots.
+	 */
+	public OffHeapHashMap(Codec<K> keyCodec, Codec<V> valueCodec,
+			long byteBudget, float loadFactor) {
+		this(keyCodec, valueCodec, allocate(keyCodec, valueCodec,
+			byteBudget, loadFactor), 0, loadFactor);
+	}
+
+	/**
+	 * Constructs an empty <tt>OffHeapHashMap</tt> whose table takes at
+	 * most the specified number of bytes of direct memory, with the
+	 * default load factor (0.75).
+	 */
+	public OffHeapHashMap(Codec<K> keyCodec, Codec<V> valueCodec,
+			long byteBudget) {
+		this(keyCodec, valueCodec, byteBudget, HashMap.DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+	 * Constructs an <tt>OffHeapHashMap</tt> on the specified table, which
+	 * already holds the given number of mappings.
+	 */
+	OffHeapHashMap(Codec<K> keyCodec, Codec<V> valueCodec, SlotTable slots,
+			int size, float loadFactor) {
+		this.keyCodec = keyCodec;
+		this.valueCodec = valueCodec;
+		this.slots = slots;
+		keyBuffer = ByteBuffer.allocate(Math.max(keyCodec.size(), 8));
+		maximumSize = Math.min((int)(slots.capacity * loadFactor),
+			slots.capacity - 1);
+		this.size = size;
+	}
+
+	// checks the load factor before allocating the table
+	private static SlotTable allocate(Codec<?> keyCodec, Codec<?> valueCodec,
+			long byteBudget, float loadFactor) {
+		checkLoadFactor(loadFactor);
+		return SlotTable.allocate(keyCodec.size(), valueCodec.size(),
+			byteBudget);
+	}
+
+	static void checkLoadFactor(float loadFactor) {
+		if (loadFactor <= 0 || loadFactor >= 1 || Float.isNaN(loadFactor))
+			throw new IllegalArgumentException(
+				"Illegal load factor: " + loadFactor);
+	}
+
+	/**
+	 * Returns the number of key-value mappings in this map.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map contains no key-value mappings.
+	 */
+	public boolean isEmpty() {
+		return size == 0 ? true : false;
+	}
+
+	/**
+	 * Returns the maximum number of mappings this map can hold.
+	 */
+	public int maximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Returns the value to which the specified key is mapped,
+	 * or {@code null} if this map contains no mapping for the key.
+	 */
+	public V get(Object key) {
+		int slot = find(key);
+		if (slot < 0)
+			return null;
+		return valueCodec.decode(slots.page(slot), slots.valueOffset(slot));
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map contains a mapping for the
+	 * specified key.
+	 */
+	public boolean containsKey(Object key) {
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map maps one or more keys to the
+	 * specified value, which requires decoding all the values.
+	 */
+	public boolean containsValue(Object value) {
+		SlotTable t = table();
+		for (int slot = 0; slot < t.capacity; slot++)
+			if (t.hashAt(slot) != 0 && valueCodec.decode(t.page(slot),
+			    t.valueOffset(slot)).equals(value))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Associates the specified value with the specified key in this map.
+	 * If the map previously contained a mapping for the key, the old
+	 * value is replaced and returned.
+	 */
+	public V put(K key, V value) {
+		if (value == null)
+			throw new NullPointerException();
+		int slot = find(key);
+		beforeModification();
+		if (slot >= 0) {
+			V oldValue = valueCodec.decode(slots.page(slot),
+				slots.valueOffset(slot));
+			valueCodec.encode(value, slots.page(slot),
+				slots.valueOffset(slot));
+			return oldValue;
+		}
+		slot = insertionSlot(slot);
+		valueCodec.encode(value, slots.page(slot), slots.valueOffset(slot));
+		publish(slot);
+		return null;
+	}
+
+	/**
+	 * Copies all of the mappings from the specified map to this map.
+	 */
+	public void putAll(Map<? extends K, ? extends V> m) {
+		for (Iterator<? extends Map.Entry<? extends K, ? extends V>> i =
+				m.entrySet().iterator(); i.hasNext(); ) {
+			Map.Entry<? extends K, ? extends V> e = i.next();
+			put(e.getKey(), e.getValue());
+		}
+	}
+
+	/**
+	 * Removes the mapping for the specified key from this map if present.
+	 * Returns null if the map contains no mapping for this key.
+	 */
+	public V remove(Object key) {
+		int slot = find(key);
+		if (slot < 0)
+			return null;
+		V oldValue = valueCodec.decode(slots.page(slot),
+			slots.valueOffset(slot));
+		removeSlot(slot);
+		return oldValue;
+	}
+
+	/**
+	 * Removes all of the mappings from this map.
+	 */
+	public void clear() {
+		table();
+		beforeModification();
+		slots.clear();
+		size = 0;
+	}
+
+	/**
+	 * Releases the direct memory of this map, which cannot be used
+	 * anymore. Closing a closed map has no effect.
+	 */
+	public void close() {
+		if (slots != null) {
+			slots.free();
+			slots = null;
+			size = 0;
+		}
+	}
+
+	// Primitive operations, for maps of Codec.LONG keys and values: the
+	// key is encoded as Codec.LONG does, and the value is read or written
+	// as is.
+
+	/**
+	 * Returns the value to which the specified key is mapped, or the
+	 * specified default value if this map contains no mapping for the key.
+	 */
+	public long getLong(long key, long defaultValue) {
+		int slot = findLong(key);
+		return slot < 0 ? defaultValue :
+			slots.page(slot).getLong(slots.valueOffset(slot));
+	}
+
+	/**
+	 * Associates the specified value with the specified key in this map.
+	 * Returns <tt>true</tt> if the key was not already contained.
+	 */
+	public boolean putLong(long key, long value) {
+		int slot = findLong(key);
+		beforeModification();
+		if (slot >= 0) {
+			slots.page(slot).putLong(slots.valueOffset(slot), value);
+			return false;
+		}
+		slot = insertionSlot(slot);
+		slots.page(slot).putLong(slots.valueOffset(slot), value);
+		publish(slot);
+		return true;
+	}
+
+	/**
+	 * Removes the mapping for the specified key from this map if present.
+	 * Returns <tt>true</tt> if the key was contained.
+	 */
+	public boolean removeLong(long key) {
+		int slot = findLong(key);
+		if (slot < 0)
+			return false;
+		removeSlot(slot);
+		return true;
+	}
+
+	// Probing
+
+	SlotTable table() {
+		if (slots == null)
+			throw new IllegalStateException("Map closed");
+		return slots;
+	}
+
+	// returns the slot of the key, or -(slot + 1) of its insertion slot,
+	// leaving the encoded key in keyBuffer
+	private int find(Object key) {
+		SlotTable t = table();
+		if (key == null)
+			throw new NullPointerException();
+		keyCodec.encode((K)key, keyBuffer, 0); // unchecked cast
+		return t.find(keyBuffer,
+			SlotTable.hash(keyBuffer, 0, t.keySize));
+	}
+
+	private int findLong(long key) {
+		SlotTable t = table();
+		if (t.keySize != 8 || t.valueSize != 8)
+			throw new UnsupportedOperationException();
+		keyBuffer.putLong(0, key);
+		return t.find(keyBuffer, SlotTable.hash(keyBuffer, 0, 8));
+	}
+
+	// returns the empty slot where the last search stopped, if the
+	// table can take one more mapping
+	private int insertionSlot(int notFound) {
+		if (size >= maximumSize)
+			throw new IllegalStateException("Byte budget exceeded");
+		return -(notFound + 1);
+	}
+
+	// fills the slot, whose value is already written, with the key left
+	// in keyBuffer by the last search: the hash marking it as used is
+	// written last
+	private void publish(int slot) {
+		slots.insert(slot, SlotTable.hash(keyBuffer, 0, slots.keySize),
+			keyBuffer);
+		size++;
+	}
+
+	private void removeSlot(int slot) {
+		beforeModification();
+		slots.remove(slot);
+		size--;
+	}
+
+	/**
+	 * Invoked before any change to the slots, so that a subclass keeping
+	 * them in a file can record that they are being modified.
+	 */
+	void beforeModification() {
+	}
+
+	// Views: each of them is created once and then cached
+
+	private Set<K> keySet;
+	private Collection<V> values;
+	private Set<Map.Entry<K,V>> entrySet;
+
+	/**
+	 * Returns a <tt>Set</tt> view of the keys contained in this map.
+	 * The set is backed by the map, so changes to the map are
+	 * reflected in the set, and vice-versa. The keys are decoded on the
+	 * fly.
+	 */
+	public Set<K> keySet() {
+		Set<K> ks = keySet;
+		return ks != null ? ks : (keySet = new KeySet());
+	}
+
+	private class KeySet extends java.util.AbstractSet<K> {
+		public int size() {
+			return size;
+		}
+
+		public boolean contains(Object o) {
+			return containsKey(o);
+		}
+
+		public Iterator<K> iterator() {
+			return new SlotIterator<K>() {
+				public K next() {
+					int slot = nextSlot();
+					return keyCodec.decode(slots.page(slot),
+						slots.keyOffset(slot));
+				}
+			};
+		}
+	}
+
+	/**
+	 * Returns a <tt>Collection</tt> view of the values contained in this
+	 * map. The collection is backed by the map, so changes to the map are
+	 * reflected in the collection, and vice-versa. The values are decoded
+	 * on the fly.
+	 */
+	public Collection<V> values() {
+		Collection<V> vs = values;
+		return vs != null ? vs : (values = new Values());
+	}
+
+	private class Values extends java.util.AbstractCollection<V> {
+		public int size() {
+			return size;
+		}
+
+		public Iterator<V> iterator() {
+			return new SlotIterator<V>() {
+				public V next() {
+					int slot = nextSlot();
+					return valueCodec.decode(slots.page(slot),
+						slots.valueOffset(slot));
+				}
+			};
+		}
+	}
+
+	/**
+	 * Returns a <tt>Set</tt> view of the mappings contained in this map.
+	 * The set is backed by the map, so changes to the map are
+	 * reflected in the set, and vice-versa. The entries are decoded on
+	 * the fly and write through to the map.
+	 */
+	public Set<Map.Entry<K,V>> entrySet() {
+		Set<Map.Entry<K,V>> es = entrySet;
+		return es != null ? es : (entrySet = new EntrySet());
+	}
+
+	private class EntrySet extends java.util.AbstractSet<Map.Entry<K,V>> {
+		public int size() {
+			return size;
+		}
+
+		public Iterator<Map.Entry<K,V>> iterator() {
+			return new SlotIterator<Map.Entry<K,V>>() {
+				public Map.Entry<K,V> next() {
+					return new SlotEntry(nextSlot());
+				}
+			};
+		}
+	}
+
+	private class SlotEntry implements Map.Entry<K,V> {
+		private final K key;
+		private V value;
+
+		SlotEntry(int slot) {
+			key = keyCodec.decode(slots.page(slot), slots.keyOffset(slot));
+			value = valueCodec.decode(slots.page(slot),
+				slots.valueOffset(slot));
+		}
+
+		public K getKey() {
+			return key;
+		}
+
+		public V getValue() {
+			return value;
+		}
+
+		public V setValue(V v) {
+			V val = value;
+			put(key, v);
+			value = v;
+			return val;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Map.Entry))
+				return false;
+			Object k = ((Map.Entry<?,?>)o).getKey();
+			Object v = ((Map.Entry<?,?>)o).getValue();
+			return key.equals(k) && value.equals(v);
+		}
+
+		public int hashCode() {
+			return key.hashCode() ^ value.hashCode();
+		}
+	}
+
+	/**
+	 * Provides a skeletal implementation of an iterator over the slots of
+	 * this map, like the one of <tt>RobinHoodHashMap</tt>: the scan starts
+	 * right after an empty slot and wraps around, so that the backward
+	 * shift done by remove() only moves entries not yet returned into the
+	 * current slot, which is then examined again.
+	 */
+	private abstract class SlotIterator<T> implements Iterator<T> {
+		private int index;
+		private int remaining;
+		private int currSlot;
+
+		SlotIterator() {
+			SlotTable t = table();
+			int start = 0;
+			while (t.hashAt(start) != 0)
+				start++;
+			index = start;
+			remaining = t.capacity;
+			currSlot = -1;
+			skipEmpty();
+		}
+
+		private void skipEmpty() {
+			while (remaining > 0 && slots.hashAt(index) == 0) {
+				index = (index + 1) & (slots.capacity - 1);
+				remaining--;
+			}
+		}
+
+		public boolean hasNext() {
+			return remaining > 0 ? true : false;
+		}
+
+		// the next() method has to be implemented for the specific
+		// type T, making use of the nextSlot() method here below.
+		public abstract T next();
+
+		int nextSlot() {
+			if (remaining == 0)
+				throw new java.util.NoSuchElementException();
+			currSlot = index;
+			index = (index + 1) & (slots.capacity - 1);
+			remaining--;
+			skipEmpty();
+			return currSlot;
+		}
+
+		public void remove() {
+			if (currSlot < 0)
+				throw new IllegalStateException();
+			removeSlot(currSlot);
+			// an entry may have been shifted into the current slot
+			if (slots.hashAt(currSlot) != 0) {
+				index = currSlot;
+				remaining++;
+			}
+			currSlot = -1;
+		}
+	}
+
+	// Comparison and hashing
+
+	/**
+	 * Compares the specified object with this map for equality.  Returns
+	 * <tt>true</tt> if the given object is also a map and the two maps
+	 * represent the same mappings.
+	 */
+	public boolean equals(Object o) {
+		// trivial check
+		if (o == this)
+			return true;
+
+		// check that it's an instance of Map
+		if (!(o instanceof Map))
+			return false;
+		Map<?,?> m = (Map<?,?>)o;
+
+		// check that the size is the same and that each mapping is
+		// contained in the other map
+		if (m.size() != size)
+			return false;
+		for (Iterator<Map.Entry<K,V>> i = entrySet().iterator();
+		     i.hasNext(); ) {
+			Map.Entry<K,V> e = i.next();
+			if (!e.getValue().equals(m.get(e.getKey())))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the hash code value for this map, the sum of the hash codes
+	 * of each entry in the map's <tt>entrySet()</tt> view.
+	 */
+	public int hashCode() {
+		int hash = 0;
+		for (Iterator<Map.Entry<K,V>> i = entrySet().iterator();
+		     i.hasNext(); )
+			hash += i.next().hashCode();
+		return hash;
+	}
+
+}
@@ -0,0 +1,35 @@
+/*
+ * RemovalListener.java - listener of removed mappings
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+/**
+ * Notified of the mappings removed from an <tt>ExpiringMap</tt>, whether
+ * they expired, were replaced or were removed explicitly.
+ */
+
+public interface RemovalListener<K,V>
+{
+	/**
+	 * The reason why a mapping was removed.
+	 */
+	enum Cause {
+		/** removed by <tt>remove</tt> or <tt>clear</tt> */
+		EXPLICIT,
+		/** its value was replaced by <tt>put</tt> */
+		REPLACED,
+		/** its time-to-live elapsed */
+		EXPIRED
+	}
+
+	/**
+	 * Invoked after the specified mapping has been removed. The listener
+	 * must not modify the map.
+	 */
+	void onRemoval(K key, V value, Cause cause);
+}
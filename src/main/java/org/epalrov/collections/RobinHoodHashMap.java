@@ -0,0 +1,538 @@
+/*
+ * RobinHoodHashMap.java - example of Open Addressing Hash Map implementation
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Open addressing hash table implementation of the <tt>Map</tt> interface.
+ *
+ * <p>Instead of chaining <tt>Entry</tt> objects, the mappings are stored in
+ * three parallel arrays holding the cached hashes, the keys and the values.
+ * A lookup probes consecutive slots of the same arrays, which avoids the
+ * pointer chasing of the chained <tt>HashMap</tt> and the memory of one
+ * object per mapping.
+ *
+ * <p>Collisions are resolved by Robin Hood linear probing: while inserting,
+ * an entry that is farther from its home slot than the one it meets takes
+ * its place, and the displaced entry moves on. This keeps the probe
+ * sequences short and even, and lets an unsuccessful lookup stop as soon as
+ * it meets an entry closer to its home slot than the searched key would be.
+ * Removal shifts the following entries of the cluster one slot backward, so
+ * that no tombstones are needed.
+ *
+ * <p>Note that this implementation is not synchronized.
+ */
+
+public class RobinHoodHashMap<K,V> implements Map<K,V>
+{
+	private int[] hashes; // 0 marks an empty slot
+	private Object[] keys;
+	private Object[] values;
+	private int size;
+	private int threshold;
+	private final float loadFactor;
+
+	/**
+	 * Constructs an empty <tt>RobinHoodHashMap</tt> with the specified
+	 * capacity and load factor. The capacity is rounded up to the next
+	 * power of two.
+	 */
+	public RobinHoodHashMap(int capacity, float loadFactor) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException(
+				"Illegal capacity: " + capacity);
+		if (loadFactor <= 0 || loadFactor >= 1 || Float.isNaN(loadFactor))
+			throw new IllegalArgumentException(
+				"Illegal load factor: " + loadFactor);
+		this.loadFactor = loadFactor;
+		allocate(HashMap.tableSizeFor(capacity));
+		size = 0;
+	}
+
+	/**
+	 * Constructs an empty <tt>RobinHoodHashMap</tt> with the specified
+	 * capacity and the default load factor (0.75).
+	 */
+	public RobinHoodHashMap(int capacity) {
+		this(capacity, HashMap.DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+	 * Constructs an empty <tt>RobinHoodHashMap</tt> with the default
+	 * capacity (16) and the default load factor (0.75).
+	 */
+	public RobinHoodHashMap() {
+		this(HashMap.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Returns the number of key-value mappings in this map.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map contains no key-value mappings.
+	 */
+	public boolean isEmpty() {
+		return size == 0 ? true : false;
+	}
+
+	/**
+	 * Returns the value to which the specified key is mapped,
+	 * or {@code null} if this map contains no mapping for the key.
+	 */
+	public V get(Object key) {
+		int index = indexOf(key);
+		return index < 0 ? null : (V)values[index]; // unchecked cast
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map contains a mapping for the
+	 * specified key.
+	 */
+	public boolean containsKey(Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map maps one or more keys to the
+	 * specified value.
+	 */
+	public boolean containsValue(Object value) {
+		for (int index = 0; index < hashes.length; index++)
+			if (hashes[index] != 0 && (value == values[index] ||
+			   (value != null && value.equals(values[index]))))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Associates the specified value with the specified key in this map.
+	 * If the map previously contained a mapping for the key, the old
+	 * value is replaced.
+	 */
+	public V put(K key, V value) {
+		int hash = hash(key);
+		int mask = hashes.length - 1;
+		int index = hash & mask;
+
+		// look for the key until a richer slot is met: past that
+		// point the key cannot be found in the cluster
+		for (int dist = 0; ; dist++) {
+			int h = hashes[index];
+			if (h == 0)
+				break;
+			if (h == hash && (key == keys[index] ||
+			   (key != null && key.equals(keys[index])))) {
+				V oldValue = (V)values[index]; // unchecked cast
+				values[index] = value;
+				return oldValue;
+			}
+			if (probeDistance(h, index, mask) < dist)
+				break;
+			index = (index + 1) & mask;
+		}
+
+		// insert the new mapping, growing the table first if needed
+		if (size >= threshold)
+			allocate(hashes.length << 1);
+		insert(hash, key, value);
+		size++;
+		return null;
+	}
+
+	/**
+	 * Copies all of the mappings from the specified map to this map.
+	 */
+	public void putAll(Map<? extends K, ? extends V> m) {
+		if (m.size() == 0)
+			return;
+
+		for (Iterator<? extends Map.Entry<? extends K, ? extends V>> i =
+				m.entrySet().iterator(); i.hasNext(); ) {
+			Map.Entry<? extends K, ? extends V> e = i.next();
+			put(e.getKey(), e.getValue());
+		}
+	}
+
+	/**
+	 * Removes the mapping for the specified key from this map if present.
+	 * Returns null if the map contains no mapping for this key.
+	 */
+	public V remove(Object key) {
+		int index = indexOf(key);
+		if (index < 0)
+			return null;
+		V oldValue = (V)values[index]; // unchecked cast
+		removeSlot(index);
+		return oldValue;
+	}
+
+	/**
+	 * Removes all of the mappings from this map.
+	 */
+	public void clear() {
+		for (int index = 0; index < hashes.length; index++) {
+			hashes[index] = 0;
+			keys[index] = null;
+			values[index] = null;
+		}
+		size = 0;
+	}
+
+	// Probing
+
+	/**
+	 * Returns the spread hash of the key, with the sign bit set so that
+	 * it never equals the empty slot marker. The bucket index only
+	 * depends on the lower bits.
+	 */
+	private static int hash(Object key) {
+		return HashMap.hash(key) | 0x80000000;
+	}
+
+	/**
+	 * Returns how far the entry at the specified slot is from the slot
+	 * it would occupy without collisions.
+	 */
+	private static int probeDistance(int hash, int index, int mask) {
+		return (index - hash) & mask;
+	}
+
+	private int indexOf(Object key) {
+		int hash = hash(key);
+		int mask = hashes.length - 1;
+		int index = hash & mask;
+
+		for (int dist = 0; ; dist++) {
+			int h = hashes[index];
+			if (h == 0 || probeDistance(h, index, mask) < dist)
+				return -1;
+			if (h == hash && (key == keys[index] ||
+			   (key != null && key.equals(keys[index]))))
+				return index;
+			index = (index + 1) & mask;
+		}
+	}
+
+	/**
+	 * Inserts a mapping known not to be in the table: whenever the
+	 * carried entry is farther from home than the resident one, they
+	 * swap and the resident entry continues the probe.
+	 */
+	private void insert(int hash, Object key, Object value) {
+		int mask = hashes.length - 1;
+		int index = hash & mask;
+
+		for (int dist = 0; ; dist++) {
+			int h = hashes[index];
+			if (h == 0) {
+				hashes[index] = hash;
+				keys[index] = key;
+				values[index] = value;
+				return;
+			}
+			int d = probeDistance(h, index, mask);
+			if (d < dist) {
+				Object k = keys[index];
+				Object v = values[index];
+				hashes[index] = hash;
+				keys[index] = key;
+				values[index] = value;
+				hash = h;
+				key = k;
+				value = v;
+				dist = d;
+			}
+			index = (index + 1) & mask;
+		}
+	}
+
+	/**
+	 * Empties the specified slot, shifting back by one slot the entries
+	 * that follow it in the cluster and are not in their home slot.
+	 */
+	private void removeSlot(int index) {
+		int mask = hashes.length - 1;
+		int next = (index + 1) & mask;
+
+		while (hashes[next] != 0 &&
+		       probeDistance(hashes[next], next, mask) > 0) {
+			hashes[index] = hashes[next];
+			keys[index] = keys[next];
+			values[index] = values[next];
+			index = next;
+			next = (next + 1) & mask;
+		}
+		hashes[index] = 0;
+		keys[index] = null;
+		values[index] = null;
+		size--;
+	}
+
+	/**
+	 * Allocates the arrays with the specified length, reinserting the
+	 * current mappings if any.
+	 */
+	private void allocate(int length) {
+		int[] oldHashes = hashes;
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+
+		if (length > HashMap.MAXIMUM_CAPACITY)
+			throw new IllegalStateException("Capacity exceeded");
+		hashes = new int[length];
+		keys = new Object[length];
+		values = new Object[length];
+		// keep at least one empty slot, probing relies on it
+		threshold = Math.min((int)(length * loadFactor), length - 1);
+
+		if (oldHashes != null)
+			for (int index = 0; index < oldHashes.length; index++)
+				if (oldHashes[index] != 0)
+					insert(oldHashes[index], oldKeys[index],
+						oldValues[index]);
+	}
+
+	// Views: each of them is created once and then cached
+
+	private Set<K> keySet;
+	private Collection<V> valuesView;
+	private Set<Map.Entry<K,V>> entrySet;
+
+	/**
+	 * Returns a <tt>Set</tt> view of the keys contained in this map.
+	 * The set is backed by the map, so changes to the map are
+	 * reflected in the set, and vice-versa.
+	 */
+	public Set<K> keySet() {
+		Set<K> ks = keySet;
+		return ks != null ? ks : (keySet = new KeySet());
+	}
+
+	private class KeySet extends java.util.AbstractSet<K> {
+		public int size() {
+			return size;
+		}
+
+		public Iterator<K> iterator() {
+			return new SlotIterator<K>() {
+				public K next() {
+					return (K)keys[nextSlot()]; // unchecked cast
+				}
+			};
+		}
+	}
+
+	/**
+	 * Returns a <tt>Collection</tt> view of the values contained in this
+	 * map. The collection is backed by the map, so changes to the map are
+	 * reflected in the collection, and vice-versa.
+	 */
+	public Collection<V> values() {
+		Collection<V> vs = valuesView;
+		return vs != null ? vs : (valuesView = new Values());
+	}
+
+	private class Values extends java.util.AbstractCollection<V> {
+		public int size() {
+			return size;
+		}
+
+		public Iterator<V> iterator() {
+			return new SlotIterator<V>() {
+				public V next() {
+					return (V)values[nextSlot()]; // unchecked cast
+				}
+			};
+		}
+	}
+
+	/**
+	 * Returns a <tt>Set</tt> view of the mappings contained in this map.
+	 * The set is backed by the map, so changes to the map are
+	 * reflected in the set, and vice-versa. The entries are created on
+	 * the fly and write through to the map.
+	 */
+	public Set<Map.Entry<K,V>> entrySet() {
+		Set<Map.Entry<K,V>> es = entrySet;
+		return es != null ? es : (entrySet = new EntrySet());
+	}
+
+	private class EntrySet extends java.util.AbstractSet<Map.Entry<K,V>> {
+		public int size() {
+			return size;
+		}
+
+		public Iterator<Map.Entry<K,V>> iterator() {
+			return new SlotIterator<Map.Entry<K,V>>() {
+				public Map.Entry<K,V> next() {
+					return new SlotEntry(nextSlot());
+				}
+			};
+		}
+	}
+
+	private class SlotEntry implements Map.Entry<K,V> {
+		private final K key;
+		private V value;
+
+		SlotEntry(int index) {
+			key = (K)keys[index]; // unchecked cast
+			value = (V)values[index]; // unchecked cast
+		}
+
+		public K getKey() {
+			return key;
+		}
+
+		public V getValue() {
+			return value;
+		}
+
+		public V setValue(V v) {
+			V val = value;
+			value = v;
+			put(key, v);
+			return val;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Map.Entry))
+				return false;
+			Object k = ((Map.Entry<?,?>)o).getKey();
+			Object v = ((Map.Entry<?,?>)o).getValue();
+			return (key == k || (key != null && key.equals(k))) &&
+				(value == v || (value != null && value.equals(v)));
+		}
+
+		public int hashCode() {
+			return (key == null ? 0 : key.hashCode()) ^
+				(value == null ? 0 : value.hashCode());
+		}
+	}
+
+	/**
+	 * Provides a skeletal implementation of an iterator over the slots of
+	 * this map. The scan starts right after an empty slot and wraps around:
+	 * since a cluster never spans an empty slot, the backward shift done
+	 * by remove() only moves entries not yet returned into the current
+	 * slot, which is then examined again.
+	 */
+	private abstract class SlotIterator<T> implements Iterator<T> {
+		private int index;
+		private int remaining;
+		private int currSlot;
+
+		SlotIterator() {
+			int start = 0;
+			while (hashes[start] != 0)
+				start++;
+			index = start;
+			remaining = hashes.length;
+			currSlot = -1;
+			skipEmpty();
+		}
+
+		private void skipEmpty() {
+			while (remaining > 0 && hashes[index] == 0) {
+				index = (index + 1) & (hashes.length - 1);
+				remaining--;
+			}
+		}
+
+		public boolean hasNext() {
+			return remaining > 0 ? true : false;
+		}
+
+		// the next() method has to be implemented for the specific
+		// type T, making use of the nextSlot() method here below.
+		public abstract T next();
+
+		int nextSlot() {
+			if (remaining == 0)
+				throw new java.util.NoSuchElementException();
+			currSlot = index;
+			index = (index + 1) & (hashes.length - 1);
+			remaining--;
+			skipEmpty();
+			return currSlot;
+		}
+
+		public void remove() {
+			if (currSlot < 0)
+				throw new IllegalStateException();
+			removeSlot(currSlot);
+			// an entry may have been shifted into the current slot
+			if (hashes[currSlot] != 0) {
+				index = currSlot;
+				remaining++;
+			}
+			currSlot = -1;
+		}
+	}
+
+	// Comparison and hashing
+
+	/**
+	 * Compares the specified object with this map for equality.  Returns
+	 * <tt>true</tt> if the given object is also a map and the two maps
+	 * represent the same mappings.
+	 */
+	public boolean equals(Object o) {
+		// trivial check
+		if (o == this)
+			return true;
+
+		// check that it's an instance of Map
+		if (!(o instanceof Map))
+			return false;
+		Map<?,?> m = (Map<?,?>)o;
+
+		// check that the size is the same and that each mapping is
+		// contained in the other map
+		if (m.size() != size)
+			return false;
+		for (int index = 0; index < hashes.length; index++) {
+			if (hashes[index] == 0)
+				continue;
+			Object key = keys[index];
+			Object value = values[index];
+			if (value == null) {
+				if (m.get(key) != null || !m.containsKey(key))
+					return false;
+			} else if (!value.equals(m.get(key))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the hash code value for this map, the sum of the hash codes
+	 * of each entry in the map's <tt>entrySet()</tt> view.
+	 */
+	public int hashCode() {
+		int hash = 0;
+		for (int index = 0; index < hashes.length; index++)
+			if (hashes[index] != 0)
+				hash += (keys[index] == null ? 0 :
+					keys[index].hashCode()) ^
+					(values[index] == null ? 0 :
+					values[index].hashCode());
+		return hash;
+	}
+
+}
@@ -0,0 +1,306 @@
+/*
+ * SlotTable.java - example of off-heap open addressing table
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Open addressing hash table of fixed width slots, stored in byte buffers
+ * rather than in Java objects: the building block of the off-heap maps.
+ *
+ * <p>A slot holds the hash of its key (0 marks an empty slot), the encoded
+ * key and the encoded value. Since a <tt>ByteBuffer</tt> is limited to 2GB,
+ * the slots are split among pages of a power of two number of slots each.
+ * Keys are compared and hashed by their encoding. Collisions are resolved by
+ * linear probing and removal shifts the following entries of the cluster
+ * backward, as in <tt>IntIntMap</tt>. The table never grows: the map using
+ * it must keep at least one slot empty.
+ */
+
+final class SlotTable
+{
+	static final int HEADER = 4;
+	static final int MAXIMUM_PAGE = 1 << 30;
+
+	private final ByteBuffer[] pages;
+	private final int pageShift;
+	private final int pageMask;
+	final int capacity;
+	final int keySize;
+	final int valueSize;
+	final int slotSize;
+
+	/**
+	 * Wraps the specified pages, each of them holding
+	 * <tt>pageSlots(...)</tt> slots, in a table of the given capacity.
+	 */
+	SlotTable(ByteBuffer[] pages, int capacity, int keySize, int valueSize) {
+		this.pages = pages;
+		this.capacity = capacity;
+		this.keySize = keySize;
+		this.valueSize = valueSize;
+		slotSize = HEADER + keySize + valueSize;
+		int slots = pageSlots(slotSize, capacity);
+		pageShift = Integer.numberOfTrailingZeros(slots);
+		pageMask = slots - 1;
+	}
+
+	/**
+	 * Allocates in direct memory the largest table, with a power of two
+	 * number of slots, which fits in the specified number of bytes.
+	 */
+	static SlotTable allocate(int keySize, int valueSize, long byteBudget) {
+		int slotSize = HEADER + keySize + valueSize;
+		int capacity = capacityFor(slotSize, byteBudget);
+		int slots = pageSlots(slotSize, capacity);
+		ByteBuffer[] pages = new ByteBuffer[capacity / slots];
+		try {
+			for (int i = 0; i < pages.length; i++)
+				pages[i] = ByteBuffer.allocateDirect(slots * slotSize);
+		} catch (OutOfMemoryError e) {
+			for (int i = 0; i < pages.length; i++)
+				free(pages[i]);
+			throw e;
+		}
+		return new SlotTable(pages, capacity, keySize, valueSize);
+	}
+
+	/**
+	 * Returns the largest power of two number of slots of the specified
+	 * size fitting in the given number of bytes.
+	 */
+	static int capacityFor(int slotSize, long byteBudget) {
+		long slots = byteBudget / slotSize;
+		if (slots < 2)
+			throw new IllegalArgumentException(
+				"Illegal byte budget: " + byteBudget);
+		return Integer.highestOneBit(
+			(int)Math.min(slots, HashMap.MAXIMUM_CAPACITY));
+	}
+
+	/**
+	 * Returns the number of slots of a page: a power of two, no more than
+	 * the capacity, whose slots fit in MAXIMUM_PAGE bytes.
+	 */
+	static int pageSlots(int slotSize, int capacity) {
+		int slots = Integer.highestOneBit(MAXIMUM_PAGE / slotSize);
+		return Math.min(slots, capacity);
+	}
+
+	// Slot layout
+
+	ByteBuffer page(int slot) {
+		return pages[slot >>> pageShift];
+	}
+
+	int offset(int slot) {
+		return (slot & pageMask) * slotSize;
+	}
+
+	int hashAt(int slot) {
+		return page(slot).getInt(offset(slot));
+	}
+
+	int keyOffset(int slot) {
+		return offset(slot) + HEADER;
+	}
+
+	int valueOffset(int slot) {
+		return offset(slot) + HEADER + keySize;
+	}
+
+	// Probing
+
+	/**
+	 * Hashes an encoded key. The result is never 0, which marks the
+	 * empty slots.
+	 */
+	static int hash(ByteBuffer buffer, int offset, int length) {
+		long h = 0x9e3779b97f4a7c15L ^ length;
+		int i = 0;
+		for ( ; i + 8 <= length; i += 8) {
+			h ^= buffer.getLong(offset + i) * 0xc2b2ae3d27d4eb4fL;
+			h = Long.rotateLeft(h, 31) * 0x9e3779b97f4a7c15L;
+		}
+		for ( ; i < length; i++) {
+			h ^= (buffer.get(offset + i) & 0xffL) * 0xc2b2ae3d27d4eb4fL;
+			h = Long.rotateLeft(h, 31) * 0x9e3779b97f4a7c15L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		return (int)h | 0x80000000;
+	}
+
+	/**
+	 * Searches the key encoded at the beginning of the specified buffer.
+	 * Returns its slot, or -(slot + 1) where slot is the empty slot at
+	 * which it would be inserted.
+	 */
+	int find(ByteBuffer key, int hash) {
+		int mask = capacity - 1;
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+			int h = hashAt(slot);
+			if (h == 0)
+				return -(slot + 1);
+			if (h == hash && keyEquals(slot, key))
+				return slot;
+		}
+	}
+
+	private boolean keyEquals(int slot, ByteBuffer key) {
+		ByteBuffer page = page(slot);
+		int offset = keyOffset(slot);
+		int i = 0;
+		for ( ; i + 8 <= keySize; i += 8)
+			if (page.getLong(offset + i) != key.getLong(i))
+				return false;
+		for ( ; i < keySize; i++)
+			if (page.get(offset + i) != key.get(i))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Fills the specified empty slot with the key encoded at the beginning
+	 * of the buffer and with its hash, written last so that the slot is
+	 * not seen as used before its key is in place. The value may be
+	 * written by the caller before or after.
+	 */
+	void insert(int slot, int hash, ByteBuffer key) {
+		ByteBuffer page = page(slot);
+		int offset = keyOffset(slot);
+		int i = 0;
+		for ( ; i + 8 <= keySize; i += 8)
+			page.putLong(offset + i, key.getLong(i));
+		for ( ; i < keySize; i++)
+			page.put(offset + i, key.get(i));
+		page.putInt(offset(slot), hash);
+	}
+
+	/**
+	 * Empties the specified slot, moving back the following entries of
+	 * the cluster whose home slot does not lie between the hole and them.
+	 */
+	void remove(int slot) {
+		int mask = capacity - 1;
+		int next = (slot + 1) & mask;
+
+		for (int h; (h = hashAt(next)) != 0; next = (next + 1) & mask) {
+			int home = h & mask;
+			if (((next - home) & mask) >= ((next - slot) & mask)) {
+				copy(next, slot);
+				slot = next;
+			}
+		}
+		page(slot).putInt(offset(slot), 0);
+	}
+
+	private void copy(int from, int to) {
+		ByteBuffer src = page(from), dst = page(to);
+		int s = offset(from), d = offset(to);
+		int i = 0;
+		for ( ; i + 8 <= slotSize; i += 8)
+			dst.putLong(d + i, src.getLong(s + i));
+		for ( ; i < slotSize; i++)
+			dst.put(d + i, src.get(s + i));
+	}
+
+	/**
+	 * Repairs a table whose updates may have been interrupted, and returns
+	 * the number of its entries. A slot whose hash does not match its key
+	 * was being filled, or overwritten by a backward shift, and is emptied;
+	 * a key found twice was being shifted, and its second copy is removed.
+	 * Either way the remaining entries are moved back as by remove(), so
+	 * that all of them can be found again.
+	 */
+	int repair() {
+		ByteBuffer key = ByteBuffer.allocate(Math.max(keySize, 8));
+		for (int slot = 0; slot < capacity; slot++) {
+			int h = hashAt(slot);
+			if (h == 0)
+				continue;
+			ByteBuffer page = page(slot);
+			int offset = keyOffset(slot);
+			for (int i = 0; i < keySize; i++)
+				key.put(i, page.get(offset + i));
+			if (h != hash(key, 0, keySize) || find(key, h) != slot) {
+				remove(slot);
+				slot--; // examine the shifted entry, if any
+			}
+		}
+
+		int count = 0;
+		for (int slot = 0; slot < capacity; slot++)
+			if (hashAt(slot) != 0)
+				count++;
+		return count;
+	}
+
+	/**
+	 * Empties all the slots.
+	 */
+	void clear() {
+		for (int slot = 0; slot < capacity; slot++)
+			page(slot).putInt(offset(slot), 0);
+	}
+
+	/**
+	 * Writes the changes to the pages mapped from a file to the storage
+	 * device. Pages allocated in memory are left alone.
+	 */
+	void force() {
+		for (int i = 0; i < pages.length; i++)
+			if (pages[i] instanceof java.nio.MappedByteBuffer)
+				((java.nio.MappedByteBuffer)pages[i]).force();
+	}
+
+	/**
+	 * Releases the memory of the pages right away, rather than when they
+	 * are garbage collected. The table must not be used afterwards.
+	 */
+	void free() {
+		for (int i = 0; i < pages.length; i++) {
+			free(pages[i]);
+			pages[i] = null;
+		}
+	}
+
+	/**
+	 * Runs the cleaner of a direct or mapped buffer. There is no public
+	 * API for it: the JDK internals are reached by reflection, and if
+	 * they are not accessible the memory is left to the garbage collector.
+	 */
+	static void free(ByteBuffer buffer) {
+		if (buffer == null || !buffer.isDirect())
+			return;
+		try {
+			// Java 9 and later
+			Class<?> c = Class.forName("sun.misc.Unsafe");
+			java.lang.reflect.Field f = c.getDeclaredField("theUnsafe");
+			f.setAccessible(true);
+			c.getMethod("invokeCleaner", ByteBuffer.class)
+				.invoke(f.get(null), buffer);
+		} catch (NoSuchMethodException e) {
+			try {
+				// Java 8
+				java.lang.reflect.Method m =
+					buffer.getClass().getMethod("cleaner");
+				m.setAccessible(true);
+				Object cleaner = m.invoke(buffer);
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			} catch (Exception x) {
+				// left to the garbage collector
+			}
+		} catch (Exception e) {
+			// left to the garbage collector
+		}
+	}
+
+}
@@ -0,0 +1,441 @@
+/*
+ * SpillingHashMap.java - example of spill-to-disk Hash Map implementation
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Hash map which keeps within a budget of heap memory by spilling part of
+ * its mappings to local files, for instance as the build side of a grace
+ * hash join larger than the heap.
+ *
+ * <p>The keys are partitioned by their mixed hash code; each partition is
+ * either <i>resident</i>, a <tt>HashMap</tt> on the heap, or
+ * <i>spilled</i>, a file of records encoded by a <tt>Codec</tt> of fixed
+ * width. The heap taken by a resident mapping is estimated from the size
+ * of the codecs plus a fixed overhead for the entry and the two objects.
+ * Whenever the resident mappings exceed the budget, the least recently
+ * used resident partition is written out in one sequential pass and its
+ * <tt>HashMap</tt> dropped.
+ *
+ * <p>A <tt>put</tt> into a spilled partition only appends a record to its
+ * file, through a small buffer, so that a build phase never reads the
+ * disk. Any other operation on a spilled partition pages it back in: the
+ * file is read sequentially, the later records of a key replacing the
+ * earlier ones, after spilling other partitions to make room. A single
+ * partition must therefore fit in the budget. Lookups grouped by
+ * <tt>partitionOf()</tt>, as the probe side of a grace hash join is, page
+ * in each partition once.
+ *
+ * <p>Until its partition is paged in, a key put again into a spilled
+ * partition is counted twice by <tt>size()</tt>. I/O errors are thrown as
+ * <tt>UncheckedIOException</tt>. Null keys and values are not allowed.
+ *
+ * <p>The files are deleted by <tt>close()</tt>, after which the map can no
+ * longer be used. Note that this implementation is not synchronized.
+ */
+
+public class SpillingHashMap<K,V> implements AutoCloseable
+{
+	static final int DEFAULT_PARTITIONS = 64;
+	static final int MAXIMUM_PARTITIONS = 1 << 16;
+	static final int MAPPING_OVERHEAD = 64;
+	static final int IO_BUFFER = 1 << 20;
+	static final int APPEND_BUFFER = 1 << 13;
+
+	private final Codec<K> keyCodec;
+	private final Codec<V> valueCodec;
+	private final int recordSize;
+	private final long maximumResident;
+	private final Path directory;
+	private final Partition<K,V>[] partitions;
+	private final int shift;
+	private ByteBuffer buffer; // null once closed
+
+	private long residentSize;
+	private long spilledSize;
+	private long clock;
+	private long spillCount;
+	private long loadCount;
+
+	/**
+	 * Constructs an empty <tt>SpillingHashMap</tt> keeping on the heap at
+	 * most the specified number of bytes of mappings, split in the given
+	 * number of partitions (rounded up to a power of two), spilled to
+	 * files in the specified directory.
+	 */
+	@SuppressWarnings("unchecked")
+	public SpillingHashMap(Codec<K> keyCodec, Codec<V> valueCodec,
+			long heapBudget, int partitionCount, Path directory) {
+		if (partitionCount <= 0 || partitionCount > MAXIMUM_PARTITIONS)
+			throw new IllegalArgumentException(
+				"Illegal partition count: " + partitionCount);
+		if (!Files.isDirectory(directory))
+			throw new IllegalArgumentException(
+				"Not a directory: " + directory);
+		this.keyCodec = keyCodec;
+		this.valueCodec = valueCodec;
+		this.directory = directory;
+		recordSize = keyCodec.size() + valueCodec.size();
+		maximumResident = heapBudget / (MAPPING_OVERHEAD + recordSize);
+		if (maximumResident <= 0)
+			throw new IllegalArgumentException(
+				"Illegal heap budget: " + heapBudget);
+
+		int n = HashMap.tableSizeFor(partitionCount);
+		shift = 32 - Integer.numberOfTrailingZeros(n);
+		partitions = new Partition[n];
+		for (int i = 0; i < n; i++)
+			partitions[i] = new Partition<K,V>();
+		buffer = ByteBuffer.allocateDirect(
+			IO_BUFFER / recordSize * recordSize);
+	}
+
+	/**
+	 * Constructs an empty <tt>SpillingHashMap</tt> keeping on the heap at
+	 * most the specified number of bytes of mappings, in the default
+	 * number of partitions (64).
+	 */
+	public SpillingHashMap(Codec<K> keyCodec, Codec<V> valueCodec,
+			long heapBudget, Path directory) {
+		this(keyCodec, valueCodec, heapBudget, DEFAULT_PARTITIONS,
+			directory);
+	}
+
+	/**
+	 * Returns the number of mappings in this map, resident or spilled.
+	 */
+	public long size() {
+		return residentSize + spilledSize;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map contains no mappings.
+	 */
+	public boolean isEmpty() {
+		return size() == 0 ? true : false;
+	}
+
+	/**
+	 * Returns the number of mappings held on the heap.
+	 */
+	public long residentSize() {
+		return residentSize;
+	}
+
+	/**
+	 * Returns the number of partitions of this map.
+	 */
+	public int partitionCount() {
+		return partitions.length;
+	}
+
+	/**
+	 * Returns the partition of the specified key.
+	 */
+	public int partitionOf(Object key) {
+		// the high bits of the mixed hash, independent from the bins
+		return (int)((HashingStrategy.mix(key.hashCode()) & 0xffffffffL)
+			>>> shift);
+	}
+
+	/**
+	 * Returns the value to which the specified key is mapped, or null if
+	 * this map contains no mapping for the key. The partition of the key
+	 * is paged in if spilled.
+	 */
+	public V get(Object key) {
+		return resident(key).get(key);
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this map contains a mapping for the
+	 * specified key. The partition of the key is paged in if spilled.
+	 */
+	public boolean containsKey(Object key) {
+		return resident(key).containsKey(key);
+	}
+
+	/**
+	 * Associates the specified value with the specified key in this map.
+	 * In a spilled partition the mapping is appended to its file.
+	 */
+	public void put(K key, V value) {
+		if (key == null || value == null)
+			throw new NullPointerException();
+		checkOpen();
+		Partition<K,V> p = partitions[partitionOf(key)];
+		p.lastAccess = ++clock;
+		if (p.map == null) {
+			append(p, key, value);
+		} else if (p.map.put(key, value) == null) {
+			residentSize++;
+			while (residentSize > maximumResident)
+				spill(coldest(p, true));
+		}
+	}
+
+	/**
+	 * Removes the mapping for the specified key from this map if present,
+	 * and returns its value, or null if there was none. The partition of
+	 * the key is paged in if spilled.
+	 */
+	public V remove(Object key) {
+		V value = resident(key).remove(key);
+		if (value != null)
+			residentSize--;
+		return value;
+	}
+
+	/**
+	 * Removes all of the mappings from this map, emptying its files.
+	 */
+	public void clear() {
+		checkOpen();
+		for (int i = 0; i < partitions.length; i++) {
+			Partition<K,V> p = partitions[i];
+			p.map = new HashMap<K,V>();
+			p.records = 0;
+			p.pending = null;
+			if (p.channel != null)
+				truncate(p);
+		}
+		residentSize = spilledSize = 0;
+	}
+
+	/**
+	 * Closes the files of this map and deletes them. Closing a closed map
+	 * has no effect.
+	 */
+	public void close() {
+		if (buffer == null)
+			return;
+		buffer = null;
+		IOException failure = null;
+		for (int i = 0; i < partitions.length; i++) {
+			Partition<K,V> p = partitions[i];
+			p.map = null;
+			p.pending = null;
+			try {
+				if (p.channel != null) {
+					p.channel.close();
+					Files.deleteIfExists(p.file);
+				}
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		if (failure != null)
+			throw new UncheckedIOException(failure);
+	}
+
+	// Statistics
+
+	/**
+	 * Returns the number of times a partition was spilled to its file.
+	 */
+	public long spillCount() {
+		return spillCount;
+	}
+
+	/**
+	 * Returns the number of times a partition was paged back in.
+	 */
+	public long loadCount() {
+		return loadCount;
+	}
+
+	// Partitions
+
+	/**
+	 * A partition: either resident, with its map, or spilled, with its
+	 * records in its file, the last of them possibly still pending in a
+	 * buffer. The file is kept open, and emptied, once paged in.
+	 */
+	static final class Partition<K,V> {
+		HashMap<K,V> map = new HashMap<K,V>();
+		Path file;
+		FileChannel channel;
+		long records;
+		ByteBuffer pending;
+		long lastAccess;
+	}
+
+	private void checkOpen() {
+		if (buffer == null)
+			throw new IllegalStateException("Map closed");
+	}
+
+	// returns the map of the partition of the key, paged in if needed
+	private HashMap<K,V> resident(Object key) {
+		if (key == null)
+			throw new NullPointerException();
+		checkOpen();
+		Partition<K,V> p = partitions[partitionOf(key)];
+		p.lastAccess = ++clock;
+		if (p.map == null)
+			load(p);
+		return p.map;
+	}
+
+	/**
+	 * Returns the least recently used resident partition other than the
+	 * specified one, or, if allowed, the specified one if it is the only
+	 * resident partition; returns null if there is none.
+	 */
+	private Partition<K,V> coldest(Partition<K,V> except, boolean self) {
+		Partition<K,V> coldest = null;
+		for (int i = 0; i < partitions.length; i++) {
+			Partition<K,V> p = partitions[i];
+			if (p != except && p.map != null && p.map.size() > 0 &&
+			    (coldest == null || p.lastAccess < coldest.lastAccess))
+				coldest = p;
+		}
+		return coldest == null && self ? except : coldest;
+	}
+
+	/**
+	 * Writes all of the mappings of a resident partition to its file, in
+	 * one sequential pass, and drops its map.
+	 */
+	private void spill(Partition<K,V> p) {
+		try {
+			if (p.channel == null) {
+				p.file = Files.createTempFile(directory, "partition",
+					".spill");
+				p.channel = FileChannel.open(p.file,
+					StandardOpenOption.READ, StandardOpenOption.WRITE);
+			}
+			ByteBuffer b = buffer;
+			b.clear();
+			for (Iterator<Map.Entry<K,V>> i =
+					p.map.entrySet().iterator(); i.hasNext(); ) {
+				Map.Entry<K,V> e = i.next();
+				if (b.remaining() < recordSize)
+					write(p.channel, b);
+				encode(e.getKey(), e.getValue(), b);
+			}
+			write(p.channel, b);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		int n = p.map.size();
+		p.records = n;
+		p.map = null;
+		residentSize -= n;
+		spilledSize += n;
+		spillCount++;
+	}
+
+	/**
+	 * Appends a mapping to the file of a spilled partition, through its
+	 * buffer.
+	 */
+	private void append(Partition<K,V> p, K key, V value) {
+		if (p.pending == null)
+			p.pending = ByteBuffer.allocate(
+				Math.max(APPEND_BUFFER / recordSize, 1) * recordSize);
+		if (p.pending.remaining() < recordSize)
+			flush(p);
+		encode(key, value, p.pending);
+		p.records++;
+		spilledSize++;
+	}
+
+	private void flush(Partition<K,V> p) {
+		if (p.pending != null && p.pending.position() > 0) {
+			try {
+				write(p.channel, p.pending);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Reads a spilled partition back into a map, in one sequential pass,
+	 * after spilling the least recently used partitions to make room for
+	 * its records. The file is then emptied.
+	 */
+	private void load(Partition<K,V> p) {
+		flush(p);
+		p.pending = null;
+		long n = p.records;
+		Partition<K,V> victim;
+		while (residentSize + n > maximumResident &&
+		       (victim = coldest(p, false)) != null)
+			spill(victim);
+
+		HashMap<K,V> map = new HashMap<K,V>(HashMap.capacityFor(
+			(int)Math.min(n, HashMap.MAXIMUM_CAPACITY),
+			HashMap.DEFAULT_LOAD_FACTOR));
+		try {
+			ByteBuffer b = buffer;
+			long position = 0;
+			for (long left = n * recordSize; left > 0; ) {
+				b.clear();
+				if (left < b.capacity())
+					b.limit((int)left);
+				while (b.hasRemaining()) {
+					int r = p.channel.read(b, position + b.position());
+					if (r < 0)
+						throw new IOException("Truncated file: " + p.file);
+				}
+				for (int off = 0; off < b.limit(); off += recordSize)
+					map.put(keyCodec.decode(b, off),
+						valueCodec.decode(b, off + keyCodec.size()));
+				position += b.limit();
+				left -= b.limit();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		truncate(p);
+		p.map = map;
+		p.records = 0;
+		spilledSize -= n;
+		residentSize += map.size();
+		loadCount++;
+	}
+
+	private void truncate(Partition<K,V> p) {
+		try {
+			p.channel.truncate(0);
+			p.channel.position(0);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// encodes a record at the position of the buffer, and moves past it
+	private void encode(K key, V value, ByteBuffer b) {
+		int off = b.position();
+		keyCodec.encode(key, b, off);
+		valueCodec.encode(value, b, off + keyCodec.size());
+		b.position(off + recordSize);
+	}
+
+	// writes the buffer at the position of the channel, then clears it
+	private static void write(FileChannel channel, ByteBuffer b)
+			throws IOException {
+		b.flip();
+		while (b.hasRemaining())
+			channel.write(b);
+		b.clear();
+	}
+
+}
@@ -0,0 +1,136 @@
+/*
+ * TinyLfuPolicy.java - example of W-TinyLFU eviction policy
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+/**
+ * Eviction policy which keeps the mappings used most often, while still
+ * giving recent ones a chance (Window TinyLFU).
+ *
+ * <p>New mappings enter a small LRU <i>window</i>, 1% of the maximum
+ * weight. The mappings leaving the window compete to enter the <i>main</i>
+ * space, a segmented LRU: a hit in its <i>probation</i> segment promotes
+ * the mapping to the <i>protected</i> segment, 80% of the main space, whose
+ * least recently used mappings are demoted back to probation when it is
+ * full. When the cache is over its maximum, the candidate coming from the
+ * window is compared with the eldest mapping of probation, and the one
+ * whose key was used less often is evicted.
+ *
+ * <p>How often a key was used is estimated by a <tt>CountMinSketch</tt>,
+ * which counts the insertions and hits of every key, resident or not, in
+ * the recent past. Thus a burst of keys used once cannot flush a popular
+ * working set, as it would with a plain LRU policy. The sketch grows with
+ * the number of mappings, which a weight in bytes does not bound usefully.
+ */
+
+public class TinyLfuPolicy<K,V> implements EvictionPolicy<K,V>
+{
+	private static final int WINDOW = 0;
+	private static final int PROBATION = 1;
+	private static final int PROTECTED = 2;
+
+	private final Cache.NodeList<K,V> window = new Cache.NodeList<K,V>();
+	private final Cache.NodeList<K,V> probation =
+		new Cache.NodeList<K,V>();
+	private final Cache.NodeList<K,V> protectedList =
+		new Cache.NodeList<K,V>();
+	private final long maximumWindow;
+	private final long maximumProtected;
+	private long windowWeight;
+	private long protectedWeight;
+	private long size;
+	private final CountMinSketch sketch;
+
+	static final int INITIAL_SKETCH_SIZE = 1 << 10;
+
+	/**
+	 * Constructs the policy for a cache with the specified maximum weight.
+	 */
+	public TinyLfuPolicy(long maximumWeight) {
+		if (maximumWeight < 0)
+			throw new IllegalArgumentException(
+				"Illegal maximum weight: " + maximumWeight);
+		maximumWindow = Math.max(1, maximumWeight / 100);
+		maximumProtected =
+			(long)(Math.max(0, maximumWeight - maximumWindow) * 0.8);
+		sketch = new CountMinSketch(
+			Math.min(maximumWeight, INITIAL_SKETCH_SIZE));
+	}
+
+	public void onInsert(Cache.Node<K,V> node) {
+		sketch.ensureCapacity(++size);
+		sketch.increment(node.key);
+		node.queue = WINDOW;
+		window.addLast(node);
+		windowWeight += node.weight;
+	}
+
+	public void onAccess(Cache.Node<K,V> node) {
+		sketch.increment(node.key);
+		if (node.queue == WINDOW) {
+			window.moveToLast(node);
+		} else if (node.queue == PROTECTED) {
+			protectedList.moveToLast(node);
+		} else {
+			// promote, then demote the protected overflow
+			probation.remove(node);
+			node.queue = PROTECTED;
+			protectedList.addLast(node);
+			protectedWeight += node.weight;
+			while (protectedWeight > maximumProtected) {
+				Cache.Node<K,V> eldest = protectedList.first();
+				protectedList.remove(eldest);
+				protectedWeight -= eldest.weight;
+				eldest.queue = PROBATION;
+				probation.addLast(eldest);
+			}
+		}
+	}
+
+	public void onRemove(Cache.Node<K,V> node) {
+		size--;
+		if (node.queue == WINDOW) {
+			window.remove(node);
+			windowWeight -= node.weight;
+		} else if (node.queue == PROTECTED) {
+			protectedList.remove(node);
+			protectedWeight -= node.weight;
+		} else {
+			probation.remove(node);
+		}
+	}
+
+	public Cache.Node<K,V> victim() {
+		// move the window overflow to probation: the first mapping
+		// moved is the candidate for admission
+		Cache.Node<K,V> candidate = null;
+		while (windowWeight > maximumWindow) {
+			Cache.Node<K,V> eldest = window.first();
+			window.remove(eldest);
+			windowWeight -= eldest.weight;
+			eldest.queue = PROBATION;
+			probation.addLast(eldest);
+			if (candidate == null)
+				candidate = eldest;
+		}
+
+		Cache.Node<K,V> victim = probation.first();
+		if (victim == null)
+			victim = protectedList.first();
+		if (victim == null)
+			victim = window.first();
+		if (candidate == null || candidate == victim)
+			return victim;
+
+		// on a tie the resident mapping is kept
+		if (sketch.frequency(candidate.key) > sketch.frequency(victim.key))
+			return victim;
+		return candidate;
+	}
+
+}
@@ -10,25 +10,49 @@ package org.epalrov.collections;
 
 import java.util.Set;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
 
 /**
- * Unbalanced tree implementation of the <tt>Set</tt> interface. 
+ * Red-black tree implementation of the <tt>Set</tt> interface.
  *
- * All of the operations perform as could be expected for an unbalanced binary
- * tree. Balancing as a Red-Black binary tree is strightforward.
+ * The tree is rebalanced by rotations after every insertion and removal, so
+ * that its height stays below 2 log(n + 1) whatever the order of the
+ * elements: <tt>add</tt>, <tt>remove</tt> and <tt>contains</tt> take
+ * O(log n) time even when the elements are added in ascending order. The
+ * entries keep a link to their parent, which the iterator follows.
+ *
+ * The elements are sorted by their natural ordering. The set implements
+ * <tt>NavigableSet</tt>: the range views returned by <tt>subSet</tt>,
+ * <tt>headSet</tt> and <tt>tailSet</tt> are backed by the set, and find
+ * their first element by a descent of the tree, so that walking k elements
+ * of a range takes O(log n + k) time.
+ *
+ * Each entry also counts the entries of its subtree, so that the set is an
+ * order statistic tree: <tt>rank</tt>, <tt>select</tt>,
+ * <tt>countInRange</tt>, the size of a range view and the positioning of
+ * <tt>iterator(int)</tt> take O(log n) time.
  *
  * Note that this implementation is not synchronized. If multiple threads
  * access a linked list concurrently, and at least one of the threads modifies
  * the list structurally, it must be synchronized externally. This is typically
  * accomplished by synchronizing on some object that naturally encapsulates
  * the list.
+ *
+ * The hash code of the set is updated by every addition and removal, so
+ * that <tt>hashCode()</tt> costs O(1).
  */
 
-public class TreeSet<E> implements Set<E>
+public class TreeSet<E> implements NavigableSet<E>
 {
 	private Entry<E> root;
 	private int size;
+	// sum of the hash codes of the elements
+	private int hash;
 
         /**
          * Constructs an empty <tt>TreeSet</tt>
@@ -85,36 +109,60 @@ public class TreeSet<E> implements Set<E>
 		return new TreeSetIterator();
 	}
 
+	/**
+	 * Returns an iterator over the elements in this set, in descending
+	 * order.
+	 */
+	public Iterator<E> descendingIterator() {
+		return new TreeSetIterator(getLastEntry(), null, true);
+	}
+
 	private class TreeSetIterator implements Iterator<E> {
 		private Entry<E> currEntry;
 		private Entry<E> nextEntry;
+		// the element at which to stop: compared by reference, since
+		// a removal may copy it into another entry
+		private final Object fenceElem;
+		private final boolean descending;
 
 		TreeSetIterator() {
+			this(getFirstEntry(), null, false);
+		}
+
+		TreeSetIterator(Entry<E> first, Entry<E> fence, boolean descending) {
 			currEntry = null;
-			nextEntry = getFirstEntry();
+			nextEntry = first;
+			fenceElem = fence == null ? UNBOUNDED : fence.elem;
+			this.descending = descending;
 		}
 
 		public boolean hasNext() {
-			return nextEntry != null ? true : false;
+			return nextEntry != null && nextEntry.elem != fenceElem;
 		}
 
 		public E next() {
-			if (nextEntry == null)
-				throw new IllegalStateException();
+			if (!hasNext())
+				throw new NoSuchElementException();
 			currEntry = nextEntry;
-			nextEntry = getNextEntry(currEntry);
+			nextEntry = descending ? getPrevEntry(currEntry) :
+				getNextEntry(currEntry);
 			return currEntry.elem;
 		}
         
 		public void remove() {
 			if (currEntry == null)
 				throw new IllegalStateException();
-			removeEntry(currEntry);
+			// the successor is copied into an entry with two children
+			if (!descending && currEntry.left != null &&
+			    currEntry.right != null)
+				nextEntry = currEntry;
+			deleteEntry(currEntry);
 			currEntry = null;
-			size--;
 		}
 	}
 
+	private static final Object UNBOUNDED = new Object();
+
 	/**
 	 * Returns an array containing all of the elements in this set.
 	 */
@@ -160,10 +208,12 @@ public class TreeSet<E> implements Set<E>
 		if (elem == null)
 			throw new NullPointerException();
 
-		// add the new element to an empty set
+		// add the new element to an empty set, as a black root
 		if (e == null) {
 			root = new Entry<E>(elem, null);
+			root.red = false;
 			size++;
+			hash += elem.hashCode();
 			return true;
 		}
 
@@ -179,13 +229,17 @@ public class TreeSet<E> implements Set<E>
 				return false;
 		}
 
-		// add the new entry as leaf of the current parent position
+		// add the new entry as red leaf of the current parent position
 		e = new Entry<E>(elem, parent);
 		if (cmp < 0)
 			parent.left = e;
 		else
 			parent.right = e;
+		for (Entry<E> p = parent; p != null; p = p.parent)
+			p.count++;
+		balanceInsertion(e);
 		size++;
+		hash += elem.hashCode();
 		return true;
 	}
 
@@ -280,6 +334,183 @@ public class TreeSet<E> implements Set<E>
 	public void clear() {
 		root = null;
 		size = 0;
+		hash = 0;
+	}
+
+	// Navigation Operations
+
+	/**
+	 * Returns <tt>null</tt>, since the elements are sorted by their
+	 * natural ordering.
+	 */
+	public Comparator<? super E> comparator() {
+		return null;
+	}
+
+	/**
+	 * Returns the lowest element in this set.
+	 */
+	public E first() {
+		return elemOf(getFirstEntry());
+	}
+
+	/**
+	 * Returns the highest element in this set.
+	 */
+	public E last() {
+		return elemOf(getLastEntry());
+	}
+
+	/**
+	 * Returns the greatest element in this set strictly less than the
+	 * given element, or <tt>null</tt> if there is none.
+	 */
+	public E lower(E e) {
+		return elemOrNull(getLowerEntry(e));
+	}
+
+	/**
+	 * Returns the greatest element in this set less than or equal to the
+	 * given element, or <tt>null</tt> if there is none.
+	 */
+	public E floor(E e) {
+		return elemOrNull(getFloorEntry(e));
+	}
+
+	/**
+	 * Returns the least element in this set greater than or equal to the
+	 * given element, or <tt>null</tt> if there is none.
+	 */
+	public E ceiling(E e) {
+		return elemOrNull(getCeilingEntry(e));
+	}
+
+	/**
+	 * Returns the least element in this set strictly greater than the
+	 * given element, or <tt>null</tt> if there is none.
+	 */
+	public E higher(E e) {
+		return elemOrNull(getHigherEntry(e));
+	}
+
+	/**
+	 * Retrieves and removes the lowest element, or returns <tt>null</tt>
+	 * if this set is empty.
+	 */
+	public E pollFirst() {
+		return pollEntry(getFirstEntry());
+	}
+
+	/**
+	 * Retrieves and removes the highest element, or returns <tt>null</tt>
+	 * if this set is empty.
+	 */
+	public E pollLast() {
+		return pollEntry(getLastEntry());
+	}
+
+	/**
+	 * Returns a reverse order view of the elements in this set.
+	 */
+	public NavigableSet<E> descendingSet() {
+		return new SubSet(true, null, true, true, null, true, true);
+	}
+
+	/**
+	 * Returns a view of the portion of this set whose elements range from
+	 * <tt>fromElement</tt> to <tt>toElement</tt>.
+	 */
+	public NavigableSet<E> subSet(E fromElement, boolean fromInclusive,
+			E toElement, boolean toInclusive) {
+		return new SubSet(false, fromElement, fromInclusive,
+			false, toElement, toInclusive, false);
+	}
+
+	/**
+	 * Returns a view of the portion of this set whose elements are less
+	 * than (or equal to, if <tt>inclusive</tt> is true) <tt>toElement</tt>.
+	 */
+	public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+		return new SubSet(true, null, true,
+			false, toElement, inclusive, false);
+	}
+
+	/**
+	 * Returns a view of the portion of this set whose elements are
+	 * greater than (or equal to, if <tt>inclusive</tt> is true)
+	 * <tt>fromElement</tt>.
+	 */
+	public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+		return new SubSet(false, fromElement, inclusive,
+			true, null, true, false);
+	}
+
+	/**
+	 * Returns a view of the portion of this set whose elements range from
+	 * <tt>fromElement</tt>, inclusive, to <tt>toElement</tt>, exclusive.
+	 */
+	public SortedSet<E> subSet(E fromElement, E toElement) {
+		return subSet(fromElement, true, toElement, false);
+	}
+
+	/**
+	 * Returns a view of the portion of this set whose elements are
+	 * strictly less than <tt>toElement</tt>.
+	 */
+	public SortedSet<E> headSet(E toElement) {
+		return headSet(toElement, false);
+	}
+
+	/**
+	 * Returns a view of the portion of this set whose elements are
+	 * greater than or equal to <tt>fromElement</tt>.
+	 */
+	public SortedSet<E> tailSet(E fromElement) {
+		return tailSet(fromElement, true);
+	}
+
+	// Positional Operations
+
+	/**
+	 * Returns the number of elements in this set strictly less than the
+	 * given element: its index if the set contains it, the index where it
+	 * would be added otherwise.
+	 */
+	public int rank(E e) {
+		return countBelow(e, false);
+	}
+
+	/**
+	 * Returns the element at the specified index of this set, in ascending
+	 * order.
+	 */
+	public E select(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index +
+				", Size: " + size);
+		return getEntryAt(index).elem;
+	}
+
+	/**
+	 * Returns the number of elements in this set ranging from
+	 * <tt>fromElement</tt>, inclusive, to <tt>toElement</tt>, exclusive,
+	 * like <tt>subSet(fromElement, toElement).size()</tt>.
+	 */
+	public int countInRange(E fromElement, E toElement) {
+		if (compare(fromElement, toElement) > 0)
+			throw new IllegalArgumentException("fromElement > toElement");
+		return countBelow(toElement, false) - countBelow(fromElement, false);
+	}
+
+	/**
+	 * Returns an iterator over the elements in this set, starting from the
+	 * one at the specified index.
+	 */
+	public Iterator<E> iterator(int index) {
+		if (index < 0 || index > size)
+			throw new IndexOutOfBoundsException("Index: " + index +
+				", Size: " + size);
+		return new TreeSetIterator(getEntryAt(index), null, false);
 	}
 
 	// Comparison and hashing
@@ -296,6 +527,12 @@ public class TreeSet<E> implements Set<E>
                 if (!(o instanceof Set))
                         return false;
 
+		// check size, and hash code if known at once
+		if (((Set<?>) o).size() != size)
+			return false;
+		if (o instanceof TreeSet && ((TreeSet<?>) o).hash != hash)
+			return false;
+
                 // check all elements
                 Iterator<E> i = iterator();
                 Iterator<?> j = ((Set<?>) o).iterator();
@@ -315,32 +552,31 @@ public class TreeSet<E> implements Set<E>
 	 * Returns the hash code value for this set. The hash code of a set is
 	 * defined to be the sum of the hash codes of the elements in the set,
 	 * where the hash code of a <tt>null</tt> element is defined to be zero.
+	 * It is kept up to date by the additions and removals.
 	 */
 	public int hashCode() {
-                int hash = 0;
-                Iterator<E> i = iterator();
-                while (i.hasNext()) {
-                        E elem = i.next();
-                        hash += (elem == null ? 0 : elem.hashCode());
-                }
-
-                return hash;
+		return hash;
 	}
 
 	/**
-	 * Unbalanced Binary Tree implementation.
+	 * Red-Black Binary Tree implementation: a new entry is red. The count
+	 * is the number of entries of the subtree rooted at the entry.
 	 */
 	private static class Entry<E> {
 		E elem;
 		Entry<E> parent;
 		Entry<E> left;
 		Entry<E> right;
+		boolean red;
+		int count;
 
 		Entry(E e, Entry<E> p) {
 			elem = e;
 			parent = p;
 			left = null;
 			right = null;
+			red = true;
+			count = 1;
 		}
 	}
 
@@ -373,9 +609,418 @@ public class TreeSet<E> implements Set<E>
 		return n;
 	}
 
+	private Entry<E> getLastEntry() {
+		Entry<E> e = root;
+		if (e != null)
+			while (e.right != null)
+				e = e.right;
+		return e;
+	}
+
+	private Entry<E> getPrevEntry(Entry<E> e) {
+		Entry<E> n;
+
+		if (e == null)
+			return null;
+
+		if (e.left == null) {
+			Entry<E> c = e;
+			n = e.parent;
+			while (n != null && c == n.left) {
+				c = n;
+				n = n.parent;
+			}
+		} else {
+			n = e.left;
+			while (n.right != null)
+				n = n.right;
+		}
+		return n;
+	}
+
+	private static int compare(Object a, Object b) {
+		// a null element is not comparable
+		if (a == null || b == null)
+			throw new NullPointerException();
+		return ((Comparable<Object>)a).compareTo(b);
+	}
+
+	// Descents of the tree: each of them remembers the last entry it
+	// went left (or right) from, which is the answer if no entry matches.
+
+	private Entry<E> getCeilingEntry(Object o) {
+		Entry<E> e = root, best = null;
+		while (e != null) {
+			int cmp = compare(o, e.elem);
+			if (cmp < 0) {
+				best = e;
+				e = e.left;
+			} else if (cmp > 0) {
+				e = e.right;
+			} else {
+				return e;
+			}
+		}
+		return best;
+	}
+
+	private Entry<E> getHigherEntry(Object o) {
+		Entry<E> e = root, best = null;
+		while (e != null) {
+			if (compare(o, e.elem) < 0) {
+				best = e;
+				e = e.left;
+			} else {
+				e = e.right;
+			}
+		}
+		return best;
+	}
+
+	private Entry<E> getFloorEntry(Object o) {
+		Entry<E> e = root, best = null;
+		while (e != null) {
+			int cmp = compare(o, e.elem);
+			if (cmp > 0) {
+				best = e;
+				e = e.right;
+			} else if (cmp < 0) {
+				e = e.left;
+			} else {
+				return e;
+			}
+		}
+		return best;
+	}
+
+	private Entry<E> getLowerEntry(Object o) {
+		Entry<E> e = root, best = null;
+		while (e != null) {
+			if (compare(o, e.elem) > 0) {
+				best = e;
+				e = e.right;
+			} else {
+				e = e.left;
+			}
+		}
+		return best;
+	}
+
+	// Descents by the counts of the subtrees
+
+	private int countBelow(Object o, boolean inclusive) {
+		Entry<E> e = root;
+		int n = 0;
+		while (e != null) {
+			int cmp = compare(o, e.elem);
+			if (cmp < 0) {
+				e = e.left;
+			} else if (cmp > 0 || inclusive) {
+				n += countOf(e.left) + 1;
+				if (cmp == 0)
+					break;
+				e = e.right;
+			} else {
+				n += countOf(e.left);
+				break;
+			}
+		}
+		return n;
+	}
+
+	private Entry<E> getEntryAt(int index) {
+		Entry<E> e = root;
+		while (e != null) {
+			int l = countOf(e.left);
+			if (index < l) {
+				e = e.left;
+			} else if (index > l) {
+				index -= l + 1;
+				e = e.right;
+			} else {
+				break;
+			}
+		}
+		return e;
+	}
+
+	private static <E> E elemOf(Entry<E> e) {
+		if (e == null)
+			throw new NoSuchElementException();
+		return e.elem;
+	}
+
+	private static <E> E elemOrNull(Entry<E> e) {
+		return e == null ? null : e.elem;
+	}
+
+	private E pollEntry(Entry<E> e) {
+		if (e == null)
+			return null;
+		E elem = e.elem;
+		deleteEntry(e);
+		return elem;
+	}
+
+	private void deleteEntry(Entry<E> e) {
+		removeEntry(e);
+		size--;
+	}
+
+	/**
+	 * A range of the set, in ascending or descending order, bounded by
+	 * <tt>lo</tt> unless <tt>fromStart</tt> and by <tt>hi</tt> unless
+	 * <tt>toEnd</tt>: the bounds are in ascending order whatever the order
+	 * of the view. The methods find the entries of the set in the range
+	 * (the <tt>abs</tt> ones), then pick those of the direction.
+	 */
+	private final class SubSet extends java.util.AbstractSet<E>
+			implements NavigableSet<E> {
+		final E lo, hi;
+		final boolean fromStart, toEnd;
+		final boolean loInclusive, hiInclusive;
+		final boolean descending;
+
+		SubSet(boolean fromStart, E lo, boolean loInclusive,
+				boolean toEnd, E hi, boolean hiInclusive,
+				boolean descending) {
+			if (!fromStart && !toEnd) {
+				if (compare(lo, hi) > 0)
+					throw new IllegalArgumentException(
+						"fromElement > toElement");
+			} else {
+				// the bounds must be comparable
+				if (!fromStart)
+					compare(lo, lo);
+				if (!toEnd)
+					compare(hi, hi);
+			}
+			this.fromStart = fromStart;
+			this.lo = lo;
+			this.loInclusive = loInclusive;
+			this.toEnd = toEnd;
+			this.hi = hi;
+			this.hiInclusive = hiInclusive;
+			this.descending = descending;
+		}
+
+		private boolean tooLow(Object o) {
+			if (!fromStart) {
+				int c = compare(o, lo);
+				if (c < 0 || (c == 0 && !loInclusive))
+					return true;
+			}
+			return false;
+		}
+
+		private boolean tooHigh(Object o) {
+			if (!toEnd) {
+				int c = compare(o, hi);
+				if (c > 0 || (c == 0 && !hiInclusive))
+					return true;
+			}
+			return false;
+		}
+
+		private boolean inRange(Object o) {
+			return !tooLow(o) && !tooHigh(o);
+		}
+
+		// the bound of a nested view may be an excluded bound of this one
+		private boolean inRange(Object o, boolean inclusive) {
+			if (inclusive)
+				return inRange(o);
+			return (fromStart || compare(o, lo) >= 0) &&
+				(toEnd || compare(hi, o) >= 0);
+		}
+
+		private Entry<E> absLowest() {
+			Entry<E> e = fromStart ? getFirstEntry() :
+				(loInclusive ? getCeilingEntry(lo) : getHigherEntry(lo));
+			return e == null || tooHigh(e.elem) ? null : e;
+		}
+
+		private Entry<E> absHighest() {
+			Entry<E> e = toEnd ? getLastEntry() :
+				(hiInclusive ? getFloorEntry(hi) : getLowerEntry(hi));
+			return e == null || tooLow(e.elem) ? null : e;
+		}
+
+		private Entry<E> absCeiling(Object o) {
+			if (tooLow(o))
+				return absLowest();
+			Entry<E> e = getCeilingEntry(o);
+			return e == null || tooHigh(e.elem) ? null : e;
+		}
+
+		private Entry<E> absHigher(Object o) {
+			if (tooLow(o))
+				return absLowest();
+			Entry<E> e = getHigherEntry(o);
+			return e == null || tooHigh(e.elem) ? null : e;
+		}
+
+		private Entry<E> absFloor(Object o) {
+			if (tooHigh(o))
+				return absHighest();
+			Entry<E> e = getFloorEntry(o);
+			return e == null || tooLow(e.elem) ? null : e;
+		}
+
+		private Entry<E> absLower(Object o) {
+			if (tooHigh(o))
+				return absHighest();
+			Entry<E> e = getLowerEntry(o);
+			return e == null || tooLow(e.elem) ? null : e;
+		}
+
+		// the first entry after the range, where an iteration stops
+		private Entry<E> absHighFence() {
+			return toEnd ? null : (hiInclusive ?
+				getHigherEntry(hi) : getCeilingEntry(hi));
+		}
+
+		private Entry<E> absLowFence() {
+			return fromStart ? null : (loInclusive ?
+				getLowerEntry(lo) : getFloorEntry(lo));
+		}
+
+		public int size() {
+			int n = toEnd ? size : countBelow(hi, hiInclusive);
+			if (!fromStart)
+				n -= countBelow(lo, !loInclusive);
+			// lo == hi, both excluded
+			return Math.max(n, 0);
+		}
+
+		public boolean isEmpty() {
+			return absLowest() == null;
+		}
+
+		public boolean contains(Object o) {
+			return inRange(o) && TreeSet.this.contains(o);
+		}
+
+		public boolean add(E e) {
+			if (!inRange(e))
+				throw new IllegalArgumentException("element out of range");
+			return TreeSet.this.add(e);
+		}
+
+		public boolean remove(Object o) {
+			return inRange(o) && TreeSet.this.remove(o);
+		}
+
+		public void clear() {
+			for (Iterator<E> i = iterator(); i.hasNext(); ) {
+				i.next();
+				i.remove();
+			}
+		}
+
+		public Iterator<E> iterator() {
+			return descending ?
+				new TreeSetIterator(absHighest(), absLowFence(), true) :
+				new TreeSetIterator(absLowest(), absHighFence(), false);
+		}
+
+		public Iterator<E> descendingIterator() {
+			return descending ?
+				new TreeSetIterator(absLowest(), absHighFence(), false) :
+				new TreeSetIterator(absHighest(), absLowFence(), true);
+		}
+
+		public Comparator<? super E> comparator() {
+			return descending ? Collections.reverseOrder() : null;
+		}
+
+		public E first() {
+			return elemOf(descending ? absHighest() : absLowest());
+		}
+
+		public E last() {
+			return elemOf(descending ? absLowest() : absHighest());
+		}
+
+		public E lower(E e) {
+			return elemOrNull(descending ? absHigher(e) : absLower(e));
+		}
+
+		public E floor(E e) {
+			return elemOrNull(descending ? absCeiling(e) : absFloor(e));
+		}
+
+		public E ceiling(E e) {
+			return elemOrNull(descending ? absFloor(e) : absCeiling(e));
+		}
+
+		public E higher(E e) {
+			return elemOrNull(descending ? absLower(e) : absHigher(e));
+		}
+
+		public E pollFirst() {
+			return pollEntry(descending ? absHighest() : absLowest());
+		}
+
+		public E pollLast() {
+			return pollEntry(descending ? absLowest() : absHighest());
+		}
+
+		public NavigableSet<E> descendingSet() {
+			return new SubSet(fromStart, lo, loInclusive,
+				toEnd, hi, hiInclusive, !descending);
+		}
+
+		public NavigableSet<E> subSet(E fromElement, boolean fromInclusive,
+				E toElement, boolean toInclusive) {
+			if (!inRange(fromElement, fromInclusive))
+				throw new IllegalArgumentException("fromElement out of range");
+			if (!inRange(toElement, toInclusive))
+				throw new IllegalArgumentException("toElement out of range");
+			if (descending)
+				return new SubSet(false, toElement, toInclusive,
+					false, fromElement, fromInclusive, true);
+			return new SubSet(false, fromElement, fromInclusive,
+				false, toElement, toInclusive, false);
+		}
+
+		public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+			if (!inRange(toElement, inclusive))
+				throw new IllegalArgumentException("toElement out of range");
+			if (descending)
+				return new SubSet(false, toElement, inclusive,
+					toEnd, hi, hiInclusive, true);
+			return new SubSet(fromStart, lo, loInclusive,
+				false, toElement, inclusive, false);
+		}
+
+		public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+			if (!inRange(fromElement, inclusive))
+				throw new IllegalArgumentException("fromElement out of range");
+			if (descending)
+				return new SubSet(fromStart, lo, loInclusive,
+					false, fromElement, inclusive, true);
+			return new SubSet(false, fromElement, inclusive,
+				toEnd, hi, hiInclusive, false);
+		}
+
+		public SortedSet<E> subSet(E fromElement, E toElement) {
+			return subSet(fromElement, true, toElement, false);
+		}
+
+		public SortedSet<E> headSet(E toElement) {
+			return headSet(toElement, false);
+		}
+
+		public SortedSet<E> tailSet(E fromElement) {
+			return tailSet(fromElement, true);
+		}
+	}
+
 	private void removeEntry(Entry<E> e) {
         	if (e == null)
 			return;
+		hash -= e.elem.hashCode();
 
 		// Entry with two children:
 		// - replace the specified entry with its successor by copying.
@@ -387,17 +1032,211 @@ public class TreeSet<E> implements Set<E>
 			e = n;
 		}
 
+		// the entry is unlinked from the subtrees of its ancestors
+		for (Entry<E> p = e.parent; p != null; p = p.parent)
+			p.count--;
+
 		// Entry with one child or no children
 		Entry<E> c = (e.left != null ? e.left : e.right);
-		if (c != null)
+		if (c != null) {
+			// the child takes the place of the entry
 			c.parent = e.parent;
+			if (e.parent == null)
+				root = c;
+			else if (e == e.parent.left)
+				e.parent.left = c;
+			else
+				e.parent.right = c;
+			e.left = e.right = e.parent = null;
+			if (!e.red)
+				balanceDeletion(c);
+		} else if (e.parent == null) {
+			// the only entry of the tree
+			root = null;
+		} else {
+			// a leaf is rebalanced before being unlinked, as an empty
+			// subtree
+			e.count = 0;
+			if (!e.red)
+				balanceDeletion(e);
+			if (e.parent != null) {
+				if (e == e.parent.left)
+					e.parent.left = null;
+				else if (e == e.parent.right)
+					e.parent.right = null;
+				e.parent = null;
+			}
+		}
+	}
 
-		if (e.parent == null)
-			root = c;
-		else if (e == e.parent.left)
-			e.parent.left = c;
+	/**
+	 * Returns the height of the tree: the number of entries on its
+	 * longest path from the root.
+	 */
+	int height() {
+		return height(root);
+	}
+
+	private static int height(Entry<?> e) {
+		return e == null ? 0 : 1 + Math.max(height(e.left), height(e.right));
+	}
+
+	// Red-black tree algorithms, see java.util.TreeMap: the same as the
+	// ones of the tree bins of HashMap, on the root of the set.
+
+	private void rotateLeft(Entry<E> p) {
+		Entry<E> r = p.right;
+		p.right = r.left;
+		if (r.left != null)
+			r.left.parent = p;
+		r.parent = p.parent;
+		if (p.parent == null)
+			root = r;
+		else if (p.parent.left == p)
+			p.parent.left = r;
 		else
-			e.parent.right = c;
+			p.parent.right = r;
+		r.left = p;
+		p.parent = r;
+		r.count = p.count;
+		p.count = countOf(p.left) + countOf(p.right) + 1;
+	}
+
+	private void rotateRight(Entry<E> p) {
+		Entry<E> l = p.left;
+		p.left = l.right;
+		if (l.right != null)
+			l.right.parent = p;
+		l.parent = p.parent;
+		if (p.parent == null)
+			root = l;
+		else if (p.parent.right == p)
+			p.parent.right = l;
+		else
+			p.parent.left = l;
+		l.right = p;
+		p.parent = l;
+		l.count = p.count;
+		p.count = countOf(p.left) + countOf(p.right) + 1;
+	}
+
+	private static int countOf(Entry<?> p) {
+		return p == null ? 0 : p.count;
+	}
+
+	private static boolean isRed(Entry<?> p) {
+		return p != null && p.red;
+	}
+
+	private static <E> Entry<E> parentOf(Entry<E> p) {
+		return p == null ? null : p.parent;
+	}
+
+	private static <E> Entry<E> leftOf(Entry<E> p) {
+		return p == null ? null : p.left;
+	}
+
+	private static <E> Entry<E> rightOf(Entry<E> p) {
+		return p == null ? null : p.right;
+	}
+
+	private static void setRed(Entry<?> p, boolean red) {
+		if (p != null)
+			p.red = red;
+	}
+
+	private void balanceInsertion(Entry<E> x) {
+		while (x != null && x != root && x.parent.red) {
+			if (parentOf(x) == leftOf(parentOf(parentOf(x)))) {
+				Entry<E> y = rightOf(parentOf(parentOf(x)));
+				if (isRed(y)) {
+					setRed(parentOf(x), false);
+					setRed(y, false);
+					setRed(parentOf(parentOf(x)), true);
+					x = parentOf(parentOf(x));
+				} else {
+					if (x == rightOf(parentOf(x))) {
+						x = parentOf(x);
+						rotateLeft(x);
+					}
+					setRed(parentOf(x), false);
+					setRed(parentOf(parentOf(x)), true);
+					rotateRight(parentOf(parentOf(x)));
+				}
+			} else {
+				Entry<E> y = leftOf(parentOf(parentOf(x)));
+				if (isRed(y)) {
+					setRed(parentOf(x), false);
+					setRed(y, false);
+					setRed(parentOf(parentOf(x)), true);
+					x = parentOf(parentOf(x));
+				} else {
+					if (x == leftOf(parentOf(x))) {
+						x = parentOf(x);
+						rotateRight(x);
+					}
+					setRed(parentOf(x), false);
+					setRed(parentOf(parentOf(x)), true);
+					rotateLeft(parentOf(parentOf(x)));
+				}
+			}
+		}
+		root.red = false;
+	}
+
+	private void balanceDeletion(Entry<E> x) {
+		while (x != root && !isRed(x)) {
+			if (x == leftOf(parentOf(x))) {
+				Entry<E> sib = rightOf(parentOf(x));
+				if (isRed(sib)) {
+					setRed(sib, false);
+					setRed(parentOf(x), true);
+					rotateLeft(parentOf(x));
+					sib = rightOf(parentOf(x));
+				}
+				if (!isRed(leftOf(sib)) && !isRed(rightOf(sib))) {
+					setRed(sib, true);
+					x = parentOf(x);
+				} else {
+					if (!isRed(rightOf(sib))) {
+						setRed(leftOf(sib), false);
+						setRed(sib, true);
+						rotateRight(sib);
+						sib = rightOf(parentOf(x));
+					}
+					setRed(sib, isRed(parentOf(x)));
+					setRed(parentOf(x), false);
+					setRed(rightOf(sib), false);
+					rotateLeft(parentOf(x));
+					x = root;
+				}
+			} else {
+				Entry<E> sib = leftOf(parentOf(x));
+				if (isRed(sib)) {
+					setRed(sib, false);
+					setRed(parentOf(x), true);
+					rotateRight(parentOf(x));
+					sib = leftOf(parentOf(x));
+				}
+				if (!isRed(rightOf(sib)) && !isRed(leftOf(sib))) {
+					setRed(sib, true);
+					x = parentOf(x);
+				} else {
+					if (!isRed(leftOf(sib))) {
+						setRed(rightOf(sib), false);
+						setRed(sib, true);
+						rotateLeft(sib);
+						sib = leftOf(parentOf(x));
+					}
+					setRed(sib, isRed(parentOf(x)));
+					setRed(parentOf(x), false);
+					setRed(leftOf(sib), false);
+					rotateRight(parentOf(x));
+					x = root;
+				}
+			}
+		}
+		setRed(x, false);
 	}
 
 }
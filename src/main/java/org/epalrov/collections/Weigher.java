@@ -0,0 +1,24 @@
+/*
+ * Weigher.java - example of cache entry weigher
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+/**
+ * Computes the weight of a cache mapping, for example the size in bytes of
+ * its value. A <tt>Cache</tt> bounded by weight evicts mappings until the
+ * total weight is not greater than its maximum.
+ */
+
+public interface Weigher<K,V>
+{
+	/**
+	 * Returns the weight of the specified mapping, which must not be
+	 * negative. The weight is computed once, when the value is stored.
+	 */
+	int weigh(K key, V value);
+}
@@ -0,0 +1,146 @@
+/*
+ * BTreeMapTest.java - unit test for B+ Tree Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Map;
+import java.util.Iterator;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * Unit test for BTreeMap.
+ */
+public class BTreeMapTest extends TestCase
+{
+	/**
+	 * Create the test case
+	 */
+	public BTreeMapTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(BTreeMapTest.class);
+	}
+
+	/**
+	 * Rigourous Test
+	 */
+	public void testBTreeMap() {
+		String[] a = {
+			"paolo", "love", "valeria", ":", "i", "mimmi", "bimbi"
+		};
+		BTreeMap<Integer,String> h = new BTreeMap<Integer,String>(4);
+
+		// add
+		for (int i = 0; i < a.length; i++)
+			assertNull(h.put(i, a[i]));
+		assertThat(h.size(), is(a.length));
+
+		// search
+		for (int i = 0; i < a.length; i++) {
+			assertThat(h.get(i), is(a[i]));
+			assertThat(h.containsKey(i), is(true));
+			assertThat(h.containsValue(a[i]), is(true));
+		}
+		assertNull(h.get(a.length));
+		assertThat(h.firstKey(), is(0));
+		assertThat(h.lastKey(), is(a.length - 1));
+
+		// iterator, in order of the keys
+		int k = 0;
+		for (Map.Entry<Integer,String> e : h.entrySet()) {
+			assertThat(e.getKey(), is(k));
+			assertThat(e.getValue(), is(a[k]));
+			e.setValue(a[k].toUpperCase());
+			k++;
+		}
+		for (int i = 0; i < a.length; i++)
+			assertThat(h.get(i), is(a[i].toUpperCase()));
+
+		// replace and remove
+		assertThat(h.put(3, "x"), is(":"));
+		assertNull(h.put(7, null));
+		assertThat(h.containsKey(7), is(true));
+		assertNull(h.remove(7));
+		assertThat(h.containsKey(7), is(false));
+		for (int i = 0; i < a.length; i++)
+			assertNotNull(h.remove(i));
+		assertTrue(h.isEmpty());
+		assertNull(h.ceilingKey(0));
+
+		try {
+			h.put(null, "x");
+			fail("null key accepted");
+		} catch (NullPointerException e) {
+			// expected
+		}
+		try {
+			h.firstKey();
+			fail("first key of an empty map");
+		} catch (java.util.NoSuchElementException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Split and merge Test: random updates on small nodes, against
+	 * java.util.TreeMap.
+	 */
+	public void testBTreeMapRandom() {
+		java.util.Random random = new java.util.Random(42);
+		BTreeMap<Integer,Integer> h = new BTreeMap<Integer,Integer>(6);
+		java.util.TreeMap<Integer,Integer> j =
+			new java.util.TreeMap<Integer,Integer>();
+		for (int i = 0; i < 100000; i++) {
+			Integer k = random.nextInt(10000);
+			if (random.nextInt(5) < 2)
+				assertThat(h.remove(k), is(j.remove(k)));
+			else
+				assertThat(h.put(k, i), is(j.put(k, i)));
+		}
+		assertThat(h.size(), is(j.size()));
+		assertThat(h, is((Map<Integer,Integer>)j));
+		assertThat(j.equals(h), is(true));
+		assertThat(h.hashCode(), is(j.hashCode()));
+		for (int k = -1; k <= 10001; k += 7) {
+			assertThat(h.get(k), is(j.get(k)));
+			assertThat(h.lowerKey(k), is(j.lowerKey(k)));
+			assertThat(h.floorKey(k), is(j.floorKey(k)));
+			assertThat(h.ceilingKey(k), is(j.ceilingKey(k)));
+			assertThat(h.higherKey(k), is(j.higherKey(k)));
+		}
+
+		// removal through the views
+		for (Iterator<Integer> it = h.keySet().iterator(); it.hasNext(); )
+			if (it.next() % 2 == 0)
+				it.remove();
+		j.keySet().removeIf(x -> x % 2 == 0);
+		assertThat(h, is((Map<Integer,Integer>)j));
+		h.values().removeIf(x -> x % 3 == 0);
+		j.values().removeIf(x -> x % 3 == 0);
+		assertThat(h, is((Map<Integer,Integer>)j));
+		Iterator<Integer> it = h.keySet().iterator();
+		for (Integer x : j.keySet())
+			assertThat(it.next(), is(x));
+		assertThat(it.hasNext(), is(false));
+		h.keySet().clear();
+		assertThat(h.height(), is(1));
+		assertTrue(h.isEmpty());
+	}
+
+}
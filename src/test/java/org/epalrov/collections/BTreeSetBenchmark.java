@@ -0,0 +1,124 @@
+/*
+ * BTreeSetBenchmark.java - footprint, lookup and scan test for B+ Tree Set
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds a BTreeSet and a TreeSet of random Long elements, inserted in
+ * random order, then looks up random elements, half of them missing, adds
+ * and removes back missing elements, and scans 1000 elements from a
+ * random one. Run with "-prof gc":
+ * gc.alloc.rate.norm of the build benchmarks, divided by the size, is the
+ * number of bytes per element of each set, the elements excluded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms3g", "-Xmx3g" })
+public class BTreeSetBenchmark
+{
+	static final int LOOKUPS = 1024;
+	static final int SCAN = 1000;
+
+	@Param({ "btree", "tree" })
+	String impl;
+
+	@Param({ "10000000" })
+	int size;
+
+	Long[] elements;
+	Long[] lookups;
+	Set<Long> set;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		elements = new Long[size];
+		for (int i = 0; i < size; i++)
+			elements[i] = 2L * i;
+		for (int i = size - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			Long t = elements[i];
+			elements[i] = elements[j];
+			elements[j] = t;
+		}
+		set = build();
+		lookups = new Long[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++)
+			lookups[i] = elements[random.nextInt(size)] + (i & 1);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 1)
+	@Measurement(iterations = 3)
+	public Set<Long> build() {
+		Set<Long> s = impl.equals("btree") ? new BTreeSet<Long>() :
+			new TreeSet<Long>();
+		for (int i = 0; i < size; i++)
+			s.add(elements[i]);
+		return s;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public int contains() {
+		int found = 0;
+		for (int i = 0; i < LOOKUPS; i++)
+			if (set.contains(lookups[i]))
+				found++;
+		return found;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS / 2)
+	public int addRemove() {
+		int added = 0;
+		for (int i = 1; i < LOOKUPS; i += 2) {
+			if (set.add(lookups[i]))
+				added++;
+			set.remove(lookups[i]);
+		}
+		return added;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SCAN)
+	public long scan() {
+		Long from = lookups[(int)(System.nanoTime() & (LOOKUPS - 1))];
+		Iterator<Long> it = impl.equals("btree") ?
+			((BTreeSet<Long>)set).tailSet(from).iterator() :
+			((TreeSet<Long>)set).tailSet(from).iterator();
+		long sum = 0;
+		for (int i = 0; i < SCAN && it.hasNext(); i++)
+			sum += it.next();
+		return sum;
+	}
+
+}
@@ -0,0 +1,262 @@
+/*
+ * BTreeSetTest.java - unit test for B+ Tree Set
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.Iterator;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * Unit test for BTreeSet.
+ */
+public class BTreeSetTest extends TestCase
+{
+	/**
+	 * Create the test case
+	 */
+	public BTreeSetTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(BTreeSetTest.class);
+	}
+
+	/**
+	 * Rigourous Test
+	 */
+	public void testBTreeSet() {
+		String[] a = {
+			"paolo", "love", "valeria", ":", "i", "mimmi", "bimbi"
+		};
+		Set<String> s = new BTreeSet<String>(4);
+
+		// add
+		for (int i = 0; i < a.length; i++)
+			assertTrue(s.add(a[i]));
+		assertThat(s.size(), is(a.length));
+
+		// search
+		for (int i = 0; i < a.length; i++)
+			assertThat(s.contains(a[i]), is(true));
+
+		// remove
+		for (int i = 0; i < a.length; i++)
+			assertTrue(s.remove(a[i]));
+		assertTrue(s.isEmpty());
+
+		// bulk
+		assertThat(s.addAll(java.util.Arrays.asList(a)), is(true));
+		assertThat(s.containsAll(java.util.Arrays.asList(a)), is(true));
+		assertThat(s.retainAll(java.util.Arrays.asList(a)), is(false));
+		assertThat(s.size(), is(a.length));
+
+		// iterator
+		Iterator<String> it = s.iterator();
+		while (it.hasNext())
+			assertNotNull(it.next());
+
+		// hash code and equality
+		Set<String> j = new java.util.HashSet<String>(
+			java.util.Arrays.asList(a));
+		assertThat(s.hashCode(), is(j.hashCode()));
+		Set<String> t = new BTreeSet<String>();
+		t.addAll(s);
+		assertThat(t.equals(s), is(true));
+		t.remove("love");
+		assertThat(t.hashCode(), is(s.hashCode() - "love".hashCode()));
+		assertThat(t.equals(s), is(false));
+		t.add("lovE");
+		assertThat(t.equals(s), is(false));
+		t.clear();
+		assertThat(t.hashCode(), is(0));
+
+		try {
+			s.add(null);
+			fail("null element accepted");
+		} catch (NullPointerException e) {
+			// expected
+		}
+		try {
+			new BTreeSet<String>(3);
+			fail("node size 3 accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Split and merge Test: random additions and removals on small nodes,
+	 * against java.util.TreeSet.
+	 */
+	public void testBTreeSetRandom() {
+		java.util.Random random = new java.util.Random(42);
+		for (int nodeSize : new int[] { 4, 5, 64 }) {
+			BTreeSet<Integer> s = new BTreeSet<Integer>(nodeSize);
+			java.util.TreeSet<Integer> j = new java.util.TreeSet<Integer>();
+			for (int i = 0; i < 100000; i++) {
+				Integer v = random.nextInt(20000);
+				if (random.nextInt(5) < 2)
+					assertThat(s.remove(v), is(j.remove(v)));
+				else
+					assertThat(s.add(v), is(j.add(v)));
+			}
+			assertThat(s.size(), is(j.size()));
+			assertThat(s, is((Set<Integer>)j));
+			assertThat(s.first(), is(j.first()));
+			assertThat(s.last(), is(j.last()));
+			for (int v = -1; v <= 20001; v++) {
+				assertThat(s.lower(v), is(j.lower(v)));
+				assertThat(s.floor(v), is(j.floor(v)));
+				assertThat(s.ceiling(v), is(j.ceiling(v)));
+				assertThat(s.higher(v), is(j.higher(v)));
+			}
+
+			// removal through the iterator, in order
+			Iterator<Integer> it = s.iterator();
+			Iterator<Integer> jt = j.iterator();
+			while (jt.hasNext()) {
+				Integer v = jt.next();
+				assertThat(it.next(), is(v));
+				if (v % 3 != 0) {
+					it.remove();
+					jt.remove();
+				}
+			}
+			assertThat(it.hasNext(), is(false));
+			assertThat(s, is((Set<Integer>)j));
+
+			// empty it again
+			for (Integer v : j.toArray(new Integer[0]))
+				assertTrue(s.remove(v));
+			assertTrue(s.isEmpty());
+			assertThat(s.height(), is(1));
+			assertThat(s.iterator().hasNext(), is(false));
+		}
+	}
+
+	/**
+	 * Ascending Test: ascending additions fill the leaves, so that the
+	 * tree stays as low as possible.
+	 */
+	public void testBTreeSetAscending() {
+		int n = 4 * 4 * 4 * 4;
+		BTreeSet<Integer> s = new BTreeSet<Integer>(4);
+		for (int i = 0; i < n; i++)
+			assertTrue(s.add(i));
+		// 64 full leaves under branches at least half full
+		assertTrue(s.height() <= 5);
+		int k = 0;
+		for (Integer v : s)
+			assertThat(v, is(k++));
+		for (int i = n - 1; i >= 0; i -= 2)
+			assertTrue(s.remove(i));
+		assertThat(s.size(), is(n / 2));
+		k = 0;
+		for (Integer v : s) {
+			assertThat(v, is(k));
+			k += 2;
+		}
+	}
+
+	/**
+	 * View Test: range views against java.util.TreeSet.
+	 */
+	public void testBTreeSetViews() {
+		java.util.Random random = new java.util.Random(42);
+		BTreeSet<Integer> s = new BTreeSet<Integer>(8);
+		java.util.TreeSet<Integer> j = new java.util.TreeSet<Integer>();
+		for (int i = 0; i < 1000; i++) {
+			Integer v = random.nextInt(4000);
+			s.add(v);
+			j.add(v);
+		}
+		for (int i = 0; i < 200; i++) {
+			int a = random.nextInt(4200) - 100;
+			int b = a + 4 + random.nextInt(800);
+			checkView(s.subSet(a, b), j.subSet(a, b), a, b);
+			checkView(s.headSet(b), j.headSet(b), a, b);
+			checkView(s.tailSet(a), j.tailSet(a), a, b);
+			int c = a + (b - a) / 3, d = b - (b - a) / 3;
+			checkView(s.subSet(a, b).subSet(c, d), j.subSet(a, b).subSet(c, d),
+				a, b);
+			checkView(s.subSet(a, b).headSet(c), j.subSet(a, b).headSet(c),
+				a, b);
+			checkView(s.subSet(a, b).tailSet(d), j.subSet(a, b).tailSet(d),
+				a, b);
+		}
+		try {
+			s.subSet(10, 5);
+			fail("inverted range accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			s.subSet(10, 20).add(30);
+			fail("element out of range accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			s.subSet(10, 20).headSet(30);
+			fail("bound out of range accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			s.subSet(5000, 6000).first();
+			fail("first element of an empty view");
+		} catch (java.util.NoSuchElementException e) {
+			// expected
+		}
+
+		// updates through the views
+		SortedSet<Integer> v = s.subSet(1000, 2000);
+		SortedSet<Integer> w = j.subSet(1000, 2000);
+		assertThat(v.add(1500), is(w.add(1500)));
+		assertThat(v.remove(1500), is(w.remove(1500)));
+		assertThat(v.remove(3000), is(false));
+		for (Iterator<Integer> it = v.iterator(); it.hasNext(); )
+			if (it.next() % 3 == 0)
+				it.remove();
+		w.removeIf(x -> x % 3 == 0);
+		assertThat(v, is((Set<Integer>)w));
+		s.tailSet(3000).clear();
+		j.tailSet(3000).clear();
+		assertThat(s, is((Set<Integer>)j));
+		assertThat(s.last(), is(j.last()));
+	}
+
+	private static void checkView(SortedSet<Integer> v, SortedSet<Integer> w,
+			int a, int b) {
+		assertThat(v.size(), is(w.size()));
+		assertThat(v.isEmpty(), is(w.isEmpty()));
+		Iterator<Integer> it = v.iterator();
+		for (Integer x : w)
+			assertThat(it.next(), is(x));
+		assertThat(it.hasNext(), is(false));
+		if (!w.isEmpty()) {
+			assertThat(v.first(), is(w.first()));
+			assertThat(v.last(), is(w.last()));
+		}
+		for (int x = a - 2; x <= b + 2; x += 1 + (b - a) / 16)
+			assertThat(v.contains(x), is(w.contains(x)));
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * CacheBenchmark.java - trace replay test for bounded Cache
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Replays a synthetic trace through a cache, loading the value on every
+ * miss: each operation is a whole replay, and the hit rate of the last one
+ * is printed at the end of the trial.
+ *
+ * <p>The trace mixes a Zipf-distributed popular set (100000 keys,
+ * exponent 0.9) with a scan of 5000 keys never seen before every 50000
+ * requests, the pattern which flushes an LRU cache. The "linked" policy is
+ * an access-ordered LinkedHashMap removing its eldest entry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark
+{
+	static final int REQUESTS = 1000000;
+	static final int POPULAR = 100000;
+	static final int SCAN_PERIOD = 50000;
+	static final int SCAN_LENGTH = 5000;
+
+	@Param({ "linked", "lru", "tinylfu" })
+	String policy;
+
+	@Param({ "1000", "10000" })
+	int maximumSize;
+
+	Integer[] trace;
+	long hits;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		double[] cumulative = new double[POPULAR];
+		double sum = 0;
+		for (int i = 0; i < POPULAR; i++)
+			cumulative[i] = sum += 1 / Math.pow(i + 1, 0.9);
+
+		trace = new Integer[REQUESTS];
+		int unique = POPULAR;
+		for (int i = 0; i < REQUESTS; ) {
+			if (i % SCAN_PERIOD == 0 && i > 0) {
+				for (int j = 0; j < SCAN_LENGTH && i < REQUESTS; j++)
+					trace[i++] = unique++;
+				continue;
+			}
+			double x = random.nextDouble() * sum;
+			int index = java.util.Arrays.binarySearch(cumulative, x);
+			trace[i++] = index < 0 ? -index - 1 : index;
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void report() {
+		System.out.printf("%n%s/%d hit rate: %.4f%n", policy, maximumSize,
+			(double)hits / REQUESTS);
+	}
+
+	@Benchmark
+	public long replay() {
+		hits = 0;
+		if (policy.equals("linked")) {
+			final int max = maximumSize;
+			Map<Integer,Integer> map =
+				new LinkedHashMap<Integer,Integer>(16, 0.75f, true) {
+					protected boolean removeEldestEntry(
+							Map.Entry<Integer,Integer> eldest) {
+						return size() > max;
+					}
+				};
+			for (int i = 0; i < trace.length; i++) {
+				Integer key = trace[i];
+				if (map.get(key) != null)
+					hits++;
+				else
+					map.put(key, key);
+			}
+		} else {
+			Cache<Integer,Integer> cache = new Cache<Integer,Integer>(
+				maximumSize, policy.equals("lru") ?
+				new LruPolicy<Integer,Integer>() :
+				new TinyLfuPolicy<Integer,Integer>(maximumSize));
+			for (int i = 0; i < trace.length; i++) {
+				Integer key = trace[i];
+				if (cache.get(key) == null)
+					cache.put(key, key);
+			}
+			hits = cache.hitCount();
+		}
+		return hits;
+	}
+
+}
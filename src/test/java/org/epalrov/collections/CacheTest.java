@@ -0,0 +1,175 @@
+/*
+ * CacheTest.java - unit test for bounded Cache
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * Unit test for Cache and its eviction policies.
+ */
+public class CacheTest extends TestCase
+{
+	/**
+	 * Create the test case
+	 */
+	public CacheTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(CacheTest.class);
+	}
+
+	/**
+	 * Rigourous Test
+	 */
+	public void testCache() {
+		// LRU, bounded by size
+		Cache<Integer,String> c = new Cache<Integer,String>(3);
+		assertTrue(c.isEmpty());
+		for (int i = 0; i < 3; i++)
+			assertNull(c.put(i, "v" + i));
+		assertThat(c.get(0), is("v0"));
+		assertThat(c.put(3, "v3"), is((String)null));
+		assertThat(c.size(), is(3));
+		assertThat(c.containsKey(1), is(false));
+		assertThat(c.put(2, "w2"), is("v2"));
+		c.put(4, "v4");
+		assertThat(c.containsKey(0), is(false));
+		assertNull(c.get(0));
+		assertThat(c.get(2), is("w2"));
+		assertThat(c.hitCount(), is(2L));
+		assertThat(c.missCount(), is(1L));
+		assertThat(c.evictionCount(), is(2L));
+		assertThat(c.remove(3), is("v3"));
+		assertThat(c.size(), is(2));
+		c.clear();
+		assertThat(c.size(), is(0));
+		assertThat(c.weightedSize(), is(0L));
+
+		try {
+			c.put(null, "x");
+			fail("null key accepted");
+		} catch (NullPointerException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Weight Test
+	 */
+	public void testCacheWeight() {
+		Weigher<String,String> length = new Weigher<String,String>() {
+			public int weigh(String key, String value) {
+				return value.length();
+			}
+		};
+		for (int mode = 0; mode < 2; mode++) {
+			Cache<String,String> c = new Cache<String,String>(10, length,
+				mode == 0 ? new LruPolicy<String,String>() :
+				new TinyLfuPolicy<String,String>(10));
+			c.put("a", "aaaa");
+			c.put("b", "bbbb");
+			assertThat(c.weightedSize(), is(8L));
+			c.put("a", "a");
+			assertThat(c.weightedSize(), is(5L));
+			c.put("c", "cccccc");
+			assertTrue(c.weightedSize() <= 10);
+			c.put("d", "ddddddddddd");
+			assertThat(c.containsKey("d"), is(false));
+			assertTrue(c.weightedSize() <= 10);
+			c.clear();
+			assertThat(c.weightedSize(), is(0L));
+		}
+	}
+
+	/**
+	 * Frequency Test
+	 */
+	public void testCacheFrequency() {
+		int n = 100;
+		Cache<Integer,Integer> lru = new Cache<Integer,Integer>(n);
+		Cache<Integer,Integer> lfu = new Cache<Integer,Integer>(n,
+			new TinyLfuPolicy<Integer,Integer>(n));
+
+		// a popular working set, then a scan of keys used once
+		for (int round = 0; round < 10; round++)
+			for (int i = 0; i < n / 2; i++) {
+				lru.put(i, i);
+				lfu.put(i, i);
+				lfu.get(i);
+			}
+		for (int i = n; i < 10 * n; i++) {
+			lru.put(i, i);
+			lfu.put(i, i);
+		}
+		int lruHits = 0, lfuHits = 0;
+		for (int i = 0; i < n / 2; i++) {
+			if (lru.containsKey(i))
+				lruHits++;
+			if (lfu.containsKey(i))
+				lfuHits++;
+		}
+		// the sketch may overestimate a few scanned keys
+		assertThat(lruHits, is(0));
+		assertTrue(lfuHits >= 9 * n / 20);
+		assertThat(lfu.size(), is(n));
+
+		// the sketch saturates and ages its counters
+		CountMinSketch s = new CountMinSketch(16);
+		for (int i = 0; i < 20; i++)
+			s.increment("x");
+		assertThat(s.frequency("x"), is(15));
+		for (int i = 0; i < 200; i++)
+			s.increment(i);
+		assertTrue(s.frequency("x") < 15);
+	}
+
+	/**
+	 * Byte Weight Test: a maximum weight in bytes does not size the
+	 * frequency sketch, which grows with the number of mappings.
+	 */
+	public void testCacheByteWeight() {
+		long maximumWeight = 1L << 40;
+		int n = 1000;
+		Weigher<Integer,Integer> bytes = new Weigher<Integer,Integer>() {
+			public int weigh(Integer key, Integer value) {
+				return value;
+			}
+		};
+		Cache<Integer,Integer> c = new Cache<Integer,Integer>(maximumWeight,
+			bytes, new TinyLfuPolicy<Integer,Integer>(maximumWeight));
+		int weight = (int)(maximumWeight / n);
+
+		// a popular working set, then a scan of keys used once
+		for (int round = 0; round < 10; round++)
+			for (int i = 0; i < n / 2; i++) {
+				c.put(i, weight);
+				c.get(i);
+			}
+		for (int i = n; i < 10 * n; i++)
+			c.put(i, weight);
+		assertThat(c.size(), is(n));
+		assertTrue(c.weightedSize() <= maximumWeight);
+		int hits = 0;
+		for (int i = 0; i < n / 2; i++)
+			if (c.containsKey(i))
+				hits++;
+		assertTrue(hits >= 9 * n / 20);
+	}
+
+}
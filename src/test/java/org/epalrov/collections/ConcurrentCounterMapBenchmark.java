@@ -0,0 +1,98 @@
+/*
+ * ConcurrentCounterMapBenchmark.java - multi-threaded test for Concurrent
+ * Counter Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of counting Zipf distributed keys (exponent 1, so that the
+ * first key gets about 10% of the events) in a shared map,
+ * ConcurrentCounterMap against a HashMap of Long behind a single lock. Run
+ * it with an increasing number of threads, e.g. "-t 1", "-t 4", ...
+ * "-t 64": the hot keys are where the striped counters should pay off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentCounterMapBenchmark
+{
+	static final int KEYS = 10000;
+	static final int SAMPLES = 1 << 20;
+
+	@Param({ "counter", "synchronized" })
+	String impl;
+
+	ConcurrentCounterMap<Integer> counter;
+	Map<Integer,Long> map;
+	Integer[] samples;
+
+	@Setup
+	public void setup() {
+		// inverse of the cumulative distribution, by binary search
+		double[] cdf = new double[KEYS];
+		double sum = 0;
+		for (int i = 0; i < KEYS; i++)
+			cdf[i] = sum += 1.0 / (i + 1);
+		Random random = new Random(42);
+		samples = new Integer[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			double u = random.nextDouble() * sum;
+			int lo = 0, hi = KEYS - 1;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (cdf[mid] < u)
+					lo = mid + 1;
+				else
+					hi = mid;
+			}
+			samples[i] = lo;
+		}
+
+		if (impl.equals("counter"))
+			counter = new ConcurrentCounterMap<Integer>(KEYS);
+		else
+			map = Collections.synchronizedMap(
+				new HashMap<Integer,Long>(KEYS));
+	}
+
+	@Benchmark
+	public void increment() {
+		Integer key = samples[
+			ThreadLocalRandom.current().nextInt(SAMPLES)];
+		if (counter != null) {
+			counter.increment(key);
+		} else {
+			synchronized (map) {
+				Long v = map.get(key);
+				map.put(key, v == null ? 1L : v + 1L);
+			}
+		}
+	}
+
+}
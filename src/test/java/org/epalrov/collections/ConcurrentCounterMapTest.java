@@ -0,0 +1,142 @@
+/*
+ * ConcurrentCounterMapTest.java - unit test for Concurrent Counter Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * Unit test for ConcurrentCounterMap.
+ */
+public class ConcurrentCounterMapTest extends TestCase
+{
+	/**
+	 * Create the test case
+	 */
+	public ConcurrentCounterMapTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(ConcurrentCounterMapTest.class);
+	}
+
+	/**
+	 * Rigourous Test
+	 */
+	public void testConcurrentCounterMap() {
+		ConcurrentCounterMap<String> c = new ConcurrentCounterMap<String>(4);
+		assertTrue(c.isEmpty());
+		assertThat(c.sum("x"), is(0L));
+
+		// increment and add
+		for (int i = 0; i < 10; i++) {
+			c.increment("a");
+			for (int j = 0; j <= i; j++)
+				c.increment("b");
+		}
+		c.add("c", 1000L);
+		c.add("d", -5L);
+		c.add("d", 2L);
+		assertThat(c.size(), is(4));
+		assertThat(c.sum("a"), is(10L));
+		assertThat(c.sum("b"), is(55L));
+		assertThat(c.sum("c"), is(1000L));
+		assertThat(c.sum("d"), is(-3L));
+
+		// snapshot
+		Map<String,Long> s = c.snapshot();
+		Map<String,Long> j = new java.util.HashMap<String,Long>();
+		j.put("a", 10L);
+		j.put("b", 55L);
+		j.put("c", 1000L);
+		j.put("d", -3L);
+		assertThat(s, is(j));
+		c.increment("a");
+		assertThat(s.get("a"), is(10L));
+
+		// top k
+		List<Map.Entry<String,Long>> top = c.topK(2);
+		assertThat(top.size(), is(2));
+		assertThat(top.get(0).getKey(), is("c"));
+		assertThat(top.get(1).getKey(), is("b"));
+		assertThat(top.get(1).getValue(), is(55L));
+		top = c.topK(10);
+		assertThat(top.size(), is(4));
+		assertThat(top.get(3).getKey(), is("d"));
+		assertTrue(c.topK(0).isEmpty());
+		try {
+			c.topK(-1);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+
+		// remove and clear
+		assertThat(c.remove("c"), is(1000L));
+		assertThat(c.remove("c"), is(0L));
+		assertThat(c.size(), is(3));
+		c.clear();
+		assertTrue(c.isEmpty());
+		assertThat(c.sum("a"), is(0L));
+
+		try {
+			c.increment(null);
+			fail();
+		} catch (NullPointerException e) {
+		}
+	}
+
+	/**
+	 * Concurrency Test: threads increment a few hot keys and their own
+	 * keys, with no update lost.
+	 */
+	public void testConcurrentCounterMapThreads()
+			throws InterruptedException {
+		final int n = 100000;
+		final int hot = 4;
+		final int threads = 8;
+		final ConcurrentCounterMap<Integer> c =
+			new ConcurrentCounterMap<Integer>();
+
+		Thread[] t = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			final int id = i;
+			t[i] = new Thread() {
+				public void run() {
+					for (int k = 0; k < n; k++) {
+						c.increment(k % hot);
+						c.add(-id - 1, 2L);
+					}
+				}
+			};
+		}
+		for (int i = 0; i < threads; i++)
+			t[i].start();
+		for (int i = 0; i < threads; i++)
+			t[i].join();
+
+		assertThat(c.size(), is(hot + threads));
+		for (int k = 0; k < hot; k++)
+			assertThat(c.sum(k), is((long)threads * n / hot));
+		for (int i = 0; i < threads; i++)
+			assertThat(c.sum(-i - 1), is(2L * n));
+		assertThat(c.topK(1).get(0).getValue(), is(2L * n));
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * ConcurrentHashMapBenchmark.java - multi-threaded test for Concurrent Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of a shared map under a read-mostly mix (90% get, 10% put),
+ * ConcurrentHashMap against a HashMap behind a single lock. Run it with an
+ * increasing number of threads, e.g. "-t 1", "-t 4", ... "-t 32": the
+ * striped map should scale with the cores while the locked one flattens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentHashMapBenchmark
+{
+	static final int KEYS = 1 << 16;
+
+	@Param({ "concurrent", "synchronized" })
+	String impl;
+
+	Map<Integer,Integer> map;
+
+	@Setup
+	public void setup() {
+		if (impl.equals("concurrent"))
+			map = new ConcurrentHashMap<Integer,Integer>(KEYS);
+		else
+			map = Collections.synchronizedMap(
+				new HashMap<Integer,Integer>(KEYS));
+		for (int i = 0; i < KEYS; i++)
+			map.put(i, i);
+	}
+
+	@Benchmark
+	public Integer mixed() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		Integer key = random.nextInt(KEYS);
+		if (random.nextInt(10) == 0)
+			return map.put(key, key);
+		return map.get(key);
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * ConcurrentHashMapTest.java - unit test for Concurrent Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Map;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentMap;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * Unit test for ConcurrentHashMap.
+ */
+public class ConcurrentHashMapTest extends TestCase
+{
+	/**
+	 * Create the test case
+	 */
+	public ConcurrentHashMapTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(ConcurrentHashMapTest.class);
+	}
+
+	/**
+	 * Rigourous Test
+	 */
+	public void testConcurrentHashMap() {
+		String[] a = {
+			"paolo", "love", "valeria", ":", "i", "mimmi", "bimbi"
+		};
+		ConcurrentMap<Integer,String> h =
+			new ConcurrentHashMap<Integer,String>(3, 0.75f, 2);
+
+		// add
+		for (int i = 0; i < a.length; i++)
+			assertNull(h.put(i, a[i]));
+		assertThat(h.size(), is(a.length));
+		assertThat(h.putIfAbsent(0, "x"), is(a[0]));
+
+		// search
+		for (int i = 0; i < a.length; i++) {
+			assertThat(h.get(i), is(a[i]));
+			assertThat(h.containsKey(i), is(true));
+			assertThat(h.containsValue(a[i]), is(true));
+		}
+
+		// replace
+		assertThat(h.replace(0, "x", "y"), is(false));
+		assertThat(h.replace(0, a[0], "y"), is(true));
+		assertThat(h.replace(0, a[0]), is("y"));
+		assertThat(h.remove(0, "y"), is(false));
+
+		// iterator
+		int count = 0;
+		Iterator<Map.Entry<Integer,String>> it = h.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Integer,String> e = it.next();
+			assertThat(e.getValue(), is(a[e.getKey()]));
+			if (e.getKey() == 1)
+				it.remove();
+			count++;
+		}
+		assertThat(count, is(a.length));
+		assertThat(h.size(), is(a.length - 1));
+		assertThat(h.equals(h), is(true));
+
+		// remove
+		for (int i = 0; i < a.length; i++)
+			assertThat(h.remove(i), is(i == 1 ? null : a[i]));
+		assertTrue(h.isEmpty());
+
+		try {
+			h.put(null, "x");
+			fail();
+		} catch (NullPointerException e) {
+		}
+	}
+
+	/**
+	 * Concurrency Test: writers add and remove disjoint ranges of keys,
+	 * while a reader keeps looking up the keys that are never removed.
+	 */
+	public void testConcurrentHashMapThreads() throws InterruptedException {
+		final int n = 20000;
+		final int writers = 4;
+		final ConcurrentHashMap<Integer,Integer> h =
+			new ConcurrentHashMap<Integer,Integer>(16, 0.75f, 4);
+		final boolean[] failed = new boolean[1];
+
+		for (int i = 0; i < n; i++)
+			h.put(-i - 1, i);
+
+		Thread[] threads = new Thread[writers + 1];
+		for (int t = 0; t < writers; t++) {
+			final int base = t * n;
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = base; i < base + n; i++)
+						h.put(i, i);
+					for (int i = base; i < base + n; i += 2)
+						h.remove(i);
+				}
+			};
+		}
+		threads[writers] = new Thread() {
+			public void run() {
+				for (int round = 0; round < 5; round++)
+					for (int i = 0; i < n; i++)
+						if (h.get(-i - 1) != i)
+							failed[0] = true;
+			}
+		};
+		for (int t = 0; t < threads.length; t++)
+			threads[t].start();
+		for (int t = 0; t < threads.length; t++)
+			threads[t].join();
+
+		assertThat(failed[0], is(false));
+		assertThat(h.size(), is(n + writers * n / 2));
+		assertThat(h.mappingCount(), is((long)(n + writers * n / 2)));
+		for (int i = 0; i < writers * n; i++)
+			assertThat(h.get(i), is(i % 2 == 0 ? null : i));
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * ConcurrentSkipListSetBenchmark.java - throughput test for Skip List Set
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of a shared sorted set, like the price levels of an order
+ * book, under a mix of 70% lookups (contains, ceiling, floor), 15% add and
+ * 15% remove, ConcurrentSkipListSet against a TreeSet behind a single
+ * lock. Run it with an increasing number of threads, e.g. "-t 1", "-t 4",
+ * ... "-t 32": the lock-free set should scale with the cores while the
+ * locked one flattens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentSkipListSetBenchmark
+{
+	static final int ELEMENTS = 1 << 16;
+
+	@Param({ "concurrent", "synchronized" })
+	String impl;
+
+	NavigableSet<Integer> set;
+
+	@Setup
+	public void setup() {
+		if (impl.equals("concurrent"))
+			set = new ConcurrentSkipListSet<Integer>();
+		else
+			set = Collections.synchronizedNavigableSet(
+				new TreeSet<Integer>());
+		for (int i = 0; i < ELEMENTS; i += 2)
+			set.add(i);
+	}
+
+	@Benchmark
+	public Object mixed() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		Integer e = random.nextInt(ELEMENTS);
+		int op = random.nextInt(20);
+		if (op < 3)
+			return set.add(e);
+		if (op < 6)
+			return set.remove(e);
+		if (op < 12)
+			return set.contains(e);
+		if (op < 16)
+			return set.ceiling(e);
+		return set.floor(e);
+	}
+
+}
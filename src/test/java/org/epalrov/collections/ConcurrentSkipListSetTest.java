@@ -0,0 +1,301 @@
+/*
+ * ConcurrentSkipListSetTest.java - unit test for Concurrent Skip List Set
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Set;
+import java.util.Iterator;
+import java.util.NavigableSet;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * Unit test for ConcurrentSkipListSet.
+ */
+public class ConcurrentSkipListSetTest extends TestCase
+{
+	/**
+	 * Create the test case
+	 */
+	public ConcurrentSkipListSetTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(ConcurrentSkipListSetTest.class);
+	}
+
+	/**
+	 * Rigourous Test
+	 */
+	public void testConcurrentSkipListSet() {
+		String[] a = {
+			"paolo", "love", "valeria", ":", "i", "mimmi", "bimbi"
+		};
+		Set<String> s = new ConcurrentSkipListSet<String>();
+
+		// add
+		for (int i = 0; i < a.length; i++)
+			assertTrue(s.add(a[i]));
+		assertThat(s.size(), is(a.length));
+		for (int i = 0; i < a.length; i++)
+			assertFalse(s.add(a[i]));
+
+		// search
+		for (int i = 0; i < a.length; i++)
+			assertThat(s.contains(a[i]), is(true));
+
+		// remove
+		for (int i = 0; i < a.length; i++)
+			assertTrue(s.remove(a[i]));
+		assertTrue(s.isEmpty());
+		assertFalse(s.remove("paolo"));
+
+		// bulk
+		assertThat(s.addAll(java.util.Arrays.asList(a)), is(true));
+		assertThat(s.containsAll(java.util.Arrays.asList(a)), is(true));
+		assertThat(s.size(), is(a.length));
+
+		// iterator, in order
+		String prev = "";
+		for (String x : s) {
+			assertTrue(prev.compareTo(x) < 0);
+			prev = x;
+		}
+
+		// hash code and equality
+		Set<String> j = new java.util.HashSet<String>(
+			java.util.Arrays.asList(a));
+		assertThat(s.hashCode(), is(j.hashCode()));
+		assertThat(s.equals(j), is(true));
+		s.clear();
+		assertTrue(s.isEmpty());
+
+		try {
+			s.add(null);
+			fail("null element accepted");
+		} catch (NullPointerException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Navigation Test: queries and range views against java.util.TreeSet.
+	 */
+	public void testConcurrentSkipListSetNavigable() {
+		java.util.Random random = new java.util.Random(42);
+		ConcurrentSkipListSet<Integer> s = new ConcurrentSkipListSet<Integer>();
+		java.util.TreeSet<Integer> j = new java.util.TreeSet<Integer>();
+		try {
+			s.first();
+			fail("first element of an empty set");
+		} catch (java.util.NoSuchElementException e) {
+			// expected
+		}
+		assertNull(s.pollFirst());
+		assertNull(s.pollLast());
+		for (int i = 0; i < 3000; i++) {
+			Integer v = random.nextInt(4000);
+			if (random.nextInt(3) == 0)
+				assertThat(s.remove(v), is(j.remove(v)));
+			else
+				assertThat(s.add(v), is(j.add(v)));
+		}
+		assertThat(s.size(), is(j.size()));
+		assertThat(s.first(), is(j.first()));
+		assertThat(s.last(), is(j.last()));
+		for (int v = -1; v <= 4001; v++) {
+			assertThat(s.lower(v), is(j.lower(v)));
+			assertThat(s.floor(v), is(j.floor(v)));
+			assertThat(s.ceiling(v), is(j.ceiling(v)));
+			assertThat(s.higher(v), is(j.higher(v)));
+		}
+
+		// views, nested and descending, checked both ways
+		for (int i = 0; i < 200; i++) {
+			int a = random.nextInt(4200) - 100;
+			int b = a + 4 + random.nextInt(800);
+			boolean ai = random.nextBoolean(), bi = random.nextBoolean();
+			NavigableSet<Integer> v = s.subSet(a, ai, b, bi);
+			NavigableSet<Integer> w = j.subSet(a, ai, b, bi);
+			checkView(v, w, a, b);
+			checkView(v.descendingSet(), w.descendingSet(), a, b);
+			checkView(s.headSet(b, bi), j.headSet(b, bi), a, b);
+			checkView(s.tailSet(a, ai), j.tailSet(a, ai), a, b);
+			int c = a + (b - a) / 3, d = b - (b - a) / 3;
+			checkView(v.subSet(c, true, d, false), w.subSet(c, true, d, false),
+				a, b);
+			checkView(v.descendingSet().headSet(c, true),
+				w.descendingSet().headSet(c, true), a, b);
+			checkView(v.descendingSet().tailSet(d, false),
+				w.descendingSet().tailSet(d, false), a, b);
+		}
+		checkView(s.descendingSet(), j.descendingSet(), 0, 4000);
+		try {
+			s.subSet(10, 5);
+			fail("inverted range accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			s.subSet(10, 20).add(30);
+			fail("element out of range accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		// updates through the views
+		NavigableSet<Integer> v = s.subSet(1000, true, 2000, true);
+		NavigableSet<Integer> w = j.subSet(1000, true, 2000, true);
+		assertThat(v.pollFirst(), is(w.pollFirst()));
+		assertThat(v.descendingSet().pollFirst(), is(w.pollLast()));
+		assertThat(v.add(1500), is(w.add(1500)));
+		assertThat(v.remove(1500), is(w.remove(1500)));
+		assertThat(v.remove(3000), is(false));
+		for (Iterator<Integer> it = v.descendingIterator(); it.hasNext(); )
+			if (it.next() % 3 == 0)
+				it.remove();
+		w.removeIf(x -> x % 3 == 0);
+		assertThat(v, is((Set<Integer>)w));
+		s.tailSet(3000).clear();
+		j.tailSet(3000).clear();
+		assertThat(s.size(), is(j.size()));
+		assertThat(s.pollLast(), is(j.pollLast()));
+		assertThat(s.pollFirst(), is(j.pollFirst()));
+		assertThat(s, is((Set<Integer>)j));
+	}
+
+	/**
+	 * Concurrency Test: writers add interleaved elements and remove half
+	 * of them, while a reader looks up the elements that are never removed
+	 * and checks the order of the iterators; then the threads poll the
+	 * set empty, each element exactly once.
+	 */
+	public void testConcurrentSkipListSetThreads()
+			throws InterruptedException {
+		final int n = 20000;
+		final int writers = 4;
+		final ConcurrentSkipListSet<Integer> s =
+			new ConcurrentSkipListSet<Integer>();
+		final boolean[] failed = new boolean[1];
+
+		for (int i = 0; i < n; i++)
+			s.add(-i - 1);
+
+		Thread[] threads = new Thread[writers + 1];
+		for (int t = 0; t < writers; t++) {
+			final int base = t;
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = 0; i < n; i++)
+						s.add(i * writers + base);
+					for (int i = 0; i < n; i += 2)
+						s.remove(i * writers + base);
+				}
+			};
+		}
+		threads[writers] = new Thread() {
+			public void run() {
+				for (int round = 0; round < 5; round++) {
+					for (int i = 0; i < n; i++)
+						if (!s.contains(-i - 1))
+							failed[0] = true;
+					int prev = Integer.MIN_VALUE;
+					for (Integer x : s) {
+						if (x <= prev)
+							failed[0] = true;
+						prev = x;
+					}
+					prev = Integer.MAX_VALUE;
+					for (Iterator<Integer> it = s.descendingIterator();
+							it.hasNext(); ) {
+						int x = it.next();
+						if (x >= prev)
+							failed[0] = true;
+						prev = x;
+					}
+				}
+			}
+		};
+		for (int t = 0; t < threads.length; t++)
+			threads[t].start();
+		for (int t = 0; t < threads.length; t++)
+			threads[t].join();
+
+		assertThat(failed[0], is(false));
+		assertThat(s.size(), is(n + writers * n / 2));
+		for (int i = 0; i < writers * n; i++)
+			assertThat(s.contains(i), is((i / writers) % 2 != 0));
+
+		// every element is polled by exactly one thread
+		final int[] polled = new int[writers];
+		final long[] sums = new long[writers];
+		for (int t = 0; t < writers; t++) {
+			final int id = t;
+			threads[t] = new Thread() {
+				public void run() {
+					Integer x;
+					while ((x = id % 2 == 0 ? s.pollFirst() :
+							s.pollLast()) != null) {
+						polled[id]++;
+						sums[id] += x;
+					}
+				}
+			};
+		}
+		long expected = 0;
+		for (Integer x : s)
+			expected += x;
+		for (int t = 0; t < writers; t++)
+			threads[t].start();
+		int total = 0;
+		long sum = 0;
+		for (int t = 0; t < writers; t++) {
+			threads[t].join();
+			total += polled[t];
+			sum += sums[t];
+		}
+		assertThat(total, is(n + writers * n / 2));
+		assertThat(sum, is(expected));
+		assertTrue(s.isEmpty());
+	}
+
+	private static void checkView(NavigableSet<Integer> v,
+			NavigableSet<Integer> w, int a, int b) {
+		assertThat(v.size(), is(w.size()));
+		assertThat(v.isEmpty(), is(w.isEmpty()));
+		Iterator<Integer> it = v.iterator();
+		for (Integer x : w)
+			assertThat(it.next(), is(x));
+		assertThat(it.hasNext(), is(false));
+		it = v.descendingIterator();
+		for (Iterator<Integer> jt = w.descendingIterator(); jt.hasNext(); )
+			assertThat(it.next(), is(jt.next()));
+		assertThat(it.hasNext(), is(false));
+		if (!w.isEmpty()) {
+			assertThat(v.first(), is(w.first()));
+			assertThat(v.last(), is(w.last()));
+		}
+		for (int x = a - 2; x <= b + 2; x += 1 + (b - a) / 16) {
+			assertThat(v.contains(x), is(w.contains(x)));
+			assertThat(v.lower(x), is(w.lower(x)));
+			assertThat(v.floor(x), is(w.floor(x)));
+			assertThat(v.ceiling(x), is(w.ceiling(x)));
+			assertThat(v.higher(x), is(w.higher(x)));
+		}
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * ExpiringMapBenchmark.java - expiry sweep test for Expiring Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of an expiry sweep over 10M mappings with a time-to-live uniform
+ * between 1 ms and 10 minutes, after the clock has moved by the specified
+ * step: the timing wheel of ExpiringMap against a scan of a HashMap of
+ * expiration times. Every expired key is put back with a new time-to-live,
+ * so that the size stays the same (about 17 keys expire per millisecond).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms3g", "-Xmx3g" })
+public class ExpiringMapBenchmark
+{
+	static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+	static final int MAX_TTL = 600000;
+
+	@Param({ "wheel", "scan" })
+	String impl;
+
+	@Param({ "10000000" })
+	int size;
+
+	@Param({ "1", "1000" })
+	int step;
+
+	final long[] now = new long[1];
+	final Random random = new Random(42);
+	ExpiringMap<Integer,Integer> wheel;
+	HashMap<Integer,Long> scan;
+	Integer[] keys;
+	int[] expired;
+	int count;
+
+	@Setup
+	public void setup() {
+		keys = new Integer[size];
+		for (int i = 0; i < size; i++)
+			keys[i] = i;
+		expired = new int[1024];
+		if (impl.equals("wheel")) {
+			wheel = new ExpiringMap<Integer,Integer>(0, MILLI, false,
+				new LongSupplier() {
+					public long getAsLong() {
+						return now[0];
+					}
+				});
+			wheel.setRemovalListener(new RemovalListener<Integer,Integer>() {
+				public void onRemoval(Integer key, Integer value,
+						Cause cause) {
+					expired(key);
+				}
+			});
+			for (int i = 0; i < size; i++)
+				wheel.put(keys[i], keys[i], ttl(), TimeUnit.NANOSECONDS);
+		} else {
+			scan = new HashMap<Integer,Long>(
+				HashMap.capacityFor(size, HashMap.DEFAULT_LOAD_FACTOR));
+			for (int i = 0; i < size; i++)
+				scan.put(keys[i], now[0] + ttl());
+		}
+	}
+
+	private long ttl() {
+		return (1 + random.nextInt(MAX_TTL)) * MILLI;
+	}
+
+	private void expired(int key) {
+		if (count == expired.length)
+			expired = java.util.Arrays.copyOf(expired, count * 2);
+		expired[count++] = key;
+	}
+
+	@Benchmark
+	public int sweep() {
+		now[0] += step * MILLI;
+		count = 0;
+		if (wheel != null) {
+			wheel.expire();
+			for (int i = 0; i < count; i++)
+				wheel.put(keys[expired[i]], keys[expired[i]], ttl(),
+					TimeUnit.NANOSECONDS);
+		} else {
+			long t = now[0];
+			for (Iterator<Map.Entry<Integer,Long>> i =
+					scan.entrySet().iterator(); i.hasNext(); ) {
+				Map.Entry<Integer,Long> e = i.next();
+				if (e.getValue() <= t) {
+					expired(e.getKey());
+					i.remove();
+				}
+			}
+			for (int i = 0; i < count; i++)
+				scan.put(keys[expired[i]], t + ttl());
+		}
+		return count;
+	}
+
+}
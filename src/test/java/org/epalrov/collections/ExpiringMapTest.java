@@ -0,0 +1,174 @@
+/*
+ * ExpiringMapTest.java - unit test for Expiring Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * Unit test for ExpiringMap.
+ */
+public class ExpiringMapTest extends TestCase
+{
+	/**
+	 * Create the test case
+	 */
+	public ExpiringMapTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(ExpiringMapTest.class);
+	}
+
+	// a clock moved by hand
+	static final class ManualClock implements LongSupplier {
+		long now = 1000;
+
+		public long getAsLong() {
+			return now;
+		}
+	}
+
+	/**
+	 * Rigourous Test
+	 */
+	public void testExpiringMap() {
+		ManualClock clock = new ManualClock();
+		ExpiringMap<String,String> m =
+			new ExpiringMap<String,String>(100, 10, false, clock);
+		final List<String> removed = new ArrayList<String>();
+		m.setRemovalListener(new RemovalListener<String,String>() {
+			public void onRemoval(String key, String value, Cause cause) {
+				removed.add(key + "=" + value + ":" + cause);
+			}
+		});
+		assertTrue(m.isEmpty());
+
+		assertNull(m.put("a", "1"));
+		assertNull(m.put("b", "2", 1000, TimeUnit.NANOSECONDS));
+		assertThat(m.put("a", "3"), is("1"));
+		assertThat(removed.get(0), is("a=1:REPLACED"));
+		assertThat(m.size(), is(2));
+
+		// expiry happens when the wheel is advanced
+		clock.now += 100;
+		assertThat(m.get("a"), is("3"));
+		m.expire();
+		assertNull(m.get("a"));
+		assertThat(m.get("b"), is("2"));
+		assertThat(removed.get(1), is("a=3:EXPIRED"));
+		clock.now += 1000;
+		m.put("c", "4");
+		assertThat(m.containsKey("b"), is(false));
+		assertThat(removed.get(2), is("b=2:EXPIRED"));
+
+		// remove and clear
+		m.put("d", "5");
+		assertThat(m.remove("c"), is("4"));
+		assertNull(m.remove("c"));
+		m.clear();
+		assertTrue(m.isEmpty());
+		assertThat(removed.size(), is(5));
+		assertThat(removed.get(4), is("d=5:EXPLICIT"));
+		clock.now += 1000;
+		m.expire();
+		assertThat(removed.size(), is(5));
+
+		try {
+			m.put(null, "x");
+			fail("null key accepted");
+		} catch (NullPointerException e) {
+			// expected
+		}
+		try {
+			m.put("x", "x", -1, TimeUnit.SECONDS);
+			fail("negative ttl accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Expiry on read Test
+	 */
+	public void testExpiringMapOnRead() {
+		ManualClock clock = new ManualClock();
+		ExpiringMap<Integer,Integer> m =
+			new ExpiringMap<Integer,Integer>(50, 1000, true, clock);
+		m.put(1, 1);
+		clock.now += 49;
+		assertThat(m.get(1), is(1));
+		clock.now += 1;
+		assertThat(m.containsKey(1), is(false));
+		assertTrue(m.isEmpty());
+	}
+
+	/**
+	 * Random Test: time-to-live spanning all the levels of the wheel and
+	 * beyond, checked against the expiration of every key.
+	 */
+	public void testExpiringMapRandom() {
+		Random random = new Random(42);
+		ManualClock clock = new ManualClock();
+		ExpiringMap<Integer,Integer> m =
+			new ExpiringMap<Integer,Integer>(0, 1, false, clock);
+		int n = 2000;
+		long[] expiration = new long[n];
+		final boolean[] expired = new boolean[n];
+		m.setRemovalListener(new RemovalListener<Integer,Integer>() {
+			public void onRemoval(Integer key, Integer value, Cause cause) {
+				if (cause == Cause.EXPIRED)
+					expired[key] = true;
+			}
+		});
+
+		for (int round = 0; round < 200; round++) {
+			for (int k = 0; k < 20; k++) {
+				int key = random.nextInt(n);
+				long ttl = 1 + (random.nextInt(4) == 0 ?
+					(long)random.nextInt(1 << 30) << random.nextInt(12) :
+					random.nextInt(1 << random.nextInt(20)));
+				m.put(key, key, ttl, TimeUnit.NANOSECONDS);
+				expiration[key] = clock.now + ttl;
+				expired[key] = false;
+			}
+			clock.now += random.nextInt(4) == 0 ?
+				(long)random.nextInt(1 << 30) << random.nextInt(8) :
+				random.nextInt(1 << random.nextInt(20));
+			m.expire();
+			int size = 0;
+			for (int key = 0; key < n; key++) {
+				if (expiration[key] == 0)
+					continue;
+				boolean live = expiration[key] > clock.now;
+				assertThat(m.containsKey(key), is(live));
+				if (live)
+					size++;
+				else
+					assertTrue(expired[key]);
+			}
+			assertThat(m.size(), is(size));
+		}
+	}
+
+}
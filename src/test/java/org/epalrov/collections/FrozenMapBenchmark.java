@@ -0,0 +1,101 @@
+/*
+ * FrozenMapBenchmark.java - lookup test for immutable Perfect Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looks up random String keys, 1 out of 10 missing, in a HashMap and in the
+ * FrozenMap built from it by freeze(). The build time of both is measured
+ * too: a copy for the HashMap, the perfect hash function for the FrozenMap;
+ * run with "-prof gc" to see the bytes allocated by each build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" })
+public class FrozenMapBenchmark
+{
+	static final int LOOKUPS = 1024;
+
+	@Param({ "1000", "1000000" })
+	int size;
+
+	HashMap<String,Integer> hash;
+	FrozenMap<String,Integer> frozen;
+	String[] keys;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		hash = new HashMap<String,Integer>();
+		for (int i = 0; i < size; i++)
+			hash.put("key" + random.nextInt(), i);
+		frozen = hash.freeze();
+		String[] all = hash.keySet().toArray(new String[0]);
+		keys = new String[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++)
+			keys[i] = i % 10 == 0 ? "missing" + i :
+				new String(all[random.nextInt(all.length)]);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public int getHashMap() {
+		int sum = 0;
+		for (int i = 0; i < LOOKUPS; i++) {
+			Integer v = hash.get(keys[i]);
+			if (v != null)
+				sum += v;
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public int getFrozenMap() {
+		int sum = 0;
+		for (int i = 0; i < LOOKUPS; i++) {
+			Integer v = frozen.get(keys[i]);
+			if (v != null)
+				sum += v;
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Map<String,Integer> buildHashMap() {
+		return new HashMap<String,Integer>(hash);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Map<String,Integer> buildFrozenMap() {
+		return hash.freeze();
+	}
+
+}
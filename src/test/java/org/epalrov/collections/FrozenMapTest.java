@@ -0,0 +1,122 @@
+/*
+ * FrozenMapTest.java - unit test for immutable Perfect Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Map;
+import java.util.Iterator;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * Unit test for FrozenMap.
+ */
+public class FrozenMapTest extends TestCase
+{
+	/**
+	 * Create the test case
+	 */
+	public FrozenMapTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(FrozenMapTest.class);
+	}
+
+	/**
+	 * Rigourous Test
+	 */
+	public void testFrozenMap() {
+		for (int n = 0; n < 100000; n = n * 3 + 1) {
+			HashMap<Object,Integer> h = new HashMap<Object,Integer>();
+			Map<Object,Integer> j = new java.util.HashMap<Object,Integer>();
+			for (int i = 0; i < n; i++) {
+				h.put("key" + i, i);
+				j.put("key" + i, i);
+			}
+			FrozenMap<Object,Integer> f = h.freeze();
+			assertThat(f.size(), is(n));
+			for (int i = 0; i < n; i++) {
+				assertThat(f.get("key" + i), is(i));
+				assertThat(f.containsKey("key" + i), is(true));
+			}
+			for (int i = n; i < 2 * n; i++) {
+				assertNull(f.get("key" + i));
+				assertThat(f.getOrDefault("key" + i, -1), is(-1));
+			}
+			assertThat(f, is(j));
+			assertThat(j, is((Map<Object,Integer>)f));
+			assertThat(f.hashCode(), is(j.hashCode()));
+			assertThat(FrozenMap.copyOf(j), is(f));
+			assertSame(FrozenMap.copyOf(f), f);
+		}
+	}
+
+	/**
+	 * Collisions Test
+	 */
+	public void testFrozenMapCollisions() {
+		int n = 1000;
+		Map<Object,Integer> j = new java.util.LinkedHashMap<Object,Integer>();
+
+		// keys sharing their hash code, and null
+		for (int i = 0; i < n; i++) {
+			j.put(i, i);
+			j.put(HashMapTest.collidingString(i), -i);
+		}
+		j.put(null, null);
+		FrozenMap<Object,Integer> f = FrozenMap.copyOf(j);
+		assertThat(f.size(), is(2 * n + 1));
+		for (int i = 0; i < n; i++) {
+			assertThat(f.get(i), is(i));
+			assertThat(f.get(HashMapTest.collidingString(i)), is(-i));
+		}
+		assertThat(f.get(HashMapTest.collidingString(n)), is((Integer)null));
+		assertThat(f.containsKey(null), is(true));
+		assertThat(f.containsValue(null), is(true));
+		assertThat(f.containsValue(-n), is(false));
+		assertThat(f, is(j));
+
+		// iterators visit every mapping once and cannot modify the map
+		int count = 0;
+		for (Map.Entry<Object,Integer> e : f.entrySet()) {
+			assertThat(e.getValue(), is(j.get(e.getKey())));
+			count++;
+		}
+		assertThat(count, is(2 * n + 1));
+		assertThat(f.keySet().size(), is(2 * n + 1));
+		assertThat(f.keySet().contains(null), is(true));
+		Iterator<Integer> it = f.values().iterator();
+		it.next();
+		try {
+			it.remove();
+			fail();
+		} catch (UnsupportedOperationException e) {
+		}
+		try {
+			f.put(0, 0);
+			fail();
+		} catch (UnsupportedOperationException e) {
+		}
+		try {
+			f.clear();
+			fail();
+		} catch (UnsupportedOperationException e) {
+		}
+	}
+
+}
@@ -0,0 +1,117 @@
+/*
+ * HashCodeBenchmark.java - hashCode and equals test for Hash Map and Tree Set
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Change detection on a map and a set used as keys: one mapping is updated,
+ * then the hash code is taken and the collection is compared with an equal
+ * copy, and with a copy differing by the value of the last mapping, against
+ * java.util.HashMap which walks the whole map for both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashCodeBenchmark
+{
+	@Param({ "100000" })
+	int size;
+
+	HashMap<Integer,Integer> map, mapCopy, mapOther;
+	java.util.HashMap<Integer,Integer> jdk, jdkCopy, jdkOther;
+	TreeSet<Integer> set;
+	Integer[] elements;
+	int next;
+
+	@Setup
+	public void setup() {
+		map = new HashMap<Integer,Integer>();
+		jdk = new java.util.HashMap<Integer,Integer>();
+		set = new TreeSet<Integer>();
+		elements = new Integer[size];
+		Random random = new Random(42);
+		for (int i = 0; i < size; i++) {
+			map.put(i, i);
+			jdk.put(i, i);
+			elements[i] = random.nextInt();
+			set.add(elements[i]);
+		}
+		mapCopy = new HashMap<Integer,Integer>(map);
+		mapOther = new HashMap<Integer,Integer>(map);
+		mapOther.put(size - 1, -1);
+		jdkCopy = new java.util.HashMap<Integer,Integer>(jdk);
+		jdkOther = new java.util.HashMap<Integer,Integer>(jdk);
+		jdkOther.put(size - 1, -1);
+	}
+
+	private Integer nextKey() {
+		next = next + 1 == size ? 1 : next + 1;
+		return next;
+	}
+
+	@Benchmark
+	public int hashCodeAfterPut() {
+		Integer key = nextKey();
+		map.put(key, key);
+		return map.hashCode();
+	}
+
+	@Benchmark
+	public int hashCodeAfterPutJdk() {
+		Integer key = nextKey();
+		jdk.put(key, key);
+		return jdk.hashCode();
+	}
+
+	@Benchmark
+	public int treeSetHashCodeAfterAdd() {
+		Integer elem = elements[nextKey()];
+		set.remove(elem);
+		set.add(elem);
+		return set.hashCode();
+	}
+
+	@Benchmark
+	public boolean equalsDifferent() {
+		return map.equals(mapOther);
+	}
+
+	@Benchmark
+	public boolean equalsDifferentJdk() {
+		return jdk.equals(jdkOther);
+	}
+
+	@Benchmark
+	public boolean equalsSame() {
+		return map.equals(mapCopy);
+	}
+
+	@Benchmark
+	public boolean equalsSameJdk() {
+		return jdk.equals(jdkCopy);
+	}
+
+}
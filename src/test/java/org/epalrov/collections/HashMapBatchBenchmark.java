@@ -0,0 +1,112 @@
+/*
+ * HashMapBatchBenchmark.java - batched lookup test for Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looks up and updates batches of random Integer keys, 1 out of 10 missing,
+ * by calling get() and put() in a loop and by getAll() and putAll(). With
+ * 4M mappings the table and the entries are far bigger than the last level
+ * cache, so that almost every bin costs a cache miss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" })
+public class HashMapBatchBenchmark
+{
+	static final int BATCHES = 4096;
+	static final int BATCH = 256;
+
+	@Param({ "1000", "4000000" })
+	int size;
+
+	HashMap<Integer,Integer> map;
+	Integer[][] keys;
+	Integer[] values;
+	Integer[] out;
+	int next;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		map = new HashMap<Integer,Integer>();
+		Integer[] all = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			all[i] = random.nextInt();
+			map.put(all[i], i);
+		}
+		keys = new Integer[BATCHES][BATCH];
+		for (int b = 0; b < BATCHES; b++)
+			for (int i = 0; i < BATCH; i++)
+				keys[b][i] = i % 10 == 0 ? random.nextInt() :
+					all[random.nextInt(size)];
+		values = new Integer[BATCH];
+		for (int i = 0; i < BATCH; i++)
+			values[i] = i;
+		out = new Integer[BATCH];
+	}
+
+	private Integer[] nextBatch() {
+		Integer[] batch = keys[next];
+		next = next + 1 == BATCHES ? 0 : next + 1;
+		return batch;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public int getLoop() {
+		Integer[] batch = nextBatch();
+		int found = 0;
+		for (int i = 0; i < BATCH; i++)
+			if ((out[i] = map.get(batch[i])) != null)
+				found++;
+		return found;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public int getAll() {
+		return map.getAll(nextBatch(), out);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public int putLoop() {
+		Integer[] batch = nextBatch();
+		for (int i = 0; i < BATCH; i++)
+			map.put(batch[i], values[i]);
+		return map.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public int putAll() {
+		map.putAll(nextBatch(), values);
+		return map.size();
+	}
+
+}
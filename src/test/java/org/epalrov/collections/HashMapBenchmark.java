@@ -0,0 +1,91 @@
+/*
+ * HashMapBenchmark.java - performance test for Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookup and insertion cost of HashMap as the number of mappings grows:
+ * with a growing power of two table the time per operation should stay
+ * flat from a thousand up to ten million entries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms3g", "-Xmx3g" })
+public class HashMapBenchmark
+{
+	@Param({ "1000", "100000", "10000000" })
+	int size;
+
+	Integer[] keys;
+	Map<Integer,Integer> map;
+	int next;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		keys = new Integer[size];
+		map = new HashMap<Integer,Integer>();
+		for (int i = 0; i < size; i++) {
+			keys[i] = random.nextInt();
+			map.put(keys[i], i);
+		}
+		// shuffle the lookup order to defeat the allocation locality
+		for (int i = size - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			Integer t = keys[i];
+			keys[i] = keys[j];
+			keys[j] = t;
+		}
+	}
+
+	@Benchmark
+	public Integer get() {
+		Integer key = keys[next];
+		next = next + 1 == size ? 0 : next + 1;
+		return map.get(key);
+	}
+
+	@Benchmark
+	public Integer put() {
+		Integer key = keys[next];
+		next = next + 1 == size ? 0 : next + 1;
+		return map.put(key, next);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 2)
+	@Measurement(iterations = 3)
+	public Map<Integer,Integer> fill() {
+		Map<Integer,Integer> m = new HashMap<Integer,Integer>();
+		for (int i = 0; i < size; i++)
+			m.put(keys[i], i);
+		return m;
+	}
+
+}
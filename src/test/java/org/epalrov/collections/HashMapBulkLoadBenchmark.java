@@ -0,0 +1,86 @@
+/*
+ * HashMapBulkLoadBenchmark.java - bulk load test for Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loads 1M mappings into a new HashMap: one put() at a time into a default
+ * sized map, as putAll() used to do, through the copy constructor from a
+ * HashMap (cached hashes, no lookups) and from a java.util.HashMap
+ * (presized only), and with putAll() into a non-empty map.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" })
+public class HashMapBulkLoadBenchmark
+{
+	static final int SIZE = 1000000;
+
+	HashMap<String,Integer> source;
+	Map<String,Integer> javaSource;
+	HashMap<String,Integer> small;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		source = new HashMap<String,Integer>();
+		javaSource = new java.util.HashMap<String,Integer>();
+		while (source.size() < SIZE) {
+			String key = Long.toString(random.nextLong(), 36);
+			source.put(key, SIZE);
+			javaSource.put(key, SIZE);
+		}
+		small = new HashMap<String,Integer>();
+		for (int i = 0; i < 1000; i++)
+			small.put(Integer.toString(i), i);
+	}
+
+	@Benchmark
+	public Map<String,Integer> putLoop() {
+		HashMap<String,Integer> map = new HashMap<String,Integer>();
+		for (Map.Entry<String,Integer> e : source.entrySet())
+			map.put(e.getKey(), e.getValue());
+		return map;
+	}
+
+	@Benchmark
+	public Map<String,Integer> copy() {
+		return new HashMap<String,Integer>(source);
+	}
+
+	@Benchmark
+	public Map<String,Integer> copyFromJava() {
+		return new HashMap<String,Integer>(javaSource);
+	}
+
+	@Benchmark
+	public Map<String,Integer> putAllNonEmpty() {
+		HashMap<String,Integer> map = new HashMap<String,Integer>(small);
+		map.putAll(source);
+		return map;
+	}
+
+}
@@ -0,0 +1,71 @@
+/*
+ * HashMapCollisionBenchmark.java - collision flood test for Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookup cost of HashMap when all the keys share the same hash code, as
+ * with a flood of crafted strings: once the bucket is a tree bin the time
+ * per lookup grows with log(n) instead of n.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashMapCollisionBenchmark
+{
+	@Param({ "16", "1024", "65536" })
+	int size;
+
+	String[] keys;
+	Map<String,Integer> map;
+	int next;
+
+	@Setup
+	public void setup() {
+		keys = new String[size];
+		map = new HashMap<String,Integer>();
+		for (int i = 0; i < size; i++) {
+			keys[i] = HashMapTest.collidingString(i);
+			map.put(keys[i], i);
+		}
+	}
+
+	@Benchmark
+	public Integer get() {
+		String key = keys[next];
+		next = next + 1 == size ? 0 : next + 1;
+		return map.get(key);
+	}
+
+	@Benchmark
+	public Integer putRemove() {
+		String key = keys[next];
+		next = next + 1 == size ? 0 : next + 1;
+		map.remove(key);
+		return map.put(key, next);
+	}
+
+}
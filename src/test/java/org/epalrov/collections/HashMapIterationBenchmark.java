@@ -0,0 +1,97 @@
+/*
+ * HashMapIterationBenchmark.java - iteration test for Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full scans of a HashMap of 100000 mappings through the views, forEach()
+ * and a reused cursor. Run it with "-prof gc": gc.alloc.rate.norm is the
+ * number of bytes allocated per scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashMapIterationBenchmark
+{
+	static final int SIZE = 100000;
+
+	HashMap<Integer,Integer> map;
+	HashMap<Integer,Integer>.Cursor cursor;
+	Summer summer;
+
+	static final class Summer implements BiConsumer<Integer,Integer> {
+		long sum;
+
+		public void accept(Integer k, Integer v) {
+			sum += v;
+		}
+	}
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		map = new HashMap<Integer,Integer>();
+		while (map.size() < SIZE)
+			map.put(random.nextInt(), random.nextInt(1000));
+		cursor = map.cursor();
+		summer = new Summer();
+	}
+
+	@Benchmark
+	public long keySet() {
+		long sum = 0;
+		for (Iterator<Integer> i = map.keySet().iterator(); i.hasNext(); )
+			sum += i.next();
+		return sum;
+	}
+
+	@Benchmark
+	public long entrySet() {
+		long sum = 0;
+		for (Map.Entry<Integer,Integer> e : map.entrySet())
+			sum += e.getValue();
+		return sum;
+	}
+
+	@Benchmark
+	public long forEach() {
+		summer.sum = 0;
+		map.forEach(summer);
+		return summer.sum;
+	}
+
+	@Benchmark
+	public long cursor() {
+		long sum = 0;
+		cursor.reset();
+		while (cursor.advance())
+			sum += cursor.value();
+		return sum;
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * HashMapResizeBenchmark.java - resize latency test for Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency distribution of HashMap.put() while the map keeps growing: each
+ * sample is a single insertion, so the stop-the-world rehash shows up in
+ * the high percentiles (p99.9 and above) of the all-at-once resize and
+ * should disappear with the incremental one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms3g", "-Xmx3g" })
+public class HashMapResizeBenchmark
+{
+	static final int KEYS = 1 << 22;
+
+	@Param({ "false", "true" })
+	boolean incremental;
+
+	Integer[] keys;
+	Map<Integer,Integer> map;
+	int next;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		keys = new Integer[KEYS];
+		for (int i = 0; i < KEYS; i++)
+			keys[i] = random.nextInt();
+	}
+
+	@Setup(Level.Iteration)
+	public void reset() {
+		map = new HashMap<Integer,Integer>(16, 0.75f, incremental);
+		next = 0;
+	}
+
+	@Benchmark
+	public Integer put() {
+		if (next == KEYS) {
+			map.clear();
+			next = 0;
+		}
+		Integer key = keys[next++];
+		return map.put(key, key);
+	}
+
+}
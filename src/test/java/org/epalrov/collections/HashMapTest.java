@@ -10,6 +10,10 @@ package org.epalrov.collections;
 
 import java.util.Map;
 import java.util.Iterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
@@ -37,6 +41,14 @@ public class HashMapTest extends TestCase
 		return new TestSuite(HashMapTest.class);
 	}
 
+	/**
+	 * Create the map being tested: subclasses run the same tests
+	 * against other implementations of the Map interface
+	 */
+	protected <K,V> Map<K,V> newMap(int capacity, float loadFactor) {
+		return new HashMap<K,V>(capacity, loadFactor);
+	}
+
 	/**
 	 * Rigourous Test
 	 */
@@ -44,7 +56,7 @@ public class HashMapTest extends TestCase
 		String[] a = {
 			"paolo", "love", "valeria", ":", "i", "mimmi", "bimbi"
 		};
-		Map<Integer,String> h = new HashMap<Integer,String>(3);
+		Map<Integer,String> h = newMap(3, 0.75f);
 
 		// add
 		for (int i = 0; i < a.length; i++)
@@ -72,4 +84,590 @@ public class HashMapTest extends TestCase
 		assertTrue(h.isEmpty());
 	}
 
+	/**
+	 * Resize Test
+	 */
+	public void testHashMapResize() {
+		int n = 10000;
+		Map<Integer,Integer> h = newMap(1, 0.5f);
+
+		// add, including keys with negative hash codes
+		for (int i = -n; i < n; i++)
+			assertNull(h.put(i, i));
+		assertNull(h.put(null, 0));
+		assertThat(h.size(), is(2 * n + 1));
+
+		// search
+		for (int i = -n; i < n; i++)
+			assertThat(h.get(i), is(i));
+		assertThat(h.containsKey(null), is(true));
+
+		// iterator
+		int count = 0;
+		Iterator<Integer> it = h.keySet().iterator();
+		while (it.hasNext()) {
+			Integer key = it.next();
+			if (key != null && key < 0)
+				it.remove();
+			count++;
+		}
+		assertThat(count, is(2 * n + 1));
+		assertThat(h.size(), is(n + 1));
+
+		// remove
+		for (int i = 0; i < n; i++)
+			assertThat(h.remove(i), is(i));
+		assertThat(h.remove(null), is(0));
+		assertTrue(h.isEmpty());
+
+		try {
+			newMap(16, 0.0f);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	/**
+	 * Incremental Resize Test
+	 */
+	public void testHashMapIncrementalResize() {
+		int n = 10000;
+		Map<Integer,Integer> h = new HashMap<Integer,Integer>(1, 0.75f, true);
+
+		// add, checking the lookups while the buckets are migrated
+		for (int i = 0; i < n; i++) {
+			assertNull(h.put(i, i));
+			assertThat(h.get(i / 2), is(i / 2));
+			assertThat(h.containsKey(i), is(true));
+		}
+		assertThat(h.size(), is(n));
+		assertThat(h.containsValue(0), is(true));
+
+		// update
+		for (int i = 0; i < n; i++)
+			assertThat(h.put(i, -i), is(i));
+		assertThat(h.size(), is(n));
+
+		// iterator
+		int count = 0;
+		Iterator<Integer> it = h.keySet().iterator();
+		while (it.hasNext()) {
+			if (it.next() % 2 == 0)
+				it.remove();
+			count++;
+		}
+		assertThat(count, is(n));
+		assertThat(h.size(), is(n / 2));
+
+		// remove
+		for (int i = 0; i < n; i++)
+			assertThat(h.remove(i), is(i % 2 == 0 ? null : -i));
+		assertTrue(h.isEmpty());
+	}
+
+	/**
+	 * Collision Test
+	 */
+	public void testHashMapCollisions() {
+		int n = 2000;
+		for (int mode = 0; mode < 2; mode++) {
+			Map<Object,Integer> h = mode == 0 ?
+				this.<Object,Integer>newMap(16, 0.75f) :
+				new HashMap<Object,Integer>(16, 0.75f, true);
+
+			// add keys sharing the same hash code, with and without
+			// a natural ordering
+			for (int i = 0; i < n; i++) {
+				assertNull(h.put(new CollidingKey(i), i));
+				assertNull(h.put(collidingString(i), i));
+			}
+			assertThat(h.size(), is(2 * n));
+
+			// search
+			for (int i = 0; i < n; i++) {
+				assertThat(h.get(new CollidingKey(i)), is(i));
+				assertThat(h.get(collidingString(i)), is(i));
+			}
+			assertNull(h.get(new CollidingKey(n)));
+			assertThat(h.containsKey(collidingString(n)), is(false));
+
+			// iterator
+			int count = 0;
+			Iterator<Object> it = h.keySet().iterator();
+			while (it.hasNext()) {
+				Object key = it.next();
+				if (key instanceof CollidingKey &&
+				    ((CollidingKey)key).id % 2 == 0)
+					it.remove();
+				count++;
+			}
+			assertThat(count, is(2 * n));
+			assertThat(h.size(), is(2 * n - n / 2));
+
+			// remove, shrinking the bins back to lists
+			for (int i = 0; i < n; i++) {
+				assertThat(h.remove(new CollidingKey(i)),
+					is(i % 2 == 0 ? null : i));
+				assertThat(h.remove(collidingString(i)), is(i));
+				if (i == n - 2)
+					assertThat(h.get(collidingString(n - 1)),
+						is(n - 1));
+			}
+			assertTrue(h.isEmpty());
+		}
+	}
+
+	/**
+	 * Compute Test
+	 */
+	public void testHashMapCompute() {
+		String[] a = {
+			"paolo", "love", "valeria", ":", "i", "mimmi", "bimbi"
+		};
+		BiFunction<Integer,Integer,Integer> sum =
+			new BiFunction<Integer,Integer,Integer>() {
+				public Integer apply(Integer x, Integer y) {
+					return x + y;
+				}
+			};
+		BiFunction<String,Integer,Integer> drop =
+			new BiFunction<String,Integer,Integer>() {
+				public Integer apply(String k, Integer v) {
+					return v == null || v <= 1 ? null : v - 1;
+				}
+			};
+		Function<String,Integer> length = new Function<String,Integer>() {
+			public Integer apply(String k) {
+				return k.length();
+			}
+		};
+		Map<String,Integer> h = newMap(16, 0.75f);
+
+		// merge and compute, including colliding keys
+		for (int i = 0; i < a.length; i++) {
+			assertThat(h.merge(a[i], 1, sum), is(1));
+			assertThat(h.merge(a[i], 1, sum), is(2));
+			assertThat(h.compute(collidingString(i), drop), is((Integer)null));
+			assertThat(h.computeIfAbsent(collidingString(i), length), is(32));
+		}
+		assertThat(h.size(), is(2 * a.length));
+		assertThat(h.putIfAbsent(a[0], 5), is(2));
+		assertThat(h.putIfAbsent("x", 5), is((Integer)null));
+		assertThat(h.getOrDefault("y", 7), is(7));
+
+		// remove through a null result
+		for (int i = 0; i < a.length; i++) {
+			assertThat(h.computeIfPresent(a[i], drop), is(1));
+			assertThat(h.compute(a[i], drop), is((Integer)null));
+			assertThat(h.merge(collidingString(i), 1,
+				new BiFunction<Integer,Integer,Integer>() {
+					public Integer apply(Integer x, Integer y) {
+						return null;
+					}
+				}), is((Integer)null));
+		}
+		assertThat(h.size(), is(1));
+
+		// counters
+		HashMap<String,Long> c = new HashMap<String,Long>();
+		for (int i = 0; i < 1000; i++)
+			c.mergeLong(collidingString(i % 10), 2);
+		assertThat(c.size(), is(10));
+		assertThat(c.mergeLong(collidingString(0), -1), is(199L));
+		assertThat(c.get(collidingString(9)), is(200L));
+	}
+
+	/**
+	 * Bulk Test
+	 */
+	public void testHashMapBulk() {
+		int n = 1000;
+		Map<Object,Integer> h = newMap(16, 0.75f);
+		for (int i = 0; i < n; i++) {
+			h.put(i, i);
+			h.put(collidingString(i), i);
+		}
+		assertSame(h.keySet(), h.keySet());
+		assertSame(h.entrySet(), h.entrySet());
+
+		// forEach and replaceAll
+		final int[] sum = new int[1];
+		h.forEach(new BiConsumer<Object,Integer>() {
+			public void accept(Object k, Integer v) {
+				sum[0] += v;
+			}
+		});
+		assertThat(sum[0], is(n * (n - 1)));
+		h.replaceAll(new BiFunction<Object,Integer,Integer>() {
+			public Integer apply(Object k, Integer v) {
+				return k instanceof String ? -v - 1 : v;
+			}
+		});
+		assertThat(h.get(collidingString(7)), is(-8));
+
+		// removeIf through the views, in list and tree bins
+		assertTrue(h.values().removeIf(new Predicate<Integer>() {
+			public boolean test(Integer v) {
+				return v < 0 && (v + 1) % 2 == 0;
+			}
+		}));
+		assertTrue(h.keySet().removeIf(new Predicate<Object>() {
+			public boolean test(Object k) {
+				return k instanceof Integer && (Integer)k % 2 == 1;
+			}
+		}));
+		assertFalse(h.entrySet().removeIf(new Predicate<Map.Entry<Object,Integer>>() {
+			public boolean test(Map.Entry<Object,Integer> e) {
+				return e.getValue() > n;
+			}
+		}));
+		assertThat(h.size(), is(n));
+		for (int i = 0; i < n; i++) {
+			assertThat(h.containsKey(i), is(i % 2 == 0));
+			assertThat(h.containsKey(collidingString(i)), is(i % 2 == 1));
+		}
+
+		// cursor, removing in place while walking
+		HashMap<Object,Integer> c = new HashMap<Object,Integer>(16, 0.75f, true);
+		for (int i = 0; i < n; i++) {
+			c.put(i, i);
+			c.put(collidingString(i), i);
+		}
+		HashMap<Object,Integer>.Cursor cursor = c.cursor();
+		for (int pass = 0; pass < 2; pass++) {
+			int count = 0;
+			cursor.reset();
+			while (cursor.advance()) {
+				if (cursor.value() % 3 == 0)
+					cursor.remove();
+				else
+					cursor.setValue(cursor.value() + 3 * n);
+				count++;
+			}
+			assertThat(count, is(pass == 0 ? 2 * n : c.size()));
+		}
+		assertThat(c.size(), is(2 * (n - (n + 2) / 3)));
+		assertThat(c.get(collidingString(1)), is(1 + 6 * n));
+		try {
+			cursor.key();
+			fail("cursor past the end");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Copy Test
+	 */
+	public void testHashMapCopy() {
+		int n = 5000;
+
+		// sources with list and tree bins, one of them in the middle
+		// of an incremental resize
+		HashMap<Object,Integer> h = new HashMap<Object,Integer>();
+		HashMap<Object,Integer> g =
+			new HashMap<Object,Integer>(16, 0.75f, true);
+		java.util.Map<Object,Integer> j =
+			new java.util.HashMap<Object,Integer>();
+		for (int i = 0; i < n; i++) {
+			Object key = i % 10 == 0 ? new CollidingKey(i) : (Object)i;
+			h.put(key, i);
+			g.put(key, i);
+			j.put(key, i);
+		}
+		assertThat(new HashMap<Object,Integer>(h), is((Map<Object,Integer>)j));
+		assertThat(new HashMap<Object,Integer>(g), is((Map<Object,Integer>)j));
+		assertThat(new HashMap<Object,Integer>(j), is((Map<Object,Integer>)j));
+		Map<Object,Integer> copy = new HashMap<Object,Integer>(h);
+		assertThat(copy.get(new CollidingKey(n - 10)), is(n - 10));
+		assertThat(copy.remove(new CollidingKey(0)), is(0));
+		assertThat(h.get(new CollidingKey(0)), is(0));
+
+		// putAll into a non-empty map replaces the common keys
+		Map<Object,Integer> p = newMap(4, 0.75f);
+		for (int i = n - 100; i < n + 100; i++)
+			p.put(i, -i);
+		p.putAll(h);
+		assertThat(p.size(), is(n + 110));
+		assertThat(p.get(n - 1), is(n - 1));
+		assertThat(p.get(n), is(-n));
+		assertThat(p.get(new CollidingKey(10)), is(10));
+		p.putAll(new HashMap<Object,Integer>());
+		assertThat(p.get(n + 99), is(-n - 99));
+	}
+
+	/**
+	 * Batch Test
+	 */
+	public void testHashMapBatch() {
+		int n = 1000;
+
+		// list and tree bins, in the middle of an incremental resize
+		HashMap<Object,Integer> h =
+			new HashMap<Object,Integer>(16, 0.75f, true);
+		java.util.Map<Object,Integer> j =
+			new java.util.HashMap<Object,Integer>();
+		Object[] keys = new Object[2 * n];
+		Integer[] values = new Integer[2 * n];
+		for (int i = 0; i < 2 * n; i++) {
+			keys[i] = i % 10 == 0 ? new CollidingKey(i) : (Object)i;
+			values[i] = -i;
+			if (i < n) {
+				h.put(keys[i], i);
+				j.put(keys[i], i);
+			}
+		}
+
+		// the upper half of the keys is missing
+		Integer[] out = new Integer[2 * n];
+		assertThat(h.getAll(keys, out), is(n));
+		for (int i = 0; i < 2 * n; i++)
+			assertThat(out[i], is(j.get(keys[i])));
+
+		// replace the lower half and add the upper one
+		h.putAll(keys, values);
+		for (int i = 0; i < 2 * n; i++)
+			j.put(keys[i], values[i]);
+		assertThat(h, is((Map<Object,Integer>)j));
+		assertThat(h.getAll(keys, out), is(2 * n));
+		for (int i = 0; i < 2 * n; i++)
+			assertThat(out[i], is(-i));
+
+		// duplicate keys in the same batch: the last value wins
+		h.putAll(new Object[] { -1, -1, null }, new Integer[] { 1, 2, 3 });
+		assertThat(h.get(-1), is(2));
+		assertThat(h.get(null), is(3));
+		assertThat(h.size(), is(2 * n + 2));
+
+		// a new key may evict one found earlier in the same batch
+		LinkedHashMap<Integer,Integer> l =
+			new LinkedHashMap<Integer,Integer>() {
+			protected boolean removeEldestEntry(Map.Entry<Integer,Integer> e) {
+				return size() > 3;
+			}
+		};
+		java.util.Map<Integer,Integer> k =
+			new java.util.LinkedHashMap<Integer,Integer>() {
+			protected boolean removeEldestEntry(Map.Entry<Integer,Integer> e) {
+				return size() > 3;
+			}
+		};
+		for (int i = 0; i < 3; i++) {
+			l.put(i, i);
+			k.put(i, i);
+		}
+		Integer[] batch = { 2, 0, 3, 1, 0 };
+		l.putAll(batch, batch);
+		for (Integer x : batch)
+			k.put(x, x);
+		assertThat(l.keySet().toArray(), is(k.keySet().toArray()));
+		assertThat(l, is((Map<Integer,Integer>)k));
+		try {
+			h.getAll(keys, new Integer[n]);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Hashing Strategy Test
+	 */
+	public void testHashMapStrategy() {
+		int n = 1000;
+
+		// byte arrays looked up by content
+		HashMap<byte[],Integer> b =
+			new HashMap<byte[],Integer>(HashingStrategy.BYTE_ARRAY);
+		for (int i = 0; i < n; i++)
+			b.put(Integer.toString(i).getBytes(), i);
+		b.put(null, -1);
+		assertThat(b.size(), is(n + 1));
+		for (int i = 0; i < n; i++)
+			assertThat(b.get(Integer.toString(i).getBytes()), is(i));
+		assertThat(b.get(null), is(-1));
+		assertThat(b.remove("7".getBytes()), is(7));
+		assertThat(b.containsKey("7".getBytes()), is(false));
+		assertThat(b.merge("8".getBytes(), 1, Integer::sum), is(9));
+
+		// strings with the same hash code, differing in case, in a tree
+		// bin: their natural ordering must not be used
+		HashMap<CharSequence,Integer> c = new HashMap<CharSequence,Integer>(
+			HashingStrategy.CASE_INSENSITIVE);
+		for (int i = 0; i < n; i++)
+			c.put(collidingString(i), i);
+		assertThat(c.size(), is(n));
+		for (int i = 0; i < n; i++) {
+			String key = collidingString(i);
+			assertThat(c.get(key.toLowerCase()), is(i));
+			assertThat(c.get(new StringBuilder(key.toUpperCase())), is(i));
+		}
+		assertThat(c.put("aA", -1), is((Integer)null));
+		assertThat(c.put("AA", -2), is(-1));
+		assertThat(c.size(), is(n + 1));
+
+		// identity keys, copied into maps with other strategies
+		HashMap<Object,Integer> id =
+			new HashMap<Object,Integer>(HashingStrategy.IDENTITY);
+		HashMap<Object,Integer> mix =
+			new HashMap<Object,Integer>(HashingStrategy.MIXING);
+		for (int i = 0; i < n; i++) {
+			id.put(new String("key" + i), i);
+			id.put(new String("key" + i), i);
+			mix.put(i << 16, i);
+		}
+		assertThat(id.size(), is(2 * n));
+		assertThat(id.get("key0"), is((Integer)null));
+		assertThat(new HashMap<Object,Integer>(id).size(), is(n));
+		HashMap<Object,Integer> m =
+			new HashMap<Object,Integer>(HashingStrategy.MIXING);
+		m.putAll(id);
+		assertThat(m.size(), is(n));
+		assertThat(m.get("key0"), is(0));
+		for (int i = 0; i < n; i++)
+			assertThat(mix.get(i << 16), is(i));
+		assertThat(new HashMap<Object,Integer>(mix),
+			is((Map<Object,Integer>)mix));
+
+		// a frozen map only knows about equals()
+		try {
+			b.freeze();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		assertThat(FrozenMap.copyOf(mix), is((Map<Object,Integer>)mix));
+	}
+
+	/**
+	 * Hash Code Test: the running hash code against the one of
+	 * java.util.HashMap, through every kind of update.
+	 */
+	public void testHashMapHashCode() {
+		java.util.Random random = new java.util.Random(42);
+		HashMap<Integer,String> h = new HashMap<Integer,String>(4, 0.75f,
+			true);
+		Map<Integer,String> j = new java.util.HashMap<Integer,String>();
+		for (int i = 0; i < 20000; i++) {
+			Integer key = random.nextInt(1000);
+			String value = random.nextInt(5) == 0 ? null : "v" + i;
+			int op = random.nextInt(8);
+			if (op == 0) {
+				h.remove(key);
+				j.remove(key);
+			} else if (op == 1) {
+				h.putIfAbsent(key, value);
+				j.putIfAbsent(key, value);
+			} else if (op == 2) {
+				h.compute(key, (k, v) -> value);
+				j.compute(key, (k, v) -> value);
+			} else if (op == 3 && value != null) {
+				h.merge(key, value, String::concat);
+				j.merge(key, value, String::concat);
+			} else {
+				h.put(key, value);
+				j.put(key, value);
+			}
+			assertThat(h.hashCode(), is(j.hashCode()));
+		}
+		assertThat(h, is(j));
+		assertThat(j, is((Map<Integer,String>)h));
+
+		// bulk updates, and values set through the entries
+		h.replaceAll((k, v) -> k + "=" + v);
+		j.replaceAll((k, v) -> k + "=" + v);
+		assertThat(h.hashCode(), is(j.hashCode()));
+		for (Map.Entry<Integer,String> e : h.entrySet())
+			e.setValue(e.getKey() % 2 == 0 ? "even" : null);
+		for (Map.Entry<Integer,String> e : j.entrySet())
+			e.setValue(e.getKey() % 2 == 0 ? "even" : null);
+		assertThat(h.hashCode(), is(j.hashCode()));
+		h.keySet().removeIf(k -> k % 3 == 0);
+		j.keySet().removeIf(k -> k % 3 == 0);
+		assertThat(h.hashCode(), is(j.hashCode()));
+		HashMap<Integer,String> c = new HashMap<Integer,String>(h);
+		assertThat(c.hashCode(), is(j.hashCode()));
+		assertThat(c, is(h));
+		c.put(-1, "x");
+		h.put(-2, "x");
+		assertThat(c.equals(h), is(false));
+		c.clear();
+		assertThat(c.hashCode(), is(0));
+
+		// a linked map, whose entries are walked through the list
+		LinkedHashMap<Integer,String> l = new LinkedHashMap<Integer,String>();
+		l.putAll(h);
+		for (Map.Entry<Integer,String> e : l.entrySet())
+			e.setValue("w");
+		l.replaceAll((k, v) -> v + k);
+		assertThat(l.hashCode(), is(new java.util.HashMap<Integer,String>(l)
+			.hashCode()));
+
+		// an entry held across hashCode() may still change its value
+		HashMap<String,Integer> a = new HashMap<String,Integer>();
+		a.put("x", 1);
+		Map.Entry<String,Integer> e = a.entrySet().iterator().next();
+		a.hashCode();
+		e.setValue(2);
+		Map<String,Integer> b = new java.util.HashMap<String,Integer>();
+		b.put("x", 2);
+		assertThat(a.hashCode(), is(b.hashCode()));
+		assertThat(a.equals(new HashMap<String,Integer>(b)), is(true));
+
+		// entries set through removeIf(), or after their removal
+		for (int i = 0; i < 100; i++)
+			a.put("k" + i, i);
+		a.entrySet().removeIf(x -> x.setValue(-x.getValue()) % 2 == 0);
+		Iterator<Map.Entry<String,Integer>> it = a.entrySet().iterator();
+		e = it.next();
+		a.remove(e.getKey());
+		e.setValue(1000);
+		assertThat(a.hashCode(),
+			is(new java.util.HashMap<String,Integer>(a).hashCode()));
+		assertThat(a.equals(new HashMap<String,Integer>(a)), is(true));
+
+		// the eldest entry of a linked map
+		LinkedHashMap<Integer,String> o = new LinkedHashMap<Integer,String>() {
+			protected boolean removeEldestEntry(Map.Entry<Integer,String> x) {
+				x.setValue("eldest");
+				return false;
+			}
+		};
+		o.put(1, "a");
+		o.put(2, "b");
+		assertThat(o.hashCode(),
+			is(new java.util.HashMap<Integer,String>(o).hashCode()));
+	}
+
+	/**
+	 * Key with a constant hash code and no natural ordering.
+	 */
+	private static class CollidingKey {
+		final int id;
+
+		CollidingKey(int id) {
+			this.id = id;
+		}
+
+		public boolean equals(Object o) {
+			return o instanceof CollidingKey &&
+				((CollidingKey)o).id == id;
+		}
+
+		public int hashCode() {
+			return 42;
+		}
+	}
+
+	/**
+	 * Returns distinct strings with the same hash code: "Aa" and "BB"
+	 * collide, and so does any sequence of them of the same length.
+	 */
+	static String collidingString(int i) {
+		StringBuilder sb = new StringBuilder();
+		for (int bit = 0; bit < 16; bit++)
+			sb.append((i & (1 << bit)) == 0 ? "Aa" : "BB");
+		return sb.toString();
+	}
+
 }
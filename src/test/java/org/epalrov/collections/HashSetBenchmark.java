@@ -0,0 +1,103 @@
+/*
+ * HashSetBenchmark.java - footprint and lookup test for Hash Set
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds and looks up a HashSet and the HashMap&lt;K,Boolean&gt; it
+ * replaces, with random Integer elements, 1 out of 10 lookups missing. Run
+ * with "-prof gc": gc.alloc.rate.norm of the build benchmarks is the number
+ * of bytes allocated for all the elements, growth included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" })
+public class HashSetBenchmark
+{
+	static final int LOOKUPS = 1024;
+
+	@Param({ "1000", "1000000" })
+	int size;
+
+	Integer[] elements;
+	Integer[] lookups;
+	HashSet<Integer> set;
+	HashMap<Integer,Boolean> map;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		elements = new Integer[size];
+		for (int i = 0; i < size; i++)
+			elements[i] = random.nextInt();
+		set = buildHashSet();
+		map = buildHashMap();
+		lookups = new Integer[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++)
+			lookups[i] = i % 10 == 0 ? random.nextInt() :
+				elements[random.nextInt(size)];
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public HashSet<Integer> buildHashSet() {
+		HashSet<Integer> s = new HashSet<Integer>();
+		for (int i = 0; i < size; i++)
+			s.add(elements[i]);
+		return s;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public HashMap<Integer,Boolean> buildHashMap() {
+		HashMap<Integer,Boolean> m = new HashMap<Integer,Boolean>();
+		for (int i = 0; i < size; i++)
+			m.put(elements[i], Boolean.TRUE);
+		return m;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public int containsHashSet() {
+		int found = 0;
+		for (int i = 0; i < LOOKUPS; i++)
+			if (set.contains(lookups[i]))
+				found++;
+		return found;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public int containsHashMap() {
+		int found = 0;
+		for (int i = 0; i < LOOKUPS; i++)
+			if (map.containsKey(lookups[i]))
+				found++;
+		return found;
+	}
+
+}
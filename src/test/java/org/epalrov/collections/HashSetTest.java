@@ -0,0 +1,139 @@
+/*
+ * HashSetTest.java - unit test for Hash Set
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * Unit test for HashSet.
+ */
+public class HashSetTest extends TestCase
+{
+	/**
+	 * Create the test case
+	 */
+	public HashSetTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(HashSetTest.class);
+	}
+
+	/**
+	 * Rigourous Test
+	 */
+	public void testHashSet() {
+		Random random = new Random(42);
+		Set<Integer> s = new HashSet<Integer>(4);
+		Set<Integer> j = new java.util.HashSet<Integer>();
+
+		// random adds and removes over a small range of values
+		for (int i = 0; i < 100000; i++) {
+			Integer v = random.nextInt(5000);
+			if (random.nextInt(3) == 0)
+				assertThat(s.remove(v), is(j.remove(v)));
+			else
+				assertThat(s.add(v), is(j.add(v)));
+		}
+		assertThat(s.size(), is(j.size()));
+		assertThat(s, is(j));
+		assertThat(j, is(s));
+		assertThat(s.hashCode(), is(j.hashCode()));
+		for (int v = 0; v < 5000; v++)
+			assertThat(s.contains(v), is(j.contains(v)));
+
+		// null and colliding elements
+		assertThat(s.add(null), is(true));
+		assertThat(s.add(null), is(false));
+		assertThat(s.contains(null), is(true));
+		Set<Object> c = new HashSet<Object>();
+		for (int i = 0; i < 1000; i++)
+			c.add(HashMapTest.collidingString(i));
+		for (int i = 0; i < 1000; i += 2)
+			assertThat(c.remove(HashMapTest.collidingString(i)), is(true));
+		assertThat(c.size(), is(500));
+		for (int i = 0; i < 1000; i++)
+			assertThat(c.contains(HashMapTest.collidingString(i)),
+				is(i % 2 == 1));
+
+		// iterator removal visits every element once
+		int count = 0;
+		for (Iterator<Integer> it = s.iterator(); it.hasNext(); ) {
+			Integer v = it.next();
+			count++;
+			if (v == null || v % 2 == 0)
+				it.remove();
+		}
+		assertThat(count, is(j.size() + 1));
+		for (Iterator<Integer> it = j.iterator(); it.hasNext(); )
+			if (it.next() % 2 == 0)
+				it.remove();
+		assertThat(s, is(j));
+		assertThat(s.toArray().length, is(j.size()));
+		s.clear();
+		assertThat(s.isEmpty(), is(true));
+		assertThat(s.iterator().hasNext(), is(false));
+	}
+
+	/**
+	 * Bulk Test
+	 */
+	public void testHashSetBulk() {
+		Set<Integer> a = new HashSet<Integer>();
+		Set<Integer> b = new HashSet<Integer>();
+		for (int i = 0; i < 1000; i++) {
+			a.add(i);
+			if (i % 3 == 0)
+				b.add(i);
+		}
+		b.add(-1);
+
+		// both sides of retainAll and removeAll
+		Set<Integer> r = new HashSet<Integer>(a);
+		assertThat(r.retainAll(b), is(true));
+		assertThat(r.size(), is(334));
+		assertThat(r.retainAll(b), is(false));
+		Set<Integer> t = new HashSet<Integer>(b);
+		assertThat(t.retainAll(a), is(true));
+		assertThat(t, is(r));
+
+		Set<Integer> d = new HashSet<Integer>(a);
+		assertThat(d.removeAll(b), is(true));
+		assertThat(d.size(), is(666));
+		Set<Integer> e = new HashSet<Integer>(b);
+		assertThat(e.removeAll(a), is(true));
+		assertThat(e, is((Set<Integer>)new HashSet<Integer>(
+			Arrays.asList(-1))));
+		assertThat(e.removeAll(Arrays.asList(1, 2, 3, 4)), is(false));
+
+		// addAll from a HashSet and from another collection
+		assertThat(d.addAll(r), is(true));
+		assertThat(d, is(a));
+		assertThat(d.addAll(b), is(true));
+		assertThat(d.addAll(Arrays.asList(-1, 0, 1)), is(false));
+		assertThat(d.size(), is(1001));
+		assertThat(d.containsAll(a), is(true));
+		assertThat(a.containsAll(d), is(false));
+	}
+
+}
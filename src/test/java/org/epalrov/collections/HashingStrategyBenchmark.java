@@ -0,0 +1,117 @@
+/*
+ * HashingStrategyBenchmark.java - hashing strategy test for Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looks up 16-byte array keys in a HashMap with the BYTE_ARRAY strategy,
+ * and in a plain HashMap of ByteBuffer keys, each lookup wrapping its array
+ * as it would have to without strategies; run with "-prof gc" to see the
+ * wrappers allocated. Then looks up Integer keys multiple of 0x10001,
+ * whose two halves cancel out when hash() spreads them, so that they all
+ * fall in a few tree bins unless the MIXING strategy is used.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms1g", "-Xmx1g" })
+public class HashingStrategyBenchmark
+{
+	static final int LOOKUPS = 1024;
+
+	@Param({ "100000" })
+	int size;
+
+	HashMap<byte[],Integer> strategyMap;
+	HashMap<ByteBuffer,Integer> wrapperMap;
+	byte[][] bytes;
+
+	HashMap<Integer,Integer> plainMap;
+	HashMap<Integer,Integer> mixingMap;
+	Integer[] ints;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		strategyMap = new HashMap<byte[],Integer>(HashingStrategy.BYTE_ARRAY);
+		wrapperMap = new HashMap<ByteBuffer,Integer>();
+		plainMap = new HashMap<Integer,Integer>();
+		mixingMap = new HashMap<Integer,Integer>(HashingStrategy.MIXING);
+		byte[][] all = new byte[size][];
+		for (int i = 0; i < size; i++) {
+			all[i] = new byte[16];
+			random.nextBytes(all[i]);
+			strategyMap.put(all[i], i);
+			wrapperMap.put(ByteBuffer.wrap(all[i].clone()), i);
+			plainMap.put(i * 0x10001, i);
+			mixingMap.put(i * 0x10001, i);
+		}
+		bytes = new byte[LOOKUPS][];
+		ints = new Integer[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			bytes[i] = all[random.nextInt(size)].clone();
+			ints[i] = random.nextInt(size) * 0x10001;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public int getByteArrayStrategy() {
+		int sum = 0;
+		for (int i = 0; i < LOOKUPS; i++)
+			sum += strategyMap.get(bytes[i]);
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public int getByteBufferWrapper() {
+		int sum = 0;
+		for (int i = 0; i < LOOKUPS; i++)
+			sum += wrapperMap.get(ByteBuffer.wrap(bytes[i]));
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public int getIntegerHashCode() {
+		int sum = 0;
+		for (int i = 0; i < LOOKUPS; i++)
+			sum += plainMap.get(ints[i]);
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public int getIntegerMixing() {
+		int sum = 0;
+		for (int i = 0; i < LOOKUPS; i++)
+			sum += mixingMap.get(ints[i]);
+		return sum;
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * IntIntMapTest.java - unit test for primitive int to int Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * Unit test for IntIntMap.
+ */
+public class IntIntMapTest extends TestCase
+{
+	/**
+	 * Create the test case
+	 */
+	public IntIntMapTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(IntIntMapTest.class);
+	}
+
+	/**
+	 * Rigourous Test
+	 */
+	public void testIntIntMap() {
+		int n = 10000;
+		IntIntMap m = new IntIntMap(1);
+
+		// add, including the key 0 and negative keys
+		for (int i = -n; i < n; i++)
+			assertThat(m.put(i, i * 2), is(0));
+		assertThat(m.size(), is(2 * n));
+		assertThat(m.put(0, 1), is(0));
+		assertThat(m.put(0, 0), is(1));
+
+		// search
+		for (int i = -n; i < n; i++) {
+			assertThat(m.get(i), is(i * 2));
+			assertThat(m.containsKey(i), is(true));
+		}
+		assertThat(m.containsKey(n), is(false));
+		assertThat(m.getOrDefault(n, -1), is(-1));
+		assertThat(m.containsValue(2 * (n - 1)), is(true));
+		assertThat(m.containsValue(1), is(false));
+
+		// iteration
+		final long[] sum = new long[1];
+		m.forEach(new IntIntMap.Consumer() {
+			public void accept(int key, int value) {
+				sum[0] += value - key;
+			}
+		});
+		assertThat(sum[0], is(-(long)n));
+		IntIntMap.Cursor c = m.cursor();
+		for (int pass = 0; pass < 2; pass++) {
+			int count = 0;
+			c.reset();
+			while (c.advance()) {
+				assertThat(c.value(), is(c.key() * 2));
+				count++;
+			}
+			assertThat(count, is(2 * n));
+		}
+		c.reset();
+		while (c.advance())
+			c.setValue(c.key());
+		assertThat(m.get(-n), is(-n));
+
+		// remove
+		for (int i = -n; i < n; i++)
+			assertThat(m.remove(i), is(i));
+		assertThat(m.remove(0), is(0));
+		assertTrue(m.isEmpty());
+	}
+
+}
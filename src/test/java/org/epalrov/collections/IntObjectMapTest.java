@@ -0,0 +1,78 @@
+/*
+ * IntObjectMapTest.java - unit test for primitive int to Object Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * Unit test for IntObjectMap.
+ */
+public class IntObjectMapTest extends TestCase
+{
+	/**
+	 * Create the test case
+	 */
+	public IntObjectMapTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(IntObjectMapTest.class);
+	}
+
+	/**
+	 * Rigourous Test
+	 */
+	public void testIntObjectMap() {
+		String[] a = {
+			"paolo", "love", "valeria", ":", "i", "mimmi", "bimbi"
+		};
+		IntObjectMap<String> m = new IntObjectMap<String>(3);
+
+		// add
+		for (int i = 0; i < a.length; i++)
+			assertNull(m.put(i, a[i]));
+		assertThat(m.size(), is(a.length));
+
+		// search
+		for (int i = 0; i < a.length; i++) {
+			assertThat(m.get(i), is(a[i]));
+			assertThat(m.containsKey(i), is(true));
+			assertThat(m.containsValue(a[i]), is(true));
+		}
+		assertNull(m.get(a.length));
+		assertThat(m.getOrDefault(a.length, "none"), is("none"));
+
+		// iteration
+		final StringBuilder sb = new StringBuilder();
+		m.forEach(new IntObjectMap.Consumer<String>() {
+			public void accept(int key, String value) {
+				sb.append(value);
+			}
+		});
+		assertThat(sb.length(), is(28));
+		IntObjectMap<String>.Cursor c = m.cursor();
+		while (c.advance())
+			assertThat(c.value(), is(a[c.key()]));
+
+		// remove
+		for (int i = 0; i < a.length; i++)
+			assertThat(m.remove(i), is(a[i]));
+		assertTrue(m.isEmpty());
+	}
+
+}
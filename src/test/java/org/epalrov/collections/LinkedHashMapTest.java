@@ -0,0 +1,107 @@
+/*
+ * LinkedHashMapTest.java - unit test for Linked Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Map;
+import java.util.Iterator;
+import java.util.function.BiFunction;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * Unit test for LinkedHashMap: runs the HashMap tests against it, then
+ * checks the iteration order.
+ */
+public class LinkedHashMapTest extends HashMapTest
+{
+	/**
+	 * Create the test case
+	 */
+	public LinkedHashMapTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(LinkedHashMapTest.class);
+	}
+
+	protected <K,V> Map<K,V> newMap(int capacity, float loadFactor) {
+		return new LinkedHashMap<K,V>(capacity, loadFactor);
+	}
+
+	/**
+	 * Order Test
+	 */
+	public void testLinkedHashMapOrder() {
+		int n = 1000;
+
+		// insertion order survives resizes, treeified bins and removals
+		Map<String,Integer> h = new LinkedHashMap<String,Integer>(1);
+		for (int i = 0; i < n; i++)
+			h.put(i % 3 == 0 ? collidingString(i) : "key" + i, i);
+		h.put("key1", -1);
+		for (int i = 0; i < n; i += 2)
+			h.remove(i % 3 == 0 ? collidingString(i) : "key" + i);
+		int expected = 1;
+		for (Iterator<Integer> it = h.values().iterator(); it.hasNext(); ) {
+			int v = it.next();
+			assertThat(v, is(expected == 1 ? -1 : expected));
+			expected += 2;
+		}
+		assertThat(expected, is(n + 1));
+
+		// access order
+		Map<Integer,Integer> a =
+			new LinkedHashMap<Integer,Integer>(16, 0.75f, true);
+		for (int i = 0; i < 10; i++)
+			a.put(i, i);
+		a.get(3);
+		a.put(5, 50);
+		a.merge(7, 1, new BiFunction<Integer,Integer,Integer>() {
+			public Integer apply(Integer x, Integer y) {
+				return x + y;
+			}
+		});
+		Integer[] order = { 0, 1, 2, 4, 6, 8, 9, 3, 5, 7 };
+		int i = 0;
+		for (Iterator<Integer> it = a.keySet().iterator(); it.hasNext(); )
+			assertThat(it.next(), is(order[i++]));
+
+		// bounded LRU map, with removal through the iterator
+		Map<Integer,Integer> lru =
+			new LinkedHashMap<Integer,Integer>(16, 0.75f, true) {
+				protected boolean removeEldestEntry(
+						Map.Entry<Integer,Integer> eldest) {
+					return size() > 4;
+				}
+			};
+		for (i = 0; i < 6; i++) {
+			lru.put(i, i);
+			lru.get(2);
+		}
+		assertThat(lru.size(), is(4));
+		assertThat(lru.containsKey(0), is(false));
+		assertThat(lru.containsKey(2), is(true));
+		Iterator<Map.Entry<Integer,Integer>> it = lru.entrySet().iterator();
+		assertThat(it.next().getKey(), is(3));
+		it.remove();
+		assertThat(it.next().getKey(), is(4));
+		assertThat(lru.size(), is(3));
+		lru.clear();
+		assertThat(lru.keySet().iterator().hasNext(), is(false));
+	}
+
+}
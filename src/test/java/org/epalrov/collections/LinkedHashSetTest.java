@@ -0,0 +1,88 @@
+/*
+ * LinkedHashSetTest.java - unit test for Linked Hash Set
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * Unit test for LinkedHashSet.
+ */
+public class LinkedHashSetTest extends TestCase
+{
+	/**
+	 * Create the test case
+	 */
+	public LinkedHashSetTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(LinkedHashSetTest.class);
+	}
+
+	/**
+	 * Rigourous Test
+	 */
+	public void testLinkedHashSet() {
+		Random random = new Random(42);
+		Set<Integer> s = new LinkedHashSet<Integer>(4);
+		Set<Integer> j = new java.util.LinkedHashSet<Integer>();
+
+		// the iteration order is the insertion order, after random
+		// adds and removes that leave and compact removed positions
+		for (int i = 0; i < 100000; i++) {
+			Integer v = random.nextInt(2000);
+			if (random.nextInt(2) == 0)
+				assertThat(s.remove(v), is(j.remove(v)));
+			else
+				assertThat(s.add(v), is(j.add(v)));
+			if (i % 10000 == 0)
+				assertThat(Arrays.equals(s.toArray(), j.toArray()),
+					is(true));
+		}
+		assertThat(Arrays.equals(s.toArray(), j.toArray()), is(true));
+
+		// iterator removal keeps the order of the others
+		for (Iterator<Integer> it = s.iterator(); it.hasNext(); )
+			if (it.next() % 3 == 0)
+				it.remove();
+		for (Iterator<Integer> it = j.iterator(); it.hasNext(); )
+			if (it.next() % 3 == 0)
+				it.remove();
+		assertThat(Arrays.equals(s.toArray(), j.toArray()), is(true));
+
+		// bulk operations keep the order too
+		Set<Integer> odd = new java.util.HashSet<Integer>();
+		for (int v = 1; v < 2000; v += 2)
+			odd.add(v);
+		s.retainAll(odd);
+		j.retainAll(odd);
+		assertThat(Arrays.equals(s.toArray(), j.toArray()), is(true));
+		s.removeAll(Arrays.asList(1, 3, 5));
+		j.removeAll(Arrays.asList(1, 3, 5));
+		assertThat(Arrays.equals(s.toArray(), j.toArray()), is(true));
+		Set<Integer> copy = new LinkedHashSet<Integer>(s);
+		assertThat(Arrays.equals(copy.toArray(), j.toArray()), is(true));
+		assertThat(copy, is(j));
+	}
+
+}
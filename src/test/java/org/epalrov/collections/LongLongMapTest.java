@@ -0,0 +1,87 @@
+/*
+ * LongLongMapTest.java - unit test for primitive long to long Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * Unit test for LongLongMap.
+ */
+public class LongLongMapTest extends TestCase
+{
+	/**
+	 * Create the test case
+	 */
+	public LongLongMapTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(LongLongMapTest.class);
+	}
+
+	/**
+	 * Rigourous Test
+	 */
+	public void testLongLongMap() {
+		int n = 10000;
+		long base = 1L << 40;
+		LongLongMap m = new LongLongMap();
+
+		// add, with keys differing only in the high bits too
+		for (int i = 0; i < n; i++) {
+			assertThat(m.put(base * i, i), is(0L));
+			assertThat(m.put(-i - 1, i), is(0L));
+		}
+		assertThat(m.size(), is(2 * n));
+
+		// search
+		for (int i = 0; i < n; i++) {
+			assertThat(m.get(base * i), is((long)i));
+			assertThat(m.get(-i - 1), is((long)i));
+		}
+		assertThat(m.containsKey(0L), is(true));
+		assertThat(m.containsKey(base * n), is(false));
+		assertThat(m.getOrDefault(base * n, -1L), is(-1L));
+
+		// iteration
+		final long[] sum = new long[1];
+		m.forEach(new LongLongMap.Consumer() {
+			public void accept(long key, long value) {
+				sum[0] += value;
+			}
+		});
+		assertThat(sum[0], is((long)n * (n - 1)));
+		int count = 0;
+		LongLongMap.Cursor c = m.cursor();
+		while (c.advance())
+			if (c.key() < 0)
+				count++;
+		assertThat(count, is(n));
+
+		// remove
+		for (int i = 0; i < n; i++) {
+			assertThat(m.remove(base * i), is((long)i));
+			assertThat(m.remove(-i - 1), is((long)i));
+		}
+		assertTrue(m.isEmpty());
+		m.put(1L, 1L);
+		m.clear();
+		assertThat(m.containsKey(1L), is(false));
+	}
+
+}
@@ -0,0 +1,153 @@
+/*
+ * MappedHashMapBenchmark.java - restart test for memory-mapped Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Restarts a lookup table of 4M long to long mappings: by reopening a
+ * MappedHashMap, which only maps its file, or by rebuilding a HashMap from
+ * a flat file of the same mappings (the best case of a reload from a
+ * database). Each restart ends with 1000 random lookups, which fault in the
+ * pages of the mapped table. The lookups alone are timed on the warm maps.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" })
+public class MappedHashMapBenchmark
+{
+	static final int SIZE = 1 << 22;
+	static final int LOOKUPS = 1000;
+
+	File mappedFile;
+	File flatFile;
+	MappedHashMap<Long,Long> mapped;
+	HashMap<Long,Long> heap;
+	long[] keys;
+
+	@Setup
+	public void setup() throws IOException {
+		mappedFile = File.createTempFile("mapped", ".bin");
+		mappedFile.delete();
+		flatFile = File.createTempFile("flat", ".bin");
+		Random random = new Random(42);
+		MappedHashMap<Long,Long> m = new MappedHashMap<Long,Long>(
+			mappedFile.toPath(), Codec.LONG, Codec.LONG, (long)SIZE * 2 * 20);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+			new FileOutputStream(flatFile), 1 << 16));
+		for (int i = 0; i < SIZE; i++) {
+			long key = random.nextLong();
+			if (m.putLong(key, i)) {
+				out.writeLong(key);
+				out.writeLong(i);
+			}
+		}
+		out.close();
+		m.close();
+
+		keys = new long[LOOKUPS];
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+			new FileInputStream(flatFile), 1 << 16));
+		for (int i = 0; i < LOOKUPS; i++) {
+			keys[i] = in.readLong();
+			in.readLong();
+			in.skipBytes(16 * (SIZE / LOOKUPS - 1));
+		}
+		in.close();
+
+		mapped = new MappedHashMap<Long,Long>(mappedFile.toPath(),
+			Codec.LONG, Codec.LONG, 0);
+		heap = rebuild();
+	}
+
+	@TearDown
+	public void tearDown() {
+		mapped.close();
+		mappedFile.delete();
+		flatFile.delete();
+	}
+
+	HashMap<Long,Long> rebuild() throws IOException {
+		HashMap<Long,Long> h = new HashMap<Long,Long>();
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+			new FileInputStream(flatFile), 1 << 16));
+		long n = flatFile.length() / 16;
+		for (long i = 0; i < n; i++)
+			h.put(in.readLong(), in.readLong());
+		in.close();
+		return h;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public long reopenMapped() throws IOException {
+		MappedHashMap<Long,Long> m = new MappedHashMap<Long,Long>(
+			mappedFile.toPath(), Codec.LONG, Codec.LONG, 0);
+		long sum = 0;
+		for (int i = 0; i < LOOKUPS; i++)
+			sum += m.getLong(keys[i], 0);
+		m.close();
+		return sum;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public long rebuildHeap() throws IOException {
+		HashMap<Long,Long> h = rebuild();
+		long sum = 0;
+		for (int i = 0; i < LOOKUPS; i++)
+			sum += h.get(keys[i]);
+		return sum;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public long lookupMapped() {
+		long sum = 0;
+		for (int i = 0; i < LOOKUPS; i++)
+			sum += mapped.getLong(keys[i], 0);
+		return sum;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public long lookupHeap() {
+		long sum = 0;
+		for (int i = 0; i < LOOKUPS; i++)
+			sum += heap.get(keys[i]);
+		return sum;
+	}
+
+}
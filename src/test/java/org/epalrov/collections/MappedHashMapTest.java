@@ -0,0 +1,170 @@
+/*
+ * MappedHashMapTest.java - unit test for memory-mapped Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * Unit test for MappedHashMap.
+ */
+public class MappedHashMapTest extends TestCase
+{
+	/**
+	 * Create the test case
+	 */
+	public MappedHashMapTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(MappedHashMapTest.class);
+	}
+
+	private static Path newFile() throws IOException {
+		File file = File.createTempFile("map", ".bin");
+		file.deleteOnExit();
+		file.delete();
+		return file.toPath();
+	}
+
+	/**
+	 * Rigourous Test
+	 */
+	public void testMappedHashMap() throws IOException {
+		int n = 10000;
+		Path path = newFile();
+		Map<Long,Long> j = new java.util.HashMap<Long,Long>();
+
+		// create
+		MappedHashMap<Long,Long> h = new MappedHashMap<Long,Long>(path,
+			Codec.LONG, Codec.LONG, 1 << 20);
+		assertTrue(h.isEmpty());
+		assertThat(h.generation(), is(0L));
+		for (long i = 0; i < n; i++) {
+			assertNull(h.put(i, -i));
+			j.put(i, -i);
+		}
+		h.force();
+		assertThat(h.generation(), is(1L));
+		h.force();
+		assertThat(h.generation(), is(1L));
+		for (long i = 0; i < n; i += 2) {
+			assertThat(h.remove(i), is(-i));
+			j.remove(i);
+		}
+		h.close();
+		h.close();
+
+		// reopen, whatever the budget
+		h = new MappedHashMap<Long,Long>(path, Codec.LONG, Codec.LONG, 1 << 10);
+		assertThat(h.generation(), is(2L));
+		assertThat(h.size(), is(n / 2));
+		assertThat(h, is(j));
+		assertTrue(h.putLong(n, n));
+		assertThat(h.get((long)n), is((long)n));
+		h.close();
+		try {
+			h.get(0L);
+			fail();
+		} catch (IllegalStateException e) {
+		}
+
+		// another layout
+		try {
+			new MappedHashMap<Integer,Long>(path, Codec.INTEGER, Codec.LONG,
+				1 << 20);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	/**
+	 * Recovery Test
+	 */
+	public void testMappedHashMapRecovery() throws IOException {
+		int n = 1000;
+		Path path = newFile();
+		Map<Long,Long> j = new java.util.HashMap<Long,Long>();
+
+		// changes left unforced by a process which stopped are kept
+		MappedHashMap<Long,Long> h = new MappedHashMap<Long,Long>(path,
+			Codec.LONG, Codec.LONG, 1 << 16);
+		for (long i = 0; i < n; i++) {
+			h.put(i * 31, i);
+			j.put(i * 31, i);
+		}
+		MappedHashMap<Long,Long> g = new MappedHashMap<Long,Long>(path,
+			Codec.LONG, Codec.LONG, 1 << 16);
+		assertThat(g.size(), is(n));
+		assertThat(g, is(j));
+		assertThat(g.generation(), is(0L));
+		g.close();
+
+		// a slot half written and a slot left behind by a shift
+		FileChannel channel = FileChannel.open(path,
+			StandardOpenOption.READ, StandardOpenOption.WRITE);
+		ByteBuffer header = ByteBuffer.allocate(MappedHashMap.HEADER_SIZE);
+		channel.read(header, 0);
+		int capacity = header.getInt(20);
+		int slotSize = SlotTable.HEADER + 8 + 8;
+		ByteBuffer slot = ByteBuffer.allocate(slotSize);
+		int torn = -1, copied = -1, empty = -1;
+		for (int i = 0; i < capacity && empty < 0; i++) {
+			slot.clear();
+			channel.read(slot, MappedHashMap.HEADER_SIZE + (long)i * slotSize);
+			if (slot.getInt(0) == 0) {
+				if (copied >= 0)
+					empty = i;
+			} else if (torn < 0) {
+				torn = i;
+				j.remove(slot.getLong(4));
+				slot.putInt(0, slot.getInt(0) ^ 1);
+				slot.flip();
+				channel.write(slot, MappedHashMap.HEADER_SIZE +
+					(long)i * slotSize);
+			} else {
+				copied = i;
+			}
+		}
+		assertTrue(empty > 0);
+		slot.clear();
+		channel.read(slot, MappedHashMap.HEADER_SIZE + (long)copied * slotSize);
+		slot.flip();
+		channel.write(slot, MappedHashMap.HEADER_SIZE + (long)empty * slotSize);
+		ByteBuffer state = ByteBuffer.allocate(4);
+		state.putInt(0, 2);
+		channel.write(state, 32);
+		channel.close();
+
+		h = new MappedHashMap<Long,Long>(path, Codec.LONG, Codec.LONG, 1 << 16);
+		assertThat(h.size(), is(n - 1));
+		assertThat(h, is(j));
+		for (Long key : j.keySet())
+			assertThat(h.remove(key), is(j.get(key)));
+		assertTrue(h.isEmpty());
+		h.close();
+	}
+
+}
@@ -0,0 +1,106 @@
+/*
+ * OffHeapHashMapBenchmark.java - garbage collection test for off-heap Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Churns 4M long to long mappings, replacing one random mapping per
+ * operation, in a HashMap on the heap and in an OffHeapHashMap. Besides the
+ * time per operation, run with "-prof gc": the heap map keeps millions of
+ * live objects that every collection has to trace, while the off-heap map
+ * leaves an almost empty heap behind, and its primitive variants allocate
+ * nothing at all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g",
+	"-XX:MaxDirectMemorySize=512m" })
+public class OffHeapHashMapBenchmark
+{
+	static final int SIZE = 1 << 22;
+
+	HashMap<Long,Long> heap;
+	OffHeapHashMap<Long,Long> offHeap;
+	Random random;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		heap = new HashMap<Long,Long>();
+		offHeap = new OffHeapHashMap<Long,Long>(Codec.LONG, Codec.LONG,
+			(long)SIZE * 2 * 20);
+		for (long i = 0; i < SIZE; i++) {
+			heap.put(i, i);
+			offHeap.putLong(i, i);
+		}
+		random = new Random(42);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		offHeap.close();
+	}
+
+	// replaces a random key with one out of the current range, so that
+	// the size of the maps does not change
+	@Benchmark
+	public Long heapChurn() {
+		long key = random.nextInt(SIZE);
+		Long value = heap.remove(key);
+		if (value != null)
+			heap.put(key + SIZE, value);
+		else
+			heap.put(key, heap.remove(key + SIZE));
+		return value;
+	}
+
+	@Benchmark
+	public Long offHeapChurn() {
+		long key = random.nextInt(SIZE);
+		Long value = offHeap.remove(key);
+		if (value != null)
+			offHeap.put(key + SIZE, value);
+		else
+			offHeap.put(key, offHeap.remove(key + SIZE));
+		return value;
+	}
+
+	@Benchmark
+	public long offHeapChurnLong() {
+		long key = random.nextInt(SIZE);
+		long value = offHeap.getLong(key, -1);
+		if (value >= 0) {
+			offHeap.removeLong(key);
+			offHeap.putLong(key + SIZE, value);
+		} else {
+			value = offHeap.getLong(key + SIZE, -1);
+			offHeap.removeLong(key + SIZE);
+			offHeap.putLong(key, value);
+		}
+		return value;
+	}
+
+}
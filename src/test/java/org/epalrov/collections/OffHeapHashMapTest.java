@@ -0,0 +1,216 @@
+/*
+ * OffHeapHashMapTest.java - unit test for off-heap Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Map;
+import java.util.Iterator;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * Unit test for OffHeapHashMap: the HashMap tests adapted to fixed width
+ * keys and values, without nulls, and to a table which does not grow.
+ */
+public class OffHeapHashMapTest extends TestCase
+{
+	/**
+	 * Create the test case
+	 */
+	public OffHeapHashMapTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(OffHeapHashMapTest.class);
+	}
+
+	/**
+	 * Rigourous Test
+	 */
+	public void testOffHeapHashMap() {
+		long[] a = { 7, -1, 0, Long.MAX_VALUE, Long.MIN_VALUE, 42, 1 << 20 };
+		OffHeapHashMap<Integer,Long> h = new OffHeapHashMap<Integer,Long>(
+			Codec.INTEGER, Codec.LONG, 1 << 10);
+
+		// add
+		for (int i = 0; i < a.length; i++)
+			assertNull(h.put(i, a[i]));
+		assertThat(h.size(), is(a.length));
+		assertThat(h.put(0, a[0]), is(a[0]));
+		assertThat(h.size(), is(a.length));
+
+		// search
+		for (int i = 0; i < a.length; i++) {
+			assertThat(h.get(i), is(a[i]));
+			assertThat(h.containsKey(i), is(true));
+			assertThat(h.containsValue(a[i]), is(true));
+		}
+		assertNull(h.get(a.length));
+		assertThat(h.containsKey(-1), is(false));
+
+		// iterator
+		Iterator<Integer> it1 = h.keySet().iterator();
+		while (it1.hasNext())
+		 	assertTrue(it1.next() < a.length);
+		Iterator<Long> it2 = h.values().iterator();
+		while (it2.hasNext())
+		 	assertNotNull(it2.next());
+		for (Map.Entry<Integer,Long> e : h.entrySet())
+			e.setValue(e.getValue() + 1);
+		assertThat(h.get(0), is(a[0] + 1));
+		assertSame(h.entrySet(), h.entrySet());
+
+		// remove
+		for (int i = 0; i < a.length; i++)
+			assertThat(h.remove(i), is(a[i] + 1));
+		assertNull(h.remove(0));
+		assertTrue(h.isEmpty());
+
+		// no nulls
+		try {
+			h.put(null, 0L);
+			fail();
+		} catch (NullPointerException e) {
+		}
+		try {
+			h.put(0, null);
+			fail();
+		} catch (NullPointerException e) {
+		}
+		h.close();
+	}
+
+	/**
+	 * Full Table Test
+	 */
+	public void testOffHeapHashMapFull() {
+		OffHeapHashMap<Long,Long> h = new OffHeapHashMap<Long,Long>(
+			Codec.LONG, Codec.LONG, 20 * 4096, 0.9f);
+		Map<Long,Long> j = new java.util.HashMap<Long,Long>();
+		Random random = new Random(42);
+		int n = h.maximumSize();
+		assertThat(n, is(4096 * 9 / 10));
+
+		// fill the table, with keys clustering in the same slots
+		while (j.size() < n) {
+			long key = random.nextInt(4 * n);
+			assertThat(h.put(key, -key), is(j.put(key, -key)));
+		}
+		assertThat(h, is(j));
+		assertThat(j, is((Map<Long,Long>)h));
+		assertThat(h.hashCode(), is(j.hashCode()));
+		try {
+			h.put(-1L, 0L);
+			fail();
+		} catch (IllegalStateException e) {
+		}
+
+		// remove half of the keys through the iterator, every key being
+		// returned exactly once despite the backward shifts
+		int count = 0;
+		Iterator<Long> it = h.keySet().iterator();
+		while (it.hasNext()) {
+			Long key = it.next();
+			if ((key & 1) == 0) {
+				it.remove();
+				assertNotNull(j.remove(key));
+			}
+			count++;
+		}
+		assertThat(count, is(n));
+		assertThat(h, is(j));
+
+		// random churn against java.util.HashMap
+		for (int i = 0; i < 100000; i++) {
+			long key = random.nextInt(4 * n);
+			if (random.nextBoolean())
+				assertThat(h.remove(key), is(j.remove(key)));
+			else if (h.size() < n)
+				assertThat(h.put(key, key), is(j.put(key, key)));
+			assertThat(h.size(), is(j.size()));
+		}
+		assertThat(h, is(j));
+		h.clear();
+		assertTrue(h.isEmpty());
+		assertNull(h.get(0L));
+		h.close();
+
+		try {
+			new OffHeapHashMap<Long,Long>(Codec.LONG, Codec.LONG, 20);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	/**
+	 * Primitive Test
+	 */
+	public void testOffHeapHashMapLong() {
+		int n = 10000;
+		OffHeapHashMap<Long,Long> h = new OffHeapHashMap<Long,Long>(
+			Codec.LONG, Codec.LONG, 1 << 20);
+
+		for (long i = -n; i < n; i++)
+			assertTrue(h.putLong(i, i * i));
+		assertFalse(h.putLong(0, -1));
+		assertThat(h.size(), is(2 * n));
+		assertThat(h.getLong(0, 1), is(-1L));
+		assertThat(h.getLong(n, 1), is(1L));
+		for (long i = -n; i < n; i++)
+			if (i != 0)
+				assertThat(h.get(i), is(i * i));
+		for (long i = -n; i < n; i++)
+			assertTrue(h.removeLong(i));
+		assertFalse(h.removeLong(0));
+		assertTrue(h.isEmpty());
+		h.close();
+
+		OffHeapHashMap<Integer,Long> g = new OffHeapHashMap<Integer,Long>(
+			Codec.INTEGER, Codec.LONG, 1 << 10);
+		try {
+			g.putLong(0, 0);
+			fail();
+		} catch (UnsupportedOperationException e) {
+		}
+		g.close();
+	}
+
+	/**
+	 * Close Test
+	 */
+	public void testOffHeapHashMapClose() {
+		OffHeapHashMap<Long,Double> h = new OffHeapHashMap<Long,Double>(
+			Codec.LONG, Codec.DOUBLE, 1 << 10);
+		h.put(1L, 0.5);
+		assertThat(h.get(1L), is(0.5));
+		h.close();
+		h.close();
+		assertTrue(h.isEmpty());
+		try {
+			h.get(1L);
+			fail();
+		} catch (IllegalStateException e) {
+		}
+		try {
+			h.put(1L, 0.5);
+			fail();
+		} catch (IllegalStateException e) {
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * PrimitiveMapBenchmark.java - performance test for primitive Hash Maps
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Primitive maps against the boxed HashMap on id-keyed workloads. Run with
+ * "-prof gc" to compare the bytes allocated per operation: the boxed map
+ * allocates the key and value wrappers, plus an Entry on insertion, while
+ * the primitive maps allocate nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" })
+public class PrimitiveMapBenchmark
+{
+	@Param({ "1000", "1000000" })
+	int size;
+
+	int[] ids;
+	HashMap<Integer,Integer> boxedInt;
+	HashMap<Long,Long> boxedLong;
+	IntIntMap intInt;
+	LongLongMap longLong;
+	IntObjectMap<String> intObject;
+	int next;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		ids = new int[size];
+		boxedInt = new HashMap<Integer,Integer>();
+		boxedLong = new HashMap<Long,Long>();
+		intInt = new IntIntMap();
+		longLong = new LongLongMap();
+		intObject = new IntObjectMap<String>();
+		for (int i = 0; i < size; i++) {
+			ids[i] = random.nextInt(Integer.MAX_VALUE);
+			boxedInt.put(ids[i], i);
+			boxedLong.put((long)ids[i] << 16, (long)i);
+			intInt.put(ids[i], i);
+			longLong.put((long)ids[i] << 16, i);
+			intObject.put(ids[i], "value");
+		}
+	}
+
+	int nextId() {
+		int id = ids[next];
+		next = next + 1 == size ? 0 : next + 1;
+		return id;
+	}
+
+	@Benchmark
+	public Integer boxedIntGet() {
+		return boxedInt.get(nextId());
+	}
+
+	@Benchmark
+	public int intIntGet() {
+		return intInt.get(nextId());
+	}
+
+	@Benchmark
+	public Long boxedLongIncrement() {
+		long key = (long)nextId() << 16;
+		return boxedLong.put(key, boxedLong.get(key) + 1);
+	}
+
+	@Benchmark
+	public long longLongIncrement() {
+		long key = (long)nextId() << 16;
+		return longLong.put(key, longLong.get(key) + 1);
+	}
+
+	@Benchmark
+	public String intObjectGet() {
+		return intObject.get(nextId());
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public long boxedLongScan() {
+		long sum = 0;
+		for (Map.Entry<Long,Long> e : boxedLong.entrySet())
+			sum += e.getValue();
+		return sum;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public long longLongScan() {
+		long sum = 0;
+		LongLongMap.Cursor c = longLong.cursor();
+		while (c.advance())
+			sum += c.value();
+		return sum;
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * RobinHoodHashMapBenchmark.java - performance test for Open Addressing Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Chained HashMap against the open addressing RobinHoodHashMap. Run with
+ * "-prof gc": the gc.alloc.rate.norm of fill(), which builds a presized
+ * map from preallocated keys, divided by the size is the footprint of the
+ * map in bytes per mapping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" })
+public class RobinHoodHashMapBenchmark
+{
+	@Param({ "chained", "robinhood" })
+	String impl;
+
+	@Param({ "1000", "1000000" })
+	int size;
+
+	Integer[] keys;
+	Integer[] misses;
+	Map<Integer,Integer> map;
+	int next;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		keys = new Integer[size];
+		misses = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = random.nextInt();
+			misses[i] = random.nextInt();
+		}
+		map = newMap();
+		for (int i = 0; i < size; i++)
+			map.put(keys[i], i);
+	}
+
+	Map<Integer,Integer> newMap() {
+		if (impl.equals("robinhood"))
+			return new RobinHoodHashMap<Integer,Integer>(size * 2);
+		return new HashMap<Integer,Integer>(size * 2);
+	}
+
+	@Benchmark
+	public Integer getHit() {
+		Integer key = keys[next];
+		next = next + 1 == size ? 0 : next + 1;
+		return map.get(key);
+	}
+
+	@Benchmark
+	public Integer getMiss() {
+		Integer key = misses[next];
+		next = next + 1 == size ? 0 : next + 1;
+		return map.get(key);
+	}
+
+	@Benchmark
+	public Integer removePut() {
+		Integer key = keys[next];
+		next = next + 1 == size ? 0 : next + 1;
+		map.remove(key);
+		return map.put(key, next);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Map<Integer,Integer> fill() {
+		Map<Integer,Integer> m = newMap();
+		for (int i = 0; i < size; i++)
+			m.put(keys[i], keys[i]);
+		return m;
+	}
+
+}
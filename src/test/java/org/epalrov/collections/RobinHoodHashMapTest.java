@@ -0,0 +1,39 @@
+/*
+ * RobinHoodHashMapTest.java - unit test for Open Addressing Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Map;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for RobinHoodHashMap: runs the HashMap tests against it.
+ */
+public class RobinHoodHashMapTest extends HashMapTest
+{
+	/**
+	 * Create the test case
+	 */
+	public RobinHoodHashMapTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(RobinHoodHashMapTest.class);
+	}
+
+	protected <K,V> Map<K,V> newMap(int capacity, float loadFactor) {
+		return new RobinHoodHashMap<K,V>(capacity, loadFactor);
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * SlidingWindowMedianBenchmark.java - order statistic test for Tree Set
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Slides a window over a stream of random samples, one sample per call:
+ * the new sample is added, the oldest one removed and the median of the
+ * window found, by select() on TreeSet and by walking the iterator to the
+ * middle of TreeSet and of java.util.TreeSet. The samples carry their
+ * sequence number in their low bits, so that they are all distinct.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlidingWindowMedianBenchmark
+{
+	static final int STREAM = 1 << 20;
+
+	@Param({ "1001", "100001" })
+	int window;
+
+	Long[] samples;
+	TreeSet<Long> set;
+	java.util.TreeSet<Long> jdk;
+	int next;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		samples = new Long[STREAM];
+		for (int i = 0; i < STREAM; i++)
+			samples[i] = (long)random.nextInt(1 << 20) << 32 | i;
+		set = new TreeSet<Long>();
+		jdk = new java.util.TreeSet<Long>();
+		for (int i = 0; i < window; i++) {
+			set.add(samples[i]);
+			jdk.add(samples[i]);
+		}
+		next = window;
+	}
+
+	// the sample entering the window, the stream being replayed in a loop
+	private int slide() {
+		int i = next;
+		next = (next + 1) & (STREAM - 1);
+		return i;
+	}
+
+	// the sample leaving the window, window samples older
+	private Long leaving(int i) {
+		return samples[(i - window) & (STREAM - 1)];
+	}
+
+	@Benchmark
+	public long select() {
+		int i = slide();
+		set.remove(leaving(i));
+		set.add(samples[i]);
+		return set.select(window / 2);
+	}
+
+	@Benchmark
+	public long walk() {
+		int i = slide();
+		set.remove(leaving(i));
+		set.add(samples[i]);
+		return middle(set.iterator());
+	}
+
+	@Benchmark
+	public long walkJdk() {
+		int i = slide();
+		jdk.remove(leaving(i));
+		jdk.add(samples[i]);
+		return middle(jdk.iterator());
+	}
+
+	private long middle(Iterator<Long> it) {
+		for (int k = 0; k < window / 2; k++)
+			it.next();
+		return it.next();
+	}
+
+}
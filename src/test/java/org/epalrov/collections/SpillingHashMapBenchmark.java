@@ -0,0 +1,92 @@
+/*
+ * SpillingHashMapBenchmark.java - larger than heap test for spill-to-disk
+ * Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds, then probes partition by partition, a map of Long mappings taking
+ * an estimated 5 times the heap (1.28 GB in a 256 MB heap, 16M mappings),
+ * with a budget of half the heap, as the build side of a grace hash join.
+ * A java.util.HashMap of the same mappings would run out of memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = { "-Xms256m", "-Xmx256m" })
+public class SpillingHashMapBenchmark
+{
+	static final long HEAP = 256L << 20;
+	static final long MAPPINGS = 5 * HEAP /
+		(SpillingHashMap.MAPPING_OVERHEAD + 16);
+
+	Path directory;
+
+	@Setup
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory("spill");
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.delete(directory);
+	}
+
+	@Benchmark
+	public long buildAndProbe() {
+		SpillingHashMap<Long,Long> map = new SpillingHashMap<Long,Long>(
+			Codec.LONG, Codec.LONG, HEAP / 2, 256, directory);
+		try {
+			for (long i = 0; i < MAPPINGS; i++)
+				map.put(i, i);
+
+			// the probe side, partitioned like the build side
+			int n = map.partitionCount();
+			long[][] probes = new long[n][];
+			int[] counts = new int[n];
+			for (long i = 0; i < MAPPINGS; i += 16)
+				counts[map.partitionOf(i)]++;
+			long found = 0;
+			for (int p = 0; p < n; p++) {
+				probes[p] = new long[counts[p]];
+				counts[p] = 0;
+			}
+			for (long i = 0; i < MAPPINGS; i += 16) {
+				int p = map.partitionOf(i);
+				probes[p][counts[p]++] = i;
+			}
+			for (int p = 0; p < n; p++)
+				for (int i = 0; i < counts[p]; i++)
+					if (map.get(probes[p][i]) != null)
+						found++;
+			return found + map.spillCount() + map.loadCount();
+		} finally {
+			map.close();
+		}
+	}
+
+}
@@ -0,0 +1,146 @@
+/*
+ * SpillingHashMapTest.java - unit test for spill-to-disk Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * Unit test for SpillingHashMap.
+ */
+public class SpillingHashMapTest extends TestCase
+{
+	/**
+	 * Create the test case
+	 */
+	public SpillingHashMapTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Return the suite of tests being tested
+	 */
+	public static Test suite() {
+		return new TestSuite(SpillingHashMapTest.class);
+	}
+
+	// the heap budget of the given number of Long mappings
+	private static long budget(int mappings) {
+		return mappings * (SpillingHashMap.MAPPING_OVERHEAD + 16L);
+	}
+
+	/**
+	 * Rigourous Test: 25 times more mappings than the budget allows.
+	 */
+	public void testSpillingHashMap() throws IOException {
+		int n = 50000;
+		int maximum = 2000;
+		Path dir = Files.createTempDirectory("spill");
+		SpillingHashMap<Long,Long> h = new SpillingHashMap<Long,Long>(
+			Codec.LONG, Codec.LONG, budget(maximum), 64, dir);
+		Map<Long,Long> j = new java.util.HashMap<Long,Long>();
+		assertTrue(h.isEmpty());
+		assertThat(h.partitionCount(), is(64));
+
+		// build, putting some keys again while spilled
+		Random random = new Random(42);
+		for (int i = 0; i < n; i++) {
+			long key = i % 10 == 0 ? random.nextInt(i + 1) : i;
+			h.put(key, (long)i);
+			j.put(key, (long)i);
+			assertTrue(h.residentSize() <= maximum);
+		}
+		assertTrue(h.spillCount() > 0);
+		assertTrue(h.size() >= j.size());
+		assertThat(dir.toFile().list().length > 0, is(true));
+
+		// probe, grouped by partition
+		for (int p = 0; p < h.partitionCount(); p++)
+			for (long key = 0; key < n; key++)
+				if (h.partitionOf(key) == p)
+					assertThat(h.get(key), is(j.get(key)));
+		assertThat(h.size(), is((long)j.size()));
+		assertNull(h.get((long)n));
+		assertThat(h.containsKey((long)n), is(false));
+
+		// remove, in any order
+		for (long key = 0; key < n; key += 3) {
+			assertThat(h.remove(key), is(j.remove(key)));
+			assertTrue(h.residentSize() <= maximum + n / 64);
+		}
+		assertThat(h.size(), is((long)j.size()));
+		for (long key = 0; key < n; key++)
+			assertThat(h.get(key), is(j.get(key)));
+		assertTrue(h.loadCount() > 0);
+
+		h.clear();
+		assertTrue(h.isEmpty());
+		assertNull(h.get(1L));
+		h.put(1L, 2L);
+		assertThat(h.get(1L), is(2L));
+
+		h.close();
+		h.close();
+		assertThat(dir.toFile().list().length, is(0));
+		try {
+			h.get(1L);
+			fail("closed map used");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		Files.delete(dir);
+	}
+
+	/**
+	 * Illegal arguments Test
+	 */
+	public void testSpillingHashMapIllegal() throws IOException {
+		File file = File.createTempFile("spill", ".bin");
+		file.deleteOnExit();
+		try {
+			new SpillingHashMap<Long,Long>(Codec.LONG, Codec.LONG,
+				budget(10), file.toPath());
+			fail("file accepted as directory");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			new SpillingHashMap<Long,Long>(Codec.LONG, Codec.LONG,
+				10, file.getParentFile().toPath());
+			fail("budget below one mapping accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		SpillingHashMap<Long,Long> h = new SpillingHashMap<Long,Long>(
+			Codec.LONG, Codec.LONG, budget(10), 1,
+			file.getParentFile().toPath());
+		for (long i = 0; i < 100; i++)
+			h.put(i, i);
+		assertThat(h.get(99L), is(99L));
+		try {
+			h.put(null, 1L);
+			fail("null key accepted");
+		} catch (NullPointerException e) {
+			// expected
+		}
+		h.close();
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * TreeSetBenchmark.java - ascending insertion test for Tree Set
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Adds increasing Long elements, like timestamps or sequential ids, then
+ * looks each of them up, against java.util.TreeSet. The time per element
+ * stays about the same as the size grows only if the tree is balanced: an
+ * unbalanced tree degenerates into a list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeSetBenchmark
+{
+	@Param({ "treeset", "jdk" })
+	String impl;
+
+	@Param({ "1000", "10000", "1000000" })
+	int size;
+
+	Long[] elements;
+
+	@Setup
+	public void setup() {
+		elements = new Long[size];
+		for (int i = 0; i < size; i++)
+			elements[i] = 1400000000000L + i;
+	}
+
+	@Benchmark
+	public int ascendingAddContains() {
+		Set<Long> s = impl.equals("treeset") ? new TreeSet<Long>() :
+			new java.util.TreeSet<Long>();
+		for (int i = 0; i < size; i++)
+			s.add(elements[i]);
+		int found = 0;
+		for (int i = 0; i < size; i++)
+			if (s.contains(elements[i]))
+				found++;
+		return found;
+	}
+
+}
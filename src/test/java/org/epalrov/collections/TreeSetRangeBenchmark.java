@@ -0,0 +1,109 @@
+/*
+ * TreeSetRangeBenchmark.java - range query test for Tree Set
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Counts the timestamps of a random time window, about 100 of them, by a
+ * subSet() view of TreeSet and of java.util.TreeSet, and by a scan of the
+ * iterator from the smallest element up to the end of the window.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeSetRangeBenchmark
+{
+	static final int WINDOW = 100;
+
+	@Param({ "1000", "100000" })
+	int size;
+
+	TreeSet<Long> set;
+	java.util.TreeSet<Long> jdk;
+	Long[] from;
+	Long[] to;
+	int next;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		set = new TreeSet<Long>();
+		jdk = new java.util.TreeSet<Long>();
+		long t = 1400000000000L;
+		for (int i = 0; i < size; i++) {
+			t += 1 + random.nextInt(20);
+			set.add(t);
+			jdk.add(t);
+		}
+		long first = set.first(), span = t - first;
+		from = new Long[1024];
+		to = new Long[1024];
+		for (int i = 0; i < from.length; i++) {
+			from[i] = first + (long)(random.nextDouble() * span);
+			to[i] = from[i] + WINDOW * 10;
+		}
+	}
+
+	private int nextWindow() {
+		next = (next + 1) & 1023;
+		return next;
+	}
+
+	@Benchmark
+	public int subSet() {
+		int w = nextWindow();
+		int n = 0;
+		for (Long x : set.subSet(from[w], to[w]))
+			n++;
+		return n;
+	}
+
+	@Benchmark
+	public int subSetJdk() {
+		int w = nextWindow();
+		int n = 0;
+		for (Long x : jdk.subSet(from[w], to[w]))
+			n++;
+		return n;
+	}
+
+	@Benchmark
+	public int scan() {
+		int w = nextWindow();
+		long lo = from[w], hi = to[w];
+		int n = 0;
+		for (Iterator<Long> i = set.iterator(); i.hasNext(); ) {
+			long x = i.next();
+			if (x >= hi)
+				break;
+			if (x >= lo)
+				n++;
+		}
+		return n;
+	}
+
+}
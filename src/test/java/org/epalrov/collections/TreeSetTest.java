@@ -70,6 +70,250 @@ public class TreeSetTest extends TestCase
 		Iterator<String> it = s.iterator();
 		while (it.hasNext())
 			assertNotNull(it.next());
+
+		// hash code and equality
+		Set<String> j = new java.util.HashSet<String>(
+			java.util.Arrays.asList(a));
+		assertThat(s.hashCode(), is(j.hashCode()));
+		Set<String> t = new TreeSet<String>();
+		t.addAll(s);
+		assertThat(t.equals(s), is(true));
+		t.remove("love");
+		assertThat(t.hashCode(), is(s.hashCode() - "love".hashCode()));
+		assertThat(t.equals(s), is(false));
+		t.add("lovE");
+		assertThat(t.equals(s), is(false));
+		t.clear();
+		assertThat(t.hashCode(), is(0));
+	}
+
+	/**
+	 * Balance Test: ascending additions, then random removals, keep the
+	 * height logarithmic.
+	 */
+	public void testTreeSetBalance() {
+		int n = 100000;
+		TreeSet<Integer> s = new TreeSet<Integer>();
+		java.util.TreeSet<Integer> j = new java.util.TreeSet<Integer>();
+		for (int i = 0; i < n; i++) {
+			assertTrue(s.add(i));
+			j.add(i);
+		}
+		assertTrue(s.height() <= 2 * log2(n + 1));
+
+		java.util.Random random = new java.util.Random(42);
+		for (int i = 0; i < n; i++) {
+			Integer v = random.nextInt(2 * n);
+			if (random.nextBoolean())
+				assertThat(s.remove(v), is(j.remove(v)));
+			else
+				assertThat(s.add(v), is(j.add(v)));
+		}
+		assertThat(s.size(), is(j.size()));
+		assertTrue(s.height() <= 2 * log2(s.size() + 1));
+
+		// removal through the iterator, in order
+		Iterator<Integer> it = s.iterator();
+		Iterator<Integer> jt = j.iterator();
+		while (jt.hasNext()) {
+			Integer v = jt.next();
+			assertThat(it.next(), is(v));
+			if (v % 2 == 0) {
+				it.remove();
+				jt.remove();
+			}
+		}
+		assertThat(it.hasNext(), is(false));
+		assertThat(s.size(), is(j.size()));
+		assertThat(s.hashCode(), is(j.hashCode()));
+		it = s.iterator();
+		for (Integer v : j)
+			assertThat(it.next(), is(v));
+		assertTrue(s.height() <= 2 * log2(s.size() + 1));
+	}
+
+	/**
+	 * Navigation Test: queries and range views against java.util.TreeSet.
+	 */
+	public void testTreeSetNavigable() {
+		java.util.Random random = new java.util.Random(42);
+		TreeSet<Integer> s = new TreeSet<Integer>();
+		java.util.TreeSet<Integer> j = new java.util.TreeSet<Integer>();
+		try {
+			s.first();
+			fail("first element of an empty set");
+		} catch (java.util.NoSuchElementException e) {
+			// expected
+		}
+		assertNull(s.pollFirst());
+		for (int i = 0; i < 1000; i++) {
+			Integer v = random.nextInt(4000);
+			s.add(v);
+			j.add(v);
+		}
+		assertThat(s.first(), is(j.first()));
+		assertThat(s.last(), is(j.last()));
+		for (int v = -1; v <= 4001; v++) {
+			assertThat(s.lower(v), is(j.lower(v)));
+			assertThat(s.floor(v), is(j.floor(v)));
+			assertThat(s.ceiling(v), is(j.ceiling(v)));
+			assertThat(s.higher(v), is(j.higher(v)));
+		}
+
+		// views, nested and descending, checked both ways
+		for (int i = 0; i < 200; i++) {
+			int a = random.nextInt(4200) - 100;
+			int b = a + 4 + random.nextInt(800);
+			boolean ai = random.nextBoolean(), bi = random.nextBoolean();
+			java.util.NavigableSet<Integer> v = s.subSet(a, ai, b, bi);
+			java.util.NavigableSet<Integer> w = j.subSet(a, ai, b, bi);
+			checkView(v, w, a, b);
+			checkView(v.descendingSet(), w.descendingSet(), a, b);
+			checkView(s.headSet(b, bi), j.headSet(b, bi), a, b);
+			checkView(s.tailSet(a, ai), j.tailSet(a, ai), a, b);
+			int c = a + (b - a) / 3, d = b - (b - a) / 3;
+			checkView(v.subSet(c, true, d, false), w.subSet(c, true, d, false),
+				a, b);
+			checkView(v.descendingSet().headSet(c, true),
+				w.descendingSet().headSet(c, true), a, b);
+			checkView(v.descendingSet().tailSet(d, false),
+				w.descendingSet().tailSet(d, false), a, b);
+		}
+		checkView(s.descendingSet(), j.descendingSet(), 0, 4000);
+		try {
+			s.subSet(10, 5);
+			fail("inverted range accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			s.subSet(10, 20).add(30);
+			fail("element out of range accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			s.subSet(10, 20).headSet(30);
+			fail("bound out of range accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		// updates through the views
+		java.util.NavigableSet<Integer> v = s.subSet(1000, true, 2000, true);
+		java.util.NavigableSet<Integer> w = j.subSet(1000, true, 2000, true);
+		assertThat(v.pollFirst(), is(w.pollFirst()));
+		assertThat(v.descendingSet().pollFirst(), is(w.pollLast()));
+		assertThat(v.add(1500), is(w.add(1500)));
+		assertThat(v.remove(1500), is(w.remove(1500)));
+		assertThat(v.remove(3000), is(false));
+		for (Iterator<Integer> it = v.descendingIterator(); it.hasNext(); )
+			if (it.next() % 3 == 0)
+				it.remove();
+		w.removeIf(x -> x % 3 == 0);
+		assertThat(v, is((java.util.Set<Integer>)w));
+		s.tailSet(3000).clear();
+		j.tailSet(3000).clear();
+		assertThat(s.size(), is(j.size()));
+		assertThat(s.last(), is(j.last()));
+		assertThat(s.pollLast(), is(j.pollLast()));
+		assertThat(s.hashCode(), is(j.hashCode()));
+	}
+
+	/**
+	 * Order Statistic Test: ranks and positions against a sorted array.
+	 */
+	public void testTreeSetOrderStatistics() {
+		java.util.Random random = new java.util.Random(42);
+		TreeSet<Integer> s = new TreeSet<Integer>();
+		java.util.TreeSet<Integer> j = new java.util.TreeSet<Integer>();
+		assertThat(s.rank(7), is(0));
+		try {
+			s.select(0);
+			fail("element of an empty set selected");
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+		assertThat(s.iterator(0).hasNext(), is(false));
+		for (int i = 0; i < 20000; i++) {
+			Integer v = random.nextInt(8000);
+			if (random.nextInt(3) == 0)
+				assertThat(s.remove(v), is(j.remove(v)));
+			else
+				assertThat(s.add(v), is(j.add(v)));
+		}
+		for (Iterator<Integer> it = s.iterator(); it.hasNext(); )
+			if (it.next() % 5 == 0)
+				it.remove();
+		j.removeIf(x -> x % 5 == 0);
+		for (int i = 0; i < 50; i++) {
+			assertThat(s.pollFirst(), is(j.pollFirst()));
+			assertThat(s.pollLast(), is(j.pollLast()));
+		}
+		assertThat(s.size(), is(j.size()));
+
+		Integer[] a = j.toArray(new Integer[0]);
+		for (int i = 0; i < a.length; i++) {
+			assertThat(s.select(i), is(a[i]));
+			assertThat(s.rank(a[i]), is(i));
+			assertThat(s.rank(a[i] + 1), is(j.headSet(a[i] + 1).size()));
+		}
+		for (int i = 0; i <= a.length; i += 1 + random.nextInt(50)) {
+			Iterator<Integer> it = s.iterator(i);
+			for (int k = i; k < a.length; k++)
+				assertThat(it.next(), is(a[k]));
+			assertThat(it.hasNext(), is(false));
+		}
+		for (int i = 0; i < 1000; i++) {
+			int lo = random.nextInt(8200) - 100;
+			int hi = lo + random.nextInt(2000);
+			assertThat(s.countInRange(lo, hi), is(j.subSet(lo, hi).size()));
+			assertThat(s.subSet(lo, false, hi, true).size(),
+				is(j.subSet(lo, false, hi, true).size()));
+		}
+		assertThat(s.subSet(a[1], false, a[1], false).size(), is(0));
+		assertThat(s.subSet(a[1], true, a[1], true).size(), is(1));
+		try {
+			s.select(a.length);
+			fail("index out of bounds accepted");
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+		try {
+			s.countInRange(10, 5);
+			fail("inverted range accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private static void checkView(java.util.NavigableSet<Integer> v,
+			java.util.NavigableSet<Integer> w, int a, int b) {
+		assertThat(v.size(), is(w.size()));
+		assertThat(v.isEmpty(), is(w.isEmpty()));
+		Iterator<Integer> it = v.iterator();
+		for (Integer x : w)
+			assertThat(it.next(), is(x));
+		assertThat(it.hasNext(), is(false));
+		it = v.descendingIterator();
+		for (Iterator<Integer> jt = w.descendingIterator(); jt.hasNext(); )
+			assertThat(it.next(), is(jt.next()));
+		assertThat(it.hasNext(), is(false));
+		if (!w.isEmpty()) {
+			assertThat(v.first(), is(w.first()));
+			assertThat(v.last(), is(w.last()));
+		}
+		for (int x = a - 2; x <= b + 2; x += 1 + (b - a) / 16) {
+			assertThat(v.contains(x), is(w.contains(x)));
+			assertThat(v.lower(x), is(w.lower(x)));
+			assertThat(v.floor(x), is(w.floor(x)));
+			assertThat(v.ceiling(x), is(w.ceiling(x)));
+			assertThat(v.higher(x), is(w.higher(x)));
+		}
+	}
+
+	private static int log2(int n) {
+		return 32 - Integer.numberOfLeadingZeros(n);
 	}
 
 }
@@ -0,0 +1,94 @@
+/*
+ * WordCountBenchmark.java - aggregation test for Hash Map
+ *
+ * Copyright (C) 2014 Paolo Rovelli
+ *
+ * Author: Paolo Rovelli <paolorovelli@yahoo.it>
+ */
+
+package org.epalrov.collections;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Counts the words of a skewed text (a vocabulary of 50000 words drawn
+ * with a Zipf-like distribution) with the classic containsKey/get/put
+ * sequence, with merge() and with mergeLong().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordCountBenchmark
+{
+	static final int WORDS = 1000000;
+	static final int VOCABULARY = 50000;
+
+	static final BiFunction<Long,Long,Long> SUM =
+		new BiFunction<Long,Long,Long>() {
+			public Long apply(Long x, Long y) {
+				return x + y;
+			}
+		};
+
+	String[] text;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		String[] vocabulary = new String[VOCABULARY];
+		for (int i = 0; i < VOCABULARY; i++)
+			vocabulary[i] = "word" + Integer.toString(i, 36);
+		text = new String[WORDS];
+		for (int i = 0; i < WORDS; i++) {
+			// the cube skews the draws towards the first words
+			double x = random.nextDouble();
+			text[i] = vocabulary[(int)(x * x * x * VOCABULARY)];
+		}
+	}
+
+	@Benchmark
+	public HashMap<String,Long> getPut() {
+		HashMap<String,Long> counts = new HashMap<String,Long>();
+		for (int i = 0; i < text.length; i++) {
+			String w = text[i];
+			if (counts.containsKey(w))
+				counts.put(w, counts.get(w) + 1);
+			else
+				counts.put(w, 1L);
+		}
+		return counts;
+	}
+
+	@Benchmark
+	public HashMap<String,Long> merge() {
+		HashMap<String,Long> counts = new HashMap<String,Long>();
+		for (int i = 0; i < text.length; i++)
+			counts.merge(text[i], 1L, SUM);
+		return counts;
+	}
+
+	@Benchmark
+	public HashMap<String,Long> mergeLong() {
+		HashMap<String,Long> counts = new HashMap<String,Long>();
+		for (int i = 0; i < text.length; i++)
+			counts.mergeLong(text[i], 1);
+		return counts;
+	}
+
+}